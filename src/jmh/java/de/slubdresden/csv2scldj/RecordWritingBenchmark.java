@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.slubdresden.csv2scldj.benchmark.FincData;
+import de.slubdresden.csv2scldj.csv.CellValueSplitter;
+import de.slubdresden.csv2scldj.csv.RecordBatch;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * Writing the (already tokenized) records of the generated finc-like CSV input as line-delimited JSON (incl. cell
+ * splitting and required field check), i.e., the conversion without parsing and output.
+ *
+ * @author tgaengler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordWritingBenchmark {
+
+	private RecordBatch batch;
+
+	private ColumnPlan columnPlan;
+
+	private CellValueSplitter cellValueSplitter;
+
+	private LDJChunkWriter chunkWriter;
+
+	private RecordErrorHandler errorHandler;
+
+	private final ConversionMetrics metrics = new ConversionMetrics();
+
+	@Setup(Level.Trial)
+	public void setUp(final FincData data) throws IOException, CSV2SCLDJException {
+
+		batch = data.tokenize();
+		columnPlan = data.columnPlan();
+		cellValueSplitter = CellValueSplitter.compile(FincData.CELL_VALUE_DELIMITER);
+		chunkWriter = CSV2SCLDJConverter.newChunkWriters(columnPlan, ConversionOptions.defaults(), metrics).get();
+		errorHandler = new RecordErrorHandler(ConversionOptions.defaults(), new String[0], metrics);
+	}
+
+	@Benchmark
+	public int writeRecords() throws IOException {
+
+		return CSV2SCLDJConverter.writeBatch(batch, columnPlan, cellValueSplitter, chunkWriter, metrics, errorHandler).length;
+	}
+}
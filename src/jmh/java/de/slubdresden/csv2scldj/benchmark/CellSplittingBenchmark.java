@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.csv.CellValueSplitter;
+import de.slubdresden.csv2scldj.csv.RecordBatch;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * Splitting the (non-empty) cells of the multivalued fields of the generated finc-like CSV input into their values, by
+ * the literal cell value splitter and (as baseline) by a regular expression based String#split.
+ *
+ * @author tgaengler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellSplittingBenchmark {
+
+	private char[][] cells;
+
+	private CellValueSplitter cellValueSplitter;
+
+	private Pattern cellValuePattern;
+
+	@Setup(Level.Trial)
+	public void setUp(final FincData data) throws IOException, CSV2SCLDJException {
+
+		final RecordBatch batch = data.tokenize();
+		final ColumnPlan columnPlan = data.columnPlan();
+		final List<char[]> multivaluedCells = new ArrayList<>();
+
+		for (int record = 0; record < batch.recordCount(); record++) {
+
+			batch.select(record);
+
+			for (int column = 0; column < columnPlan.size(); column++) {
+
+				final int columnIndex = columnPlan.getColumnIndex(column);
+
+				if (columnPlan.isMultivalued(column) && batch.cellEnd(columnIndex) > batch.cellStart(columnIndex)) {
+
+					multivaluedCells.add(Arrays.copyOfRange(batch.buffer(), batch.cellStart(columnIndex), batch.cellEnd(columnIndex)));
+				}
+			}
+		}
+
+		cells = multivaluedCells.toArray(new char[0][]);
+		cellValueSplitter = CellValueSplitter.compile(FincData.CELL_VALUE_DELIMITER);
+		cellValuePattern = Pattern.compile(Pattern.quote(FincData.CELL_VALUE_DELIMITER));
+	}
+
+	@Benchmark
+	public long literalSplitter() {
+
+		final int delimiterLength = cellValueSplitter.length();
+
+		long values = 0;
+
+		for (final char[] cell : cells) {
+
+			for (int valueStart = 0; ; values++) {
+
+				final int delimiterStart = cellValueSplitter.indexOf(cell, valueStart, cell.length);
+
+				if (delimiterStart < 0) {
+
+					values++;
+
+					break;
+				}
+
+				valueStart = delimiterStart + delimiterLength;
+			}
+		}
+
+		return values;
+	}
+
+	@Benchmark
+	public long stringSplit() {
+
+		long values = 0;
+
+		for (final char[] cell : cells) {
+
+			values += cellValuePattern.split(new String(cell)).length;
+		}
+
+		return values;
+	}
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.constants.CSV2SCLDJParams;
+import de.slubdresden.csv2scldj.csv.CSVRecordReader;
+import de.slubdresden.csv2scldj.csv.CSVTokenizer;
+import de.slubdresden.csv2scldj.csv.RecordBatch;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.utils.SchemaUtils;
+import io.vavr.collection.HashMap;
+import io.vavr.collection.Map;
+
+/**
+ * Generated finc-like CSV input (i.e. a column for each field of the finc Solr schema, sparsely filled, with multiple
+ * values in multivalued fields) for the benchmarks.
+ *
+ * @author tgaengler
+ */
+@State(Scope.Benchmark)
+public class FincData {
+
+	public static final String SCHEMA_RESOURCE = "finc_solr_schema.csv";
+
+	public static final String CELL_VALUE_DELIMITER = CSV2SCLDJParams.DEFAULT_CELL_VALUE_DELIMITER_PARAM;
+
+	private static final long SEED = 42L;
+
+	/**
+	 * the share of empty cells
+	 */
+	private static final double EMPTY_CELL_RATIO = 0.6;
+
+	private static final String[] WORDS = {"Dresden", "Bibliothek", "library", "catalogue", "Sachsen", "music", "score",
+			"Handschrift", "manuscript", "Zeitschrift", "journal", "2017", "1848", "Verlag", "press", "Geschichte",
+			"history", "Kunst", "art", "Müller", "Schröder", "ÖPNV", "théâtre", "Dvořák", "文化"};
+
+	@Param("20000")
+	public int records;
+
+	public Map<String, Field> schema;
+
+	public String[] header;
+
+	public String csv;
+
+	public byte[] csvBytes;
+
+	@Setup(Level.Trial)
+	public void setUp() throws CSV2SCLDJException {
+
+		schema = readSchema();
+		header = schema.keySet().toSortedSet().toJavaArray(String.class);
+		csv = generate(schema, header, records);
+		csvBytes = csv.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the compiled column plan of the generated CSV input
+	 * @throws CSV2SCLDJException
+	 */
+	public ColumnPlan columnPlan() throws CSV2SCLDJException {
+
+		Map<String, Integer> headerMap = HashMap.empty();
+
+		for (int i = 0; i < header.length; i++) {
+
+			headerMap = headerMap.put(header[i], i);
+		}
+
+		final Map<String, Integer> finalHeaderMap = headerMap;
+
+		return ColumnPlan.compile(headerMap, schema.filterKeys(finalHeaderMap::containsKey), schema);
+	}
+
+	/**
+	 * @return the records (without header) of the generated CSV input
+	 * @throws IOException
+	 */
+	public RecordBatch tokenize() throws IOException {
+
+		final RecordBatch batch = new RecordBatch(records);
+
+		try (final CSVRecordReader reader = new CSVTokenizer(new StringReader(csv))) {
+
+			// skip the header
+			reader.nextRecord();
+
+			while (reader.nextRecord()) {
+
+				batch.add(reader);
+			}
+		}
+
+		return batch;
+	}
+
+	private static Map<String, Field> readSchema() throws CSV2SCLDJException {
+
+		try {
+
+			return SchemaUtils.readSchema(Paths.get(FincData.class.getClassLoader().getResource(SCHEMA_RESOURCE).toURI()).toString());
+		} catch (final URISyntaxException e) {
+
+			throw new CSV2SCLDJException(String.format("could not find the schema resource '%s'", SCHEMA_RESOURCE), e);
+		}
+	}
+
+	private static String generate(final Map<String, Field> schema,
+	                               final String[] header,
+	                               final int records) {
+
+		final Random random = new Random(SEED);
+		final StringBuilder sb = new StringBuilder(records * header.length * 12);
+
+		appendRecord(sb, header);
+
+		final String[] cells = new String[header.length];
+
+		for (int record = 0; record < records; record++) {
+
+			for (int column = 0; column < header.length; column++) {
+
+				final Field field = schema.get(header[column]).get();
+
+				if (field.isRequired()) {
+
+					cells[column] = "sid-" + record;
+				} else if (random.nextDouble() < EMPTY_CELL_RATIO) {
+
+					cells[column] = "";
+				} else if (field.isMultivalued()) {
+
+					final int values = 1 + random.nextInt(4);
+					final StringBuilder cell = new StringBuilder();
+
+					for (int value = 0; value < values; value++) {
+
+						if (value > 0) {
+
+							cell.append(CELL_VALUE_DELIMITER);
+						}
+
+						cell.append(value(random));
+					}
+
+					cells[column] = cell.toString();
+				} else {
+
+					cells[column] = value(random);
+				}
+			}
+
+			appendRecord(sb, cells);
+		}
+
+		return sb.toString();
+	}
+
+	private static String value(final Random random) {
+
+		final int words = 1 + random.nextInt(6);
+		final StringBuilder value = new StringBuilder();
+
+		for (int word = 0; word < words; word++) {
+
+			if (word > 0) {
+
+				value.append(random.nextInt(8) == 0 ? ", " : " ");
+			}
+
+			value.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+
+		if (random.nextInt(20) == 0) {
+
+			value.append(" \"quoted\"");
+		}
+
+		return value.toString();
+	}
+
+	private static void appendRecord(final StringBuilder sb,
+	                                 final String[] cells) {
+
+		for (int i = 0; i < cells.length; i++) {
+
+			if (i > 0) {
+
+				sb.append(CSVTokenizer.DELIMITER);
+			}
+
+			final String cell = cells[i];
+
+			if (cell.indexOf(CSVTokenizer.DELIMITER) >= 0 || cell.indexOf(CSVTokenizer.QUOTE_CHAR) >= 0) {
+
+				sb.append(CSVTokenizer.QUOTE_CHAR)
+						.append(cell.replace("\"", "\"\""))
+						.append(CSVTokenizer.QUOTE_CHAR);
+			} else {
+
+				sb.append(cell);
+			}
+		}
+
+		sb.append('\n');
+	}
+}
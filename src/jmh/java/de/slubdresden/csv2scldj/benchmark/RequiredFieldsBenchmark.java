@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.csv.RecordBatch;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * The required field check of all records of the generated finc-like CSV input, i.e., marking the written (non-empty)
+ * fields of a record and checking the required ones.
+ *
+ * @author tgaengler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequiredFieldsBenchmark {
+
+	private ColumnPlan columnPlan;
+
+	/**
+	 * the plan columns with a value per record
+	 */
+	private int[][] writtenColumns;
+
+	private long[] writtenRequiredFields;
+
+	@Setup(Level.Trial)
+	public void setUp(final FincData data) throws IOException, CSV2SCLDJException {
+
+		final RecordBatch batch = data.tokenize();
+
+		columnPlan = data.columnPlan();
+		writtenColumns = new int[batch.recordCount()][];
+		writtenRequiredFields = columnPlan.newRequiredFieldSet();
+
+		for (int record = 0; record < batch.recordCount(); record++) {
+
+			batch.select(record);
+
+			final int[] columns = new int[columnPlan.size()];
+			int columnCount = 0;
+
+			for (int column = 0; column < columnPlan.size(); column++) {
+
+				final int columnIndex = columnPlan.getColumnIndex(column);
+
+				if (batch.cellEnd(columnIndex) > batch.cellStart(columnIndex)) {
+
+					columns[columnCount++] = column;
+				}
+			}
+
+			writtenColumns[record] = Arrays.copyOf(columns, columnCount);
+		}
+	}
+
+	@Benchmark
+	public int checkRequiredFields() {
+
+		int validRecords = 0;
+
+		for (final int[] columns : writtenColumns) {
+
+			Arrays.fill(writtenRequiredFields, 0L);
+
+			for (final int column : columns) {
+
+				columnPlan.markRequiredField(writtenRequiredFields, column);
+			}
+
+			if (columnPlan.containsAllRequiredFields(writtenRequiredFields)) {
+
+				validRecords++;
+			}
+		}
+
+		return validRecords;
+	}
+}
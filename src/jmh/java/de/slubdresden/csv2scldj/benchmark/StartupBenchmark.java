@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to first record, i.e., the time from launching a new JVM that converts the sample CSV input to stdout until the
+ * first LDJ record arrives. The onejar and its class-data-sharing archive (see the maven profile 'fast-start') can be
+ * handed over via -p onejar=... -p sharedArchiveFile=...; by default, the benchmark class path is utilised.
+ *
+ * @author tgaengler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+	private static final String MAIN_CLASS = "de.slubdresden.csv2scldj.CSV2SCLDJExecuter";
+	private static final String TEST_RESOURCES_ROOT_PATH = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+			+ File.separator + "resources";
+	private static final String SAMPLE_CELL_VALUE_DELIMITER = "\\/\\(\\)";
+
+	@Param({""})
+	public String onejar;
+
+	@Param({""})
+	public String sharedArchiveFile;
+
+	@Benchmark
+	public String timeToFirstRecord() throws IOException, InterruptedException {
+
+		final List<String> command = new ArrayList<>();
+
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+
+		if (!sharedArchiveFile.isEmpty()) {
+
+			command.add("-XX:SharedArchiveFile=" + sharedArchiveFile);
+			command.add("-Xshare:auto");
+		}
+
+		if (onejar.isEmpty()) {
+
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(MAIN_CLASS);
+		} else {
+
+			command.add("-jar");
+			command.add(onejar);
+		}
+
+		command.add("-csv-input-file-name=" + TEST_RESOURCES_ROOT_PATH + File.separator + "input_sample.csv");
+		command.add("-schema-file-name=" + TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv");
+		command.add("-cell-value-delimiter=" + SAMPLE_CELL_VALUE_DELIMITER);
+
+		final Process process = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.start();
+
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+
+			String line;
+
+			// skip the log messages
+			while ((line = reader.readLine()) != null) {
+
+				if (line.startsWith("{")) {
+
+					return line;
+				}
+			}
+
+			throw new IllegalStateException("the conversion did not write any record");
+		} finally {
+
+			process.destroy();
+			process.waitFor();
+		}
+	}
+}
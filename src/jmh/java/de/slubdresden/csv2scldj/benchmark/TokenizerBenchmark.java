@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.csv.CSVParserType;
+import de.slubdresden.csv2scldj.csv.CSVRecordReader;
+
+/**
+ * Tokenizing of the generated finc-like CSV input (without any conversion).
+ *
+ * @author tgaengler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+	@Param({"builtin", "commons-csv"})
+	public String csvParser;
+
+	@Benchmark
+	public long tokenize(final FincData data) throws IOException, CSV2SCLDJException {
+
+		long cells = 0;
+
+		try (final CSVRecordReader reader = CSVParserType.fromName(csvParser).open(new StringReader(data.csv))) {
+
+			while (reader.nextRecord()) {
+
+				cells += reader.size();
+			}
+		}
+
+		return cells;
+	}
+}
@@ -81,4 +81,62 @@ public abstract class AbstractExecuter {
 
 		return Tuple.of(split[0], split[1]);
 	}
+
+	protected static Optional<Long> parseLongParameter(final Map<String, String> argMap,
+	                                                   final String parameter) throws CSV2SCLDJException {
+
+		final String value = argMap.get(parameter);
+
+		if (value == null || value.trim().isEmpty()) {
+
+			return Optional.empty();
+		}
+
+		try {
+
+			return Optional.of(Long.parseLong(value.trim()));
+		} catch (final NumberFormatException e) {
+
+			throw new CSV2SCLDJException(String.format("value '%s' of parameter '%s' is not a valid number", value, parameter), e);
+		}
+	}
+
+	protected static Optional<Boolean> parseBooleanParameter(final Map<String, String> argMap,
+	                                                         final String parameter) throws CSV2SCLDJException {
+
+		final String value = argMap.get(parameter);
+
+		if (value == null || value.trim().isEmpty()) {
+
+			return Optional.empty();
+		}
+
+		final String trimmedValue = value.trim();
+
+		if (!(Boolean.TRUE.toString().equals(trimmedValue) || Boolean.FALSE.toString().equals(trimmedValue))) {
+
+			throw new CSV2SCLDJException(String.format("please use either 'true' or 'false' as value of parameter '%s'", parameter));
+		}
+
+		return Optional.of(Boolean.valueOf(trimmedValue));
+	}
+
+	protected static Optional<Integer> parseIntParameter(final Map<String, String> argMap,
+	                                                     final String parameter) throws CSV2SCLDJException {
+
+		final String value = argMap.get(parameter);
+
+		if (value == null || value.trim().isEmpty()) {
+
+			return Optional.empty();
+		}
+
+		try {
+
+			return Optional.of(Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+
+			throw new CSV2SCLDJException(String.format("value '%s' of parameter '%s' is not a valid number", value, parameter), e);
+		}
+	}
 }
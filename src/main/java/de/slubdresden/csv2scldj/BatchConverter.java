@@ -0,0 +1,364 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.vavr.collection.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.io.CountingInputStream;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.Field;
+
+/**
+ * Converts several CSV input files in one JVM, i.e., the schema is read once and the files are converted concurrently
+ * on a bounded pool of file workers (each file conversion can utilise worker threads itself, see
+ * {@link ConversionOptions#getThreads()}). Every file is converted on its own, i.e., with its own header validation and
+ * its own metrics; a failing file does not abort the conversion of the other files.
+ *
+ * @author tgaengler
+ */
+public final class BatchConverter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchConverter.class);
+
+	public static final String DEFAULT_INPUT_GLOB = "*.{csv,csv.gz,csv.zst}";
+
+	/**
+	 * opens the LDJ output for a CSV input file
+	 */
+	@FunctionalInterface
+	public interface OutputOpener {
+
+		OutputStream open(final Path csvInputFile) throws IOException, CSV2SCLDJException;
+	}
+
+	/**
+	 * the result of the conversion of a single CSV input file
+	 */
+	public static final class FileResult {
+
+		private final Path csvInputFile;
+		private final ConversionMetrics metrics;
+		private final long nanos;
+		private final Exception error;
+
+		private FileResult(final Path csvInputFileArg,
+		                   final ConversionMetrics metricsArg,
+		                   final long nanosArg,
+		                   final Exception errorArg) {
+
+			csvInputFile = csvInputFileArg;
+			metrics = metricsArg;
+			nanos = nanosArg;
+			error = errorArg;
+		}
+
+		public Path getCSVInputFile() {
+
+			return csvInputFile;
+		}
+
+		public ConversionMetrics getMetrics() {
+
+			return metrics;
+		}
+
+		public long getMillis() {
+
+			return TimeUnit.NANOSECONDS.toMillis(nanos);
+		}
+
+		/**
+		 * @return the error, if the conversion of the file failed, or null
+		 */
+		public Exception getError() {
+
+			return error;
+		}
+
+		public boolean isSuccessful() {
+
+			return error == null;
+		}
+	}
+
+	private BatchConverter() {
+
+	}
+
+	/**
+	 * @param directory the directory
+	 * @param glob      the glob pattern for the file names (e.g. {@link #DEFAULT_INPUT_GLOB})
+	 * @return the (regular) files of the given directory that match the glob pattern, sorted by name
+	 * @throws IOException
+	 */
+	public static List<Path> listInputFiles(final Path directory,
+	                                        final String glob) throws IOException {
+
+		final List<Path> files = new ArrayList<>();
+
+		try (final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, glob)) {
+
+			for (final Path file : directoryStream) {
+
+				if (Files.isRegularFile(file)) {
+
+					files.add(file);
+				}
+			}
+		}
+
+		Collections.sort(files);
+
+		return files;
+	}
+
+	/**
+	 * @param csvInputFile a CSV input file
+	 * @return the name of the file without its compression and CSV extension, e.g., 'export' for 'export.csv.gz'
+	 */
+	public static String baseName(final Path csvInputFile) {
+
+		String name = csvInputFile.getFileName().toString();
+
+		final Compression compression = Compression.fromFileName(name);
+
+		if (compression != Compression.NONE) {
+
+			name = name.substring(0, name.length() - compression.getFileExtension().length());
+		}
+
+		final int extensionStart = name.lastIndexOf('.');
+
+		return extensionStart > 0 ? name.substring(0, extensionStart) : name;
+	}
+
+	/**
+	 * checks that the base names of the given CSV input files are distinct (e.g. 'export.csv' and 'export.csv.gz' are
+	 * not), since files with the same base name would be converted concurrently into the same LDJ output file
+	 *
+	 * @param csvInputFiles the CSV input files
+	 * @throws CSV2SCLDJException if two files have the same base name
+	 */
+	public static void checkBaseNames(final List<Path> csvInputFiles) throws CSV2SCLDJException {
+
+		final java.util.Map<String, Path> files = new HashMap<>();
+
+		for (final Path csvInputFile : csvInputFiles) {
+
+			final Path otherCSVInputFile = files.putIfAbsent(baseName(csvInputFile), csvInputFile);
+
+			if (otherCSVInputFile != null) {
+
+				throw new CSV2SCLDJException(String.format("the CSV input files '%s' and '%s' would be converted into the same LDJ output file '%s', please remove one of them or narrow the glob pattern", otherCSVInputFile, csvInputFile, baseName(csvInputFile)));
+			}
+		}
+	}
+
+	/**
+	 * converts the given CSV input files concurrently
+	 *
+	 * @param csvInputFiles      the CSV input files (plain, gzip or zstd compressed)
+	 * @param schema             the schema
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @param options            the conversion options of each file
+	 * @param parallelism        the number of files that are converted concurrently
+	 * @param outputOpener       opens the LDJ output of a file (it is closed by the conversion)
+	 * @return the results of the files (in the order of the given files)
+	 * @throws CSV2SCLDJException
+	 */
+	public static List<FileResult> convert(final List<Path> csvInputFiles,
+	                                       final Map<String, Field> schema,
+	                                       final String cellValueDelimiter,
+	                                       final ConversionOptions options,
+	                                       final int parallelism,
+	                                       final OutputOpener outputOpener) throws CSV2SCLDJException {
+
+		LOG.info("convert '{}' CSV input files with '{}' file workers", csvInputFiles.size(), parallelism);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new WorkerThreadFactory("csv2scldj-file-worker"));
+		final List<Future<FileResult>> futures = new ArrayList<>(csvInputFiles.size());
+
+		try {
+
+			for (final Path csvInputFile : csvInputFiles) {
+
+				futures.add(executor.submit(() -> convertFile(csvInputFile, schema, cellValueDelimiter, options, outputOpener)));
+			}
+
+			final List<FileResult> results = new ArrayList<>(futures.size());
+
+			for (final Future<FileResult> future : futures) {
+
+				results.add(future.get());
+			}
+
+			return results;
+		} catch (final InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+			throw new CSV2SCLDJException("got interrupted while waiting for the conversion of the CSV input files", e);
+		} catch (final ExecutionException e) {
+
+			throw new CSV2SCLDJException("something went wrong in a file worker", e.getCause());
+		} finally {
+
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * concatenates the given LDJ outputs (in the given order) into one output file and removes them afterwards;
+	 * compressed outputs can be concatenated as well, since gzip members and zstd frames can be concatenated
+	 *
+	 * @param ldjOutputFiles the LDJ outputs
+	 * @param ldjOutputFile  the merged LDJ output
+	 * @throws IOException
+	 */
+	public static void merge(final List<Path> ldjOutputFiles,
+	                         final Path ldjOutputFile) throws IOException {
+
+		try (final FileChannel mergedChannel = FileChannel.open(ldjOutputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			for (final Path ldjOutputPart : ldjOutputFiles) {
+
+				try (final FileChannel partChannel = FileChannel.open(ldjOutputPart, StandardOpenOption.READ)) {
+
+					final long size = partChannel.size();
+
+					long transferred = 0;
+
+					while (transferred < size) {
+
+						transferred += partChannel.transferTo(transferred, size - transferred, mergedChannel);
+					}
+				}
+
+				Files.delete(ldjOutputPart);
+			}
+		}
+	}
+
+	/**
+	 * logs the per-file counts and timings and the totals
+	 *
+	 * @param results the results of the files
+	 */
+	public static void logSummary(final List<FileResult> results) {
+
+		final StringBuilder sb = new StringBuilder();
+
+		long recordsIn = 0;
+		long recordsOut = 0;
+		long recordsRejected = 0;
+		long failed = 0;
+
+		sb.append("batch conversion summary:").append("\n");
+
+		for (final FileResult result : results) {
+
+			final ConversionMetrics metrics = result.getMetrics();
+
+			sb.append("\t\t")
+					.append(result.getCSVInputFile().getFileName())
+					.append(String.format(" : read '%d', wrote '%d', rejected '%d' records in %d ms", metrics.getRecordsIn(), metrics.getRecordsOut(), metrics.getRecordsRejected(), result.getMillis()));
+
+			if (!result.isSuccessful()) {
+
+				sb.append(" - FAILED: ").append(result.getError().getMessage());
+
+				failed++;
+			}
+
+			sb.append("\n");
+
+			recordsIn += metrics.getRecordsIn();
+			recordsOut += metrics.getRecordsOut();
+			recordsRejected += metrics.getRecordsRejected();
+		}
+
+		sb.append(String.format("\t\ttotal : '%d' files ('%d' failed), read '%d', wrote '%d', rejected '%d' records", results.size(), failed, recordsIn, recordsOut, recordsRejected));
+
+		LOG.info(sb.toString());
+	}
+
+	private static FileResult convertFile(final Path csvInputFile,
+	                                      final Map<String, Field> schema,
+	                                      final String cellValueDelimiter,
+	                                      final ConversionOptions options,
+	                                      final OutputOpener outputOpener) {
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final ConversionOptions fileOptions = options.toBuilder()
+				.metrics(metrics)
+				.build();
+		final long start = System.nanoTime();
+
+		try {
+
+			LOG.info("convert CSV input file '{}'", csvInputFile);
+
+			final Compression compression = Compression.detect(csvInputFile);
+
+			metrics.setInputSize(Files.size(csvInputFile));
+
+			if (fileOptions.isSplitInput() && compression == Compression.NONE) {
+
+				CSV2SCLDJConverter.convert(csvInputFile, schema, outputOpener.open(csvInputFile), cellValueDelimiter, fileOptions);
+			} else {
+
+				final InputStream inputStream = compression.decompress(new CountingInputStream(Files.newInputStream(csvInputFile), metrics));
+
+				try (final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+
+					CSV2SCLDJConverter.convert(reader, schema, outputOpener.open(csvInputFile), cellValueDelimiter, fileOptions);
+				}
+			}
+
+			return new FileResult(csvInputFile, metrics, System.nanoTime() - start, null);
+		} catch (final IOException | CSV2SCLDJException | RuntimeException e) {
+
+			LOG.error("something went wrong at converting CSV input file '{}'", csvInputFile, e);
+
+			return new FileResult(csvInputFile, metrics, System.nanoTime() - start, e);
+		}
+	}
+}
@@ -15,29 +15,53 @@
  */
 package de.slubdresden.csv2scldj;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.SerializedString;
 import io.vavr.collection.Map;
 import io.vavr.collection.Set;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.slubdresden.csv2scldj.bulk.BulkAction;
+import de.slubdresden.csv2scldj.checkpoint.Checkpoint;
+import de.slubdresden.csv2scldj.checkpoint.Checkpointer;
+import de.slubdresden.csv2scldj.columnar.ColumnValueSink;
+import de.slubdresden.csv2scldj.columnar.ParquetFileWriter;
+import de.slubdresden.csv2scldj.concurrent.OrderedTaskQueue;
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+import de.slubdresden.csv2scldj.csv.CSVCells;
+import de.slubdresden.csv2scldj.csv.CSVRecordReader;
+import de.slubdresden.csv2scldj.csv.CellValueSplitter;
+import de.slubdresden.csv2scldj.csv.InputSplit;
+import de.slubdresden.csv2scldj.csv.MappedInputSplitter;
+import de.slubdresden.csv2scldj.csv.RecordBatch;
+import de.slubdresden.csv2scldj.delta.DeltaKey;
+import de.slubdresden.csv2scldj.delta.DeltaState;
+import de.slubdresden.csv2scldj.io.MeteredOutputStream;
+import de.slubdresden.csv2scldj.io.WriterOutputStream;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.metrics.LatencySnapshot;
+import de.slubdresden.csv2scldj.metrics.Stage;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
 import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldTree;
+import de.slubdresden.csv2scldj.model.FieldType;
 
 /**
  * @author tgaengler
@@ -46,219 +70,1258 @@ public final class CSV2SCLDJConverter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(CSV2SCLDJConverter.class);
 
-	private static final ObjectMapper MAPPER;
+	/**
+	 * only the streaming API is utilised for writing the output, i.e., no ObjectMapper (and hence no databind class) is
+	 * initialised at startup
+	 */
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private static final SerializedString LINE_SEPARATOR = new SerializedString(System.lineSeparator());
+
+	/**
+	 * the output is flushed in blocks of this size
+	 */
+	private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * the number of batches per worker thread that can be converted ahead of the (in order) writing
+	 */
+	private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
+
+	public static void convert(final Reader reader,
+	                           final Map<String, Field> schema,
+	                           final BufferedWriter writer,
+	                           final String cellValueDelimiter) throws IOException, CSV2SCLDJException {
+
+		convert(reader, schema, writer, cellValueDelimiter, ConversionOptions.defaults());
+	}
+
+	public static void convert(final Reader reader,
+	                           final Map<String, Field> schema,
+	                           final BufferedWriter writer,
+	                           final String cellValueDelimiter,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		convert(reader, schema, new WriterOutputStream(writer), cellValueDelimiter, options);
+	}
+
+	/**
+	 * Converts the CSV input into schema conform line-delimited JSON that is written (UTF-8 encoded) to the given output
+	 * stream. The output stream will be closed at the end.
+	 *
+	 * @param reader             the reader for the CSV input
+	 * @param schema             the schema
+	 * @param outputStream       the output stream for the schema conform line-delimited JSON output
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @param options            the conversion options
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static void convert(final Reader reader,
+	                           final Map<String, Field> schema,
+	                           final OutputStream outputStream,
+	                           final String cellValueDelimiter,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final ConversionMetrics metrics = options.getMetrics().orElseGet(ConversionMetrics::new);
+
+		final CSVRecordReader csvInputReader = options.getCSVParserType().open(reader);
+
+		final Map<String, Integer> csvInputHeaderMap = initializeHeader(csvInputReader.nextRecord() ? csvInputReader : null);
+
+		checkHeader(csvInputHeaderMap, schema);
+
+		final Map<String, Field> fieldMap = generateFieldMap(csvInputHeaderMap.keySet(), schema);
+		final ColumnPlan columnPlan = ColumnPlan.compile(csvInputHeaderMap, fieldMap, schema);
+		final CellValueSplitter cellValueSplitter = CellValueSplitter.compile(cellValueDelimiter);
+
+		if (options.getOutputFormat().isColumnar() && columnPlan.getFieldTree() != null) {
+
+			throw new CSV2SCLDJException(String.format("the output format '%s' supports only flat schemata, i.e., no path-style field names", options.getOutputFormat().getName()));
+		}
+
+		metrics.registerFields(columnPlan.getFieldNames());
+
+		if (options.getDeltaState().isPresent()) {
+
+			options.getDeltaState().get().bind(csvInputHeaderMap, fieldMap, columnPlan, cellValueDelimiter);
+		}
+
+		if (options.getBulkActions().isPresent()) {
+
+			options.getBulkActions().get().check(columnPlan);
+		}
+
+		final OutputStream output = new BufferedOutputStream(new MeteredOutputStream(outputStream, metrics), OUTPUT_BUFFER_SIZE);
+
+		try (final RecordErrorHandler errorHandler = new RecordErrorHandler(options, headerNames(csvInputHeaderMap), metrics)) {
+
+			if (options.getOutputFormat().isColumnar()) {
+
+				convertToColumns(csvInputReader, columnPlan, cellValueSplitter, output, options, metrics, errorHandler);
+			} else if (options.getThreads() > 1) {
+
+				LOG.info("convert records with '{}' worker threads (batch size = '{}')", options.getThreads(), options.getBatchSize());
+
+				convertInParallel(csvInputReader, columnPlan, cellValueSplitter, output, options, metrics, errorHandler);
+
+				output.close();
+			} else if (errorHandler.isTolerant() || options.getOutputFormat().isFramed()) {
+
+				convertInChunks(csvInputReader, columnPlan, cellValueSplitter, output, options, metrics, errorHandler);
+
+				output.close();
+			} else {
+
+				// one generator for the whole output
+				final JsonGenerator jg = createGenerator(FACTORY, output);
+				final RecordContext recordContext = new RecordContext(columnPlan, options, metrics);
+
+				final StageSampler sampler = new StageSampler(metrics);
+
+				sampler.parsing();
+
+				while (csvInputReader.nextRecord()) {
+
+					sampler.parsed();
+					recordContext.recordRead();
+
+					writeRecord(csvInputReader, columnPlan, cellValueSplitter, jg, recordContext);
+
+					sampler.converted();
+					sampler.parsing();
+				}
+
+				recordContext.flushMetrics();
+
+				jg.close();
+			}
+		}
+
+		csvInputReader.close();
+
+		completeDelta(options, metrics);
+
+		logSummary(metrics, fieldMap);
+	}
+
+	/**
+	 * Converts a CSV input file by memory-mapping it and cutting it into splits (at record ends) that are parsed and
+	 * converted by worker threads. The converted splits are written in input order, i.e., the output is the same as the
+	 * output of the (single-threaded) conversion of the CSV input via a reader.
+	 *
+	 * @param csvInputFile       the (UTF-8 encoded) CSV input file
+	 * @param schema             the schema
+	 * @param writer             the writer for the schema conform line-delimited JSON output
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @param options            the conversion options (incl. split size and number of threads)
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static void convert(final Path csvInputFile,
+	                           final Map<String, Field> schema,
+	                           final BufferedWriter writer,
+	                           final String cellValueDelimiter,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		convert(csvInputFile, schema, new WriterOutputStream(writer), cellValueDelimiter, options);
+	}
+
+	/**
+	 * Converts a CSV input file by memory-mapping it and cutting it into splits (see
+	 * {@link #convert(Path, Map, BufferedWriter, String, ConversionOptions)}). The schema conform line-delimited JSON is
+	 * written (UTF-8 encoded) to the given output stream, which will be closed at the end.
+	 *
+	 * @param csvInputFile       the (UTF-8 encoded) CSV input file
+	 * @param schema             the schema
+	 * @param outputStream       the output stream for the schema conform line-delimited JSON output
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @param options            the conversion options (incl. split size and number of threads)
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static void convert(final Path csvInputFile,
+	                           final Map<String, Field> schema,
+	                           final OutputStream outputStream,
+	                           final String cellValueDelimiter,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		if (options.getOutputFormat().isColumnar()) {
+
+			throw new CSV2SCLDJException(String.format("the output format '%s' cannot be written from input splits, please convert the CSV input via a reader", options.getOutputFormat().getName()));
+		}
+
+		final ConversionMetrics metrics = options.getMetrics().orElseGet(ConversionMetrics::new);
+		final Optional<Checkpointer> optionalCheckpointer = options.getCheckpointer();
+		final Optional<Checkpoint> optionalResumeCheckpoint = optionalCheckpointer.flatMap(Checkpointer::getResumeCheckpoint);
+
+		final int threads = options.getThreads();
+		final long splitSize = options.getSplitSize();
+
+		LOG.info("convert memory-mapped input splits (split size = '{}' bytes) with '{}' worker threads", splitSize, threads);
+
+		final Map<String, Field> fieldMap;
+
+		final OutputStream output = new BufferedOutputStream(new MeteredOutputStream(outputStream, metrics), OUTPUT_BUFFER_SIZE);
+
+		try (final MappedInputSplitter splitter = new MappedInputSplitter(csvInputFile)) {
+
+			metrics.setInputSize(splitter.size());
+
+			final InputSplit headerSplit = splitter.nextSplit(0);
+
+			final Map<String, Integer> csvInputHeaderMap;
+
+			if (headerSplit == null) {
+
+				csvInputHeaderMap = null;
+			} else {
+
+				try (final CSVRecordReader headerReader = options.getCSVParserType().open(splitter.openReader(headerSplit))) {
+
+					csvInputHeaderMap = initializeHeader(headerReader.nextRecord() ? headerReader : null);
+				}
+
+				metrics.addBytesIn(headerSplit.getLength());
+			}
+
+			checkHeader(csvInputHeaderMap, schema);
+
+			fieldMap = generateFieldMap(csvInputHeaderMap.keySet(), schema);
+			final ColumnPlan columnPlan = ColumnPlan.compile(csvInputHeaderMap, fieldMap, schema);
+			final CellValueSplitter cellValueSplitter = CellValueSplitter.compile(cellValueDelimiter);
+
+			metrics.registerFields(columnPlan.getFieldNames());
+
+			if (options.getDeltaState().isPresent()) {
+
+				options.getDeltaState().get().bind(csvInputHeaderMap, fieldMap, columnPlan, cellValueDelimiter);
+			}
+
+			if (options.getBulkActions().isPresent()) {
+
+				options.getBulkActions().get().check(columnPlan);
+			}
+
+			if (optionalResumeCheckpoint.isPresent()) {
+
+				final Checkpoint resumeCheckpoint = optionalResumeCheckpoint.get();
+
+				LOG.info("skip the first '{}' records ('{}' bytes) of the CSV input, which have been converted already", resumeCheckpoint.getRecords(), resumeCheckpoint.getInputOffset());
+
+				splitter.seek(resumeCheckpoint.getInputOffset());
+				metrics.addBytesIn(resumeCheckpoint.getInputOffset() - headerSplit.getLength());
+			}
+
+			try (final RecordErrorHandler errorHandler = new RecordErrorHandler(options, headerNames(csvInputHeaderMap), metrics)) {
+
+				final SplitWriter splitWriter = new SplitWriter(output, errorHandler, optionalCheckpointer.orElse(null), optionalResumeCheckpoint.orElse(null));
+				final ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory("csv2scldj-split-worker"));
+				final OrderedTaskQueue<ConvertedSplit> splitQueue = new OrderedTaskQueue<>(executor, threads * BATCHES_IN_FLIGHT_PER_THREAD, splitWriter);
+				final ThreadLocal<LDJChunkWriter> chunkWriters = newChunkWriters(columnPlan, options, metrics);
+
+				try {
+
+					InputSplit split;
+
+					while ((split = splitter.nextSplit(splitSize)) != null) {
+
+						final InputSplit currentSplit = split;
+
+						splitQueue.submit(() -> writeSplit(splitter, currentSplit, columnPlan, cellValueSplitter, options, chunkWriters.get(), metrics, errorHandler));
+					}
+
+					splitQueue.drain();
+				} finally {
+
+					splitQueue.cancel();
+					executor.shutdownNow();
+				}
+			}
+		}
+
+		output.close();
+
+		if (optionalCheckpointer.isPresent()) {
+
+			optionalCheckpointer.get().complete();
+		}
+
+		completeDelta(options, metrics);
+
+		logSummary(metrics, fieldMap);
+	}
+
+	/**
+	 * writes the deleted IDs and the delta state of this run (only after a successful conversion, i.e., a failed
+	 * conversion keeps the delta state of the previous run)
+	 */
+	private static void completeDelta(final ConversionOptions options,
+	                                  final ConversionMetrics metrics) throws IOException {
+
+		if (!options.getDeltaState().isPresent()) {
+
+			return;
+		}
+
+		final DeltaState deltaState = options.getDeltaState().get();
+
+		final long deleted = deltaState.complete();
+
+		LOG.info("delta: wrote '{}' new or changed records, skipped '{}' unchanged records, '{}' records have been deleted", metrics.getRecordsOut(), metrics.getRecordsUnchanged(), deleted);
+	}
+
+	private static void logSummary(final ConversionMetrics metrics,
+	                               final Map<String, Field> fieldMap) {
+
+		LOG.info("read '{}' records", metrics.getRecordsIn());
+		LOG.info("wrote '{}' records", metrics.getRecordsOut());
+
+		if (metrics.getRecordsRejected() > 0) {
+
+			LOG.warn("rejected '{}' records", metrics.getRecordsRejected());
+		}
+
+		metrics.getFieldTypeErrorCounts().forEach((field, typeErrors) -> {
+
+			if (typeErrors > 0) {
+
+				LOG.warn("field '{}' contained '{}' values that are not valid values of its type", field, typeErrors);
+			}
+		});
+
+		final java.util.Map<String, Long> valueCacheMisses = metrics.getFieldValueCacheMisses();
+
+		metrics.getFieldValueCacheHits().forEach((field, hits) -> {
+
+			final long lookups = hits + valueCacheMisses.getOrDefault(field, 0L);
+
+			if (lookups > 0) {
+
+				LOG.info("value cache of field '{}': '{}' hits of '{}' lookups ('{}' %)", field, hits, lookups, hits * 100 / lookups);
+			}
+		});
+
+		for (final Stage stage : Stage.values()) {
+
+			final LatencySnapshot stageLatency = metrics.getStageLatency(stage);
+
+			if (stageLatency.getCount() > 0) {
+
+				LOG.info("{} latency: {}", stage.name().toLowerCase(), stageLatency);
+			}
+		}
+
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("tried to write following fields (i.e. there is no guarantee that they occur in all target records):").append("\n");
+
+		for (final String field : fieldMap.keySet()) {
+
+			sb.append("\t\t")
+					.append(field)
+					.append("\n");
+		}
+
+		LOG.info(sb.toString());
+	}
+
+	/**
+	 * Reads batches of records on the calling thread, converts them on worker threads and writes the converted batches
+	 * in input order, i.e., the output is the same as the output of the single-threaded conversion.
+	 */
+	private static void convertInParallel(final CSVRecordReader csvInputReader,
+	                                      final ColumnPlan columnPlan,
+	                                      final CellValueSplitter cellValueSplitter,
+	                                      final OutputStream output,
+	                                      final ConversionOptions options,
+	                                      final ConversionMetrics metrics,
+	                                      final RecordErrorHandler errorHandler) throws IOException, CSV2SCLDJException {
+
+		final int threads = options.getThreads();
+		final int batchSize = options.getBatchSize();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory("csv2scldj-worker"));
+		final OrderedTaskQueue<byte[]> batchQueue = new OrderedTaskQueue<>(executor, threads * BATCHES_IN_FLIGHT_PER_THREAD, output::write);
+		final ThreadLocal<LDJChunkWriter> chunkWriters = newChunkWriters(columnPlan, options, metrics);
+
+		try {
+
+			final StageSampler sampler = new StageSampler(metrics);
+
+			sampler.parsing();
+
+			boolean hasNext = csvInputReader.nextRecord();
+
+			while (hasNext) {
+
+				final RecordBatch batch = new RecordBatch(batchSize);
+
+				do {
+
+					sampler.parsed();
+
+					batch.add(csvInputReader);
+
+					sampler.parsing();
+
+					hasNext = csvInputReader.nextRecord();
+				} while (hasNext && batch.recordCount() < batchSize);
+
+				metrics.addRecordsIn(batch.recordCount());
+
+				batchQueue.submit(() -> writeBatch(batch, columnPlan, cellValueSplitter, chunkWriters.get(), metrics, errorHandler));
+			}
+
+			batchQueue.drain();
+		} finally {
+
+			batchQueue.cancel();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Converts the records on the calling thread into chunks of line-delimited JSON, i.e., the (partially) generated JSON
+	 * of records that cannot be converted can be discarded (see {@link LDJChunkWriter#discardRecord(long)}).
+	 */
+	private static void convertInChunks(final CSVRecordReader csvInputReader,
+	                                    final ColumnPlan columnPlan,
+	                                    final CellValueSplitter cellValueSplitter,
+	                                    final OutputStream output,
+	                                    final ConversionOptions options,
+	                                    final ConversionMetrics metrics,
+	                                    final RecordErrorHandler errorHandler) throws IOException {
+
+		final LDJChunkWriter chunkWriter = new LDJChunkWriter(factory(options), columnPlan, options, metrics);
+		final int batchSize = options.getBatchSize();
+
+		final StageSampler sampler = new StageSampler(metrics);
+
+		int chunkRecords = 0;
+
+		sampler.parsing();
+
+		while (csvInputReader.nextRecord()) {
+
+			sampler.parsed();
+			chunkWriter.getRecordContext().recordRead();
+
+			convertRecord(csvInputReader, null, columnPlan, cellValueSplitter, chunkWriter, errorHandler, null);
+
+			sampler.converted();
+
+			if (++chunkRecords == batchSize) {
+
+				output.write(chunkWriter.finishChunk());
+
+				chunkRecords = 0;
+			}
+
+			sampler.parsing();
+		}
+
+		output.write(chunkWriter.finishChunk());
+	}
+
+	/**
+	 * Converts the records on the calling thread into a columnar output, i.e., the values of the records are added to a
+	 * {@link ParquetFileWriter} (as {@link ColumnValueSink}) that buffers them column by column (the values of records
+	 * that cannot be converted are discarded). The output stream will be closed at the end.
+	 */
+	private static void convertToColumns(final CSVRecordReader csvInputReader,
+	                                     final ColumnPlan columnPlan,
+	                                     final CellValueSplitter cellValueSplitter,
+	                                     final OutputStream output,
+	                                     final ConversionOptions options,
+	                                     final ConversionMetrics metrics,
+	                                     final RecordErrorHandler errorHandler) throws IOException {
+
+		final ParquetFileWriter writer = new ParquetFileWriter(output, columnPlan, options.getParquetOptions());
+		final RecordContext recordContext = new RecordContext(columnPlan, options, metrics);
+
+		final StageSampler sampler = new StageSampler(metrics);
+
+		sampler.parsing();
+
+		while (csvInputReader.nextRecord()) {
+
+			sampler.parsed();
+			recordContext.recordRead();
+
+			try {
+
+				writeRecord(csvInputReader, columnPlan, cellValueSplitter, writer, recordContext);
+			} catch (final CSV2LDJError e) {
+
+				if (!errorHandler.isTolerant()) {
+
+					throw e;
+				}
+
+				writer.discardRecord();
+				recordContext.recordDiscarded();
+				errorHandler.reject(csvInputReader, null, e);
+			}
+
+			sampler.converted();
+			sampler.parsing();
+		}
+
+		recordContext.flushMetrics();
+
+		writer.close();
+	}
+
+	private static ConvertedSplit writeSplit(final MappedInputSplitter splitter,
+	                                 final InputSplit split,
+	                                 final ColumnPlan columnPlan,
+	                                 final CellValueSplitter cellValueSplitter,
+	                                 final ConversionOptions options,
+	                                 final LDJChunkWriter chunkWriter,
+	                                 final ConversionMetrics metrics,
+	                                 final RecordErrorHandler errorHandler) throws IOException {
+
+		long records = 0;
+		long rejected = 0;
+
+		// the dead-letter rows of the split are written together with the split, i.e., in input order
+		final StringBuilder deadLetters = new StringBuilder();
+
+		try (final CSVRecordReader csvInputReader = options.getCSVParserType().open(splitter.openReader(split))) {
+
+			final StageSampler sampler = new StageSampler(metrics);
+
+			sampler.parsing();
+
+			while (csvInputReader.nextRecord()) {
+
+				sampler.parsed();
+
+				records++;
+
+				if (!convertRecord(csvInputReader, split, columnPlan, cellValueSplitter, chunkWriter, errorHandler, deadLetters)) {
+
+					rejected++;
+				}
+
+				sampler.converted();
+				sampler.parsing();
+			}
+		} catch (final CSV2LDJError e) {
+
+			// record numbers are relative to the split, i.e., name the split as well
+			throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("something went wrong at converting %s of the CSV input (record numbers are relative to this split)", split), e.getCause()));
+		} catch (final IOException e) {
+
+			throw new IOException(String.format("something went wrong at reading %s of the CSV input", split), e);
+		}
+
+		metrics.addRecordsIn(records);
+		metrics.addBytesIn(split.getLength());
+		metrics.addSplit();
+
+		return new ConvertedSplit(split, records, rejected, chunkWriter.finishChunk(), deadLetters);
+	}
+
+	/**
+	 * converts the records of the given batch into a chunk of line-delimited JSON (package-private for benchmarking the
+	 * JSON writing in isolation)
+	 *
+	 * @param batch             the records
+	 * @param columnPlan        the column plan
+	 * @param cellValueSplitter the cell value splitter
+	 * @param chunkWriter       the (thread-confined) chunk writer
+	 * @param metrics           the conversion metrics
+	 * @param errorHandler      the handler for records that cannot be converted
+	 * @return the line-delimited JSON of the records
+	 * @throws IOException
+	 */
+	static byte[] writeBatch(final RecordBatch batch,
+	                         final ColumnPlan columnPlan,
+	                         final CellValueSplitter cellValueSplitter,
+	                         final LDJChunkWriter chunkWriter,
+	                         final ConversionMetrics metrics,
+	                         final RecordErrorHandler errorHandler) throws IOException {
+
+		for (int i = 0; i < batch.recordCount(); i++) {
+
+			batch.select(i);
+
+			if (StageSampler.isSampled(i)) {
+
+				final long start = System.nanoTime();
+
+				convertRecord(batch, null, columnPlan, cellValueSplitter, chunkWriter, errorHandler, null);
+
+				metrics.recordLatency(Stage.CONVERT, System.nanoTime() - start);
+			} else {
+
+				convertRecord(batch, null, columnPlan, cellValueSplitter, chunkWriter, errorHandler, null);
+			}
+		}
+
+		return chunkWriter.finishChunk();
+	}
+
+	/**
+	 * creates a (long-lived) JSON generator that writes UTF-8 encoded line-delimited JSON to the given output stream
+	 *
+	 * @param factory      the JSON factory
+	 * @param outputStream the output stream
+	 * @return the JSON generator
+	 * @throws IOException
+	 */
+	static JsonGenerator createGenerator(final JsonFactory factory,
+	                                     final OutputStream outputStream) throws IOException {
+
+		final JsonGenerator jg = factory.createGenerator(outputStream, JsonEncoding.UTF8);
+
+		// records are separated by line separators (see writeRecord)
+		jg.setRootValueSeparator(null);
+
+		return jg;
+	}
+
+	static ThreadLocal<LDJChunkWriter> newChunkWriters(final ColumnPlan columnPlan,
+	                                                   final ConversionOptions options,
+	                                                   final ConversionMetrics metrics) {
+
+		final JsonFactory factory = factory(options);
+
+		return ThreadLocal.withInitial(() -> {
+
+			try {
+
+				return new LDJChunkWriter(factory, columnPlan, options, metrics);
+			} catch (final IOException e) {
+
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
 
-	private static final JsonFactory FACTORY;
+	/**
+	 * @return the factory for the output format of the given options (line-delimited JSON is written by the shared
+	 * factory)
+	 */
+	private static JsonFactory factory(final ConversionOptions options) {
+
+		return options.getOutputFormat().isFramed() ? options.getOutputFormat().newFactory() : FACTORY;
+	}
+
+	/**
+	 * converts a record via the given chunk writer; if the record cannot be converted, its (partially) generated JSON is
+	 * discarded and the record is handed over to the error handler
+	 *
+	 * @param deadLetters the collected dead-letter rows (of an input split) or null, if rejected records should be
+	 *                    written to the dead-letter CSV right away
+	 * @return false, if the record has been rejected
+	 */
+	private static boolean convertRecord(final CSVCells csvInputRecord,
+	                                     final InputSplit split,
+	                                     final ColumnPlan columnPlan,
+	                                     final CellValueSplitter cellValueSplitter,
+	                                     final LDJChunkWriter chunkWriter,
+	                                     final RecordErrorHandler errorHandler,
+	                                     final StringBuilder deadLetters) throws IOException {
 
-	private static final char DELIMITER = ',';
-	private static final char QUOTE_CHAR = '"';
-	private static final char ESCAPE_CHARACTER = '\\';
-	private static final CSVFormat CSV_FORMAT = CSVFormat.newFormat(DELIMITER)
-			.withQuote(QUOTE_CHAR)
-			.withEscape(ESCAPE_CHARACTER)
-			.withIgnoreSurroundingSpaces();
+		final long recordStart = chunkWriter.recordStart();
 
-	static {
+		try {
 
-		final ObjectMapper objectMapper = new ObjectMapper();
-		MAPPER = objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+			writeRecord(csvInputRecord, columnPlan, cellValueSplitter, chunkWriter.getGenerator(), chunkWriter.getRecordContext());
+		} catch (final CSV2LDJError e) {
 
-		// enable this, if it will be required again
-		//.setSerializationInclusion(Include.NON_EMPTY);
+			if (!errorHandler.isTolerant()) {
 
-		FACTORY = MAPPER.getFactory();
+				throw e;
+			}
+
+			chunkWriter.discardRecord(recordStart);
+			errorHandler.reject(csvInputRecord, split, e, deadLetters);
+
+			return false;
+		}
+
+		return true;
 	}
 
+	private static void writeRecord(final CSVCells csvInputRecord,
+	                                final ColumnPlan columnPlan,
+	                                final CellValueSplitter cellValueSplitter,
+	                                final JsonGenerator jg,
+	                                final RecordContext recordContext) throws IOException {
 
-	public static void convert(final Reader reader,
-	                           final Map<String, Field> schema,
-	                           final BufferedWriter writer,
-	                           final String cellValueDelimiter) throws IOException, CSV2SCLDJException {
+		if (skipRecord(csvInputRecord, columnPlan, recordContext)) {
 
-		final AtomicInteger inputRecordCounter = new AtomicInteger(0);
-		final AtomicInteger outputRecordCounter = new AtomicInteger(0);
+			return;
+		}
 
-		final CSVParser csvInputParser = CSVParser.parse(reader, CSV_FORMAT);
+		final DeltaKey deltaKey = recordContext.getDeltaKey();
+		final BulkAction bulkAction = recordContext.getBulkAction();
 
-		final Iterator<CSVRecord> iterator = csvInputParser.iterator();
+		// bulk format: the action line precedes the record
+		if (bulkAction != null) {
 
-		final CSVRecord header = iterator.next();
+			bulkAction.write(csvInputRecord, jg);
+			jg.writeRaw(LINE_SEPARATOR);
+		}
 
-		final Map<String, Integer> csvInputHeaderMap = initializeHeader(header);
+		jg.writeStartObject();
 
-		checkHeader(csvInputHeaderMap, schema);
+		final long[] writtenRequiredFields = recordContext.getWrittenRequiredFields();
 
-		final Map<String, Field> fieldMap = generateFieldMap(csvInputHeaderMap.keySet(), schema);
-		final Optional<Set<String>> requiredFields = getRequiredFields(schema);
+		Arrays.fill(writtenRequiredFields, 0L);
+		boolean writtenAnyField = false;
 
-		while (iterator.hasNext()) {
+		final FieldTree fieldTree = columnPlan.getFieldTree();
 
-			inputRecordCounter.incrementAndGet();
+		if (fieldTree == null) {
 
-			final CSVRecord csvInputRecord = iterator.next();
+			for (int column = 0; column < columnPlan.size(); column++) {
 
-			writeRecord(csvInputRecord, csvInputHeaderMap, fieldMap, requiredFields, cellValueDelimiter, writer, outputRecordCounter);
+				writtenAnyField |= writeField(csvInputRecord, column, columnPlan.getKey(column), columnPlan, cellValueSplitter, jg, recordContext);
+			}
+		} else {
 
-			writer.newLine();
+			writtenAnyField = writeNodes(fieldTree.getRoots(), csvInputRecord, columnPlan, cellValueSplitter, jg, recordContext);
 		}
 
-		reader.close();
-		writer.flush();
-		writer.close();
+		checkRequiredFields(csvInputRecord, columnPlan, writtenAnyField, recordContext);
 
-		LOG.info("read '{}' records", inputRecordCounter.get());
-		LOG.info("wrote '{}' records", outputRecordCounter.get());
+		jg.writeEndObject();
 
-		final StringBuilder sb = new StringBuilder();
+		if (!recordContext.isBinary()) {
 
-		sb.append("tried to write following fields (i.e. there is no guarantee that they occur in all target records):").append("\n");
+			jg.writeRaw(LINE_SEPARATOR);
+		}
 
-		for (final String field : fieldMap.keySet()) {
+		if (deltaKey != null) {
 
-			sb.append("\t\t")
-					.append(field)
-					.append("\n");
+			deltaKey.commit();
 		}
 
-		LOG.info(sb.toString());
+		recordContext.recordWritten();
 	}
 
-	private static void writeRecord(final CSVRecord csvInputRecord,
-	                                final Map<String, Integer> csvInputHeaderMap,
-	                                final Map<String, Field> fieldMap,
-	                                final Optional<Set<String>> optionalRequiredFields,
-	                                final String cellValueDelimiter,
-	                                final Writer writer,
-	                                final AtomicInteger outputRecordCounter) throws IOException {
+	/**
+	 * adds the values of a record (of a flat schema) column by column to the given column value sink
+	 */
+	private static void writeRecord(final CSVCells csvInputRecord,
+	                                final ColumnPlan columnPlan,
+	                                final CellValueSplitter cellValueSplitter,
+	                                final ColumnValueSink sink,
+	                                final RecordContext recordContext) throws IOException {
 
-		final JsonGenerator jg = FACTORY.createGenerator(writer);
+		if (skipRecord(csvInputRecord, columnPlan, recordContext)) {
 
-		jg.writeStartObject();
+			return;
+		}
 
-		final java.util.Set<String> writtenFields = new HashSet<>();
+		sink.startRecord();
 
-		csvInputHeaderMap.forEach((headerName, columnNumber) -> {
+		final long[] writtenRequiredFields = recordContext.getWrittenRequiredFields();
 
-			final boolean isMultivalued = fieldMap.get(headerName).get().isMultivalued();
+		Arrays.fill(writtenRequiredFields, 0L);
+		boolean writtenAnyField = false;
 
-			final String inputValue = csvInputRecord.get(columnNumber);
+		for (int column = 0; column < columnPlan.size(); column++) {
 
-			try {
+			writtenAnyField |= writeField(csvInputRecord, column, columnPlan, cellValueSplitter, sink, recordContext);
+		}
 
-				final boolean writeResult;
+		checkRequiredFields(csvInputRecord, columnPlan, writtenAnyField, recordContext);
 
-				if (isMultivalued) {
+		try {
 
-					writeResult = writeValues(headerName, inputValue, cellValueDelimiter, jg);
-				} else {
+			sink.endRecord();
+		} catch (final CSV2SCLDJException e) {
+
+			throw recordError(csvInputRecord, e);
+		}
+
+		final DeltaKey deltaKey = recordContext.getDeltaKey();
+
+		if (deltaKey != null) {
+
+			deltaKey.commit();
+		}
+
+		recordContext.recordWritten();
+	}
+
+	/**
+	 * checks the size of the given record and skips it, if it is unchanged (incremental conversion)
+	 *
+	 * @return true, if the record must not be written
+	 */
+	private static boolean skipRecord(final CSVCells csvInputRecord,
+	                                  final ColumnPlan columnPlan,
+	                                  final RecordContext recordContext) {
+
+		if (csvInputRecord.size() < columnPlan.getRecordSize()) {
+
+			throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("%s has only '%d' cells, but the header has '%d' columns", csvInputRecord.describe(), csvInputRecord.size(), columnPlan.getRecordSize())));
+		}
+
+		final DeltaKey deltaKey = recordContext.getDeltaKey();
+
+		// incremental conversion: unchanged records are not written (but they belong to the delta state of this run)
+		if (deltaKey != null && deltaKey.compute(csvInputRecord, columnPlan)) {
+
+			deltaKey.commit();
+			recordContext.recordUnchanged();
+
+			return true;
+		}
+
+		return false;
+	}
 
-					writeResult = writeValue(headerName, inputValue, cellValueDelimiter, jg);
+	/**
+	 * checks, whether all required fields are set (records without any value are only checked on demand)
+	 */
+	private static void checkRequiredFields(final CSVCells csvInputRecord,
+	                                        final ColumnPlan columnPlan,
+	                                        final boolean writtenAnyField,
+	                                        final RecordContext recordContext) {
+
+		final long[] writtenRequiredFields = recordContext.getWrittenRequiredFields();
+
+		if (columnPlan.hasRequiredFields()
+				&& (writtenAnyField || recordContext.isCheckRequiredFieldsOnEmptyRecords())
+				&& !columnPlan.containsAllRequiredFields(writtenRequiredFields)) {
+
+			throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("the fields '%s' are marked as required in the schema definition, but are not contained in the record '%s', please fill em up properly before converting it.", columnPlan.getMissingRequiredFields(writtenRequiredFields).mkString(), csvInputRecord.describe())));
+		}
+	}
+
+	/**
+	 * writes the cell of the given plan column (if it is not blank)
+	 *
+	 * @return true, if the field has been written
+	 */
+	private static boolean writeField(final CSVCells csvInputRecord,
+	                                  final int column,
+	                                  final SerializedString key,
+	                                  final ColumnPlan columnPlan,
+	                                  final CellValueSplitter cellValueSplitter,
+	                                  final JsonGenerator jg,
+	                                  final RecordContext recordContext) {
+
+		final char[] buffer = csvInputRecord.buffer();
+		final int columnIndex = columnPlan.getColumnIndex(column);
+		final int cellStart = csvInputRecord.cellStart(columnIndex);
+		final int cellEnd = csvInputRecord.cellEnd(columnIndex);
+
+		if (valueNotExists(buffer, cellStart, cellEnd)) {
+
+			// write only valid values
+
+			recordContext.fieldBlank(column);
+
+			return false;
+		}
+
+		try {
+
+			final TypedValueWriter typedValueWriter = typedValueWriter(column, columnPlan, recordContext);
+
+			if (columnPlan.isMultivalued(column)) {
+
+				writeValues(key, column, buffer, cellStart, cellEnd, cellValueSplitter, typedValueWriter, jg);
+			} else {
+
+				writeValue(key, column, buffer, cellStart, cellEnd, cellValueSplitter, typedValueWriter, jg);
+			}
+		} catch (final IOException | CSV2SCLDJException e) {
+
+			throw recordError(csvInputRecord, e);
+		}
+
+		columnPlan.markRequiredField(recordContext.getWrittenRequiredFields(), column);
+		recordContext.fieldWritten(column);
+
+		return true;
+	}
+
+	/**
+	 * adds the values of the cell of the given plan column (if it is not blank) to the given column value sink
+	 *
+	 * @return true, if the field has been written
+	 */
+	private static boolean writeField(final CSVCells csvInputRecord,
+	                                  final int column,
+	                                  final ColumnPlan columnPlan,
+	                                  final CellValueSplitter cellValueSplitter,
+	                                  final ColumnValueSink sink,
+	                                  final RecordContext recordContext) {
+
+		final char[] buffer = csvInputRecord.buffer();
+		final int columnIndex = columnPlan.getColumnIndex(column);
+		final int cellStart = csvInputRecord.cellStart(columnIndex);
+		final int cellEnd = csvInputRecord.cellEnd(columnIndex);
+
+		if (valueNotExists(buffer, cellStart, cellEnd)) {
+
+			recordContext.fieldBlank(column);
+
+			return false;
+		}
+
+		final TypedValueWriter typedValueWriter = recordContext.getTypedValueWriter();
+
+		try {
+
+			if (columnPlan.isMultivalued(column)) {
+
+				final int delimiterLength = cellValueSplitter.length();
+
+				int valueStart = cellStart;
+
+				while (true) {
+
+					final int delimiterStart = cellValueSplitter.indexOf(buffer, valueStart, cellEnd);
+					final int valueEnd = delimiterStart < 0 ? cellEnd : delimiterStart;
+
+					if (!valueNotExists(buffer, valueStart, valueEnd)) {
+
+						typedValueWriter.write(column, buffer, valueStart, valueEnd, sink);
+					}
+
+					if (delimiterStart < 0) {
+
+						break;
+					}
+
+					valueStart = delimiterStart + delimiterLength;
 				}
+			} else {
 
-				if(writeResult) {
+				if (cellValueSplitter.containsMultipleValues(buffer, cellStart, cellEnd)) {
 
-					writtenFields.add(headerName);
+					throw new CSV2SCLDJException(String.format("field '%s' contains multiple values, but is not multivalued", columnPlan.getFieldName(column)));
 				}
-			} catch (final IOException | CSV2SCLDJException e) {
 
-				throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("something went wrong at writing record '%s' in CSV to schema conform line-delimited JSON converting", csvInputRecord.toString()), e));
+				typedValueWriter.write(column, buffer, cellStart, cellEnd, sink);
 			}
-		});
+		} catch (final CSV2SCLDJException e) {
 
-		// check, whether all required fields are set
-		optionalRequiredFields
-				.filter(requiredFields -> !writtenFields.isEmpty())
-				.flatMap(requiredFields1 -> checkRequiredFields(requiredFields1, writtenFields))
-				.ifPresent(notWrittenRequiredFields -> {
+			throw recordError(csvInputRecord, e);
+		}
 
-					throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("the fields '%s' are marked as required in the schema definition, but are not contained in the record '%s', please fill em up properly before converting it.", notWrittenRequiredFields.mkString(), csvInputRecord.toString())));
-				});
+		columnPlan.markRequiredField(recordContext.getWrittenRequiredFields(), column);
+		recordContext.fieldWritten(column);
 
-		jg.writeEndObject();
-		jg.flush();
+		return true;
+	}
+
+	/**
+	 * writes the given fields and groups of nested fields (see {@link FieldTree}); groups without any value are not
+	 * written
+	 *
+	 * @return true, if any field has been written
+	 */
+	private static boolean writeNodes(final FieldTree.Node[] nodes,
+	                                  final CSVCells csvInputRecord,
+	                                  final ColumnPlan columnPlan,
+	                                  final CellValueSplitter cellValueSplitter,
+	                                  final JsonGenerator jg,
+	                                  final RecordContext recordContext) throws IOException {
+
+		boolean writtenAnyField = false;
+
+		for (final FieldTree.Node node : nodes) {
 
-		outputRecordCounter.incrementAndGet();
+			if (node.isLeaf()) {
+
+				writtenAnyField |= writeField(csvInputRecord, node.getColumn(), node.getKey(), columnPlan, cellValueSplitter, jg, recordContext);
+			} else if (!containsAnyValue(csvInputRecord, columnPlan, node.getLeafColumns())) {
+
+				for (final int column : node.getLeafColumns()) {
+
+					recordContext.fieldBlank(column);
+				}
+			} else if (node.isArray()) {
+
+				try {
+
+					writeObjects(node, csvInputRecord, columnPlan, cellValueSplitter, jg, recordContext);
+				} catch (final IOException | CSV2SCLDJException e) {
+
+					throw recordError(csvInputRecord, e);
+				}
+
+				writtenAnyField = true;
+			} else {
+
+				jg.writeFieldName(node.getKey());
+				jg.writeStartObject();
+
+				writtenAnyField |= writeNodes(node.getChildren(), csvInputRecord, columnPlan, cellValueSplitter, jg, recordContext);
+
+				jg.writeEndObject();
+			}
+		}
+
+		return writtenAnyField;
 	}
 
 	/**
-	 * returns true, if values has been written
+	 * writes a group as JSON array of objects, i.e., the cells of its fields are split into their values and the n-th
+	 * (non-blank) values of the fields form the n-th object (objects without any value are not written)
 	 *
-	 * @param headerName         the field name
-	 * @param inputCell          the input value
-	 * @param cellValueDelimiter the cell value delimiter
-	 * @param jg                 the JSON generator
-	 * @return true, if values has been written
+	 * @param node              the group (with at least one non-blank field)
+	 * @param csvInputRecord    the record
+	 * @param columnPlan        the column plan
+	 * @param cellValueSplitter the cell value splitter
+	 * @param jg                the JSON generator
+	 * @param recordContext     the record context
 	 * @throws IOException
+	 * @throws CSV2SCLDJException if a value cannot be converted to the type of its field
 	 */
-	private static boolean writeValues(final String headerName,
-	                                   final String inputCell,
-	                                   final String cellValueDelimiter,
-	                                   final JsonGenerator jg) throws IOException {
+	private static void writeObjects(final FieldTree.Node node,
+	                                 final CSVCells csvInputRecord,
+	                                 final ColumnPlan columnPlan,
+	                                 final CellValueSplitter cellValueSplitter,
+	                                 final JsonGenerator jg,
+	                                 final RecordContext recordContext) throws IOException, CSV2SCLDJException {
 
-		if (valueNotExists(inputCell)) {
+		final FieldTree.Node[] fields = node.getChildren();
+		final char[] buffer = csvInputRecord.buffer();
+		final int delimiterLength = cellValueSplitter.length();
 
-			// write only valid values
+		// the start of the next value per field (or -1, if all values of the field have been written)
+		final int[] valueStarts = recordContext.getValueStarts();
 
-			return false;
+		for (final FieldTree.Node field : fields) {
+
+			final int column = field.getColumn();
+			final int columnIndex = columnPlan.getColumnIndex(column);
+			final int cellStart = csvInputRecord.cellStart(columnIndex);
+
+			if (valueNotExists(buffer, cellStart, csvInputRecord.cellEnd(columnIndex))) {
+
+				recordContext.fieldBlank(column);
+
+				valueStarts[column] = -1;
+			} else {
+
+				columnPlan.markRequiredField(recordContext.getWrittenRequiredFields(), column);
+				recordContext.fieldWritten(column);
+
+				valueStarts[column] = cellStart;
+			}
 		}
 
-		final String[] inputValues = inputCell.split(cellValueDelimiter);
+		jg.writeFieldName(node.getKey());
+		jg.writeStartArray();
+
+		boolean remainingValues = true;
+
+		while (remainingValues) {
+
+			remainingValues = false;
+			boolean objectStarted = false;
+
+			for (final FieldTree.Node field : fields) {
+
+				final int column = field.getColumn();
+				final int valueStart = valueStarts[column];
+
+				if (valueStart < 0) {
+
+					continue;
+				}
+
+				final int cellEnd = csvInputRecord.cellEnd(columnPlan.getColumnIndex(column));
+				final int delimiterStart = cellValueSplitter.indexOf(buffer, valueStart, cellEnd);
+				final int valueEnd = delimiterStart < 0 ? cellEnd : delimiterStart;
 
-		jg.writeArrayFieldStart(headerName);
+				if (delimiterStart < 0) {
 
-		for (final String inputValue : inputValues) {
+					valueStarts[column] = -1;
+				} else {
 
-			if (valueNotExists(inputValue)) {
+					valueStarts[column] = delimiterStart + delimiterLength;
+					remainingValues = true;
+				}
 
 				// write only valid values
+				if (valueNotExists(buffer, valueStart, valueEnd)) {
+
+					continue;
+				}
+
+				if (!objectStarted) {
+
+					jg.writeStartObject();
 
-				continue;
+					objectStarted = true;
+				}
+
+				jg.writeFieldName(field.getKey());
+
+				final TypedValueWriter typedValueWriter = typedValueWriter(column, columnPlan, recordContext);
+
+				if (typedValueWriter == null) {
+
+					jg.writeString(buffer, valueStart, valueEnd - valueStart);
+				} else {
+
+					typedValueWriter.write(column, buffer, valueStart, valueEnd, jg);
+				}
 			}
 
-			jg.writeString(inputValue);
+			if (objectStarted) {
+
+				jg.writeEndObject();
+			}
 		}
 
 		jg.writeEndArray();
+	}
 
-		return true;
+	/**
+	 * @return the writer of the typed (or cached) values or null, if the field of the given plan column is a string field
+	 * whose values are not cached
+	 */
+	private static TypedValueWriter typedValueWriter(final int column,
+	                                                 final ColumnPlan columnPlan,
+	                                                 final RecordContext recordContext) {
+
+		if (columnPlan.getType(column) == FieldType.STRING && !recordContext.getValueCache().isCaching(column)) {
+
+			return null;
+		}
+
+		return recordContext.getTypedValueWriter();
+	}
+
+	private static boolean containsAnyValue(final CSVCells csvInputRecord,
+	                                        final ColumnPlan columnPlan,
+	                                        final int[] columns) {
+
+		final char[] buffer = csvInputRecord.buffer();
+
+		for (final int column : columns) {
+
+			final int columnIndex = columnPlan.getColumnIndex(column);
+
+			if (!valueNotExists(buffer, csvInputRecord.cellStart(columnIndex), csvInputRecord.cellEnd(columnIndex))) {
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static CSV2LDJError recordError(final CSVCells csvInputRecord,
+	                                        final Exception e) {
+
+		return CSV2LDJError.wrap(new CSV2SCLDJException(String.format("something went wrong at writing record '%s' in CSV to schema conform line-delimited JSON converting", csvInputRecord.describe()), e));
 	}
 
 	/**
-	 * returns true, if value has been written
+	 * writes the (non-blank) values of a (non-blank) multivalued cell as JSON array
 	 *
-	 * @param headerName         the field name
-	 * @param inputValue         the input value
-	 * @param cellValueDelimiter the cell value delimiter
-	 * @param jg                 the JSON generator
-	 * @return true, if value has been written
+	 * @param key               the field name (as pre-encoded JSON key)
+	 * @param column            the plan column
+	 * @param buffer            the buffer that contains the cell content
+	 * @param cellStart         the start offset of the cell content
+	 * @param cellEnd           the end offset of the cell content
+	 * @param cellValueSplitter the cell value splitter
+	 * @param typedValueWriter  the writer of the typed (or cached) values or null, if the field is an uncached string field
+	 * @param jg                the JSON generator
 	 * @throws IOException
-	 * @throws CSV2SCLDJException
+	 * @throws CSV2SCLDJException if a value cannot be converted to the type of the field
 	 */
-	private static boolean writeValue(final String headerName,
-	                                  final String inputValue,
-	                                  final String cellValueDelimiter,
-	                                  final JsonGenerator jg) throws IOException, CSV2SCLDJException {
+	private static void writeValues(final SerializedString key,
+	                                final int column,
+	                                final char[] buffer,
+	                                final int cellStart,
+	                                final int cellEnd,
+	                                final CellValueSplitter cellValueSplitter,
+	                                final TypedValueWriter typedValueWriter,
+	                                final JsonGenerator jg) throws IOException, CSV2SCLDJException {
+
+		jg.writeFieldName(key);
+		jg.writeStartArray();
+
+		final int delimiterLength = cellValueSplitter.length();
 
-		if (valueNotExists(inputValue)) {
+		int valueStart = cellStart;
+
+		while (true) {
+
+			final int delimiterStart = cellValueSplitter.indexOf(buffer, valueStart, cellEnd);
+			final int valueEnd = delimiterStart < 0 ? cellEnd : delimiterStart;
 
 			// write only valid values
+			if (!valueNotExists(buffer, valueStart, valueEnd)) {
 
-			return false;
-		}
+				if (typedValueWriter == null) {
 
-		final String[] inputValues = inputValue.split(cellValueDelimiter);
+					jg.writeString(buffer, valueStart, valueEnd - valueStart);
+				} else {
+
+					typedValueWriter.write(column, buffer, valueStart, valueEnd, jg);
+				}
+			}
 
-		if (inputValues.length > 1) {
+			if (delimiterStart < 0) {
 
-			throw new CSV2SCLDJException(String.format("field '%s' contains multiple values, but is not multivalued", headerName));
+				break;
+			}
+
+			valueStart = delimiterStart + delimiterLength;
 		}
 
-		jg.writeStringField(headerName, inputValue);
+		jg.writeEndArray();
+	}
+
+	/**
+	 * writes a (non-blank) singlevalued cell as JSON string (or as JSON value of the type of the field)
+	 *
+	 * @param key               the field name (as pre-encoded JSON key)
+	 * @param column            the plan column
+	 * @param buffer            the buffer that contains the cell content
+	 * @param cellStart         the start offset of the cell content
+	 * @param cellEnd           the end offset of the cell content
+	 * @param cellValueSplitter the cell value splitter
+	 * @param typedValueWriter  the writer of the typed (or cached) values or null, if the field is an uncached string field
+	 * @param jg                the JSON generator
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	private static void writeValue(final SerializedString key,
+	                               final int column,
+	                               final char[] buffer,
+	                               final int cellStart,
+	                               final int cellEnd,
+	                               final CellValueSplitter cellValueSplitter,
+	                               final TypedValueWriter typedValueWriter,
+	                               final JsonGenerator jg) throws IOException, CSV2SCLDJException {
+
+		if (cellValueSplitter.containsMultipleValues(buffer, cellStart, cellEnd)) {
+
+			throw new CSV2SCLDJException(String.format("field '%s' contains multiple values, but is not multivalued", key.getValue()));
+		}
 
-		return true;
+		jg.writeFieldName(key);
+
+		if (typedValueWriter == null) {
+
+			jg.writeString(buffer, cellStart, cellEnd - cellStart);
+		} else {
+
+			typedValueWriter.write(column, buffer, cellStart, cellEnd, jg);
+		}
 	}
 
-	private static Map<String, Integer> initializeHeader(final CSVRecord headerRecord) {
+	private static Map<String, Integer> initializeHeader(final CSVCells headerRecord) {
 
 		if (headerRecord == null) {
 
@@ -269,13 +1332,13 @@ public final class CSV2SCLDJConverter {
 
 		for (int i = 0; i < headerRecord.size(); i++) {
 
-			final String header = headerRecord.get(i);
+			final String header = headerRecord.cell(i);
 			final boolean containsHeader = hdrMap.containsKey(header);
 			final boolean emptyHeader = header == null || header.trim().isEmpty();
 
 			if (containsHeader && !emptyHeader) {
 
-				throw new IllegalArgumentException(String.format("The header contains a duplicate name: \"%s\" in %s", header, headerRecord.toString()));
+				throw new IllegalArgumentException(String.format("The header contains a duplicate name: \"%s\" in %s", header, headerRecord.describe()));
 			}
 
 			hdrMap.put(header, i);
@@ -284,6 +1347,20 @@ public final class CSV2SCLDJConverter {
 		return io.vavr.collection.HashMap.ofAll(hdrMap);
 	}
 
+	/**
+	 * @return the column names of the CSV input header (in column order)
+	 */
+	private static String[] headerNames(final Map<String, Integer> csvInputHeaderMap) {
+
+		final String[] headerNames = new String[csvInputHeaderMap.values().max().getOrElse(-1) + 1];
+
+		Arrays.fill(headerNames, "");
+
+		csvInputHeaderMap.forEach((header, column) -> headerNames[column] = header == null ? "" : header);
+
+		return headerNames;
+	}
+
 	private static void checkHeader(final Map<String, Integer> csvInputHeaderMap,
 	                                final Map<String, Field> schema) throws CSV2SCLDJException {
 
@@ -344,42 +1421,102 @@ public final class CSV2SCLDJConverter {
 		return io.vavr.collection.HashMap.ofAll(fieldMap);
 	}
 
-	private static Optional<Set<String>> getRequiredFields(final Map<String, Field> schema) {
+	/**
+	 * returns true, if the cell content does not exists, i.e., if its empty or consists only of white spaces (same as
+	 * {@link String#trim()})
+	 *
+	 * @param buffer    the buffer that contains the cell content
+	 * @param cellStart the start offset of the cell content
+	 * @param cellEnd   the end offset of the cell content
+	 * @return true, if the cell content does not exists
+	 */
+	private static boolean valueNotExists(final char[] buffer,
+	                                      final int cellStart,
+	                                      final int cellEnd) {
 
-		final Set<String> requiredFields = schema
-				.filter(fieldTuple -> fieldTuple._2.isRequired())
-				.keySet();
+		for (int i = cellStart; i < cellEnd; i++) {
 
-		if (requiredFields.isEmpty()) {
+			if (buffer[i] > ' ') {
 
-			return Optional.empty();
+				return false;
+			}
 		}
 
-		return Optional.of(requiredFields);
+		return true;
 	}
 
 	/**
-	 * returns true, if value does not exists, i.e., if its null or empty
-	 *
-	 * @param value value to check
-	 * @return true, if value does not exists, i.e., if its null or empty
+	 * the line-delimited JSON (and the dead-letter rows) of a converted input split
 	 */
-	private static boolean valueNotExists(final String value) {
-
-		return value == null || value.trim().isEmpty();
+	private static final class ConvertedSplit {
+
+		private final InputSplit split;
+		private final long records;
+		private final long rejected;
+		private final byte[] ldj;
+		private final CharSequence deadLetters;
+
+		private ConvertedSplit(final InputSplit splitArg,
+		                       final long recordsArg,
+		                       final long rejectedArg,
+		                       final byte[] ldjArg,
+		                       final CharSequence deadLettersArg) {
+
+			split = splitArg;
+			records = recordsArg;
+			rejected = rejectedArg;
+			ldj = ldjArg;
+			deadLetters = deadLettersArg;
+		}
 	}
 
-	private static Optional<Set<String>> checkRequiredFields(final Set<String> requiredFields,
-	                                                         final java.util.Set<String> writtenFields) {
+	/**
+	 * writes the converted splits (and their dead-letter rows) in input order and takes a checkpoint after a split, if
+	 * one is due, i.e., the checkpoint's input offset is always a split end
+	 */
+	private static final class SplitWriter implements OrderedTaskQueue.ResultConsumer<ConvertedSplit> {
+
+		private final OutputStream output;
+		private final RecordErrorHandler errorHandler;
+		private final Checkpointer checkpointer;
+
+		private long records;
+		private long rejected;
 
-		final Set<String> notWrittenRequiredField = requiredFields
-				.filter(requiredField -> !writtenFields.contains(requiredField));
+		/**
+		 * @param resumeCheckpoint the checkpoint, from which the conversion is resumed, or null
+		 */
+		private SplitWriter(final OutputStream outputArg,
+		                    final RecordErrorHandler errorHandlerArg,
+		                    final Checkpointer checkpointerArg,
+		                    final Checkpoint resumeCheckpoint) {
 
-		if (notWrittenRequiredField.isEmpty()) {
+			output = outputArg;
+			errorHandler = errorHandlerArg;
+			checkpointer = checkpointerArg;
 
-			return Optional.empty();
+			if (resumeCheckpoint != null) {
+
+				records = resumeCheckpoint.getRecords();
+				rejected = resumeCheckpoint.getRejectedRecords();
+			}
 		}
 
-		return Optional.of(notWrittenRequiredField);
+		@Override
+		public void accept(final ConvertedSplit convertedSplit) throws IOException {
+
+			output.write(convertedSplit.ldj);
+			errorHandler.writeDeadLetters(convertedSplit.deadLetters);
+
+			records += convertedSplit.records;
+			rejected += convertedSplit.rejected;
+
+			if (checkpointer != null && checkpointer.isDue()) {
+
+				output.flush();
+				errorHandler.flush();
+				checkpointer.checkpoint(convertedSplit.split.getEnd(), records, rejected);
+			}
+		}
 	}
 }
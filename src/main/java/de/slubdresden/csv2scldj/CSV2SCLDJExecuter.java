@@ -15,26 +15,57 @@
  */
 package de.slubdresden.csv2scldj;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.slubdresden.csv2scldj.bulk.BulkActions;
+import de.slubdresden.csv2scldj.checkpoint.Checkpointer;
+import de.slubdresden.csv2scldj.columnar.ParquetOptions;
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
 import de.slubdresden.csv2scldj.constants.CSV2SCLDJParams;
 import de.slubdresden.csv2scldj.constants.Constants;
+import de.slubdresden.csv2scldj.csv.CSVParserType;
+import de.slubdresden.csv2scldj.delta.DeltaState;
+import de.slubdresden.csv2scldj.io.BulkOutputStream;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.io.FramedRecordReader;
+import de.slubdresden.csv2scldj.io.CountingInputStream;
+import de.slubdresden.csv2scldj.io.HttpBatchSender;
+import de.slubdresden.csv2scldj.io.ParallelCompressingOutputStream;
+import de.slubdresden.csv2scldj.io.ShardedOutputStream;
+import de.slubdresden.csv2scldj.io.SolrCommitPolicy;
+import de.slubdresden.csv2scldj.io.SolrUpdateOutputStream;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.metrics.MetricsReporter;
 import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.server.ConversionServer;
 import de.slubdresden.csv2scldj.utils.SchemaUtils;
 
 /**
@@ -44,6 +75,12 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(CSV2SCLDJExecuter.class);
 
+	private static final String METRICS_NAME = "csv2scldj";
+
+	private static final String DEAD_LETTER_FILE_EXTENSION = ".rejected.csv";
+
+	private static final String DELETED_IDS_FILE_EXTENSION = ".deleted";
+
 	private static final StringBuilder HELP_SB = new StringBuilder();
 
 	static {
@@ -55,7 +92,60 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 				.append("\t").append(CSV2SCLDJParams.CSV_INPUT_FILE_NAME).append(" : the (absolute) file path to the input CSV file").append("\n")
 				.append("\t").append(CSV2SCLDJParams.SCHEMA_FILE_NAME).append(" : the (absolute) file path to the schema file (that should be used for schema conform parsing)").append("\n")
 				.append("\t").append(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME).append(" : the (absolute) file path to the output line-delimited JSON file").append("\n")
-				.append("\t").append(CSV2SCLDJParams.CELL_VALUE_DELIMITER_PARAM).append(" : the value delimiter in CSV cells that include multiple values").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CELL_VALUE_DELIMITER_PARAM).append(" : the value delimiter in CSV cells that include multiple values (taken literally; backslash escapes are resolved, e.g., '\\|' is the same as '|'; default is the record separator char U+001E)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.THREADS_PARAM).append(" : the number of worker threads that convert records in parallel (default is ").append(ConversionOptions.DEFAULT_THREADS).append(", i.e., single-threaded conversion); the output order is the same as the input order").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BATCH_SIZE_PARAM).append(" : the number of records that are handed over to a worker thread at once (default is ").append(ConversionOptions.DEFAULT_BATCH_SIZE).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CSV_PARSER_PARAM).append(" : the CSV parser that should be utilised for reading the CSV input, i.e., '").append(CSVParserType.BUILTIN.getName()).append("' (default; the built-in streaming tokenizer) or '").append(CSVParserType.COMMONS_CSV.getName()).append("' (Apache Commons CSV)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SPLIT_INPUT_PARAM).append(" : 'true', if the CSV input file should be memory-mapped and cut into splits (at record ends) that are parsed and converted by the worker threads in parallel (default is 'false'; requires ").append(CSV2SCLDJParams.CSV_INPUT_FILE_NAME).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SPLIT_SIZE_PARAM).append(" : the targeted size of an input split in bytes (default is ").append(ConversionOptions.DEFAULT_SPLIT_SIZE).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CHECK_REQUIRED_FIELDS_ON_EMPTY_RECORDS_PARAM).append(" : 'true', if records without any value should be treated as violations, when the schema contains required fields (default is 'false', i.e., such records are written as empty JSON objects)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.COMPRESSION_LEVEL_PARAM).append(" : the compression level of the LDJ output file, if it is compressed (i.e. its name ends with '").append(Compression.GZIP.getFileExtension()).append("' or '").append(Compression.ZSTD.getFileExtension()).append("'; default is ").append(Compression.GZIP.getDefaultLevel()).append(" for gzip and ").append(Compression.ZSTD.getDefaultLevel()).append(" for zstd), and of the pages of the Parquet output; compressed CSV input is detected automatically").append("\n")
+				.append("\t").append(CSV2SCLDJParams.COMPRESSION_BLOCK_SIZE_PARAM).append(" : the size of the blocks (in bytes) that are compressed independently and in parallel (default is ").append(ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.COMPRESSION_THREADS_PARAM).append(" : the number of threads that compress output blocks (default is the number of available processors)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SHARD_RECORDS_PARAM).append(" : the maximum number of records per LDJ output shard; enables sharded output, i.e., the output is written to several files, e.g., 'out-00042.ldj' for '").append(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME).append("=out.ldj', plus a manifest 'out").append(ShardedOutputStream.MANIFEST_FILE_EXTENSION).append("' that lists the complete shards with their record counts").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SHARD_BYTES_PARAM).append(" : the maximum number of (uncompressed) bytes per LDJ output shard; enables sharded output as well (can be combined with ").append(CSV2SCLDJParams.SHARD_RECORDS_PARAM).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SHARD_WRITERS_PARAM).append(" : the number of threads that write (and compress) shards concurrently (default is ").append(ShardedOutputStream.DEFAULT_WRITER_THREADS).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.ON_ERROR_PARAM).append(" : the policy for records that cannot be converted (e.g. too few cells, multiple values in a singlevalued field or missing required fields), i.e., 'fail' (default; abort the conversion), 'skip' (skip the record) or 'deadletter' (skip the record and write it incl. the reason to the dead-letter file)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.DEAD_LETTER_FILE_NAME).append(" : the name of the dead-letter CSV file for '-on-error=deadletter' (default is the LDJ output file name plus '.rejected.csv'); it contains the rejected records with the columns of the CSV input plus the record number and the reason").append("\n")
+				.append("\t").append(CSV2SCLDJParams.ERROR_BUDGET_PARAM).append(" : the maximum number of records that can be rejected (via 'skip' or 'deadletter') before the conversion is aborted (default is unlimited)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CHECKPOINT_INTERVAL_PARAM).append(" : the interval (in seconds) for taking checkpoints, i.e., the LDJ output is made durable and the matching CSV input offset is written to a checkpoint file (LDJ output file name plus '.checkpoint'; default is 10, if -resume is set); requires a regular, uncompressed CSV input file and an uncompressed, unsharded LDJ output file, which are converted via input splits").append("\n")
+				.append("\t").append(CSV2SCLDJParams.RESUME_PARAM).append(" : 'true', if the conversion should be resumed from the last checkpoint, i.e., the LDJ output file (and the dead-letter file) is truncated to the checkpoint and the CSV input is read from the checkpoint's offset, while the rejected records up to the checkpoint still count against the error budget (default is 'false'); the checkpoint file is removed after a complete conversion").append("\n")
+				.append("\t").append(CSV2SCLDJParams.DELTA_STATE_FILE_NAME).append(" : the name of the delta state file; enables the incremental conversion, i.e., only records that are new or changed compared to the previous run (as recorded in the delta state file) are written, and the delta state file is replaced after a successful conversion").append("\n")
+				.append("\t").append(CSV2SCLDJParams.DELTA_ID_FIELD_PARAM).append(" : the (singlevalued) field that identifies the records for the incremental conversion, e.g., 'record_id'").append("\n")
+				.append("\t").append(CSV2SCLDJParams.DELTA_DELETED_FILE_NAME).append(" : the name of the file for the IDs (one per line) of the records of the previous run that do not occur anymore (default is the LDJ output file name plus '.deleted')").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CSV_INPUT_DIRECTORY).append(" : the (absolute) path to a directory of CSV input files; enables the batch conversion, i.e., the schema is read once and the files are converted concurrently (each with its own header validation); a summary with the counts and timings per file is logged at the end (instead of the progress logging and the JMX metrics)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CSV_INPUT_GLOB_PARAM).append(" : the glob pattern for the names of the CSV input files in the CSV input directory (default is '").append(BatchConverter.DEFAULT_INPUT_GLOB).append("')").append("\n")
+				.append("\t").append(CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY).append(" : the (absolute) path to the directory for the LDJ output files of a batch conversion, i.e., one LDJ output file per CSV input file (named like the CSV input file, but with the LDJ output file extension; CSV input files with the same name besides the compression extension, e.g. 'export.csv' and 'export.csv.gz', are refused); alternatively, ").append(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME).append(" can be set for a merged LDJ output file (in the order of the CSV input file names)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.LDJ_OUTPUT_FILE_EXTENSION_PARAM).append(" : the file extension of the LDJ output files in the LDJ output directory, e.g., '.ldj.gz' for compressed output (default is '").append(CSV2SCLDJParams.DEFAULT_LDJ_OUTPUT_FILE_EXTENSION_PARAM).append("')").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BATCH_PARALLELISM_PARAM).append(" : the number of CSV input files that are converted concurrently (default is the number of available processors divided by ").append(CSV2SCLDJParams.THREADS_PARAM).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SERVER_PORT_PARAM).append(" : the port of the conversion server; enables the server mode, i.e., the JVM keeps running and converts the CSV bodies of HTTP requests ('POST ").append(ConversionServer.CONVERT_PATH).append("?").append(ConversionServer.SCHEMA_QUERY_PARAM).append("=[SCHEMA FILE NAME]', optionally with the query parameters '").append(ConversionServer.CELL_VALUE_DELIMITER_QUERY_PARAM).append("', '").append(ConversionServer.ON_ERROR_QUERY_PARAM).append("' and '").append(ConversionServer.ERROR_BUDGET_QUERY_PARAM).append("') into LDJ response bodies; 'GET ").append(ConversionServer.HEALTH_PATH).append("' returns the status of the server; the other parameters are the defaults of all conversions").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SERVER_HOST_PARAM).append(" : the host name or address the conversion server listens on (default is '").append(CSV2SCLDJParams.DEFAULT_SERVER_HOST_PARAM).append("', i.e., only local clients can connect)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SERVER_SCHEMA_DIRECTORY).append(" : the directory of the schema files that can be named by the requests (default is the directory of ").append(CSV2SCLDJParams.SCHEMA_FILE_NAME).append(" or the working directory); schemas are cached and read again, when their file changes; ").append(CSV2SCLDJParams.SCHEMA_FILE_NAME).append(" is the schema of requests that do not name one").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SERVER_MAX_CONVERSIONS_PARAM).append(" : the maximum number of concurrent conversions of the conversion server; further requests are rejected with status 503 (default is the number of available processors)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_UPDATE_URL).append(" : the URL of a Solr update endpoint, e.g., 'http://localhost:8983/solr/finc/update'; enables the Solr output, i.e., the converted records are posted (as batches of JSON documents) to Solr instead of being written to a file or stdout").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_BATCH_RECORDS_PARAM).append(" : the maximum number of records per Solr update request (default is ").append(SolrUpdateOutputStream.DEFAULT_BATCH_RECORDS).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_BATCH_BYTES_PARAM).append(" : the maximum number of bytes per Solr update request (default is ").append(SolrUpdateOutputStream.DEFAULT_BATCH_BYTES).append("); a request can exceed it by its last record").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_CONCURRENCY_PARAM).append(" : the number of Solr update requests in flight (default is ").append(HttpBatchSender.DEFAULT_CONCURRENCY).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_RETRIES_PARAM).append(" : the number of retries (with exponential backoff) of a Solr update request that failed with an I/O error or the status 429 or 5xx (default is ").append(HttpBatchSender.DEFAULT_MAX_RETRIES).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_COMMIT_PARAM).append(" : the commit policy, i.e., '").append(SolrCommitPolicy.NONE.getName()).append("' (default; rely on the auto commit of the Solr core) or '").append(SolrCommitPolicy.END.getName()).append("' (one commit after all records have been posted)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.SOLR_COMMIT_WITHIN_PARAM).append(" : the maximum time (in milliseconds) until posted records are committed by Solr (default is 0, i.e., not set)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BULK_ID_FIELD_PARAM).append(" : the (singlevalued) field that contains the document ID, e.g., 'record_id'; enables the Elasticsearch/OpenSearch bulk format, i.e., each record is preceded by an action line '{\"index\":{\"_id\":...}}'").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BULK_INDEX_PARAM).append(" : the index of the action lines of the bulk format (default is none, i.e., the index of the bulk endpoint)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BULK_CHUNK_BYTES_PARAM).append(" : the maximum number of bytes per bulk chunk (default is ").append(BulkOutputStream.DEFAULT_CHUNK_BYTES).append(" for ").append(CSV2SCLDJParams.BULK_URL).append("); a chunk can exceed it by its last record; an LDJ output file is written as shards of this size (see ").append(CSV2SCLDJParams.SHARD_BYTES_PARAM).append("), which are never cut between action line and document").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BULK_URL).append(" : the URL of an Elasticsearch/OpenSearch bulk endpoint, e.g., 'http://localhost:9200/_bulk'; the bulk chunks are posted to it instead of being written to a file or stdout; a chunk, whose response reports failed records, aborts the conversion").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BULK_CONCURRENCY_PARAM).append(" : the number of bulk requests in flight (default is ").append(HttpBatchSender.DEFAULT_CONCURRENCY).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.BULK_RETRIES_PARAM).append(" : the number of retries (with exponential backoff) of a bulk request that failed with an I/O error or the status 429 or 5xx (default is ").append(HttpBatchSender.DEFAULT_MAX_RETRIES).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.OUTPUT_FORMAT_PARAM).append(" : the format of the converted records, i.e., '").append(OutputFormat.LDJ.getName()).append("' (default; line-delimited JSON), '").append(OutputFormat.CBOR.getName()).append("' or '").append(OutputFormat.SMILE.getName()).append("' (with shared field names and values) or '").append(OutputFormat.PARQUET.getName()).append("' (columnar); CBOR and Smile are written as length-prefixed frames (4 bytes, big-endian) of records, which can be read via ").append(FramedRecordReader.class.getSimpleName()).append("; Parquet is written single-threaded (without input splitting, checkpoints or merged batch output); the binary formats cannot be combined with sharded, Solr, bulk or server output").append("\n")
+				.append("\t").append(CSV2SCLDJParams.PARQUET_ROW_GROUP_BYTES_PARAM).append(" : the (uncompressed) size of a row group of the Parquet output, i.e., the records are buffered column by column until the row group is full (default is ").append(ParquetOptions.DEFAULT_ROW_GROUP_BYTES).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.PARQUET_DICTIONARY_MAX_BYTES_PARAM).append(" : the maximum size of the dictionary of a column chunk of the Parquet output, i.e., the values of low-cardinality columns are dictionary-encoded, the other columns are written plain (default is ").append(ParquetOptions.DEFAULT_MAX_DICTIONARY_BYTES).append("; 0 disables dictionary encoding)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.PARQUET_COMPRESSION_PARAM).append(" : the compression of the pages of the Parquet output, i.e., 'none', 'gzip' or 'zstd' (default is '").append(ParquetOptions.DEFAULT_COMPRESSION.name().toLowerCase()).append("'; the level can be set via ").append(CSV2SCLDJParams.COMPRESSION_LEVEL_PARAM).append(")").append("\n")
+				.append("\t").append(CSV2SCLDJParams.REVERSE_PARAM).append(" : 'true', if line-delimited JSON should be converted back into CSV (default is 'false'), i.e., the values of multivalued fields are joined with the cell value delimiter, nested objects (and arrays of objects) are flattened into the columns of their path-style field names and the columns are written in schema order; the CSV output converts back into the same line-delimited JSON (if its field order is the column order); the conversion fails on records that do not fit to the schema, e.g., arrays in singlevalued fields; only ").append(CSV2SCLDJParams.THREADS_PARAM).append(" and ").append(CSV2SCLDJParams.BATCH_SIZE_PARAM).append(" are considered for tuning").append("\n")
+				.append("\t").append(CSV2SCLDJParams.LDJ_INPUT_FILE_NAME).append(" : the (absolute) path to the line-delimited JSON input file of the reverse conversion (default is stdin); compressed input is detected automatically").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CSV_OUTPUT_FILE_NAME).append(" : the (absolute) path to the CSV output file of the reverse conversion (default is stdout); it is compressed, if its name ends with '").append(Compression.GZIP.getFileExtension()).append("' or '").append(Compression.ZSTD.getFileExtension()).append("'").append("\n")
+				.append("\t").append(CSV2SCLDJParams.CSV_OUTPUT_COLUMNS_PARAM).append(" : the (comma-separated) columns of the CSV output of the reverse conversion, e.g., the header of the original CSV input (default is all schema fields in schema order); the records must not contain other fields").append("\n")
+				.append("\t").append(CSV2SCLDJParams.VALUE_CACHE_SIZE_PARAM).append(" : the maximum number of cached values per string field, i.e., repetitive values of fields that are marked as low-cardinality fields in the schema (or that are detected automatically) are escaped and encoded only once (default is ").append(ConversionOptions.DEFAULT_VALUE_CACHE_SIZE).append("; 0 disables the cache); the hits and misses per field are logged at the end of the conversion").append("\n")
+				.append("\t").append(CSV2SCLDJParams.VALUE_CACHE_DETECTION_PARAM).append(" : 'false', if only the values of fields that are marked as low-cardinality fields in the schema should be cached (default is 'true', i.e., the values of the other string fields are cached on probation and their cache is dropped, if it doesn't pay off)").append("\n")
+				.append("\t").append(CSV2SCLDJParams.METRICS_LOG_INTERVAL_PARAM).append(" : the interval (in seconds) for logging the progress (records, throughput, share of input, ETA) of the conversion (default is 0, i.e., no progress logging); all metrics are available via JMX as well").append("\n")
 				.append("\t").append(CSV2SCLDJParams.HELP_PARAM).append(" : prints this help").append("\n\n")
 				.append("\t").append("you can also run this application without setting ").append(CSV2SCLDJParams.CSV_INPUT_FILE_NAME).append(" and ").append(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME).append(", i.e., then you can simply rely on stdin for input and stdout for output").append("\n\n")
 				.append("have fun with this tool!").append("\n\n")
@@ -73,6 +163,42 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 		CSV2SCLDJConverter.convert(reader, schema, writer, cellValueDelimiter);
 	}
 
+	public static void convertCSV2SCLDJ(final Reader reader,
+	                                    final io.vavr.collection.Map<String, Field> schema,
+	                                    final BufferedWriter writer,
+	                                    final String cellValueDelimiter,
+	                                    final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		CSV2SCLDJConverter.convert(reader, schema, writer, cellValueDelimiter, options);
+	}
+
+	public static void convertCSV2SCLDJ(final Path csvInputFile,
+	                                    final io.vavr.collection.Map<String, Field> schema,
+	                                    final BufferedWriter writer,
+	                                    final String cellValueDelimiter,
+	                                    final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		CSV2SCLDJConverter.convert(csvInputFile, schema, writer, cellValueDelimiter, options);
+	}
+
+	public static void convertCSV2SCLDJ(final Reader reader,
+	                                    final io.vavr.collection.Map<String, Field> schema,
+	                                    final OutputStream outputStream,
+	                                    final String cellValueDelimiter,
+	                                    final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		CSV2SCLDJConverter.convert(reader, schema, outputStream, cellValueDelimiter, options);
+	}
+
+	public static void convertCSV2SCLDJ(final Path csvInputFile,
+	                                    final io.vavr.collection.Map<String, Field> schema,
+	                                    final OutputStream outputStream,
+	                                    final String cellValueDelimiter,
+	                                    final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		CSV2SCLDJConverter.convert(csvInputFile, schema, outputStream, cellValueDelimiter, options);
+	}
+
 	public static void main(final String[] args) {
 
 		if (args.length == 1 && CSV2SCLDJParams.HELP_PARAM.equals(args[0])) {
@@ -101,11 +227,40 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 		try {
 
 			final Map<String, String> argMap = checkOptionalParameters(optionalArgMap.orElse(new HashMap<>()));
+			final boolean batchConversion = argMap.containsKey(CSV2SCLDJParams.CSV_INPUT_DIRECTORY);
+
+			if (batchConversion) {
+
+				checkBatchParameters(argMap);
+			}
+
+			if (argMap.containsKey(CSV2SCLDJParams.SERVER_PORT_PARAM)) {
+
+				checkServerParameters(argMap);
+			}
+
+			final boolean reverseConversion = parseBooleanParameter(argMap, CSV2SCLDJParams.REVERSE_PARAM).orElse(false);
+
+			if (reverseConversion) {
+
+				checkReverseParameters(argMap);
+			}
 
 			final Optional<String> optionalCSVInputFileName = Optional.ofNullable(argMap.get(CSV2SCLDJParams.CSV_INPUT_FILE_NAME));
 			final Optional<String> optionalSchemaFileName = Optional.ofNullable(argMap.get(CSV2SCLDJParams.SCHEMA_FILE_NAME));
 			final Optional<String> optionalLDJOutputFileName = Optional.ofNullable(argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
 			final String cellValueDelimiter = argMap.get(CSV2SCLDJParams.CELL_VALUE_DELIMITER_PARAM);
+			final ConversionMetrics metrics = new ConversionMetrics();
+			final ConversionOptions options = parseConversionOptions(argMap, metrics);
+
+			checkOutputFormat(argMap, options);
+
+			if (argMap.containsKey(CSV2SCLDJParams.SERVER_PORT_PARAM)) {
+
+				runServer(argMap, optionalSchemaFileName, cellValueDelimiter, options);
+
+				return;
+			}
 
 			final io.vavr.collection.Map<String, Field> schema;
 
@@ -123,27 +278,48 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 				return;
 			}
 
-			final BufferedReader reader;
+			if (reverseConversion) {
 
-			if (optionalCSVInputFileName.isPresent()) {
+				LOG.info("cell value delimiter = '{}'", cellValueDelimiter);
 
-				final String csvInputFileName = optionalCSVInputFileName.get();
+				convertReverse(argMap, schema, cellValueDelimiter, options);
 
-				LOG.info("CSV input file name = '{}'", csvInputFileName);
+				return;
+			}
 
-				final Path csvInputFilePath = Paths.get(csvInputFileName);
+			if (batchConversion) {
 
-				reader = Files.newBufferedReader(csvInputFilePath, StandardCharsets.UTF_8);
-			} else {
+				LOG.info("cell value delimiter = '{}'", cellValueDelimiter);
 
-				LOG.info("try to read CSV input from stdin");
+				convertBatch(argMap, schema, cellValueDelimiter, options);
 
-				reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+				return;
 			}
 
-			final BufferedWriter writer;
+			final OutputStream outputStream;
+
+			if (argMap.containsKey(CSV2SCLDJParams.SOLR_UPDATE_URL)) {
+
+				if (optionalLDJOutputFileName.isPresent() || argMap.containsKey(CSV2SCLDJParams.SHARD_RECORDS_PARAM) || argMap.containsKey(CSV2SCLDJParams.SHARD_BYTES_PARAM)) {
+
+					throw new CSV2SCLDJException(String.format("the Solr output (%s) cannot be combined with an LDJ output file name (%s) or sharded output", CSV2SCLDJParams.SOLR_UPDATE_URL, CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
+				}
+
+				if (options.getBulkActions().isPresent()) {
+
+					throw new CSV2SCLDJException(String.format("the Solr output (%s) cannot be combined with the bulk format (%s)", CSV2SCLDJParams.SOLR_UPDATE_URL, CSV2SCLDJParams.BULK_ID_FIELD_PARAM));
+				}
+
+				outputStream = openSolrOutput(argMap);
+			} else if (argMap.containsKey(CSV2SCLDJParams.BULK_URL)) {
+
+				if (optionalLDJOutputFileName.isPresent() || argMap.containsKey(CSV2SCLDJParams.SHARD_RECORDS_PARAM) || argMap.containsKey(CSV2SCLDJParams.SHARD_BYTES_PARAM)) {
+
+					throw new CSV2SCLDJException(String.format("the bulk output (%s) cannot be combined with an LDJ output file name (%s) or sharded output", CSV2SCLDJParams.BULK_URL, CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
+				}
 
-			if (optionalLDJOutputFileName.isPresent()) {
+				outputStream = openBulkOutput(argMap);
+			} else if (optionalLDJOutputFileName.isPresent()) {
 
 				final String ldjOutputFileName = optionalLDJOutputFileName.get();
 
@@ -151,17 +327,44 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 
 				final Path ldjOutputFilePath = Paths.get(ldjOutputFileName);
 
-				writer = Files.newBufferedWriter(ldjOutputFilePath, StandardCharsets.UTF_8);
+				outputStream = openLDJOutput(ldjOutputFilePath, argMap, options);
 			} else {
 
+				if (argMap.containsKey(CSV2SCLDJParams.SHARD_RECORDS_PARAM) || argMap.containsKey(CSV2SCLDJParams.SHARD_BYTES_PARAM)) {
+
+					throw new CSV2SCLDJException(String.format("sharded output requires an LDJ output file name (%s)", CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
+				}
+
 				LOG.info("try to write schema conform line-delimited JSON to stdout");
 
-				writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+				outputStream = System.out;
 			}
 
 			LOG.info("cell value delimiter = '{}'", cellValueDelimiter);
 
-			convertCSV2SCLDJ(reader, schema, writer, cellValueDelimiter);
+			final CompletableFuture<Optional<ObjectName>> metricsRegistration = registerMetricsInBackground(metrics);
+			final Optional<MetricsReporter> optionalMetricsReporter = startMetricsReporter(argMap, metrics);
+
+			try {
+
+				convertInput(optionalCSVInputFileName, schema, outputStream, cellValueDelimiter, options, metrics);
+
+				final long timeToFirstRecordMillis = metrics.getTimeToFirstRecordMillis();
+
+				if (timeToFirstRecordMillis >= 0) {
+
+					LOG.info("time to first record: '{}' ms (since JVM start)", timeToFirstRecordMillis);
+				}
+			} finally {
+
+				optionalMetricsReporter.ifPresent(MetricsReporter::close);
+				metricsRegistration.join().ifPresent(CSV2SCLDJExecuter::unregisterMetrics);
+
+				if (options.getDeltaState().isPresent()) {
+
+					options.getDeltaState().get().close();
+				}
+			}
 		} catch (final Exception e) {
 
 			LOG.error("something went wrong at converting CSV 2 schema conform line-delimited JSON.", e);
@@ -173,6 +376,766 @@ public final class CSV2SCLDJExecuter extends AbstractExecuter {
 
 	}
 
+	private static void convertInput(final Optional<String> optionalCSVInputFileName,
+	                                 final io.vavr.collection.Map<String, Field> schema,
+	                                 final OutputStream outputStream,
+	                                 final String cellValueDelimiter,
+	                                 final ConversionOptions options,
+	                                 final ConversionMetrics metrics) throws IOException, CSV2SCLDJException {
+
+		if (optionalCSVInputFileName.isPresent()) {
+
+			final String csvInputFileName = optionalCSVInputFileName.get();
+
+			LOG.info("CSV input file name = '{}'", csvInputFileName);
+
+			final Path csvInputFilePath = Paths.get(csvInputFileName);
+
+			final boolean regularFile = Files.isRegularFile(csvInputFilePath);
+			final Compression inputCompression = regularFile ? Compression.detect(csvInputFilePath) : Compression.NONE;
+
+			if (options.isSplitInput() && regularFile && inputCompression == Compression.NONE) {
+
+				convertCSV2SCLDJ(csvInputFilePath, schema, outputStream, cellValueDelimiter, options);
+
+				return;
+			}
+
+			if (options.isSplitInput()) {
+
+				LOG.warn("CSV input file '{}' is not a regular (uncompressed) file, i.e., it cannot be split; will read it sequentially", csvInputFileName);
+			}
+
+			metrics.setInputSize(Files.size(csvInputFilePath));
+
+			final BufferedReader reader = openCSVInput(new CountingInputStream(Files.newInputStream(csvInputFilePath), metrics), inputCompression);
+
+			convertCSV2SCLDJ(reader, schema, outputStream, cellValueDelimiter, options);
+		} else {
+
+			if (options.isSplitInput()) {
+
+				LOG.warn("CSV input from stdin cannot be split; will read it sequentially");
+			}
+
+			LOG.info("try to read CSV input from stdin");
+
+			final InputStream inputStream = new BufferedInputStream(new CountingInputStream(System.in, metrics));
+			final BufferedReader reader = openCSVInput(inputStream, Compression.detect(inputStream));
+
+			convertCSV2SCLDJ(reader, schema, outputStream, cellValueDelimiter, options);
+		}
+	}
+
+	/**
+	 * runs the conversion server until the JVM is shut down
+	 */
+	private static void runServer(final Map<String, String> argMap,
+	                              final Optional<String> optionalSchemaFileName,
+	                              final String cellValueDelimiter,
+	                              final ConversionOptions options) throws IOException, CSV2SCLDJException, InterruptedException {
+
+		final int port = parseIntParameter(argMap, CSV2SCLDJParams.SERVER_PORT_PARAM).get();
+		final String host = Optional.ofNullable(argMap.get(CSV2SCLDJParams.SERVER_HOST_PARAM)).orElse(CSV2SCLDJParams.DEFAULT_SERVER_HOST_PARAM);
+		final int maxConversions = parseIntParameter(argMap, CSV2SCLDJParams.SERVER_MAX_CONVERSIONS_PARAM).orElse(Runtime.getRuntime().availableProcessors());
+		final Optional<Path> optionalDefaultSchemaFile = optionalSchemaFileName.map(Paths::get);
+		final Path schemaDirectory = Optional.ofNullable(argMap.get(CSV2SCLDJParams.SERVER_SCHEMA_DIRECTORY))
+				.map(Paths::get)
+				.orElseGet(() -> optionalDefaultSchemaFile.map(schemaFile -> schemaFile.toAbsolutePath().getParent()).orElse(Paths.get("")));
+
+		LOG.info("cell value delimiter = '{}'", cellValueDelimiter);
+
+		final ConversionServer server = ConversionServer.start(new InetSocketAddress(host, port), schemaDirectory, optionalDefaultSchemaFile, cellValueDelimiter, options, maxConversions);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close, "csv2scldj-server-shutdown"));
+
+		server.awaitTermination();
+	}
+
+	/**
+	 * checks the parameters of the server mode, i.e., the parameters that refer to a single CSV input file (or LDJ
+	 * output file) cannot be utilised
+	 */
+	private static void checkServerParameters(final Map<String, String> argMap) throws CSV2SCLDJException {
+
+		for (final String param : new String[]{CSV2SCLDJParams.CSV_INPUT_FILE_NAME, CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME, CSV2SCLDJParams.CSV_INPUT_DIRECTORY,
+				CSV2SCLDJParams.CHECKPOINT_INTERVAL_PARAM, CSV2SCLDJParams.RESUME_PARAM, CSV2SCLDJParams.DELTA_STATE_FILE_NAME, CSV2SCLDJParams.BULK_URL}) {
+
+			if (argMap.containsKey(param)) {
+
+				throw new CSV2SCLDJException(String.format("the server mode (%s) cannot be combined with %s", CSV2SCLDJParams.SERVER_PORT_PARAM, param));
+			}
+		}
+
+		if (ErrorPolicy.DEADLETTER.getName().equals(argMap.get(CSV2SCLDJParams.ON_ERROR_PARAM))) {
+
+			throw new CSV2SCLDJException(String.format("the server mode (%s) cannot be combined with the error policy '%s'", CSV2SCLDJParams.SERVER_PORT_PARAM, ErrorPolicy.DEADLETTER.getName()));
+		}
+	}
+
+	/**
+	 * checks that the reverse conversion is not combined with parameters of the CSV input or the LDJ output
+	 */
+	private static void checkReverseParameters(final Map<String, String> argMap) throws CSV2SCLDJException {
+
+		for (final String param : new String[]{CSV2SCLDJParams.CSV_INPUT_FILE_NAME, CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME, CSV2SCLDJParams.CSV_INPUT_DIRECTORY,
+				CSV2SCLDJParams.SERVER_PORT_PARAM, CSV2SCLDJParams.SPLIT_INPUT_PARAM, CSV2SCLDJParams.CHECKPOINT_INTERVAL_PARAM, CSV2SCLDJParams.RESUME_PARAM,
+				CSV2SCLDJParams.DELTA_STATE_FILE_NAME, CSV2SCLDJParams.ON_ERROR_PARAM, CSV2SCLDJParams.SHARD_RECORDS_PARAM, CSV2SCLDJParams.SHARD_BYTES_PARAM,
+				CSV2SCLDJParams.SOLR_UPDATE_URL, CSV2SCLDJParams.BULK_ID_FIELD_PARAM, CSV2SCLDJParams.BULK_URL, CSV2SCLDJParams.OUTPUT_FORMAT_PARAM}) {
+
+			if (argMap.containsKey(param)) {
+
+				throw new CSV2SCLDJException(String.format("the reverse conversion (%s) cannot be combined with %s", CSV2SCLDJParams.REVERSE_PARAM, param));
+			}
+		}
+	}
+
+	/**
+	 * converts the line-delimited JSON input (file or stdin) back into CSV (file or stdout)
+	 */
+	private static void convertReverse(final Map<String, String> argMap,
+	                                   final io.vavr.collection.Map<String, Field> schema,
+	                                   final String cellValueDelimiter,
+	                                   final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final String ldjInputFileName = argMap.get(CSV2SCLDJParams.LDJ_INPUT_FILE_NAME);
+		final InputStream inputStream;
+
+		if (ldjInputFileName != null) {
+
+			LOG.info("LDJ input file name = '{}'", ldjInputFileName);
+
+			inputStream = new BufferedInputStream(Files.newInputStream(Paths.get(ldjInputFileName)));
+		} else {
+
+			LOG.info("try to read LDJ input from stdin");
+
+			inputStream = new BufferedInputStream(System.in);
+		}
+
+		final Compression inputCompression = Compression.detect(inputStream);
+
+		if (inputCompression != Compression.NONE) {
+
+			LOG.info("LDJ input is compressed with '{}'", inputCompression.name().toLowerCase());
+		}
+
+		final Reader reader = new InputStreamReader(inputCompression.decompress(inputStream), StandardCharsets.UTF_8);
+		final String csvOutputFileName = argMap.get(CSV2SCLDJParams.CSV_OUTPUT_FILE_NAME);
+		final OutputStream outputStream;
+
+		if (csvOutputFileName != null) {
+
+			LOG.info("CSV output file name = '{}'", csvOutputFileName);
+
+			final Path csvOutputFilePath = Paths.get(csvOutputFileName);
+			final Compression outputCompression = Compression.fromFileName(csvOutputFilePath.getFileName().toString());
+			final int level = parseIntParameter(argMap, CSV2SCLDJParams.COMPRESSION_LEVEL_PARAM).orElse(outputCompression.getDefaultLevel());
+
+			outputStream = outputCompression.compress(Files.newOutputStream(csvOutputFilePath), level);
+		} else {
+
+			LOG.info("try to write CSV to stdout");
+
+			outputStream = System.out;
+		}
+
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String csvOutputColumns = argMap.get(CSV2SCLDJParams.CSV_OUTPUT_COLUMNS_PARAM);
+
+		if (csvOutputColumns == null || csvOutputColumns.trim().isEmpty()) {
+
+			LDJ2CSVConverter.convert(reader, schema, writer, cellValueDelimiter, options);
+
+			return;
+		}
+
+		final List<String> columns = new ArrayList<>();
+
+		for (final String column : csvOutputColumns.split(",")) {
+
+			if (!column.trim().isEmpty()) {
+
+				columns.add(column.trim());
+			}
+		}
+
+		LDJ2CSVConverter.convert(reader, schema, columns, writer, cellValueDelimiter, options);
+	}
+
+	/**
+	 * converts the CSV input files of the CSV input directory, either into one LDJ output file per CSV input file (in the
+	 * LDJ output directory) or into one merged LDJ output file
+	 */
+	private static void convertBatch(final Map<String, String> argMap,
+	                                 final io.vavr.collection.Map<String, Field> schema,
+	                                 final String cellValueDelimiter,
+	                                 final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final Path csvInputDirectory = Paths.get(argMap.get(CSV2SCLDJParams.CSV_INPUT_DIRECTORY));
+		final String glob = Optional.ofNullable(argMap.get(CSV2SCLDJParams.CSV_INPUT_GLOB_PARAM)).orElse(BatchConverter.DEFAULT_INPUT_GLOB);
+		final List<Path> csvInputFiles = BatchConverter.listInputFiles(csvInputDirectory, glob);
+		final int parallelism = parseIntParameter(argMap, CSV2SCLDJParams.BATCH_PARALLELISM_PARAM).orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / options.getThreads()));
+
+		LOG.info("CSV input directory = '{}', glob = '{}', '{}' CSV input files", csvInputDirectory, glob, csvInputFiles.size());
+
+		final List<BatchConverter.FileResult> results;
+
+		if (argMap.containsKey(CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY)) {
+
+			final Path ldjOutputDirectory = Paths.get(argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY));
+			final String ldjOutputFileExtension = Optional.ofNullable(argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_FILE_EXTENSION_PARAM)).orElse(CSV2SCLDJParams.DEFAULT_LDJ_OUTPUT_FILE_EXTENSION_PARAM);
+
+			LOG.info("LDJ output directory = '{}'", ldjOutputDirectory);
+
+			BatchConverter.checkBaseNames(csvInputFiles);
+			Files.createDirectories(ldjOutputDirectory);
+
+			results = BatchConverter.convert(csvInputFiles, schema, cellValueDelimiter, options, parallelism,
+					csvInputFile -> openLDJOutput(ldjOutputDirectory.resolve(BatchConverter.baseName(csvInputFile) + ldjOutputFileExtension), argMap, options));
+		} else {
+
+			final Path ldjOutputFilePath = Paths.get(argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
+			final String ldjOutputFileName = ldjOutputFilePath.getFileName().toString();
+			final Compression compression = Compression.fromFileName(ldjOutputFileName);
+			final Path absoluteLDJOutputFilePath = ldjOutputFilePath.toAbsolutePath();
+			final Path partsDirectory = Files.createTempDirectory(absoluteLDJOutputFilePath.getParent(), ldjOutputFileName + ".parts");
+
+			LOG.info("LDJ output file name = '{}' (merged)", ldjOutputFilePath);
+
+			try {
+
+				final List<Path> partFiles = new ArrayList<>(csvInputFiles.size());
+
+				for (int i = 0; i < csvInputFiles.size(); i++) {
+
+					partFiles.add(partsDirectory.resolve(String.format("part-%05d%s", i, compression.getFileExtension())));
+				}
+
+				results = BatchConverter.convert(csvInputFiles, schema, cellValueDelimiter, options, parallelism,
+						csvInputFile -> openLDJOutput(partFiles.get(csvInputFiles.indexOf(csvInputFile)), argMap, options));
+
+				final List<Path> completePartFiles = new ArrayList<>(partFiles.size());
+
+				for (int i = 0; i < results.size(); i++) {
+
+					if (results.get(i).isSuccessful()) {
+
+						completePartFiles.add(partFiles.get(i));
+					}
+				}
+
+				// the LDJ output of failed CSV input files is not merged
+				BatchConverter.merge(completePartFiles, absoluteLDJOutputFilePath);
+			} finally {
+
+				deleteDirectory(partsDirectory);
+			}
+		}
+
+		BatchConverter.logSummary(results);
+
+		final long failed = results.stream().filter(result -> !result.isSuccessful()).count();
+
+		if (failed > 0) {
+
+			throw new CSV2SCLDJException(String.format("the conversion of '%d' of '%d' CSV input files failed", failed, results.size()));
+		}
+	}
+
+	/**
+	 * checks the parameters of a batch conversion, i.e., the parameters that refer to a single CSV input file (or LDJ
+	 * output file) cannot be utilised
+	 */
+	private static void checkBatchParameters(final Map<String, String> argMap) throws CSV2SCLDJException {
+
+		final boolean ldjOutputDirectory = argMap.containsKey(CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY);
+		final boolean ldjOutputFile = argMap.containsKey(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME);
+
+		if (ldjOutputDirectory == ldjOutputFile) {
+
+			throw new CSV2SCLDJException(String.format("a batch conversion requires either an LDJ output directory (%s) or an LDJ output file name (%s) for merged output", CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY, CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
+		}
+
+		for (final String param : new String[]{CSV2SCLDJParams.CSV_INPUT_FILE_NAME, CSV2SCLDJParams.CHECKPOINT_INTERVAL_PARAM, CSV2SCLDJParams.RESUME_PARAM, CSV2SCLDJParams.DELTA_STATE_FILE_NAME, CSV2SCLDJParams.BULK_URL}) {
+
+			if (argMap.containsKey(param)) {
+
+				throw new CSV2SCLDJException(String.format("a batch conversion (%s) cannot be combined with %s", CSV2SCLDJParams.CSV_INPUT_DIRECTORY, param));
+			}
+		}
+
+		if (ErrorPolicy.DEADLETTER.getName().equals(argMap.get(CSV2SCLDJParams.ON_ERROR_PARAM))) {
+
+			throw new CSV2SCLDJException(String.format("a batch conversion (%s) cannot be combined with the error policy '%s'", CSV2SCLDJParams.CSV_INPUT_DIRECTORY, ErrorPolicy.DEADLETTER.getName()));
+		}
+
+		if (ldjOutputFile && (argMap.containsKey(CSV2SCLDJParams.SHARD_RECORDS_PARAM) || argMap.containsKey(CSV2SCLDJParams.SHARD_BYTES_PARAM) || argMap.containsKey(CSV2SCLDJParams.BULK_CHUNK_BYTES_PARAM))) {
+
+			throw new CSV2SCLDJException(String.format("a merged LDJ output file of a batch conversion cannot be sharded; use an LDJ output directory (%s) instead", CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY));
+		}
+	}
+
+	/**
+	 * checks that the output format fits to the output, i.e., the binary output formats can only be written to a file
+	 * or stdout
+	 */
+	private static void checkOutputFormat(final Map<String, String> argMap,
+	                                      final ConversionOptions options) throws CSV2SCLDJException {
+
+		if (!options.getOutputFormat().isBinary()) {
+
+			return;
+		}
+
+		// Parquet files cannot be concatenated
+		if (options.getOutputFormat().isColumnar() && argMap.containsKey(CSV2SCLDJParams.CSV_INPUT_DIRECTORY) && argMap.containsKey(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME)) {
+
+			throw new CSV2SCLDJException(String.format("the output format '%s' cannot be written to a merged output file of a batch conversion; use an LDJ output directory (%s) instead", options.getOutputFormat().getName(), CSV2SCLDJParams.LDJ_OUTPUT_DIRECTORY));
+		}
+
+		for (final String param : new String[]{CSV2SCLDJParams.SHARD_RECORDS_PARAM, CSV2SCLDJParams.SHARD_BYTES_PARAM, CSV2SCLDJParams.SOLR_UPDATE_URL, CSV2SCLDJParams.BULK_URL, CSV2SCLDJParams.SERVER_PORT_PARAM}) {
+
+			if (argMap.containsKey(param)) {
+
+				throw new CSV2SCLDJException(String.format("the output format '%s' cannot be combined with %s", options.getOutputFormat().getName(), param));
+			}
+		}
+	}
+
+	private static void deleteDirectory(final Path directory) throws IOException {
+
+		try (final DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+
+			for (final Path file : directoryStream) {
+
+				Files.deleteIfExists(file);
+			}
+		}
+
+		Files.deleteIfExists(directory);
+	}
+
+	/**
+	 * registers the metrics at JMX in a background thread, since the initialisation of the platform MBean server takes a
+	 * noticeable share of the startup time, i.e., it should not delay the first converted record
+	 */
+	private static CompletableFuture<Optional<ObjectName>> registerMetricsInBackground(final ConversionMetrics metrics) {
+
+		final WorkerThreadFactory threadFactory = new WorkerThreadFactory("csv2scldj-metrics-registration");
+
+		return CompletableFuture.supplyAsync(() -> registerMetrics(metrics), runnable -> threadFactory.newThread(runnable).start());
+	}
+
+	private static Optional<ObjectName> registerMetrics(final ConversionMetrics metrics) {
+
+		try {
+
+			final ObjectName objectName = metrics.register(METRICS_NAME);
+
+			LOG.info("conversion metrics are available via JMX at '{}'", objectName);
+
+			return Optional.of(objectName);
+		} catch (final JMException e) {
+
+			LOG.warn("could not register the conversion metrics at JMX", e);
+
+			return Optional.empty();
+		}
+	}
+
+	private static void unregisterMetrics(final ObjectName objectName) {
+
+		try {
+
+			ConversionMetrics.unregister(objectName);
+		} catch (final JMException e) {
+
+			LOG.warn("could not unregister the conversion metrics from JMX", e);
+		}
+	}
+
+	private static Optional<MetricsReporter> startMetricsReporter(final Map<String, String> argMap,
+	                                                              final ConversionMetrics metrics) throws CSV2SCLDJException {
+
+		final Optional<Long> optionalMetricsLogInterval = parseLongParameter(argMap, CSV2SCLDJParams.METRICS_LOG_INTERVAL_PARAM);
+
+		if (!optionalMetricsLogInterval.isPresent() || optionalMetricsLogInterval.get() <= 0) {
+
+			return Optional.empty();
+		}
+
+		return Optional.of(MetricsReporter.start(metrics, optionalMetricsLogInterval.get()));
+	}
+
+	private static BufferedReader openCSVInput(final InputStream inputStream,
+	                                           final Compression compression) throws IOException {
+
+		if (compression != Compression.NONE) {
+
+			LOG.info("CSV input is compressed with '{}'", compression.name().toLowerCase());
+		}
+
+		return new BufferedReader(new InputStreamReader(compression.decompress(inputStream), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * opens the LDJ output file; it is compressed in parallel, if its name has the extension of a compression format, or
+	 * it is written as shards, if a maximum shard size is given
+	 *
+	 * @param ldjOutputFilePath the LDJ output file
+	 * @param argMap            the parameters (incl. the compression parameters)
+	 * @param options           the conversion options (incl. the checkpointer, which opens the LDJ output file itself)
+	 * @return the output stream for the LDJ output
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	private static OutputStream openLDJOutput(final Path ldjOutputFilePath,
+	                                          final Map<String, String> argMap,
+	                                          final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		if (options.getCheckpointer().isPresent()) {
+
+			return options.getCheckpointer().get().openOutput();
+		}
+
+		final Compression compression = Compression.fromFileName(ldjOutputFilePath.getFileName().toString());
+		final Optional<Long> optionalShardRecords = parseLongParameter(argMap, CSV2SCLDJParams.SHARD_RECORDS_PARAM);
+		final boolean bulk = options.getBulkActions().isPresent();
+		Optional<Long> optionalShardBytes = parseLongParameter(argMap, CSV2SCLDJParams.SHARD_BYTES_PARAM);
+
+		if (bulk && !optionalShardBytes.isPresent()) {
+
+			// bulk chunks are shards
+			optionalShardBytes = parseLongParameter(argMap, CSV2SCLDJParams.BULK_CHUNK_BYTES_PARAM);
+		}
+
+		if (optionalShardRecords.isPresent() || optionalShardBytes.isPresent()) {
+
+			final int level = parseIntParameter(argMap, CSV2SCLDJParams.COMPRESSION_LEVEL_PARAM).orElse(compression.getDefaultLevel());
+			final int writerThreads = parseIntParameter(argMap, CSV2SCLDJParams.SHARD_WRITERS_PARAM).orElse(ShardedOutputStream.DEFAULT_WRITER_THREADS);
+			// a record of the bulk format consists of action line and document
+			final int linesPerRecord = bulk ? 2 : 1;
+
+			LOG.info("write LDJ output as shards (max. records = '{}', max. bytes = '{}', writer threads = '{}')", optionalShardRecords.orElse(0L), optionalShardBytes.orElse(0L), writerThreads);
+
+			return new ShardedOutputStream(ldjOutputFilePath, level, optionalShardRecords.orElse(0L), optionalShardBytes.orElse(0L), writerThreads, linesPerRecord);
+		}
+
+		if (compression == Compression.NONE) {
+
+			return Files.newOutputStream(ldjOutputFilePath);
+		}
+
+		final int level = parseIntParameter(argMap, CSV2SCLDJParams.COMPRESSION_LEVEL_PARAM).orElse(compression.getDefaultLevel());
+		final int blockSize = parseIntParameter(argMap, CSV2SCLDJParams.COMPRESSION_BLOCK_SIZE_PARAM).orElse(ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE);
+		final int threads = parseIntParameter(argMap, CSV2SCLDJParams.COMPRESSION_THREADS_PARAM).orElse(Runtime.getRuntime().availableProcessors());
+
+		LOG.info("compress LDJ output with '{}' (level = '{}', block size = '{}', threads = '{}')", compression.name().toLowerCase(), level, blockSize, threads);
+
+		return new ParallelCompressingOutputStream(Files.newOutputStream(ldjOutputFilePath), compression, level, blockSize, threads);
+	}
+
+	/**
+	 * opens the Solr output, i.e., the records are posted to the Solr update endpoint
+	 */
+	private static OutputStream openSolrOutput(final Map<String, String> argMap) throws IOException, CSV2SCLDJException {
+
+		final URL updateURL = new URL(argMap.get(CSV2SCLDJParams.SOLR_UPDATE_URL));
+		final long batchRecords = parseLongParameter(argMap, CSV2SCLDJParams.SOLR_BATCH_RECORDS_PARAM).orElse((long) SolrUpdateOutputStream.DEFAULT_BATCH_RECORDS);
+		final long batchBytes = parseLongParameter(argMap, CSV2SCLDJParams.SOLR_BATCH_BYTES_PARAM).orElse(SolrUpdateOutputStream.DEFAULT_BATCH_BYTES);
+		final int concurrency = parseIntParameter(argMap, CSV2SCLDJParams.SOLR_CONCURRENCY_PARAM).orElse(HttpBatchSender.DEFAULT_CONCURRENCY);
+		final int retries = parseIntParameter(argMap, CSV2SCLDJParams.SOLR_RETRIES_PARAM).orElse(HttpBatchSender.DEFAULT_MAX_RETRIES);
+		final String commit = argMap.get(CSV2SCLDJParams.SOLR_COMMIT_PARAM);
+		final SolrCommitPolicy commitPolicy = commit != null && !commit.trim().isEmpty() ? SolrCommitPolicy.fromName(commit.trim()) : SolrCommitPolicy.NONE;
+		final long commitWithin = parseLongParameter(argMap, CSV2SCLDJParams.SOLR_COMMIT_WITHIN_PARAM).orElse(0L);
+
+		LOG.info("post records to Solr update endpoint '{}' (batch records = '{}', batch bytes = '{}', requests in flight = '{}', commit = '{}')", updateURL, batchRecords, batchBytes, concurrency, commitPolicy.getName());
+
+		final HttpBatchSender sender = new HttpBatchSender("csv2scldj-solr-sender", concurrency, retries, HttpBatchSender.DEFAULT_INITIAL_BACKOFF_MILLIS);
+
+		return new SolrUpdateOutputStream(updateURL, batchRecords, batchBytes, commitPolicy, commitWithin, sender);
+	}
+
+	/**
+	 * opens the bulk output, i.e., the records (incl. their action lines) are posted in chunks to the bulk endpoint
+	 */
+	private static OutputStream openBulkOutput(final Map<String, String> argMap) throws IOException, CSV2SCLDJException {
+
+		final URL bulkURL = new URL(argMap.get(CSV2SCLDJParams.BULK_URL));
+		final long chunkBytes = parseLongParameter(argMap, CSV2SCLDJParams.BULK_CHUNK_BYTES_PARAM).orElse(BulkOutputStream.DEFAULT_CHUNK_BYTES);
+		final int concurrency = parseIntParameter(argMap, CSV2SCLDJParams.BULK_CONCURRENCY_PARAM).orElse(HttpBatchSender.DEFAULT_CONCURRENCY);
+		final int retries = parseIntParameter(argMap, CSV2SCLDJParams.BULK_RETRIES_PARAM).orElse(HttpBatchSender.DEFAULT_MAX_RETRIES);
+
+		LOG.info("post records to bulk endpoint '{}' (chunk bytes = '{}', requests in flight = '{}')", bulkURL, chunkBytes, concurrency);
+
+		final HttpBatchSender sender = new HttpBatchSender("csv2scldj-bulk-sender", concurrency, retries, HttpBatchSender.DEFAULT_INITIAL_BACKOFF_MILLIS);
+
+		return new BulkOutputStream(bulkURL, chunkBytes, sender);
+	}
+
+	private static ConversionOptions parseConversionOptions(final Map<String, String> argMap,
+	                                                        final ConversionMetrics metrics) throws IOException, CSV2SCLDJException {
+
+		final ConversionOptions.Builder builder = ConversionOptions.builder()
+				.metrics(metrics);
+
+		final Optional<Integer> optionalThreads = parseIntParameter(argMap, CSV2SCLDJParams.THREADS_PARAM);
+
+		if (optionalThreads.isPresent()) {
+
+			builder.threads(optionalThreads.get());
+		}
+
+		final Optional<Boolean> optionalSplitInput = parseBooleanParameter(argMap, CSV2SCLDJParams.SPLIT_INPUT_PARAM);
+
+		if (optionalSplitInput.isPresent()) {
+
+			builder.splitInput(optionalSplitInput.get());
+		}
+
+		final Optional<Long> optionalSplitSize = parseLongParameter(argMap, CSV2SCLDJParams.SPLIT_SIZE_PARAM);
+
+		if (optionalSplitSize.isPresent()) {
+
+			builder.splitSize(optionalSplitSize.get());
+		}
+
+		final Optional<Integer> optionalBatchSize = parseIntParameter(argMap, CSV2SCLDJParams.BATCH_SIZE_PARAM);
+
+		if (optionalBatchSize.isPresent()) {
+
+			builder.batchSize(optionalBatchSize.get());
+		}
+
+		final Optional<Boolean> optionalCheckRequiredFieldsOnEmptyRecords = parseBooleanParameter(argMap, CSV2SCLDJParams.CHECK_REQUIRED_FIELDS_ON_EMPTY_RECORDS_PARAM);
+
+		if (optionalCheckRequiredFieldsOnEmptyRecords.isPresent()) {
+
+			builder.checkRequiredFieldsOnEmptyRecords(optionalCheckRequiredFieldsOnEmptyRecords.get());
+		}
+
+		final Optional<Integer> optionalValueCacheSize = parseIntParameter(argMap, CSV2SCLDJParams.VALUE_CACHE_SIZE_PARAM);
+
+		if (optionalValueCacheSize.isPresent()) {
+
+			builder.valueCacheSize(optionalValueCacheSize.get());
+		}
+
+		final Optional<Boolean> optionalValueCacheDetection = parseBooleanParameter(argMap, CSV2SCLDJParams.VALUE_CACHE_DETECTION_PARAM);
+
+		if (optionalValueCacheDetection.isPresent()) {
+
+			builder.valueCacheDetection(optionalValueCacheDetection.get());
+		}
+
+		final String csvParser = argMap.get(CSV2SCLDJParams.CSV_PARSER_PARAM);
+
+		if (csvParser != null && !csvParser.trim().isEmpty()) {
+
+			builder.csvParserType(CSVParserType.fromName(csvParser.trim()));
+		}
+
+		final String onError = argMap.get(CSV2SCLDJParams.ON_ERROR_PARAM);
+		final ErrorPolicy errorPolicy = onError != null && !onError.trim().isEmpty() ? ErrorPolicy.fromName(onError.trim()) : ConversionOptions.DEFAULT_ERROR_POLICY;
+
+		builder.errorPolicy(errorPolicy);
+
+		final Optional<Long> optionalErrorBudget = parseLongParameter(argMap, CSV2SCLDJParams.ERROR_BUDGET_PARAM);
+
+		if (optionalErrorBudget.isPresent()) {
+
+			builder.errorBudget(optionalErrorBudget.get());
+		}
+
+		final Optional<Long> optionalCheckpointInterval = parseLongParameter(argMap, CSV2SCLDJParams.CHECKPOINT_INTERVAL_PARAM);
+		final boolean resume = parseBooleanParameter(argMap, CSV2SCLDJParams.RESUME_PARAM).orElse(false);
+
+		Checkpointer checkpointer = null;
+
+		if (optionalCheckpointInterval.isPresent() || resume) {
+
+			final long checkpointInterval = optionalCheckpointInterval.orElse(Checkpointer.DEFAULT_INTERVAL_SECONDS);
+
+			LOG.info("take checkpoints every '{}' seconds (resume = '{}'); the CSV input file is converted via input splits", checkpointInterval, resume);
+
+			checkpointer = createCheckpointer(argMap, checkpointInterval, resume);
+
+			builder.checkpointer(checkpointer)
+					.splitInput(true);
+		}
+
+		final String deltaStateFileName = argMap.get(CSV2SCLDJParams.DELTA_STATE_FILE_NAME);
+
+		if (deltaStateFileName != null && !deltaStateFileName.trim().isEmpty()) {
+
+			if (resume) {
+
+				throw new CSV2SCLDJException(String.format("an incremental conversion (%s) cannot be resumed", CSV2SCLDJParams.DELTA_STATE_FILE_NAME));
+			}
+
+			final String deltaIdField = argMap.get(CSV2SCLDJParams.DELTA_ID_FIELD_PARAM);
+
+			if (deltaIdField == null || deltaIdField.trim().isEmpty()) {
+
+				throw new CSV2SCLDJException(String.format("an incremental conversion requires an ID field (%s)", CSV2SCLDJParams.DELTA_ID_FIELD_PARAM));
+			}
+
+			final String deletedIdsFileName = deletedIdsFileName(argMap);
+
+			LOG.info("convert incrementally, i.e., write only new or changed records (ID field = '{}', delta state file = '{}', deleted IDs file = '{}')", deltaIdField.trim(), deltaStateFileName, deletedIdsFileName);
+
+			builder.deltaState(DeltaState.open(Paths.get(deltaStateFileName), deltaIdField.trim(), Paths.get(deletedIdsFileName)));
+		}
+
+		final String outputFormat = argMap.get(CSV2SCLDJParams.OUTPUT_FORMAT_PARAM);
+
+		if (outputFormat != null && !outputFormat.trim().isEmpty()) {
+
+			builder.outputFormat(OutputFormat.fromName(outputFormat.trim()));
+
+			if (OutputFormat.PARQUET.getName().equals(outputFormat.trim())) {
+
+				builder.parquetOptions(parseParquetOptions(argMap));
+			}
+		}
+
+		final String bulkIdField = argMap.get(CSV2SCLDJParams.BULK_ID_FIELD_PARAM);
+
+		if (bulkIdField != null && !bulkIdField.trim().isEmpty()) {
+
+			final String bulkIndex = argMap.get(CSV2SCLDJParams.BULK_INDEX_PARAM);
+			final Optional<String> optionalBulkIndex = bulkIndex != null && !bulkIndex.trim().isEmpty() ? Optional.of(bulkIndex.trim()) : Optional.empty();
+
+			LOG.info("write the bulk format, i.e., each record is preceded by an action line (ID field = '{}', index = '{}')", bulkIdField.trim(), optionalBulkIndex.orElse(""));
+
+			builder.bulkActions(BulkActions.of(bulkIdField.trim(), optionalBulkIndex));
+		} else if (argMap.containsKey(CSV2SCLDJParams.BULK_URL) || argMap.containsKey(CSV2SCLDJParams.BULK_INDEX_PARAM) || argMap.containsKey(CSV2SCLDJParams.BULK_CHUNK_BYTES_PARAM)) {
+
+			throw new CSV2SCLDJException(String.format("the bulk format requires an ID field (%s)", CSV2SCLDJParams.BULK_ID_FIELD_PARAM));
+		}
+
+		if (errorPolicy == ErrorPolicy.DEADLETTER) {
+
+			final String deadLetterFileName = deadLetterFileName(argMap);
+
+			LOG.info("write rejected records to dead-letter file '{}'", deadLetterFileName);
+
+			// with checkpoints, the dead-letter CSV is continued at resuming (instead of being overwritten)
+			builder.deadLetterOutput(checkpointer != null ? checkpointer.openDeadLetterOutput(Paths.get(deadLetterFileName)) : Files.newOutputStream(Paths.get(deadLetterFileName)));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * @return the options of the Parquet output (the defaults for all Parquet parameters that are not given)
+	 */
+	private static ParquetOptions parseParquetOptions(final Map<String, String> argMap) throws CSV2SCLDJException {
+
+		final String compressionName = argMap.get(CSV2SCLDJParams.PARQUET_COMPRESSION_PARAM);
+
+		Compression compression = ParquetOptions.DEFAULT_COMPRESSION;
+
+		if (compressionName != null && !compressionName.trim().isEmpty()) {
+
+			try {
+
+				compression = Compression.valueOf(compressionName.trim().toUpperCase());
+			} catch (final IllegalArgumentException e) {
+
+				throw new CSV2SCLDJException(String.format("unknown Parquet compression '%s', please use either 'none', 'gzip' or 'zstd'", compressionName.trim()));
+			}
+		}
+
+		final long rowGroupBytes = parseLongParameter(argMap, CSV2SCLDJParams.PARQUET_ROW_GROUP_BYTES_PARAM).orElse(ParquetOptions.DEFAULT_ROW_GROUP_BYTES);
+		final int maxDictionaryBytes = parseIntParameter(argMap, CSV2SCLDJParams.PARQUET_DICTIONARY_MAX_BYTES_PARAM).orElse(ParquetOptions.DEFAULT_MAX_DICTIONARY_BYTES);
+		final int level = parseIntParameter(argMap, CSV2SCLDJParams.COMPRESSION_LEVEL_PARAM).orElse(compression.getDefaultLevel());
+
+		return ParquetOptions.of(rowGroupBytes, maxDictionaryBytes, compression, level);
+	}
+
+	/**
+	 * creates the checkpointer; checkpoints require a CSV input file that can be split (i.e. a regular, uncompressed
+	 * file) and an LDJ output file that can be truncated (i.e. an uncompressed, unsharded file)
+	 */
+	private static Checkpointer createCheckpointer(final Map<String, String> argMap,
+	                                               final long checkpointInterval,
+	                                               final boolean resume) throws IOException, CSV2SCLDJException {
+
+		final String csvInputFileName = argMap.get(CSV2SCLDJParams.CSV_INPUT_FILE_NAME);
+		final String ldjOutputFileName = argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME);
+
+		if (csvInputFileName == null || ldjOutputFileName == null) {
+
+			throw new CSV2SCLDJException(String.format("checkpoints require a CSV input file name (%s) and an LDJ output file name (%s)", CSV2SCLDJParams.CSV_INPUT_FILE_NAME, CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME));
+		}
+
+		final Path csvInputFilePath = Paths.get(csvInputFileName);
+		final Path ldjOutputFilePath = Paths.get(ldjOutputFileName);
+
+		if (!Files.isRegularFile(csvInputFilePath) || Compression.detect(csvInputFilePath) != Compression.NONE) {
+
+			throw new CSV2SCLDJException(String.format("checkpoints require a regular, uncompressed CSV input file, but '%s' is not", csvInputFileName));
+		}
+
+		if (Compression.fromFileName(ldjOutputFilePath.getFileName().toString()) != Compression.NONE
+				|| argMap.containsKey(CSV2SCLDJParams.SHARD_RECORDS_PARAM)
+				|| argMap.containsKey(CSV2SCLDJParams.SHARD_BYTES_PARAM)
+				|| argMap.containsKey(CSV2SCLDJParams.BULK_CHUNK_BYTES_PARAM)) {
+
+			throw new CSV2SCLDJException("checkpoints require an uncompressed, unsharded LDJ output file");
+		}
+
+		return Checkpointer.create(csvInputFilePath, ldjOutputFilePath, checkpointInterval, resume);
+	}
+
+	/**
+	 * @return the name of the file for the deleted IDs, i.e., the given one or the name of the LDJ output file plus
+	 * {@link #DELETED_IDS_FILE_EXTENSION}
+	 */
+	private static String deletedIdsFileName(final Map<String, String> argMap) throws CSV2SCLDJException {
+
+		final String deletedIdsFileName = argMap.get(CSV2SCLDJParams.DELTA_DELETED_FILE_NAME);
+
+		if (deletedIdsFileName != null && !deletedIdsFileName.trim().isEmpty()) {
+
+			return deletedIdsFileName;
+		}
+
+		final String ldjOutputFileName = argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME);
+
+		if (ldjOutputFileName == null) {
+
+			throw new CSV2SCLDJException(String.format("an incremental conversion requires a file name for the deleted IDs (%s), if the output is written to stdout", CSV2SCLDJParams.DELTA_DELETED_FILE_NAME));
+		}
+
+		return ldjOutputFileName + DELETED_IDS_FILE_EXTENSION;
+	}
+
+	/**
+	 * @return the name of the dead-letter file, i.e., the given one or the name of the LDJ output file plus
+	 * {@link #DEAD_LETTER_FILE_EXTENSION}
+	 */
+	private static String deadLetterFileName(final Map<String, String> argMap) throws CSV2SCLDJException {
+
+		final String deadLetterFileName = argMap.get(CSV2SCLDJParams.DEAD_LETTER_FILE_NAME);
+
+		if (deadLetterFileName != null && !deadLetterFileName.trim().isEmpty()) {
+
+			return deadLetterFileName;
+		}
+
+		final String ldjOutputFileName = argMap.get(CSV2SCLDJParams.LDJ_OUTPUT_FILE_NAME);
+
+		if (ldjOutputFileName == null) {
+
+			throw new CSV2SCLDJException(String.format("the error policy '%s' requires a dead-letter file name (%s), if the output is written to stdout", ErrorPolicy.DEADLETTER.getName(), CSV2SCLDJParams.DEAD_LETTER_FILE_NAME));
+		}
+
+		return ldjOutputFileName + DEAD_LETTER_FILE_EXTENSION;
+	}
+
 	private static Map<String, String> checkOptionalParameters(final Map<String, String> argMap) {
 
 		final String cellValueDelimiter = argMap.get(CSV2SCLDJParams.CELL_VALUE_DELIMITER_PARAM);
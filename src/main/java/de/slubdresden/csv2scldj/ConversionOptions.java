@@ -0,0 +1,502 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.OutputStream;
+import java.util.Optional;
+
+import de.slubdresden.csv2scldj.bulk.BulkActions;
+import de.slubdresden.csv2scldj.checkpoint.Checkpointer;
+import de.slubdresden.csv2scldj.columnar.ParquetOptions;
+import de.slubdresden.csv2scldj.csv.CSVParserType;
+import de.slubdresden.csv2scldj.delta.DeltaState;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+
+/**
+ * Tuning options of a CSV to schema conform line-delimited JSON conversion (i.e. everything besides input, schema,
+ * output and cell value delimiter).
+ *
+ * @author tgaengler
+ */
+public final class ConversionOptions {
+
+	public static final int DEFAULT_THREADS = 1;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final CSVParserType DEFAULT_CSV_PARSER_TYPE = CSVParserType.BUILTIN;
+	public static final long DEFAULT_SPLIT_SIZE = 8L * 1024 * 1024;
+	public static final ErrorPolicy DEFAULT_ERROR_POLICY = ErrorPolicy.FAIL;
+	public static final OutputFormat DEFAULT_OUTPUT_FORMAT = OutputFormat.LDJ;
+	public static final int DEFAULT_VALUE_CACHE_SIZE = 256;
+
+	/**
+	 * the maximum number of cached values per field (the cache is allocated per field and thread)
+	 */
+	public static final int MAX_VALUE_CACHE_SIZE = 64 * 1024;
+
+	/**
+	 * no limit for the number of rejected records
+	 */
+	public static final long UNLIMITED_ERROR_BUDGET = Long.MAX_VALUE;
+
+	/**
+	 * splits are memory-mapped as a whole, i.e., they need to fit into a byte buffer
+	 */
+	public static final long MAX_SPLIT_SIZE = 1024L * 1024 * 1024;
+
+	private final int threads;
+
+	private final int batchSize;
+
+	private final CSVParserType csvParserType;
+
+	private final boolean splitInput;
+
+	private final long splitSize;
+
+	private final boolean checkRequiredFieldsOnEmptyRecords;
+
+	private final Optional<ConversionMetrics> metrics;
+
+	private final ErrorPolicy errorPolicy;
+
+	private final long errorBudget;
+
+	private final Optional<OutputStream> deadLetterOutput;
+
+	private final Optional<Checkpointer> checkpointer;
+
+	private final Optional<DeltaState> deltaState;
+
+	private final Optional<BulkActions> bulkActions;
+
+	private final OutputFormat outputFormat;
+
+	private final ParquetOptions parquetOptions;
+
+	private final int valueCacheSize;
+
+	private final boolean valueCacheDetection;
+
+	private ConversionOptions(final Builder builder) {
+
+		threads = builder.threads;
+		batchSize = builder.batchSize;
+		csvParserType = builder.csvParserType;
+		splitInput = builder.splitInput;
+		splitSize = builder.splitSize;
+		checkRequiredFieldsOnEmptyRecords = builder.checkRequiredFieldsOnEmptyRecords;
+		metrics = Optional.ofNullable(builder.metrics);
+		errorPolicy = builder.errorPolicy;
+		errorBudget = builder.errorBudget;
+		deadLetterOutput = Optional.ofNullable(builder.deadLetterOutput);
+		checkpointer = Optional.ofNullable(builder.checkpointer);
+		deltaState = Optional.ofNullable(builder.deltaState);
+		bulkActions = Optional.ofNullable(builder.bulkActions);
+		outputFormat = builder.outputFormat;
+		parquetOptions = builder.parquetOptions;
+		valueCacheSize = builder.valueCacheSize;
+		valueCacheDetection = builder.valueCacheDetection;
+	}
+
+	public static ConversionOptions defaults() {
+
+		return builder().build();
+	}
+
+	public static Builder builder() {
+
+		return new Builder();
+	}
+
+	/**
+	 * @return a builder that is initialised with these options (e.g. for deriving the options of a single file of a
+	 * batch conversion)
+	 */
+	public Builder toBuilder() {
+
+		final Builder builder = new Builder();
+
+		builder.threads = threads;
+		builder.batchSize = batchSize;
+		builder.csvParserType = csvParserType;
+		builder.splitInput = splitInput;
+		builder.splitSize = splitSize;
+		builder.checkRequiredFieldsOnEmptyRecords = checkRequiredFieldsOnEmptyRecords;
+		builder.metrics = metrics.orElse(null);
+		builder.errorPolicy = errorPolicy;
+		builder.errorBudget = errorBudget;
+		builder.deadLetterOutput = deadLetterOutput.orElse(null);
+		builder.checkpointer = checkpointer.orElse(null);
+		builder.deltaState = deltaState.orElse(null);
+		builder.bulkActions = bulkActions.orElse(null);
+		builder.outputFormat = outputFormat;
+		builder.parquetOptions = parquetOptions;
+		builder.valueCacheSize = valueCacheSize;
+		builder.valueCacheDetection = valueCacheDetection;
+
+		return builder;
+	}
+
+	/**
+	 * @return the number of worker threads; 1 means single-threaded conversion
+	 */
+	public int getThreads() {
+
+		return threads;
+	}
+
+	/**
+	 * @return the number of records that are handed over to a worker thread at once
+	 */
+	public int getBatchSize() {
+
+		return batchSize;
+	}
+
+	/**
+	 * @return the CSV parser that should be utilised for reading the CSV input
+	 */
+	public CSVParserType getCSVParserType() {
+
+		return csvParserType;
+	}
+
+	/**
+	 * @return true, if a CSV input file should be memory-mapped and cut into splits that are parsed in parallel
+	 */
+	public boolean isSplitInput() {
+
+		return splitInput;
+	}
+
+	/**
+	 * @return the targeted size of an input split in bytes
+	 */
+	public long getSplitSize() {
+
+		return splitSize;
+	}
+
+	/**
+	 * @return true, if records without any (non-blank) value should be checked for required fields as well, i.e., they
+	 * are violations, if the schema contains required fields (by default, such records are written as empty JSON objects)
+	 */
+	public boolean isCheckRequiredFieldsOnEmptyRecords() {
+
+		return checkRequiredFieldsOnEmptyRecords;
+	}
+
+	/**
+	 * @return the metrics that should be updated by the conversion (e.g. for observing it via JMX); if they are not set,
+	 * the conversion collects its metrics only for its final summary
+	 */
+	public Optional<ConversionMetrics> getMetrics() {
+
+		return metrics;
+	}
+
+	/**
+	 * @return the policy for handling records that cannot be converted
+	 */
+	public ErrorPolicy getErrorPolicy() {
+
+		return errorPolicy;
+	}
+
+	/**
+	 * @return the maximum number of records that can be rejected (see {@link ErrorPolicy#SKIP} and
+	 * {@link ErrorPolicy#DEADLETTER}) before the conversion is aborted
+	 */
+	public long getErrorBudget() {
+
+		return errorBudget;
+	}
+
+	/**
+	 * @return the output stream for the dead-letter CSV of the rejected records (only utilised with
+	 * {@link ErrorPolicy#DEADLETTER}); it will be closed at the end of the conversion
+	 */
+	public Optional<OutputStream> getDeadLetterOutput() {
+
+		return deadLetterOutput;
+	}
+
+	/**
+	 * @return the checkpointer that takes checkpoints of a conversion of a CSV input file via input splits (and that
+	 * knows the checkpoint to resume from)
+	 */
+	public Optional<Checkpointer> getCheckpointer() {
+
+		return checkpointer;
+	}
+
+	/**
+	 * @return the delta state, if only new or changed records (compared to the previous run) should be written; it is
+	 * completed (i.e. the deleted IDs and the new delta state are written) at the end of a successful conversion
+	 */
+	public Optional<DeltaState> getDeltaState() {
+
+		return deltaState;
+	}
+
+	/**
+	 * @return the bulk format configuration, if each record should be preceded by an Elasticsearch/OpenSearch bulk
+	 * action line
+	 */
+	public Optional<BulkActions> getBulkActions() {
+
+		return bulkActions;
+	}
+
+	/**
+	 * @return the format of the converted records
+	 */
+	public OutputFormat getOutputFormat() {
+
+		return outputFormat;
+	}
+
+	/**
+	 * @return the options of the Parquet output (only utilised by the output format '{@link OutputFormat#PARQUET}')
+	 */
+	public ParquetOptions getParquetOptions() {
+
+		return parquetOptions;
+	}
+
+	/**
+	 * @return the maximum number of cached (pre-encoded) values per string field; 0 disables the cache
+	 */
+	public int getValueCacheSize() {
+
+		return valueCacheSize;
+	}
+
+	/**
+	 * @return true, if the values of string fields, which are not marked as low-cardinality fields in the schema, should
+	 * be cached as well, as long as the cache pays off (i.e. the fields are detected automatically)
+	 */
+	public boolean isValueCacheDetection() {
+
+		return valueCacheDetection;
+	}
+
+	public static final class Builder {
+
+		private int threads = DEFAULT_THREADS;
+
+		private int batchSize = DEFAULT_BATCH_SIZE;
+
+		private CSVParserType csvParserType = DEFAULT_CSV_PARSER_TYPE;
+
+		private boolean splitInput;
+
+		private long splitSize = DEFAULT_SPLIT_SIZE;
+
+		private boolean checkRequiredFieldsOnEmptyRecords;
+
+		private ConversionMetrics metrics;
+
+		private ErrorPolicy errorPolicy = DEFAULT_ERROR_POLICY;
+
+		private long errorBudget = UNLIMITED_ERROR_BUDGET;
+
+		private OutputStream deadLetterOutput;
+
+		private Checkpointer checkpointer;
+
+		private DeltaState deltaState;
+
+		private BulkActions bulkActions;
+
+		private OutputFormat outputFormat = DEFAULT_OUTPUT_FORMAT;
+
+		private ParquetOptions parquetOptions = ParquetOptions.defaults();
+
+		private int valueCacheSize = DEFAULT_VALUE_CACHE_SIZE;
+
+		private boolean valueCacheDetection = true;
+
+		private Builder() {
+
+		}
+
+		public Builder threads(final int threadsArg) {
+
+			if (threadsArg < 1) {
+
+				throw new IllegalArgumentException(String.format("the number of threads must be at least 1, but was '%d'", threadsArg));
+			}
+
+			threads = threadsArg;
+
+			return this;
+		}
+
+		public Builder batchSize(final int batchSizeArg) {
+
+			if (batchSizeArg < 1) {
+
+				throw new IllegalArgumentException(String.format("the batch size must be at least 1, but was '%d'", batchSizeArg));
+			}
+
+			batchSize = batchSizeArg;
+
+			return this;
+		}
+
+		public Builder csvParserType(final CSVParserType csvParserTypeArg) {
+
+			csvParserType = csvParserTypeArg;
+
+			return this;
+		}
+
+		public Builder splitInput(final boolean splitInputArg) {
+
+			splitInput = splitInputArg;
+
+			return this;
+		}
+
+		public Builder splitSize(final long splitSizeArg) {
+
+			if (splitSizeArg < 1 || splitSizeArg > MAX_SPLIT_SIZE) {
+
+				throw new IllegalArgumentException(String.format("the split size must be between 1 and %d bytes, but was '%d'", MAX_SPLIT_SIZE, splitSizeArg));
+			}
+
+			splitSize = splitSizeArg;
+
+			return this;
+		}
+
+		public Builder checkRequiredFieldsOnEmptyRecords(final boolean checkRequiredFieldsOnEmptyRecordsArg) {
+
+			checkRequiredFieldsOnEmptyRecords = checkRequiredFieldsOnEmptyRecordsArg;
+
+			return this;
+		}
+
+		public Builder metrics(final ConversionMetrics metricsArg) {
+
+			metrics = metricsArg;
+
+			return this;
+		}
+
+		public Builder errorPolicy(final ErrorPolicy errorPolicyArg) {
+
+			errorPolicy = errorPolicyArg;
+
+			return this;
+		}
+
+		public Builder errorBudget(final long errorBudgetArg) {
+
+			if (errorBudgetArg < 0) {
+
+				throw new IllegalArgumentException(String.format("the error budget must not be negative, but was '%d'", errorBudgetArg));
+			}
+
+			errorBudget = errorBudgetArg;
+
+			return this;
+		}
+
+		public Builder deadLetterOutput(final OutputStream deadLetterOutputArg) {
+
+			deadLetterOutput = deadLetterOutputArg;
+
+			return this;
+		}
+
+		public Builder checkpointer(final Checkpointer checkpointerArg) {
+
+			checkpointer = checkpointerArg;
+
+			return this;
+		}
+
+		public Builder deltaState(final DeltaState deltaStateArg) {
+
+			deltaState = deltaStateArg;
+
+			return this;
+		}
+
+		public Builder bulkActions(final BulkActions bulkActionsArg) {
+
+			bulkActions = bulkActionsArg;
+
+			return this;
+		}
+
+		public Builder outputFormat(final OutputFormat outputFormatArg) {
+
+			outputFormat = outputFormatArg;
+
+			return this;
+		}
+
+		public Builder parquetOptions(final ParquetOptions parquetOptionsArg) {
+
+			parquetOptions = parquetOptionsArg;
+
+			return this;
+		}
+
+		public Builder valueCacheSize(final int valueCacheSizeArg) {
+
+			if (valueCacheSizeArg < 0 || valueCacheSizeArg > MAX_VALUE_CACHE_SIZE) {
+
+				throw new IllegalArgumentException(String.format("the value cache size must be between 0 and %d, but was '%d'", MAX_VALUE_CACHE_SIZE, valueCacheSizeArg));
+			}
+
+			valueCacheSize = valueCacheSizeArg;
+
+			return this;
+		}
+
+		public Builder valueCacheDetection(final boolean valueCacheDetectionArg) {
+
+			valueCacheDetection = valueCacheDetectionArg;
+
+			return this;
+		}
+
+		public ConversionOptions build() {
+
+			if (errorPolicy == ErrorPolicy.DEADLETTER && deadLetterOutput == null) {
+
+				throw new IllegalArgumentException("the error policy 'deadletter' requires a dead-letter output");
+			}
+
+			if (bulkActions != null && outputFormat.isBinary()) {
+
+				throw new IllegalArgumentException(String.format("the bulk format requires the output format '%s'", OutputFormat.LDJ.getName()));
+			}
+
+			// the records of a columnar output are buffered (column by column) in one writer
+			if (outputFormat.isColumnar() && (threads > 1 || splitInput || checkpointer != null)) {
+
+				throw new IllegalArgumentException(String.format("the output format '%s' is written single-threaded (without input splitting and checkpoints)", outputFormat.getName()));
+			}
+
+			return new ConversionOptions(this);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+/**
+ * The policies for handling records that cannot be converted (e.g. records with too few cells, multiple values in a
+ * singlevalued field or missing required fields).
+ *
+ * @author tgaengler
+ */
+public enum ErrorPolicy {
+
+	/**
+	 * the conversion is aborted at the first invalid record (default)
+	 */
+	FAIL("fail"),
+
+	/**
+	 * invalid records are skipped
+	 */
+	SKIP("skip"),
+
+	/**
+	 * invalid records are skipped and written (incl. the reason) to a dead-letter file
+	 */
+	DEADLETTER("deadletter");
+
+	private final String name;
+
+	ErrorPolicy(final String nameArg) {
+
+		name = nameArg;
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	public static ErrorPolicy fromName(final String name) throws CSV2SCLDJException {
+
+		for (final ErrorPolicy errorPolicy : values()) {
+
+			if (errorPolicy.name.equals(name)) {
+
+				return errorPolicy;
+			}
+		}
+
+		throw new CSV2SCLDJException(String.format("unknown error policy '%s', please use either '%s', '%s' or '%s'", name, FAIL.name, SKIP.name, DEADLETTER.name));
+	}
+}
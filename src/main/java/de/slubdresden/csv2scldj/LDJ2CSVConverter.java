@@ -0,0 +1,714 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import io.vavr.collection.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.concurrent.OrderedTaskQueue;
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+import de.slubdresden.csv2scldj.csv.CSVTokenizer;
+import de.slubdresden.csv2scldj.csv.CellValueSplitter;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldTree;
+
+/**
+ * Converts schema conform line-delimited JSON back into CSV, i.e., the records are parsed via the streaming API (without
+ * intermediate maps), the values of multivalued fields are joined with the cell value delimiter and the columns are
+ * written in schema order (or in the given column order). The cells are quoted and escaped according to the rules of the
+ * CSV input (see {@link CSVTokenizer}), i.e., the CSV output converts back into the same line-delimited JSON (if its
+ * field order is the column order). Nested objects and arrays of objects are flattened into the columns of their
+ * path-style field names (see {@link FieldTree}).
+ *
+ * @author tgaengler
+ */
+public final class LDJ2CSVConverter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LDJ2CSVConverter.class);
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/**
+	 * the output is flushed in blocks of (at least) this size
+	 */
+	private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * the number of batches per worker thread that can be converted ahead of the (in order) writing
+	 */
+	private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
+
+	/**
+	 * Converts the line-delimited JSON input into CSV with a column per schema field (in schema order; without the
+	 * definitions of groups of nested fields).
+	 *
+	 * @param ldjReader          the reader for the line-delimited JSON input
+	 * @param schema             the schema
+	 * @param csvWriter          the writer for the CSV output (will be closed at the end)
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @param options            the conversion options (number of threads and batch size)
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static void convert(final Reader ldjReader,
+	                           final Map<String, Field> schema,
+	                           final Writer csvWriter,
+	                           final String cellValueDelimiter,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final Set<String> groups = new HashSet<>();
+
+		for (final String fieldName : schema.keySet()) {
+
+			for (int separator = fieldName.indexOf(FieldTree.PATH_SEPARATOR); separator >= 0; separator = fieldName.indexOf(FieldTree.PATH_SEPARATOR, separator + 1)) {
+
+				groups.add(fieldName.substring(0, separator));
+			}
+		}
+
+		convert(ldjReader, schema, schema.keySet().filter(fieldName -> !groups.contains(fieldName)).toJavaList(), csvWriter, cellValueDelimiter, options);
+	}
+
+	/**
+	 * Converts the line-delimited JSON input into CSV with the given columns.
+	 *
+	 * @param ldjReader          the reader for the line-delimited JSON input
+	 * @param schema             the schema
+	 * @param columns            the columns of the CSV output, i.e., schema fields in the order of the CSV header; the
+	 *                           records must not contain other fields
+	 * @param csvWriter          the writer for the CSV output (will be closed at the end)
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @param options            the conversion options (number of threads and batch size)
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static void convert(final Reader ldjReader,
+	                           final Map<String, Field> schema,
+	                           final List<String> columns,
+	                           final Writer csvWriter,
+	                           final String cellValueDelimiter,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final CSVColumns csvColumns = CSVColumns.compile(schema, columns);
+		final CellValueSplitter cellValueSplitter = CellValueSplitter.compile(cellValueDelimiter);
+		final long start = System.nanoTime();
+		final long records;
+
+		try (final Writer writer = csvWriter) {
+
+			final StringBuilder header = new StringBuilder();
+
+			csvColumns.writeHeader(header);
+			writer.append(header);
+
+			if (options.getThreads() > 1) {
+
+				LOG.info("convert LDJ records with '{}' worker threads (batch size = '{}')", options.getThreads(), options.getBatchSize());
+
+				records = convertInParallel(ldjReader, csvColumns, cellValueSplitter, writer, options);
+			} else {
+
+				records = convertSequentially(ldjReader, csvColumns, cellValueSplitter, writer);
+			}
+		}
+
+		LOG.info("converted '{}' LDJ records into CSV in '{}' ms", records, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	private static long convertSequentially(final Reader ldjReader,
+	                                        final CSVColumns csvColumns,
+	                                        final CellValueSplitter cellValueSplitter,
+	                                        final Writer writer) throws IOException, CSV2SCLDJException {
+
+		final RecordWriter recordWriter = new RecordWriter(csvColumns, cellValueSplitter);
+		final StringBuilder output = new StringBuilder(OUTPUT_BUFFER_SIZE * 2);
+
+		long records = 0;
+
+		try (final JsonParser parser = FACTORY.createParser(ldjReader)) {
+
+			while (nextRecord(parser, records + 1)) {
+
+				recordWriter.writeRecord(parser, ++records, output);
+
+				if (output.length() >= OUTPUT_BUFFER_SIZE) {
+
+					writer.append(output);
+					output.setLength(0);
+				}
+			}
+		}
+
+		writer.append(output);
+
+		return records;
+	}
+
+	/**
+	 * Reads batches of lines on the calling thread, converts them on worker threads and writes the converted batches in
+	 * input order, i.e., the output is the same as the output of the single-threaded conversion.
+	 */
+	private static long convertInParallel(final Reader ldjReader,
+	                                      final CSVColumns csvColumns,
+	                                      final CellValueSplitter cellValueSplitter,
+	                                      final Writer writer,
+	                                      final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final int threads = options.getThreads();
+		final int batchSize = options.getBatchSize();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory("ldj2csv-worker"));
+		final OrderedTaskQueue<String> batchQueue = new OrderedTaskQueue<>(executor, threads * BATCHES_IN_FLIGHT_PER_THREAD, writer::write);
+		final ThreadLocal<RecordWriter> recordWriters = ThreadLocal.withInitial(() -> new RecordWriter(csvColumns, cellValueSplitter));
+
+		long records = 0;
+
+		try (final BufferedReader lineReader = new BufferedReader(ldjReader, OUTPUT_BUFFER_SIZE)) {
+
+			String line = lineReader.readLine();
+
+			while (line != null) {
+
+				final StringBuilder batch = new StringBuilder();
+				final long firstRecord = records + 1;
+
+				do {
+
+					// blank lines contain no record (same as for the sequential conversion)
+					if (!isBlank(line)) {
+
+						batch.append(line).append('\n');
+						records++;
+					}
+
+					line = lineReader.readLine();
+				} while (line != null && records - firstRecord + 1 < batchSize);
+
+				batchQueue.submit(() -> convertBatch(batch.toString(), firstRecord, recordWriters.get()));
+			}
+
+			batchQueue.drain();
+		} finally {
+
+			batchQueue.cancel();
+			executor.shutdownNow();
+		}
+
+		return records;
+	}
+
+	private static String convertBatch(final String batch,
+	                                   final long firstRecord,
+	                                   final RecordWriter recordWriter) throws IOException, CSV2SCLDJException {
+
+		final StringBuilder output = new StringBuilder(batch.length());
+
+		long record = firstRecord;
+
+		try (final JsonParser parser = FACTORY.createParser(batch)) {
+
+			while (nextRecord(parser, record)) {
+
+				recordWriter.writeRecord(parser, record++, output);
+			}
+		}
+
+		return output.toString();
+	}
+
+	/**
+	 * moves the parser to the start of the next record
+	 *
+	 * @return false, if there is no further record
+	 */
+	private static boolean nextRecord(final JsonParser parser,
+	                                  final long record) throws CSV2SCLDJException, IOException {
+
+		try {
+
+			return parser.nextToken() != null;
+		} catch (final JsonProcessingException e) {
+
+			throw new CSV2SCLDJException(String.format("could not parse LDJ record #%d", record), e);
+		}
+	}
+
+	private static boolean isBlank(final String line) {
+
+		for (int i = 0; i < line.length(); i++) {
+
+			if (line.charAt(i) > ' ') {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * writes a cell, i.e., quoted, if it contains cell delimiters, quote characters, line breaks or surrounding white
+	 * spaces, and with escaped escape characters (see {@link CSVTokenizer})
+	 */
+	private static void writeCell(final CharSequence cell,
+	                              final StringBuilder output) {
+
+		final int length = cell.length();
+
+		boolean quote = length > 0 && (Character.isWhitespace(cell.charAt(0)) || Character.isWhitespace(cell.charAt(length - 1)));
+
+		for (int i = 0; i < length && !quote; i++) {
+
+			final char c = cell.charAt(i);
+
+			quote = c == CSVTokenizer.DELIMITER || c == CSVTokenizer.QUOTE_CHAR || c == '\r' || c == '\n';
+		}
+
+		if (quote) {
+
+			output.append(CSVTokenizer.QUOTE_CHAR);
+		}
+
+		for (int i = 0; i < length; i++) {
+
+			final char c = cell.charAt(i);
+
+			if (c == CSVTokenizer.ESCAPE_CHARACTER) {
+
+				output.append(CSVTokenizer.ESCAPE_CHARACTER);
+			} else if (c == CSVTokenizer.QUOTE_CHAR) {
+
+				output.append(CSVTokenizer.QUOTE_CHAR);
+			}
+
+			output.append(c);
+		}
+
+		if (quote) {
+
+			output.append(CSVTokenizer.QUOTE_CHAR);
+		}
+	}
+
+	/**
+	 * the columns of the CSV output (with the field name to column index mapping for the record fields)
+	 */
+	private static final class CSVColumns {
+
+		private final String[] fieldNames;
+
+		private final boolean[] multivalued;
+
+		private final HashMap<String, Integer> columnIndices;
+
+		/**
+		 * the paths of the groups of nested fields (true, if the group is an array of objects)
+		 */
+		private final HashMap<String, Boolean> groups;
+
+		private CSVColumns(final String[] fieldNamesArg,
+		                   final boolean[] multivaluedArg,
+		                   final HashMap<String, Integer> columnIndicesArg,
+		                   final HashMap<String, Boolean> groupsArg) {
+
+			fieldNames = fieldNamesArg;
+			multivalued = multivaluedArg;
+			columnIndices = columnIndicesArg;
+			groups = groupsArg;
+		}
+
+		static CSVColumns compile(final Map<String, Field> schema,
+		                          final List<String> columns) throws CSV2SCLDJException {
+
+			if (columns.isEmpty()) {
+
+				throw new CSV2SCLDJException("the CSV output requires at least one column");
+			}
+
+			final String[] fieldNames = new String[columns.size()];
+			final boolean[] multivalued = new boolean[fieldNames.length];
+			final HashMap<String, Integer> columnIndices = new HashMap<>();
+
+			for (int column = 0; column < fieldNames.length; column++) {
+
+				final String fieldName = columns.get(column);
+				final Field field = schema.get(fieldName).getOrElseThrow(() -> new CSV2SCLDJException(String.format("the column '%s' is not a field of the schema", fieldName)));
+
+				if (columnIndices.put(fieldName, column) != null) {
+
+					throw new CSV2SCLDJException(String.format("the column '%s' is contained twice", fieldName));
+				}
+
+				fieldNames[column] = fieldName;
+				multivalued[column] = field.isMultivalued();
+			}
+
+			final HashMap<String, Boolean> groups = new HashMap<>();
+
+			for (final String fieldName : fieldNames) {
+
+				int separator = fieldName.indexOf(FieldTree.PATH_SEPARATOR);
+
+				while (separator >= 0) {
+
+					final String path = fieldName.substring(0, separator);
+
+					if (columnIndices.containsKey(path)) {
+
+						throw new CSV2SCLDJException(String.format("the column '%s' cannot be a value and an object of nested fields", path));
+					}
+
+					groups.put(path, schema.get(path).map(Field::isMultivalued).getOrElse(false));
+
+					separator = fieldName.indexOf(FieldTree.PATH_SEPARATOR, separator + 1);
+				}
+			}
+
+			return new CSVColumns(fieldNames, multivalued, columnIndices, groups);
+		}
+
+		int size() {
+
+			return fieldNames.length;
+		}
+
+		void writeHeader(final StringBuilder output) {
+
+			for (int column = 0; column < fieldNames.length; column++) {
+
+				if (column > 0) {
+
+					output.append(CSVTokenizer.DELIMITER);
+				}
+
+				writeCell(fieldNames[column], output);
+			}
+
+			output.append(LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * writes records as CSV rows (the cells are collected in reusable buffers, since the field order of a record can
+	 * differ from the column order); one instance per thread
+	 */
+	private static final class RecordWriter {
+
+		private final CSVColumns columns;
+
+		private final CellValueSplitter cellValueSplitter;
+
+		private final String delimiter;
+
+		private final StringBuilder[] cells;
+
+		private final boolean[] written;
+
+		/**
+		 * the number of values (incl. blank ones) of the fields of arrays of objects, i.e., the position of the next
+		 * object
+		 */
+		private final int[] positions;
+
+		RecordWriter(final CSVColumns columnsArg,
+		             final CellValueSplitter cellValueSplitterArg) {
+
+			columns = columnsArg;
+			cellValueSplitter = cellValueSplitterArg;
+			delimiter = cellValueSplitter.getDelimiter();
+			cells = new StringBuilder[columns.size()];
+			written = new boolean[columns.size()];
+			positions = new int[columns.size()];
+
+			for (int column = 0; column < cells.length; column++) {
+
+				cells[column] = new StringBuilder();
+			}
+		}
+
+		/**
+		 * writes the record at the current position of the parser as CSV row
+		 *
+		 * @param parser the parser (at the start of the record)
+		 * @param record the number of the record (for error messages)
+		 * @param output the output
+		 */
+		void writeRecord(final JsonParser parser,
+		                 final long record,
+		                 final StringBuilder output) throws IOException, CSV2SCLDJException {
+
+			try {
+
+				if (parser.currentToken() != JsonToken.START_OBJECT) {
+
+					throw new CSV2SCLDJException(String.format("LDJ record #%d is not a JSON object", record));
+				}
+
+				Arrays.fill(written, false);
+
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+					readField(parser, parser.getCurrentName(), record);
+				}
+			} catch (final JsonProcessingException e) {
+
+				throw new CSV2SCLDJException(String.format("could not parse LDJ record #%d", record), e);
+			}
+
+			for (int column = 0; column < cells.length; column++) {
+
+				if (column > 0) {
+
+					output.append(CSVTokenizer.DELIMITER);
+				}
+
+				if (written[column]) {
+
+					writeCell(cells[column], output);
+				}
+			}
+
+			output.append(LINE_SEPARATOR);
+		}
+
+		private void readField(final JsonParser parser,
+		                       final String fieldName,
+		                       final long record) throws IOException, CSV2SCLDJException {
+
+			final Boolean array = columns.groups.get(fieldName);
+
+			if (array != null) {
+
+				readGroup(parser, fieldName, array, record);
+
+				return;
+			}
+
+			final Integer column = columns.columnIndices.get(fieldName);
+
+			if (column == null) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d is not a column of the CSV output", fieldName, record));
+			}
+
+			if (written[column]) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' is contained twice in LDJ record #%d", fieldName, record));
+			}
+
+			written[column] = true;
+
+			final StringBuilder cell = cells[column];
+
+			cell.setLength(0);
+
+			final JsonToken token = parser.nextToken();
+
+			if (token == JsonToken.START_ARRAY) {
+
+				if (!columns.multivalued[column]) {
+
+					throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d contains an array, but is not multivalued", fieldName, record));
+				}
+
+				JsonToken valueToken;
+				boolean first = true;
+
+				while ((valueToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+
+					if (valueToken == JsonToken.VALUE_NULL) {
+
+						continue;
+					}
+
+					if (!first) {
+
+						cell.append(delimiter);
+					}
+
+					appendValue(parser, valueToken, fieldName, record, true, cell);
+
+					first = false;
+				}
+			} else if (token != JsonToken.VALUE_NULL) {
+
+				appendValue(parser, token, fieldName, record, false, cell);
+			}
+		}
+
+		/**
+		 * reads a nested object (i.e. its fields) or an array of objects (i.e. the n-th values of its fields are
+		 * appended as n-th values to the cells of the fields)
+		 */
+		private void readGroup(final JsonParser parser,
+		                       final String path,
+		                       final boolean array,
+		                       final long record) throws IOException, CSV2SCLDJException {
+
+			final JsonToken token = parser.nextToken();
+
+			if (token == JsonToken.VALUE_NULL) {
+
+				return;
+			}
+
+			if (!array) {
+
+				if (token != JsonToken.START_OBJECT) {
+
+					throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d is not an object", path, record));
+				}
+
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+					readField(parser, path + FieldTree.PATH_SEPARATOR + parser.getCurrentName(), record);
+				}
+
+				return;
+			}
+
+			if (token != JsonToken.START_ARRAY) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d is not an array of objects", path, record));
+			}
+
+			int position = 0;
+			JsonToken objectToken;
+
+			while ((objectToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+
+				if (objectToken != JsonToken.START_OBJECT) {
+
+					throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d is not an array of objects", path, record));
+				}
+
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+					readObjectField(parser, path + FieldTree.PATH_SEPARATOR + parser.getCurrentName(), position, record);
+				}
+
+				position++;
+			}
+		}
+
+		private void readObjectField(final JsonParser parser,
+		                             final String fieldName,
+		                             final int position,
+		                             final long record) throws IOException, CSV2SCLDJException {
+
+			final Integer column = columns.columnIndices.get(fieldName);
+
+			if (column == null) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d is not a column of the CSV output", fieldName, record));
+			}
+
+			final StringBuilder cell = cells[column];
+
+			if (!written[column]) {
+
+				written[column] = true;
+				positions[column] = 0;
+				cell.setLength(0);
+			} else if (positions[column] > position) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' is contained twice in an object of LDJ record #%d", fieldName, record));
+			}
+
+			final JsonToken token = parser.nextToken();
+
+			if (token == JsonToken.VALUE_NULL) {
+
+				return;
+			}
+
+			// the blank values of the preceding objects
+			for (; positions[column] < position; positions[column]++) {
+
+				if (positions[column] > 0) {
+
+					cell.append(delimiter);
+				}
+			}
+
+			if (position > 0) {
+
+				cell.append(delimiter);
+			}
+
+			positions[column]++;
+
+			appendValue(parser, token, fieldName, record, true, cell);
+		}
+
+		private void appendValue(final JsonParser parser,
+		                         final JsonToken token,
+		                         final String fieldName,
+		                         final long record,
+		                         final boolean multivaluedValue,
+		                         final StringBuilder cell) throws IOException, CSV2SCLDJException {
+
+			if (!token.isScalarValue()) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d contains a nested value", fieldName, record));
+			}
+
+			if (token != JsonToken.VALUE_STRING) {
+
+				// numbers and booleans
+				cell.append(parser.getText());
+
+				return;
+			}
+
+			final char[] text = parser.getTextCharacters();
+			final int start = parser.getTextOffset();
+			final int end = start + parser.getTextLength();
+
+			// the cell needs to be split into the same values again
+			if (multivaluedValue && cellValueSplitter.indexOf(text, start, end) >= 0) {
+
+				throw new CSV2SCLDJException(String.format("a value of the multivalued field '%s' of LDJ record #%d contains the cell value delimiter", fieldName, record));
+			}
+
+			if (!multivaluedValue && cellValueSplitter.containsMultipleValues(text, start, end)) {
+
+				throw new CSV2SCLDJException(String.format("field '%s' of LDJ record #%d contains multiple values, but is not multivalued", fieldName, record));
+			}
+
+			cell.append(text, start, end - start);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * A reusable JSON generator (incl. its output buffer and the per-record state) for converting records into chunks of
+ * line-delimited JSON, e.g., by a worker thread.
+ * <p>
+ * For the binary output formats (see {@link OutputFormat#isFramed()}), a chunk consists of frames, i.e., the records
+ * are written as a self-contained document that is prefixed by its length. A new generator (and hence a new table of
+ * shared names and values) is started for each frame.
+ *
+ * @author tgaengler
+ */
+final class LDJChunkWriter {
+
+	private final ByteArrayBuilder chunkBuffer = new ByteArrayBuilder();
+
+	private final JsonFactory factory;
+
+	private final boolean binary;
+
+	private final RecordContext recordContext;
+
+	/**
+	 * the complete frames of the current chunk (only utilised for binary output formats)
+	 */
+	private final ByteArrayBuilder frames;
+
+	private JsonGenerator jg;
+
+	/**
+	 * the position of the first record of the current frame (i.e. behind the format header)
+	 */
+	private long frameStart;
+
+	LDJChunkWriter(final JsonFactory factoryArg,
+	               final ColumnPlan columnPlan,
+	               final ConversionOptions options,
+	               final ConversionMetrics metrics) throws IOException {
+
+		factory = factoryArg;
+		binary = options.getOutputFormat().isFramed();
+		recordContext = new RecordContext(columnPlan, options, metrics);
+
+		if (binary) {
+
+			frames = new ByteArrayBuilder();
+
+			startFrame();
+		} else {
+
+			frames = null;
+			jg = CSV2SCLDJConverter.createGenerator(factory, chunkBuffer);
+		}
+	}
+
+	JsonGenerator getGenerator() {
+
+		return jg;
+	}
+
+	RecordContext getRecordContext() {
+
+		return recordContext;
+	}
+
+	/**
+	 * @return the position of the next record in the chunk (see {@link #discardRecord(long)})
+	 */
+	long recordStart() {
+
+		return chunkBuffer.size() + jg.getOutputBuffered();
+	}
+
+	/**
+	 * discards the (partially) generated JSON of a record that could not be converted, i.e., the chunk is truncated to
+	 * the start of this record and its field counts are rolled back (this is expensive compared to writing a record, but
+	 * it happens only for invalid records)
+	 *
+	 * @param recordStart the position of the record in the chunk (see {@link #recordStart()})
+	 * @throws IOException
+	 */
+	void discardRecord(final long recordStart) throws IOException {
+
+		// invalid records are detected between fields, after the last field or at (typed) values, i.e., the record object
+		// and an array of values might be open
+		while (!jg.getOutputContext().inRoot()) {
+
+			if (jg.getOutputContext().inArray()) {
+
+				jg.writeEndArray();
+			} else {
+
+				jg.writeEndObject();
+			}
+		}
+
+		jg.flush();
+
+		final byte[] chunk = chunkBuffer.toByteArray();
+
+		chunkBuffer.reset();
+		chunkBuffer.write(chunk, 0, (int) recordStart);
+
+		recordContext.recordDiscarded();
+
+		if (binary) {
+
+			// the discarded record might have introduced shared names or values, i.e., the frame ends here
+			finishFrame();
+			startFrame();
+		}
+	}
+
+	/**
+	 * @return the line-delimited JSON (or the frames) that has been generated since the last call
+	 * @throws IOException
+	 */
+	byte[] finishChunk() throws IOException {
+
+		recordContext.flushMetrics();
+
+		if (binary) {
+
+			finishFrame();
+
+			final byte[] chunk = frames.toByteArray();
+
+			frames.reset();
+
+			startFrame();
+
+			return chunk;
+		}
+
+		jg.flush();
+
+		final byte[] chunk = chunkBuffer.toByteArray();
+
+		chunkBuffer.reset();
+
+		return chunk;
+	}
+
+	private void startFrame() throws IOException {
+
+		jg = factory.createGenerator(chunkBuffer);
+
+		// e.g. the Smile header
+		jg.flush();
+
+		frameStart = chunkBuffer.size();
+	}
+
+	/**
+	 * appends the current frame (if it contains any record) incl. its length prefix to the frames of the chunk
+	 */
+	private void finishFrame() throws IOException {
+
+		jg.close();
+
+		if (chunkBuffer.size() > frameStart) {
+
+			final int frameLength = chunkBuffer.size();
+
+			frames.write(frameLength >>> 24);
+			frames.write(frameLength >>> 16);
+			frames.write(frameLength >>> 8);
+			frames.write(frameLength);
+			frames.write(chunkBuffer.toByteArray(), 0, frameLength);
+		}
+
+		chunkBuffer.reset();
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * The formats of the converted records. The framed formats are written as frames, i.e., each chunk of records is
+ * written as a self-contained document (a sequence of records) that is prefixed by its length (4 bytes, big-endian); see
+ * {@link de.slubdresden.csv2scldj.io.FramedRecordReader}. The columnar format is written as a single file (see
+ * {@link de.slubdresden.csv2scldj.columnar.ParquetFileWriter}).
+ *
+ * @author tgaengler
+ */
+public enum OutputFormat {
+
+	/**
+	 * line-delimited JSON (default)
+	 */
+	LDJ("ldj"),
+
+	/**
+	 * CBOR (RFC 7049)
+	 */
+	CBOR("cbor"),
+
+	/**
+	 * Smile (binary JSON) with shared field names and shared (short) string values, i.e., repeated field names and
+	 * values of the records of a frame are written as back-references
+	 */
+	SMILE("smile"),
+
+	/**
+	 * Apache Parquet, i.e., a string column per field (multivalued fields are repeated, required fields are not
+	 * nullable)
+	 */
+	PARQUET("parquet");
+
+	private final String name;
+
+	OutputFormat(final String nameArg) {
+
+		name = nameArg;
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	/**
+	 * @return true, if the records are not written as line-delimited JSON
+	 */
+	public boolean isBinary() {
+
+		return this != LDJ;
+	}
+
+	/**
+	 * @return true, if the records are written as length-prefixed frames (instead of lines)
+	 */
+	public boolean isFramed() {
+
+		return this == CBOR || this == SMILE;
+	}
+
+	/**
+	 * @return true, if the records are written column by column (i.e. not by a JSON generator)
+	 */
+	public boolean isColumnar() {
+
+		return this == PARQUET;
+	}
+
+	/**
+	 * creates the factory of the generators (and parsers) of this format; the factories of the binary formats are only
+	 * loaded on demand
+	 *
+	 * @return a new factory
+	 */
+	public JsonFactory newFactory() {
+
+		switch (this) {
+
+			case CBOR:
+
+				return new CBORFactory();
+			case SMILE:
+
+				final SmileFactory smileFactory = new SmileFactory();
+
+				smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_NAMES);
+				smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+
+				return smileFactory;
+			case PARQUET:
+
+				throw new UnsupportedOperationException(String.format("the output format '%s' is not written by a JSON generator", name));
+			case LDJ:
+			default:
+
+				return new JsonFactory();
+		}
+	}
+
+	public static OutputFormat fromName(final String name) throws CSV2SCLDJException {
+
+		for (final OutputFormat outputFormat : values()) {
+
+			if (outputFormat.name.equals(name)) {
+
+				return outputFormat;
+			}
+		}
+
+		throw new CSV2SCLDJException(String.format("unknown output format '%s', please use either '%s', '%s', '%s' or '%s'", name, LDJ.name, CBOR.name, SMILE.name, PARQUET.name));
+	}
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.util.Arrays;
+
+import de.slubdresden.csv2scldj.bulk.BulkAction;
+import de.slubdresden.csv2scldj.delta.DeltaKey;
+import de.slubdresden.csv2scldj.delta.DeltaState;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * The (thread-confined) state for writing records that is reused for all records written by a thread, i.e., the
+ * bitset of the written required fields and the locally collected metrics, which are handed over to the (shared)
+ * conversion metrics in intervals.
+ *
+ * @author tgaengler
+ */
+final class RecordContext {
+
+	/**
+	 * the number of records after which the locally collected metrics are handed over at the latest
+	 */
+	private static final int METRICS_FLUSH_INTERVAL = 4096;
+
+	private final long[] writtenRequiredFields;
+
+	private final boolean checkRequiredFieldsOnEmptyRecords;
+
+	private final ConversionMetrics metrics;
+
+	private final DeltaKey deltaKey;
+
+	private final BulkAction bulkAction;
+
+	private final boolean binary;
+
+	private final ValueCache valueCache;
+
+	private final TypedValueWriter typedValueWriter;
+
+	private final int[] valueStarts;
+
+	private final long[] fieldWriteCounts;
+	private final long[] fieldBlankCounts;
+
+	/**
+	 * the fields counted for the current record, i.e., the written columns and the complements of the blank columns
+	 * (every column is counted at most once per record), for rolling back the counts of a discarded record
+	 */
+	private final int[] recordFields;
+	private int recordFieldCount;
+
+	private long recordsIn;
+	private long recordsOut;
+	private long recordsUnchanged;
+	private boolean firstRecordWritten;
+
+	RecordContext(final ColumnPlan columnPlan,
+	              final ConversionOptions options,
+	              final ConversionMetrics metricsArg) {
+
+		writtenRequiredFields = columnPlan.newRequiredFieldSet();
+		checkRequiredFieldsOnEmptyRecords = options.isCheckRequiredFieldsOnEmptyRecords();
+		metrics = metricsArg;
+		deltaKey = options.getDeltaState().map(DeltaState::newKey).orElse(null);
+		bulkAction = options.getBulkActions().map(bulkActions -> bulkActions.newAction(columnPlan)).orElse(null);
+		binary = options.getOutputFormat().isBinary();
+		valueCache = new ValueCache(columnPlan, options.getValueCacheSize(), options.isValueCacheDetection());
+		typedValueWriter = new TypedValueWriter(columnPlan, !binary, valueCache);
+		valueStarts = new int[columnPlan.size()];
+		fieldWriteCounts = new long[columnPlan.size()];
+		fieldBlankCounts = new long[columnPlan.size()];
+		recordFields = new int[columnPlan.size()];
+	}
+
+	long[] getWrittenRequiredFields() {
+
+		return writtenRequiredFields;
+	}
+
+	boolean isCheckRequiredFieldsOnEmptyRecords() {
+
+		return checkRequiredFieldsOnEmptyRecords;
+	}
+
+	/**
+	 * @return the key for fingerprinting records or null, if the conversion is not incremental
+	 */
+	DeltaKey getDeltaKey() {
+
+		return deltaKey;
+	}
+
+	/**
+	 * @return the writer of the bulk action lines or null, if the records are not written in the bulk format
+	 */
+	BulkAction getBulkAction() {
+
+		return bulkAction;
+	}
+
+	/**
+	 * @return true, if the records are written in a binary output format, i.e., they are not separated by line
+	 * separators
+	 */
+	boolean isBinary() {
+
+		return binary;
+	}
+
+	/**
+	 * @return the writer of the values of typed fields (and of cached string fields)
+	 */
+	TypedValueWriter getTypedValueWriter() {
+
+		return typedValueWriter;
+	}
+
+	/**
+	 * @return the cache of the pre-encoded values of string fields
+	 */
+	ValueCache getValueCache() {
+
+		return valueCache;
+	}
+
+	/**
+	 * @return a scratch array (indexed by plan column) for the positions of the values of the fields of arrays of
+	 * objects
+	 */
+	int[] getValueStarts() {
+
+		return valueStarts;
+	}
+
+	void fieldWritten(final int column) {
+
+		fieldWriteCounts[column]++;
+		recordFields[recordFieldCount++] = column;
+	}
+
+	void fieldBlank(final int column) {
+
+		fieldBlankCounts[column]++;
+		recordFields[recordFieldCount++] = ~column;
+	}
+
+	void recordRead() {
+
+		if (++recordsIn == METRICS_FLUSH_INTERVAL) {
+
+			flushMetrics();
+		}
+	}
+
+	void recordWritten() {
+
+		if (!firstRecordWritten) {
+
+			firstRecordWritten = true;
+
+			metrics.markFirstRecord();
+		}
+
+		recordFieldCount = 0;
+
+		if (++recordsOut == METRICS_FLUSH_INTERVAL) {
+
+			flushMetrics();
+		}
+	}
+
+	void recordUnchanged() {
+
+		recordFieldCount = 0;
+
+		if (++recordsUnchanged == METRICS_FLUSH_INTERVAL) {
+
+			flushMetrics();
+		}
+	}
+
+	/**
+	 * rolls back the field counts of a record that could not be converted (and keeps its entry in the delta state of
+	 * the previous run, see {@link DeltaKey#retain()})
+	 */
+	void recordDiscarded() {
+
+		if (deltaKey != null) {
+
+			deltaKey.retain();
+		}
+
+		for (int i = 0; i < recordFieldCount; i++) {
+
+			final int field = recordFields[i];
+
+			if (field >= 0) {
+
+				fieldWriteCounts[field]--;
+			} else {
+
+				fieldBlankCounts[~field]--;
+			}
+		}
+
+		recordFieldCount = 0;
+	}
+
+	/**
+	 * hands the locally collected metrics over to the conversion metrics
+	 */
+	void flushMetrics() {
+
+		metrics.addRecordsIn(recordsIn);
+		metrics.addRecordsOut(recordsOut);
+		metrics.addRecordsUnchanged(recordsUnchanged);
+		metrics.addFieldCounts(fieldWriteCounts, fieldBlankCounts);
+		metrics.addFieldTypeErrors(typedValueWriter.getTypeErrorCounts());
+		metrics.addFieldValueCacheCounts(valueCache.getHits(), valueCache.getMisses());
+
+		recordsIn = 0;
+		recordsOut = 0;
+		recordsUnchanged = 0;
+		Arrays.fill(fieldWriteCounts, 0L);
+		Arrays.fill(fieldBlankCounts, 0L);
+		typedValueWriter.resetTypeErrorCounts();
+		valueCache.resetCounts();
+	}
+}
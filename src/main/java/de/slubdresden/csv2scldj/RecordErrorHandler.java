@@ -0,0 +1,307 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.checkpoint.Checkpoint;
+import de.slubdresden.csv2scldj.checkpoint.Checkpointer;
+import de.slubdresden.csv2scldj.csv.CSVCells;
+import de.slubdresden.csv2scldj.csv.CSVTokenizer;
+import de.slubdresden.csv2scldj.csv.InputSplit;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+
+/**
+ * Handles records that cannot be converted according to the error policy, i.e., it rethrows the error
+ * ({@link ErrorPolicy#FAIL}) or it counts the rejected record against the error budget and (optionally) writes it to
+ * the dead-letter CSV. The dead-letter CSV has the columns of the CSV input header plus two columns for the record
+ * number and the reason of the rejection. It is shared by all worker threads, i.e., rejected records are written in
+ * input order only by a single-threaded conversion or a conversion via input splits (the rejected records of a split
+ * are collected and written together with the split, see {@link #reject(CSVCells, InputSplit, CSV2LDJError,
+ * StringBuilder)}).
+ * <p>
+ * A resumed conversion (see {@link Checkpointer}) continues with the rejected records of its checkpoint, i.e., they
+ * count against the error budget, and it appends to the dead-letter CSV (without writing the header again).
+ *
+ * @author tgaengler
+ */
+final class RecordErrorHandler implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RecordErrorHandler.class);
+
+	static final String RECORD_COLUMN = "csv2scldj_record";
+	static final String REASON_COLUMN = "csv2scldj_reason";
+
+	private final ErrorPolicy errorPolicy;
+
+	private final long errorBudget;
+
+	private final ConversionMetrics metrics;
+
+	private final Writer deadLetterWriter;
+
+	private final AtomicLong rejectedRecords;
+
+	RecordErrorHandler(final ConversionOptions options,
+	                   final String[] header,
+	                   final ConversionMetrics metricsArg) throws IOException {
+
+		errorPolicy = options.getErrorPolicy();
+		errorBudget = options.getErrorBudget();
+		metrics = metricsArg;
+
+		final Optional<Checkpoint> optionalResumeCheckpoint = options.getCheckpointer().flatMap(Checkpointer::getResumeCheckpoint);
+
+		rejectedRecords = new AtomicLong(optionalResumeCheckpoint.map(Checkpoint::getRejectedRecords).orElse(0L));
+
+		if (errorPolicy == ErrorPolicy.DEADLETTER) {
+
+			deadLetterWriter = new BufferedWriter(new OutputStreamWriter(options.getDeadLetterOutput().get(), StandardCharsets.UTF_8));
+
+			// the dead-letter CSV of a resumed conversion contains the header already
+			if (optionalResumeCheckpoint.map(Checkpoint::getDeadLetterLength).orElse(-1L) <= 0) {
+
+				final StringBuilder row = new StringBuilder();
+
+				for (final String column : header) {
+
+					appendCell(column, row);
+					row.append(CSVTokenizer.DELIMITER);
+				}
+
+				appendCell(RECORD_COLUMN, row);
+				row.append(CSVTokenizer.DELIMITER);
+				appendCell(REASON_COLUMN, row);
+				row.append(System.lineSeparator());
+
+				deadLetterWriter.append(row);
+			}
+		} else {
+
+			deadLetterWriter = null;
+		}
+	}
+
+	/**
+	 * @return true, if invalid records are rejected instead of aborting the conversion
+	 */
+	boolean isTolerant() {
+
+		return errorPolicy != ErrorPolicy.FAIL;
+	}
+
+	/**
+	 * rejects the given record, i.e., the conversion goes on, unless the error policy is {@link ErrorPolicy#FAIL} or the
+	 * error budget is exceeded
+	 *
+	 * @param csvInputRecord the record that could not be converted
+	 * @param split          the input split of the record (record numbers are relative to it) or null
+	 * @param error          the error that occurred at converting the record
+	 * @throws IOException
+	 */
+	void reject(final CSVCells csvInputRecord,
+	            final InputSplit split,
+	            final CSV2LDJError error) throws IOException {
+
+		reject(csvInputRecord, split, error, null);
+	}
+
+	/**
+	 * rejects the given record (see {@link #reject(CSVCells, InputSplit, CSV2LDJError)}), i.e., its dead-letter row is
+	 * appended to the given rows instead of being written right away (see {@link #writeDeadLetters(CharSequence)})
+	 *
+	 * @param csvInputRecord the record that could not be converted
+	 * @param split          the input split of the record (record numbers are relative to it) or null
+	 * @param error          the error that occurred at converting the record
+	 * @param deadLetters    the collected dead-letter rows (e.g. of an input split) or null
+	 * @throws IOException
+	 */
+	void reject(final CSVCells csvInputRecord,
+	            final InputSplit split,
+	            final CSV2LDJError error,
+	            final StringBuilder deadLetters) throws IOException {
+
+		if (!isTolerant()) {
+
+			throw error;
+		}
+
+		final long rejected = rejectedRecords.incrementAndGet();
+		final String record = split == null ? "#" + csvInputRecord.recordNumber() : String.format("%s, #%d", split, csvInputRecord.recordNumber());
+		final String reason = reason(error);
+
+		metrics.addRecordRejected();
+
+		if (deadLetterWriter != null) {
+
+			final StringBuilder row = deadLetters != null ? deadLetters : new StringBuilder();
+
+			appendDeadLetter(csvInputRecord, record, reason, row);
+
+			if (deadLetters == null) {
+
+				writeDeadLetters(row);
+			}
+		}
+
+		LOG.debug("rejected record {}: {}", record, reason);
+
+		if (rejected > errorBudget) {
+
+			throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("rejected '%d' records, i.e., the error budget of '%d' records is exceeded (last rejected record: %s)", rejected, errorBudget, record), error.getCause()));
+		}
+	}
+
+	/**
+	 * writes collected dead-letter rows (see {@link #reject(CSVCells, InputSplit, CSV2LDJError, StringBuilder)})
+	 *
+	 * @param deadLetters the dead-letter rows
+	 * @throws IOException
+	 */
+	synchronized void writeDeadLetters(final CharSequence deadLetters) throws IOException {
+
+		if (deadLetterWriter != null && deadLetters.length() > 0) {
+
+			deadLetterWriter.append(deadLetters);
+		}
+	}
+
+	/**
+	 * flushes the dead-letter CSV, e.g., before a checkpoint is taken
+	 *
+	 * @throws IOException
+	 */
+	synchronized void flush() throws IOException {
+
+		if (deadLetterWriter != null) {
+
+			deadLetterWriter.flush();
+		}
+	}
+
+	long getRejectedRecords() {
+
+		return rejectedRecords.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (deadLetterWriter != null) {
+
+			deadLetterWriter.close();
+		}
+	}
+
+	private static void appendDeadLetter(final CSVCells csvInputRecord,
+	                                     final String record,
+	                                     final String reason,
+	                                     final StringBuilder row) {
+
+		final char[] buffer = csvInputRecord.buffer();
+
+		for (int i = 0; i < csvInputRecord.size(); i++) {
+
+			final int cellStart = csvInputRecord.cellStart(i);
+
+			appendCell(buffer, cellStart, csvInputRecord.cellEnd(i) - cellStart, row);
+			row.append(CSVTokenizer.DELIMITER);
+		}
+
+		appendCell(record, row);
+		row.append(CSVTokenizer.DELIMITER);
+		appendCell(reason, row);
+		row.append(System.lineSeparator());
+	}
+
+	private static void appendCell(final String cell,
+	                               final StringBuilder row) {
+
+		appendCell(cell.toCharArray(), 0, cell.length(), row);
+	}
+
+	/**
+	 * appends a cell, i.e., quoted, if it contains cell delimiters, quote characters, line breaks or surrounding white
+	 * spaces, and with escaped escape characters, so that it can be read again by {@link CSVTokenizer}
+	 */
+	private static void appendCell(final char[] buffer,
+	                               final int offset,
+	                               final int length,
+	                               final StringBuilder row) {
+
+		final int end = offset + length;
+
+		boolean quote = length > 0 && (Character.isWhitespace(buffer[offset]) || Character.isWhitespace(buffer[end - 1]));
+
+		for (int i = offset; i < end && !quote; i++) {
+
+			final char c = buffer[i];
+
+			quote = c == CSVTokenizer.DELIMITER || c == CSVTokenizer.QUOTE_CHAR || c == '\r' || c == '\n';
+		}
+
+		if (quote) {
+
+			row.append(CSVTokenizer.QUOTE_CHAR);
+		}
+
+		for (int i = offset; i < end; i++) {
+
+			final char c = buffer[i];
+
+			if (c == CSVTokenizer.ESCAPE_CHARACTER) {
+
+				row.append(CSVTokenizer.ESCAPE_CHARACTER);
+			} else if (c == CSVTokenizer.QUOTE_CHAR) {
+
+				row.append(CSVTokenizer.QUOTE_CHAR);
+			}
+
+			row.append(c);
+		}
+
+		if (quote) {
+
+			row.append(CSVTokenizer.QUOTE_CHAR);
+		}
+	}
+
+	/**
+	 * @return the message of the innermost conversion exception, i.e., the actual reason without the record description
+	 * of the outer exceptions (if possible)
+	 */
+	private static String reason(final CSV2LDJError error) {
+
+		Throwable reason = error.getCause();
+
+		while (reason != null && reason.getCause() instanceof CSV2SCLDJException) {
+
+			reason = reason.getCause();
+		}
+
+		return reason == null ? String.valueOf(error.getMessage()) : reason.getMessage();
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.metrics.Stage;
+
+/**
+ * The (thread-confined) sampler of the parse and convert latencies, i.e., only every
+ * {@value ConversionMetrics#LATENCY_SAMPLE_INTERVAL}th record (starting with the first one) is timed, so that the
+ * records in between do neither pay for reading the clock nor for updating the (shared) latency histograms.
+ *
+ * @author tgaengler
+ */
+final class StageSampler {
+
+	private final ConversionMetrics metrics;
+
+	private int unsampledRecords = ConversionMetrics.LATENCY_SAMPLE_INTERVAL - 1;
+	private boolean sampled;
+	private long parseStart;
+	private long convertStart;
+
+	StageSampler(final ConversionMetrics metricsArg) {
+
+		metrics = metricsArg;
+	}
+
+	/**
+	 * @param record the index of a record (e.g. in a batch)
+	 * @return true, if the conversion of the record should be timed
+	 */
+	static boolean isSampled(final int record) {
+
+		return record % ConversionMetrics.LATENCY_SAMPLE_INTERVAL == 0;
+	}
+
+	/**
+	 * to be called before the next record is read
+	 */
+	void parsing() {
+
+		sampled = ++unsampledRecords == ConversionMetrics.LATENCY_SAMPLE_INTERVAL;
+
+		if (sampled) {
+
+			unsampledRecords = 0;
+			parseStart = System.nanoTime();
+		}
+	}
+
+	/**
+	 * to be called after a record has been read, i.e., before it is converted
+	 */
+	void parsed() {
+
+		if (sampled) {
+
+			convertStart = System.nanoTime();
+
+			metrics.recordLatency(Stage.PARSE, convertStart - parseStart);
+		}
+	}
+
+	/**
+	 * to be called after a record has been converted
+	 */
+	void converted() {
+
+		if (sampled) {
+
+			metrics.recordLatency(Stage.CONVERT, System.nanoTime() - convertStart);
+		}
+	}
+}
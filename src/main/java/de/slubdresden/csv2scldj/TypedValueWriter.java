@@ -0,0 +1,703 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import de.slubdresden.csv2scldj.columnar.ColumnValueSink;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+import de.slubdresden.csv2scldj.model.FieldType;
+
+/**
+ * Writes the values of typed fields (see {@link FieldType}) as native JSON tokens (or as typed values of a
+ * {@link ColumnValueSink}), i.e., numbers and booleans are parsed straight from the CSV buffer (without creating
+ * strings) and dates are normalised in a reusable scratch buffer. Values that cannot be converted to the type of their
+ * field are counted per field (and rejected). The values of string fields are only written as JSON by this writer, if
+ * they are cached (see {@link ValueCache}).
+ *
+ * @author tgaengler
+ */
+final class TypedValueWriter {
+
+	/**
+	 * the powers of ten that are exactly representable as doubles
+	 */
+	private static final double[] POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+			1e20, 1e21, 1e22
+	};
+
+	/**
+	 * the maximum number of significant digits of a decimal that are exactly representable as double (i.e. < 2^53)
+	 */
+	private static final int MAX_EXACT_DIGITS = 15;
+
+	/**
+	 * the decimal magnitude above which a double value needs to be checked for overflow
+	 */
+	private static final int MAX_SAFE_MAGNITUDE = 300;
+
+	private static final int[] DAYS_PER_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+	private static final char[] DATE_DEFAULTS = "0000-01-01T00:00:00".toCharArray();
+
+	private static final int DATE_LENGTH = DATE_DEFAULTS.length;
+
+	private final ColumnPlan columnPlan;
+
+	/**
+	 * true, if (valid JSON) decimal numbers can be written as they are (textual JSON output)
+	 */
+	private final boolean rawNumbers;
+
+	private final ValueCache valueCache;
+
+	private final long[] typeErrorCounts;
+
+	private char[] scratch = new char[DATE_LENGTH + 16];
+
+	/**
+	 * the parsed value of an integer or long field
+	 */
+	private long longValue;
+
+	/**
+	 * the parsed value of a double field (unset, if the value can be written as it is)
+	 */
+	private double doubleValue;
+
+	/**
+	 * true, if the value of a double field is a valid JSON number that can be written as it is
+	 */
+	private boolean rawNumber;
+
+	private boolean booleanValue;
+
+	/**
+	 * the length of the normalised date in the scratch buffer
+	 */
+	private int dateLength;
+
+	TypedValueWriter(final ColumnPlan columnPlanArg,
+	                 final boolean rawNumbersArg,
+	                 final ValueCache valueCacheArg) {
+
+		columnPlan = columnPlanArg;
+		rawNumbers = rawNumbersArg;
+		valueCache = valueCacheArg;
+		typeErrorCounts = new long[columnPlan.size()];
+	}
+
+	/**
+	 * writes a (non-blank) value of a typed field (surrounding white spaces are ignored) or of a cached string field
+	 *
+	 * @param column the plan column
+	 * @param buffer the buffer that contains the value
+	 * @param start  the start offset of the value
+	 * @param end    the end offset of the value
+	 * @param jg     the JSON generator
+	 * @throws IOException
+	 * @throws CSV2SCLDJException if the value cannot be converted to the type of the field
+	 */
+	void write(final int column,
+	           final char[] buffer,
+	           final int start,
+	           final int end,
+	           final JsonGenerator jg) throws IOException, CSV2SCLDJException {
+
+		final FieldType type = columnPlan.getType(column);
+
+		if (type == FieldType.STRING) {
+
+			// string values are written as they are (i.e. untrimmed)
+			valueCache.write(column, buffer, start, end, jg);
+
+			return;
+		}
+
+		final int valueStart = trimStart(buffer, start, end);
+		final int valueEnd = trimEnd(buffer, valueStart, end);
+
+		parse(column, type, buffer, valueStart, valueEnd, rawNumbers);
+
+		switch (type) {
+
+			case INTEGER:
+
+				jg.writeNumber((int) longValue);
+
+				break;
+			case LONG:
+
+				jg.writeNumber(longValue);
+
+				break;
+			case DOUBLE:
+
+				if (rawNumber) {
+
+					jg.writeRawValue(buffer, valueStart, valueEnd - valueStart);
+				} else {
+
+					jg.writeNumber(doubleValue);
+				}
+
+				break;
+			case BOOLEAN:
+
+				jg.writeBoolean(booleanValue);
+
+				break;
+			case DATE:
+
+				jg.writeString(scratch, 0, dateLength);
+
+				break;
+			default:
+
+				jg.writeString(buffer, start, end - start);
+		}
+	}
+
+	/**
+	 * adds a (non-blank) value of a field (surrounding white spaces of typed values are ignored) to the current record
+	 * of the given column value sink
+	 *
+	 * @param column the plan column
+	 * @param buffer the buffer that contains the value
+	 * @param start  the start offset of the value
+	 * @param end    the end offset of the value
+	 * @param sink   the column value sink
+	 * @throws CSV2SCLDJException if the value cannot be converted to the type of the field
+	 */
+	void write(final int column,
+	           final char[] buffer,
+	           final int start,
+	           final int end,
+	           final ColumnValueSink sink) throws CSV2SCLDJException {
+
+		final FieldType type = columnPlan.getType(column);
+
+		if (type == FieldType.STRING) {
+
+			sink.addValue(column, new String(buffer, start, end - start));
+
+			return;
+		}
+
+		final int valueStart = trimStart(buffer, start, end);
+		final int valueEnd = trimEnd(buffer, valueStart, end);
+
+		parse(column, type, buffer, valueStart, valueEnd, false);
+
+		switch (type) {
+
+			case INTEGER:
+
+				sink.addValue(column, (int) longValue);
+
+				break;
+			case LONG:
+
+				sink.addValue(column, longValue);
+
+				break;
+			case DOUBLE:
+
+				sink.addValue(column, doubleValue);
+
+				break;
+			case BOOLEAN:
+
+				sink.addValue(column, booleanValue);
+
+				break;
+			case DATE:
+
+				sink.addValue(column, new String(scratch, 0, dateLength));
+
+				break;
+			default:
+
+				sink.addValue(column, new String(buffer, start, end - start));
+		}
+	}
+
+	/**
+	 * @return the type error counts (indexed by plan column) since the last reset
+	 */
+	long[] getTypeErrorCounts() {
+
+		return typeErrorCounts;
+	}
+
+	void resetTypeErrorCounts() {
+
+		Arrays.fill(typeErrorCounts, 0L);
+	}
+
+	/**
+	 * parses a (trimmed) value of a typed field, i.e., the result is kept in the field of its type (dates in the scratch
+	 * buffer)
+	 *
+	 * @param rawAllowed true, if a valid JSON decimal number doesn't need to be parsed (see {@link #rawNumber})
+	 * @throws CSV2SCLDJException if the value cannot be converted to the type of the field
+	 */
+	private void parse(final int column,
+	                   final FieldType type,
+	                   final char[] buffer,
+	                   final int valueStart,
+	                   final int valueEnd,
+	                   final boolean rawAllowed) throws CSV2SCLDJException {
+
+		final boolean valid;
+
+		switch (type) {
+
+			case INTEGER:
+
+				valid = parseLong(buffer, valueStart, valueEnd, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+				break;
+			case LONG:
+
+				valid = parseLong(buffer, valueStart, valueEnd, Long.MIN_VALUE, Long.MAX_VALUE);
+
+				break;
+			case DOUBLE:
+
+				valid = parseDouble(buffer, valueStart, valueEnd, rawAllowed);
+
+				break;
+			case BOOLEAN:
+
+				valid = parseBoolean(buffer, valueStart, valueEnd);
+
+				break;
+			case DATE:
+
+				valid = parseDate(buffer, valueStart, valueEnd);
+
+				break;
+			default:
+
+				valid = true;
+		}
+
+		if (!valid) {
+
+			typeErrorCounts[column]++;
+
+			throw new CSV2SCLDJException(String.format("field '%s' contains the value '%s', which is not a valid %s", columnPlan.getFieldName(column), new String(buffer, valueStart, valueEnd - valueStart), type.getName()));
+		}
+	}
+
+	private static int trimStart(final char[] buffer,
+	                             final int start,
+	                             final int end) {
+
+		int valueStart = start;
+
+		while (valueStart < end && buffer[valueStart] <= ' ') {
+
+			valueStart++;
+		}
+
+		return valueStart;
+	}
+
+	private static int trimEnd(final char[] buffer,
+	                           final int start,
+	                           final int end) {
+
+		int valueEnd = end;
+
+		while (valueEnd > start && buffer[valueEnd - 1] <= ' ') {
+
+			valueEnd--;
+		}
+
+		return valueEnd;
+	}
+
+	private boolean parseLong(final char[] buffer,
+	                          final int start,
+	                          final int end,
+	                          final long min,
+	                          final long max) {
+
+		int i = start;
+		boolean negative = false;
+
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+
+			negative = buffer[i] == '-';
+			i++;
+		}
+
+		if (i == end) {
+
+			return false;
+		}
+
+		// accumulate negatively, i.e., the minimum value doesn't overflow
+		final long limit = negative ? min : -max;
+		final long multiplyLimit = limit / 10;
+
+		long value = 0;
+
+		for (; i < end; i++) {
+
+			final int digit = buffer[i] - '0';
+
+			if (digit < 0 || digit > 9 || value < multiplyLimit) {
+
+				return false;
+			}
+
+			value *= 10;
+
+			if (value < limit + digit) {
+
+				return false;
+			}
+
+			value -= digit;
+		}
+
+		longValue = negative ? value : -value;
+
+		return true;
+	}
+
+	private boolean parseDouble(final char[] buffer,
+	                            final int start,
+	                            final int end,
+	                            final boolean rawAllowed) {
+
+		int i = start;
+		boolean negative = false;
+		boolean plainJson = true;
+
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+
+			negative = buffer[i] == '-';
+			plainJson = negative;
+			i++;
+		}
+
+		final int integerStart = i;
+
+		long mantissa = 0;
+		int significantDigits = 0;
+		// the number of (significant) integer digits that didn't fit into the mantissa
+		int droppedIntegerDigits = 0;
+		// true, if (non-zero) fraction digits didn't fit into the mantissa
+		boolean droppedFractionDigits = false;
+		int exponent = 0;
+
+		for (; i < end && isDigit(buffer[i]); i++) {
+
+			if (significantDigits < MAX_EXACT_DIGITS) {
+
+				if (mantissa > 0 || buffer[i] != '0') {
+
+					mantissa = mantissa * 10 + (buffer[i] - '0');
+					significantDigits++;
+				}
+			} else {
+
+				droppedIntegerDigits++;
+			}
+		}
+
+		final int integerDigits = i - integerStart;
+
+		// JSON doesn't allow leading zeros
+		if (integerDigits == 0 || (integerDigits > 1 && buffer[integerStart] == '0')) {
+
+			plainJson = false;
+		}
+
+		int fractionDigits = 0;
+
+		if (i < end && buffer[i] == '.') {
+
+			i++;
+
+			final int fractionStart = i;
+
+			for (; i < end && isDigit(buffer[i]); i++) {
+
+				if (significantDigits < MAX_EXACT_DIGITS) {
+
+					if (mantissa > 0 || buffer[i] != '0') {
+
+						mantissa = mantissa * 10 + (buffer[i] - '0');
+						significantDigits++;
+					}
+
+					exponent--;
+				} else if (buffer[i] != '0') {
+
+					droppedFractionDigits = true;
+				}
+			}
+
+			fractionDigits = i - fractionStart;
+
+			if (fractionDigits == 0) {
+
+				plainJson = false;
+			}
+		}
+
+		if (integerDigits == 0 && fractionDigits == 0) {
+
+			return false;
+		}
+
+		if (i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+
+			i++;
+
+			boolean negativeExponent = false;
+
+			if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+
+			if (i == end) {
+
+				return false;
+			}
+
+			int explicitExponent = 0;
+
+			for (; i < end; i++) {
+
+				if (!isDigit(buffer[i])) {
+
+					return false;
+				}
+
+				// the exponent is saturated (far beyond the range of doubles)
+				explicitExponent = Math.min(explicitExponent * 10 + (buffer[i] - '0'), 100_000);
+			}
+
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if (i != end) {
+
+			return false;
+		}
+
+		// the decimal magnitude, i.e., mantissa * 10^exponent < 10^magnitude
+		final int magnitude = significantDigits + droppedIntegerDigits + exponent;
+
+		if (rawAllowed && plainJson && magnitude <= MAX_SAFE_MAGNITUDE) {
+
+			rawNumber = true;
+
+			return true;
+		}
+
+		final double value;
+
+		final boolean exact = droppedIntegerDigits == 0 && !droppedFractionDigits;
+
+		if (mantissa == 0 && exact) {
+
+			value = negative ? -0.0 : 0.0;
+		} else if (exact && exponent >= -22 && exponent <= 22) {
+
+			// both operands are exact, i.e., the result is correctly rounded
+			final double exactMantissa = negative ? -mantissa : mantissa;
+
+			value = exponent < 0 ? exactMantissa / POW10[-exponent] : exactMantissa * POW10[exponent];
+		} else {
+
+			value = Double.parseDouble(new String(buffer, start, end - start));
+		}
+
+		if (Double.isInfinite(value)) {
+
+			return false;
+		}
+
+		doubleValue = value;
+		rawNumber = rawAllowed && plainJson;
+
+		return true;
+	}
+
+	private boolean parseBoolean(final char[] buffer,
+	                             final int start,
+	                             final int end) {
+
+		if (equalsIgnoreCase("true", buffer, start, end)) {
+
+			booleanValue = true;
+
+			return true;
+		}
+
+		if (equalsIgnoreCase("false", buffer, start, end)) {
+
+			booleanValue = false;
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * normalises a date (yyyy, yyyy-MM, yyyy-MM-dd or yyyy-MM-ddTHH:mm[:ss[.S+]][Z]) as ISO-8601 UTC timestamp
+	 * (yyyy-MM-ddTHH:mm:ss[.S+]Z) in the scratch buffer
+	 */
+	private boolean parseDate(final char[] buffer,
+	                          final int start,
+	                          final int end) {
+
+		final int length = end - start;
+
+		if (length < 4) {
+
+			return false;
+		}
+
+		int inputEnd = end;
+
+		if (length > 16 && buffer[inputEnd - 1] == 'Z') {
+
+			// the time zone designator is optional (the time is always UTC)
+			inputEnd--;
+		}
+
+		final int inputLength = inputEnd - start;
+		final int fractionLength = inputLength > DATE_LENGTH ? inputLength - DATE_LENGTH - 1 : 0;
+
+		// the valid input lengths are 4 (yyyy), 7 (yyyy-MM), 10 (yyyy-MM-dd), 16 (+THH:mm), 19 (+:ss) and 21+ (+.S+)
+		if (inputLength != 4 && inputLength != 7 && inputLength != 10 && inputLength != 16 && inputLength != DATE_LENGTH
+				&& fractionLength <= 0) {
+
+			return false;
+		}
+
+		final int outputLength = DATE_LENGTH + (fractionLength > 0 ? fractionLength + 1 : 0) + 1;
+
+		if (scratch.length < outputLength) {
+
+			scratch = new char[outputLength];
+		}
+
+		System.arraycopy(DATE_DEFAULTS, 0, scratch, 0, DATE_LENGTH);
+
+		for (int i = 0; i < inputLength; i++) {
+
+			final char c = buffer[start + i];
+
+			final boolean valid;
+
+			if (i < DATE_LENGTH) {
+
+				// the digits and the separators of the date and the time
+				valid = isDigit(DATE_DEFAULTS[i]) ? isDigit(c) : c == DATE_DEFAULTS[i];
+			} else {
+
+				// the fraction of the seconds
+				valid = i == DATE_LENGTH ? c == '.' : isDigit(c);
+			}
+
+			if (!valid) {
+
+				return false;
+			}
+
+			scratch[i] = c;
+		}
+
+		final int month = twoDigits(scratch, 5);
+		final int day = twoDigits(scratch, 8);
+
+		if (month < 1 || month > 12 || day < 1 || day > daysPerMonth(fourDigits(scratch, 0), month)
+				|| twoDigits(scratch, 11) > 23 || twoDigits(scratch, 14) > 59 || twoDigits(scratch, 17) > 59) {
+
+			return false;
+		}
+
+		scratch[outputLength - 1] = 'Z';
+		dateLength = outputLength;
+
+		return true;
+	}
+
+	private static int daysPerMonth(final int year,
+	                                final int month) {
+
+		if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+
+			return 29;
+		}
+
+		return DAYS_PER_MONTH[month - 1];
+	}
+
+	private static int twoDigits(final char[] chars,
+	                             final int offset) {
+
+		return (chars[offset] - '0') * 10 + chars[offset + 1] - '0';
+	}
+
+	private static int fourDigits(final char[] chars,
+	                              final int offset) {
+
+		return twoDigits(chars, offset) * 100 + twoDigits(chars, offset + 2);
+	}
+
+	private static boolean isDigit(final char c) {
+
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean equalsIgnoreCase(final String expected,
+	                                        final char[] buffer,
+	                                        final int start,
+	                                        final int end) {
+
+		if (end - start != expected.length()) {
+
+			return false;
+		}
+
+		for (int i = 0; i < expected.length(); i++) {
+
+			if (Character.toLowerCase(buffer[start + i]) != expected.charAt(i)) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
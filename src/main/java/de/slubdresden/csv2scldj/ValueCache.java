@@ -0,0 +1,369 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+import de.slubdresden.csv2scldj.model.FieldType;
+
+/**
+ * A bounded (thread-confined) cache per string field that maps cell values to their pre-encoded JSON strings, i.e.,
+ * a repetitive value is escaped (and encoded) only once and then written as it is. A field's cache is cleared when it
+ * is full (each cleared cache is filled up again with the values that are still repeated).
+ * <p>
+ * Values are cached for fields that are marked as low-cardinality fields in the schema. If detection is enabled,
+ * the other string fields are cached on probation, i.e., their cache is dropped, if less than half of the first
+ * {@value #DETECTION_VALUES} values of the field are served from it. Thereby, only values that are expensive to
+ * encode (i.e. values with characters that need to be escaped or that aren't ASCII) are cached on probation, since
+ * (printable) ASCII values are written about as fast as they can be looked up.
+ *
+ * @author tgaengler
+ */
+final class ValueCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ValueCache.class);
+
+	/**
+	 * longer values are not cached
+	 */
+	static final int MAX_VALUE_LENGTH = 256;
+
+	/**
+	 * the number of values of a field on probation after which it is decided whether its cache pays off
+	 */
+	static final int DETECTION_VALUES = 1024;
+
+	/**
+	 * the minimum share of values (in percent) of a field on probation that need to be served from the cache
+	 */
+	private static final int MIN_DETECTION_HIT_PERCENTAGE = 50;
+
+	private final ColumnPlan columnPlan;
+
+	/**
+	 * the maximum number of cached values per field
+	 */
+	private final int size;
+
+	private final int mask;
+
+	private final boolean[] caching;
+
+	/**
+	 * the number of values per field that still need to be looked up, before it is decided whether the cache of the
+	 * field pays off (or 0, if the field is not on probation)
+	 */
+	private final int[] probationValues;
+
+	private final int[] probationHits;
+
+	/**
+	 * the cached values (as open-addressing hash table, indexed by slot) per plan column; the tables are created on
+	 * demand
+	 */
+	private final char[][][] keys;
+	private final SerializedString[][] values;
+
+	private final int[] entries;
+
+	private final long[] hits;
+	private final long[] misses;
+
+	/**
+	 * @param columnPlanArg the column plan
+	 * @param sizeArg       the maximum number of cached values per field (0 disables the cache)
+	 * @param detectionArg  true, if the other string fields (i.e. those that are not marked as low-cardinality fields)
+	 *                      should be cached on probation
+	 */
+	ValueCache(final ColumnPlan columnPlanArg,
+	           final int sizeArg,
+	           final boolean detectionArg) {
+
+		columnPlan = columnPlanArg;
+		size = sizeArg;
+		// at most half of the slots are occupied
+		mask = size > 0 ? (Integer.highestOneBit(2 * size - 1) << 1) - 1 : 0;
+
+		final int columns = columnPlan.size();
+
+		caching = new boolean[columns];
+		probationValues = new int[columns];
+		probationHits = new int[columns];
+		keys = new char[columns][][];
+		values = new SerializedString[columns][];
+		entries = new int[columns];
+		hits = new long[columns];
+		misses = new long[columns];
+
+		if (size == 0) {
+
+			return;
+		}
+
+		for (int column = 0; column < columns; column++) {
+
+			if (columnPlan.getType(column) != FieldType.STRING) {
+
+				// typed values are written as native JSON tokens
+				continue;
+			}
+
+			if (columnPlan.isLowCardinality(column)) {
+
+				caching[column] = true;
+			} else if (detectionArg) {
+
+				caching[column] = true;
+				probationValues[column] = DETECTION_VALUES;
+			}
+		}
+	}
+
+	/**
+	 * @param column the plan column
+	 * @return true, if the values of the field of the given plan column are (currently) cached
+	 */
+	boolean isCaching(final int column) {
+
+		return caching[column];
+	}
+
+	/**
+	 * writes a value of a cached field as JSON string (from the cache, if possible)
+	 *
+	 * @param column the plan column
+	 * @param buffer the buffer that contains the value
+	 * @param start  the start offset of the value
+	 * @param end    the end offset of the value
+	 * @param jg     the JSON generator
+	 * @throws IOException
+	 */
+	void write(final int column,
+	           final char[] buffer,
+	           final int start,
+	           final int end,
+	           final JsonGenerator jg) throws IOException {
+
+		if (!caching[column]) {
+
+			// the cache has been dropped at the end of the probation (e.g. within a multivalued cell)
+			jg.writeString(buffer, start, end - start);
+
+			return;
+		}
+
+		final SerializedString value = lookUp(column, buffer, start, end);
+
+		if (value != null) {
+
+			jg.writeString(value);
+		} else {
+
+			jg.writeString(buffer, start, end - start);
+		}
+
+		if (probationValues[column] > 0 && --probationValues[column] == 0) {
+
+			endProbation(column);
+		}
+	}
+
+	/**
+	 * @return the cache hits (indexed by plan column)
+	 */
+	long[] getHits() {
+
+		return hits;
+	}
+
+	/**
+	 * @return the cache misses (indexed by plan column), i.e., the looked up values that were not cached (incl. those
+	 * that are not worth caching)
+	 */
+	long[] getMisses() {
+
+		return misses;
+	}
+
+	void resetCounts() {
+
+		Arrays.fill(hits, 0L);
+		Arrays.fill(misses, 0L);
+	}
+
+	/**
+	 * @return the cached JSON string of the given value or null, if the value is not cached (and shouldn't be cached)
+	 */
+	private SerializedString lookUp(final int column,
+	                                final char[] buffer,
+	                                final int start,
+	                                final int end) {
+
+		final int length = end - start;
+
+		if (length > MAX_VALUE_LENGTH) {
+
+			misses[column]++;
+
+			return null;
+		}
+
+		char[][] columnKeys = keys[column];
+
+		if (columnKeys == null) {
+
+			columnKeys = new char[mask + 1][];
+
+			keys[column] = columnKeys;
+			values[column] = new SerializedString[mask + 1];
+		}
+
+		final int hash = hash(buffer, start, end);
+
+		int slot = hash & mask;
+		char[] key;
+
+		while ((key = columnKeys[slot]) != null) {
+
+			if (equals(key, buffer, start, length)) {
+
+				return hit(column, slot);
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		misses[column]++;
+
+		if (probationValues[column] > 0 && !isExpensive(buffer, start, end)) {
+
+			return null;
+		}
+
+		if (entries[column] == size) {
+
+			// evict all values, i.e., the values that are still repeated are cached again
+			Arrays.fill(columnKeys, null);
+			Arrays.fill(values[column], null);
+
+			entries[column] = 0;
+			slot = hash & mask;
+		}
+
+		final SerializedString value = new SerializedString(new String(buffer, start, length));
+
+		columnKeys[slot] = Arrays.copyOfRange(buffer, start, end);
+		values[column][slot] = value;
+		entries[column]++;
+
+		return value;
+	}
+
+	private SerializedString hit(final int column,
+	                             final int slot) {
+
+		hits[column]++;
+
+		if (probationValues[column] > 0) {
+
+			probationHits[column]++;
+		}
+
+		return values[column][slot];
+	}
+
+	/**
+	 * keeps the cache of a field on probation, if it pays off, or drops it otherwise
+	 */
+	private void endProbation(final int column) {
+
+		if (probationHits[column] * 100L >= (long) DETECTION_VALUES * MIN_DETECTION_HIT_PERCENTAGE) {
+
+			LOG.debug("cache values of field '{}' ('{}' of the first '{}' values were cache hits)", columnPlan.getFieldName(column), probationHits[column], DETECTION_VALUES);
+
+			return;
+		}
+
+		LOG.debug("do not cache values of field '{}' (only '{}' of the first '{}' values were cache hits)", columnPlan.getFieldName(column), probationHits[column], DETECTION_VALUES);
+
+		caching[column] = false;
+		keys[column] = null;
+		values[column] = null;
+	}
+
+	/**
+	 * @return true, if the value contains characters that need to be escaped or that aren't ASCII
+	 */
+	private static boolean isExpensive(final char[] buffer,
+	                                   final int start,
+	                                   final int end) {
+
+		for (int i = start; i < end; i++) {
+
+			final char c = buffer[i];
+
+			if (c < ' ' || c > '~' || c == '"' || c == '\\') {
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean equals(final char[] key,
+	                              final char[] buffer,
+	                              final int start,
+	                              final int length) {
+
+		if (key.length != length) {
+
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+
+			if (key[i] != buffer[start + i]) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int hash(final char[] buffer,
+	                        final int start,
+	                        final int end) {
+
+		int hash = 0;
+
+		for (int i = start; i < end; i++) {
+
+			hash = 31 * hash + buffer[i];
+		}
+
+		// spread the higher bits into the lower bits (that select the slot)
+		return hash ^ (hash >>> 16);
+	}
+}
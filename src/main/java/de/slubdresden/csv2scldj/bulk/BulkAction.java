@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.bulk;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.csv.CSVCells;
+
+/**
+ * Writes the action line of a record in the Elasticsearch/OpenSearch bulk format (without its line separator). It is
+ * immutable, i.e., it can be shared by several threads.
+ *
+ * @author tgaengler
+ */
+public final class BulkAction {
+
+	private static final SerializedString INDEX_ACTION_KEY = new SerializedString("index");
+	private static final SerializedString INDEX_KEY = new SerializedString("_index");
+	private static final SerializedString ID_KEY = new SerializedString("_id");
+
+	private final String idField;
+
+	/**
+	 * the index as pre-encoded JSON string or null, if the action lines don't contain an index
+	 */
+	private final SerializedString index;
+
+	private final int idColumnIndex;
+
+	BulkAction(final String idFieldArg,
+	           final Optional<String> indexArg,
+	           final int idColumnIndexArg) {
+
+		idField = idFieldArg;
+		index = indexArg.map(SerializedString::new).orElse(null);
+		idColumnIndex = idColumnIndexArg;
+	}
+
+	/**
+	 * writes the action line of the given record, i.e., '{"index":{"_index":"...","_id":"..."}}'
+	 *
+	 * @param csvInputRecord the record
+	 * @param jg             the JSON generator
+	 * @throws IOException
+	 */
+	public void write(final CSVCells csvInputRecord,
+	                  final JsonGenerator jg) throws IOException {
+
+		final char[] buffer = csvInputRecord.buffer();
+		final int idStart = csvInputRecord.cellStart(idColumnIndex);
+		final int idEnd = csvInputRecord.cellEnd(idColumnIndex);
+
+		if (isBlank(buffer, idStart, idEnd)) {
+
+			throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("%s has no value in the bulk ID field '%s'", csvInputRecord.describe(), idField)));
+		}
+
+		jg.writeStartObject();
+		jg.writeFieldName(INDEX_ACTION_KEY);
+		jg.writeStartObject();
+
+		if (index != null) {
+
+			jg.writeFieldName(INDEX_KEY);
+			jg.writeString(index);
+		}
+
+		jg.writeFieldName(ID_KEY);
+		jg.writeString(buffer, idStart, idEnd - idStart);
+		jg.writeEndObject();
+		jg.writeEndObject();
+	}
+
+	private static boolean isBlank(final char[] buffer,
+	                               final int start,
+	                               final int end) {
+
+		for (int i = start; i < end; i++) {
+
+			if (buffer[i] > ' ') {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
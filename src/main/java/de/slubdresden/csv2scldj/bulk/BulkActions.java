@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.bulk;
+
+import java.util.Optional;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * The configuration of the Elasticsearch/OpenSearch bulk format, i.e., each record is preceded by an action line (e.g.
+ * '{"index":{"_index":"finc","_id":"sid~1"}}'), whose document ID is taken from a (singlevalued) field of the record.
+ *
+ * @author tgaengler
+ */
+public final class BulkActions {
+
+	private final String idField;
+
+	private final Optional<String> index;
+
+	private BulkActions(final String idFieldArg,
+	                    final Optional<String> indexArg) {
+
+		idField = idFieldArg;
+		index = indexArg;
+	}
+
+	/**
+	 * @param idField the name of the (singlevalued) field that contains the document ID
+	 * @param index   the target index of the action lines; if it is not set, the index of the bulk endpoint is utilised
+	 * @return the bulk format configuration
+	 */
+	public static BulkActions of(final String idField,
+	                             final Optional<String> index) {
+
+		return new BulkActions(idField, index);
+	}
+
+	public String getIdField() {
+
+		return idField;
+	}
+
+	public Optional<String> getIndex() {
+
+		return index;
+	}
+
+	/**
+	 * checks that the ID field can be utilised for the CSV input of the given column plan
+	 *
+	 * @param columnPlan the column plan
+	 * @throws CSV2SCLDJException if the ID field is not contained in the CSV input header or if it is multivalued
+	 */
+	public void check(final ColumnPlan columnPlan) throws CSV2SCLDJException {
+
+		final int idColumn = columnPlan.indexOf(idField);
+
+		if (idColumn < 0) {
+
+			throw new CSV2SCLDJException(String.format("the bulk ID field '%s' is not contained in the CSV input header", idField));
+		}
+
+		if (columnPlan.isMultivalued(idColumn)) {
+
+			throw new CSV2SCLDJException(String.format("the bulk ID field '%s' must not be multivalued", idField));
+		}
+	}
+
+	/**
+	 * @param columnPlan the column plan (it needs to be checked before, see {@link #check(ColumnPlan)})
+	 * @return the writer of the action lines for the CSV input of the given column plan
+	 */
+	public BulkAction newAction(final ColumnPlan columnPlan) {
+
+		return new BulkAction(idField, index, columnPlan.getColumnIndex(columnPlan.indexOf(idField)));
+	}
+}
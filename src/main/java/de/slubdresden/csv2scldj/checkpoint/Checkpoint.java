@@ -0,0 +1,202 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.checkpoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * The state of a conversion at a record boundary, i.e., the CSV input up to the input offset has been converted and
+ * the LDJ output up to the output length (as well as the dead-letter CSV up to the dead-letter length) is durable.
+ *
+ * @author tgaengler
+ */
+public final class Checkpoint {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private static final String INPUT_FILE = "input_file";
+	private static final String INPUT_SIZE = "input_size";
+	private static final String INPUT_LAST_MODIFIED = "input_last_modified";
+	private static final String INPUT_OFFSET = "input_offset";
+	private static final String RECORDS = "records";
+	private static final String OUTPUT_LENGTH = "output_length";
+	private static final String REJECTED_RECORDS = "rejected_records";
+	private static final String DEAD_LETTER_LENGTH = "dead_letter_length";
+
+	private final String inputFile;
+	private final long inputSize;
+	private final long inputLastModified;
+	private final long inputOffset;
+	private final long records;
+	private final long outputLength;
+	private final long rejectedRecords;
+	private final long deadLetterLength;
+
+	public Checkpoint(final String inputFileArg,
+	                  final long inputSizeArg,
+	                  final long inputLastModifiedArg,
+	                  final long inputOffsetArg,
+	                  final long recordsArg,
+	                  final long outputLengthArg,
+	                  final long rejectedRecordsArg,
+	                  final long deadLetterLengthArg) {
+
+		inputFile = inputFileArg;
+		inputSize = inputSizeArg;
+		inputLastModified = inputLastModifiedArg;
+		inputOffset = inputOffsetArg;
+		records = recordsArg;
+		outputLength = outputLengthArg;
+		rejectedRecords = rejectedRecordsArg;
+		deadLetterLength = deadLetterLengthArg;
+	}
+
+	public String getInputFile() {
+
+		return inputFile;
+	}
+
+	public long getInputSize() {
+
+		return inputSize;
+	}
+
+	public long getInputLastModified() {
+
+		return inputLastModified;
+	}
+
+	/**
+	 * @return the byte offset in the CSV input, at which the conversion can be continued (a record boundary)
+	 */
+	public long getInputOffset() {
+
+		return inputOffset;
+	}
+
+	/**
+	 * @return the number of records (without header) of the CSV input up to the input offset
+	 */
+	public long getRecords() {
+
+		return records;
+	}
+
+	/**
+	 * @return the length of the LDJ output that belongs to the CSV input up to the input offset
+	 */
+	public long getOutputLength() {
+
+		return outputLength;
+	}
+
+	/**
+	 * @return the number of records of the CSV input up to the input offset that have been rejected (see the error
+	 * policy), i.e., they count against the error budget of the resumed conversion
+	 */
+	public long getRejectedRecords() {
+
+		return rejectedRecords;
+	}
+
+	/**
+	 * @return the length of the dead-letter CSV that belongs to the CSV input up to the input offset or -1, if the
+	 * conversion does not write a dead-letter CSV (that is opened by the checkpointer)
+	 */
+	public long getDeadLetterLength() {
+
+		return deadLetterLength;
+	}
+
+	/**
+	 * writes this checkpoint to the given file (atomically, i.e., a checkpoint file is always complete)
+	 *
+	 * @param checkpointFile the checkpoint file
+	 * @throws IOException
+	 */
+	public void write(final Path checkpointFile) throws IOException {
+
+		final Path tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+
+		try (final OutputStream outputStream = Files.newOutputStream(tempFile);
+		     final JsonGenerator jg = MAPPER.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+
+			jg.writeStartObject();
+			jg.writeStringField(INPUT_FILE, inputFile);
+			jg.writeNumberField(INPUT_SIZE, inputSize);
+			jg.writeNumberField(INPUT_LAST_MODIFIED, inputLastModified);
+			jg.writeNumberField(INPUT_OFFSET, inputOffset);
+			jg.writeNumberField(RECORDS, records);
+			jg.writeNumberField(OUTPUT_LENGTH, outputLength);
+			jg.writeNumberField(REJECTED_RECORDS, rejectedRecords);
+			jg.writeNumberField(DEAD_LETTER_LENGTH, deadLetterLength);
+			jg.writeEndObject();
+		}
+
+		Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @param checkpointFile the checkpoint file
+	 * @return the checkpoint of the given file or nothing, if the file does not exist
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static Optional<Checkpoint> read(final Path checkpointFile) throws IOException, CSV2SCLDJException {
+
+		if (!Files.exists(checkpointFile)) {
+
+			return Optional.empty();
+		}
+
+		final JsonNode json = MAPPER.readTree(checkpointFile.toFile());
+
+		for (final String field : new String[]{INPUT_FILE, INPUT_SIZE, INPUT_LAST_MODIFIED, INPUT_OFFSET, RECORDS, OUTPUT_LENGTH, REJECTED_RECORDS, DEAD_LETTER_LENGTH}) {
+
+			if (json == null || !json.hasNonNull(field)) {
+
+				throw new CSV2SCLDJException(String.format("checkpoint file '%s' is invalid, it does not contain '%s'", checkpointFile, field));
+			}
+		}
+
+		return Optional.of(new Checkpoint(json.get(INPUT_FILE).asText(),
+				json.get(INPUT_SIZE).asLong(),
+				json.get(INPUT_LAST_MODIFIED).asLong(),
+				json.get(INPUT_OFFSET).asLong(),
+				json.get(RECORDS).asLong(),
+				json.get(OUTPUT_LENGTH).asLong(),
+				json.get(REJECTED_RECORDS).asLong(),
+				json.get(DEAD_LETTER_LENGTH).asLong()));
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("checkpoint [input offset = %d, records = %d, output length = %d, rejected records = %d, dead-letter length = %d]", inputOffset, records, outputLength, rejectedRecords, deadLetterLength);
+	}
+}
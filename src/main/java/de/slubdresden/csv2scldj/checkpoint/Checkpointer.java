@@ -0,0 +1,265 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.checkpoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * Takes checkpoints of a conversion of a CSV input file into an LDJ output file in intervals, i.e., it makes the LDJ
+ * output durable (up to a record boundary) and records the matching CSV input offset in a checkpoint file next to the
+ * LDJ output file. A checkpoint costs a flush, an fsync of the LDJ output and a (tiny) atomic file replacement.
+ * <p>
+ * A conversion can be resumed from the last checkpoint, i.e., the LDJ output (and the dead-letter CSV) is truncated to
+ * the checkpoint and the conversion continues at the checkpoint's input offset (with the checkpoint's number of
+ * rejected records).
+ *
+ * @author tgaengler
+ */
+public final class Checkpointer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Checkpointer.class);
+
+	public static final String CHECKPOINT_FILE_EXTENSION = ".checkpoint";
+	public static final long DEFAULT_INTERVAL_SECONDS = 10;
+
+	private final String inputFile;
+	private final long inputSize;
+	private final long inputLastModified;
+
+	private final Path outputFile;
+	private final Path checkpointFile;
+
+	private final long intervalNanos;
+
+	private final Optional<Checkpoint> resumeCheckpoint;
+
+	private FileChannel outputChannel;
+
+	/**
+	 * the channel of the dead-letter CSV or null, if the dead-letter CSV is not opened by this checkpointer
+	 */
+	private FileChannel deadLetterChannel;
+
+	private long lastCheckpointNanos;
+
+	private Checkpointer(final Path inputFileArg,
+	                     final Path outputFileArg,
+	                     final long intervalSeconds,
+	                     final Optional<Checkpoint> resumeCheckpointArg) throws IOException {
+
+		inputFile = inputFileArg.toAbsolutePath().toString();
+		inputSize = Files.size(inputFileArg);
+		inputLastModified = Files.getLastModifiedTime(inputFileArg).toMillis();
+		outputFile = outputFileArg;
+		checkpointFile = checkpointFile(outputFileArg);
+		intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+		resumeCheckpoint = resumeCheckpointArg;
+	}
+
+	/**
+	 * @param inputFile       the CSV input file
+	 * @param outputFile      the LDJ output file
+	 * @param intervalSeconds the (minimum) interval between two checkpoints in seconds
+	 * @param resume          true, if the conversion should be resumed from the last checkpoint (if there is one)
+	 * @return a checkpointer for the conversion of the given input file into the given output file
+	 * @throws IOException
+	 * @throws CSV2SCLDJException if the last checkpoint does not fit to the input or output file
+	 */
+	public static Checkpointer create(final Path inputFile,
+	                                  final Path outputFile,
+	                                  final long intervalSeconds,
+	                                  final boolean resume) throws IOException, CSV2SCLDJException {
+
+		if (intervalSeconds < 0) {
+
+			throw new CSV2SCLDJException(String.format("the checkpoint interval must not be negative, but was '%d'", intervalSeconds));
+		}
+
+		final Optional<Checkpoint> optionalCheckpoint = resume ? Checkpoint.read(checkpointFile(outputFile)) : Optional.empty();
+
+		final Checkpointer checkpointer = new Checkpointer(inputFile, outputFile, intervalSeconds, optionalCheckpoint);
+
+		if (resume && !optionalCheckpoint.isPresent()) {
+
+			LOG.info("there is no checkpoint for LDJ output file '{}', i.e., the conversion starts from the beginning", outputFile);
+		}
+
+		if (optionalCheckpoint.isPresent()) {
+
+			checkpointer.checkResumeCheckpoint(optionalCheckpoint.get());
+		}
+
+		return checkpointer;
+	}
+
+	/**
+	 * @return the checkpoint, from which the conversion should be resumed, or nothing, if it starts from the beginning
+	 */
+	public Optional<Checkpoint> getResumeCheckpoint() {
+
+		return resumeCheckpoint;
+	}
+
+	/**
+	 * opens the LDJ output file, i.e., it is truncated to the resume checkpoint or it is created (a stale checkpoint of
+	 * a former conversion is removed then)
+	 *
+	 * @return the output stream for the LDJ output
+	 * @throws IOException
+	 */
+	public OutputStream openOutput() throws IOException {
+
+		if (resumeCheckpoint.isPresent()) {
+
+			final long outputLength = resumeCheckpoint.get().getOutputLength();
+
+			outputChannel = FileChannel.open(outputFile, StandardOpenOption.WRITE);
+			outputChannel.truncate(outputLength);
+			outputChannel.position(outputLength);
+
+			LOG.info("resume conversion from {}", resumeCheckpoint.get());
+		} else {
+
+			Files.deleteIfExists(checkpointFile);
+
+			outputChannel = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		lastCheckpointNanos = System.nanoTime();
+
+		return Channels.newOutputStream(outputChannel);
+	}
+
+	/**
+	 * opens the dead-letter CSV, i.e., it is truncated to the resume checkpoint (so that the rejected records of the CSV
+	 * input up to the checkpoint's input offset are kept) or it is created
+	 *
+	 * @param deadLetterFile the dead-letter CSV file
+	 * @return the output stream for the dead-letter CSV
+	 * @throws IOException
+	 * @throws CSV2SCLDJException if the dead-letter CSV is shorter than the resume checkpoint
+	 */
+	public OutputStream openDeadLetterOutput(final Path deadLetterFile) throws IOException, CSV2SCLDJException {
+
+		final long deadLetterLength = resumeCheckpoint.map(Checkpoint::getDeadLetterLength).orElse(-1L);
+
+		if (deadLetterLength >= 0) {
+
+			if (!Files.isRegularFile(deadLetterFile) || Files.size(deadLetterFile) < deadLetterLength) {
+
+				throw new CSV2SCLDJException(String.format("dead-letter file '%s' is shorter than the %s, i.e., the conversion cannot be resumed; please remove '%s'", deadLetterFile, resumeCheckpoint.get(), checkpointFile));
+			}
+
+			deadLetterChannel = FileChannel.open(deadLetterFile, StandardOpenOption.WRITE);
+			deadLetterChannel.truncate(deadLetterLength);
+			deadLetterChannel.position(deadLetterLength);
+		} else {
+
+			deadLetterChannel = FileChannel.open(deadLetterFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		return Channels.newOutputStream(deadLetterChannel);
+	}
+
+	/**
+	 * @return true, if the checkpoint interval has elapsed since the last checkpoint
+	 */
+	public boolean isDue() {
+
+		return System.nanoTime() - lastCheckpointNanos >= intervalNanos;
+	}
+
+	/**
+	 * takes a checkpoint; all LDJ output (and all dead-letter CSV) up to the given input offset must have been flushed to
+	 * the output streams (see {@link #openOutput()} and {@link #openDeadLetterOutput(Path)}) before
+	 *
+	 * @param inputOffset     the CSV input offset (a record boundary)
+	 * @param records         the number of records (without header) up to the input offset
+	 * @param rejectedRecords the number of rejected records up to the input offset
+	 * @throws IOException
+	 */
+	public void checkpoint(final long inputOffset,
+	                       final long records,
+	                       final long rejectedRecords) throws IOException {
+
+		outputChannel.force(false);
+
+		long deadLetterLength = -1;
+
+		if (deadLetterChannel != null) {
+
+			deadLetterChannel.force(false);
+
+			deadLetterLength = deadLetterChannel.position();
+		}
+
+		final Checkpoint checkpoint = new Checkpoint(inputFile, inputSize, inputLastModified, inputOffset, records, outputChannel.position(), rejectedRecords, deadLetterLength);
+
+		checkpoint.write(checkpointFile);
+
+		lastCheckpointNanos = System.nanoTime();
+
+		LOG.debug("took {}", checkpoint);
+	}
+
+	/**
+	 * removes the checkpoint file, i.e., the conversion is complete and cannot be resumed anymore
+	 *
+	 * @throws IOException
+	 */
+	public void complete() throws IOException {
+
+		Files.deleteIfExists(checkpointFile);
+	}
+
+	public static Path checkpointFile(final Path outputFile) {
+
+		return outputFile.resolveSibling(outputFile.getFileName() + CHECKPOINT_FILE_EXTENSION);
+	}
+
+	private void checkResumeCheckpoint(final Checkpoint checkpoint) throws IOException, CSV2SCLDJException {
+
+		if (!inputFile.equals(checkpoint.getInputFile())
+				|| inputSize != checkpoint.getInputSize()
+				|| inputLastModified != checkpoint.getInputLastModified()) {
+
+			throw new CSV2SCLDJException(String.format("CSV input file '%s' has been modified or is another file than the one of the checkpoint (%s), i.e., the conversion cannot be resumed; please remove '%s'", inputFile, checkpoint.getInputFile(), checkpointFile));
+		}
+
+		if (checkpoint.getInputOffset() > inputSize) {
+
+			throw new CSV2SCLDJException(String.format("%s is beyond the end of CSV input file '%s'", checkpoint, inputFile));
+		}
+
+		if (!Files.isRegularFile(outputFile) || Files.size(outputFile) < checkpoint.getOutputLength()) {
+
+			throw new CSV2SCLDJException(String.format("LDJ output file '%s' is shorter than the %s, i.e., the conversion cannot be resumed; please remove '%s'", outputFile, checkpoint, checkpointFile));
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.columnar;
+
+import java.io.IOException;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * Receives the (typed) values of the records column by column, i.e., the values of a record are added per plan column
+ * (see {@link de.slubdresden.csv2scldj.model.ColumnPlan}) between {@link #startRecord()} and {@link #endRecord()}.
+ *
+ * @author tgaengler
+ */
+public interface ColumnValueSink {
+
+	/**
+	 * starts a new record (i.e. drops the values of an unfinished record)
+	 */
+	void startRecord();
+
+	/**
+	 * adds a value (of a string or date field) of the current record
+	 */
+	void addValue(final int column,
+	              final String value);
+
+	/**
+	 * adds a value (of an integer field) of the current record
+	 */
+	void addValue(final int column,
+	              final int value);
+
+	/**
+	 * adds a value (of a long field) of the current record
+	 */
+	void addValue(final int column,
+	              final long value);
+
+	/**
+	 * adds a value (of a double field) of the current record
+	 */
+	void addValue(final int column,
+	              final double value);
+
+	/**
+	 * adds a value (of a boolean field) of the current record
+	 */
+	void addValue(final int column,
+	              final boolean value);
+
+	/**
+	 * finishes the current record
+	 *
+	 * @throws CSV2SCLDJException if the values of the current record don't fit the columns
+	 * @throws IOException
+	 */
+	void endRecord() throws CSV2SCLDJException, IOException;
+
+	/**
+	 * drops the values of the current record
+	 */
+	void discardRecord();
+}
@@ -0,0 +1,422 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import de.slubdresden.csv2scldj.model.FieldType;
+
+/**
+ * The buffered values of a column of the current row group, i.e., the repetition and definition levels and the values
+ * (dictionary-encoded, as long as the dictionary stays small, or plain). The values are handed over plain-encoded
+ * (without length prefix), i.e., the UTF-8 bytes of strings and the little-endian bytes of numbers.
+ *
+ * @author tgaengler
+ */
+final class ParquetColumn {
+
+	static final int ENCODING_PLAIN = 0;
+	static final int ENCODING_PLAIN_DICTIONARY = 2;
+	static final int ENCODING_RLE = 3;
+
+	static final int TYPE_BOOLEAN = 0;
+	static final int TYPE_INT32 = 1;
+	static final int TYPE_INT64 = 2;
+	static final int TYPE_DOUBLE = 5;
+	static final int TYPE_BYTE_ARRAY = 6;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final String name;
+
+	private final boolean repeated;
+
+	private final boolean required;
+
+	private final int physicalType;
+
+	private final int maxDictionaryBytes;
+
+	private int[] repetitionLevels = new int[INITIAL_CAPACITY];
+
+	private int[] definitionLevels = new int[INITIAL_CAPACITY];
+
+	/**
+	 * the number of level entries (i.e. values incl. nulls)
+	 */
+	private int levelCount;
+
+	/**
+	 * the dictionary (value to index) or null, if the values of the current row group are written plain
+	 */
+	private HashMap<ByteBuffer, Integer> dictionary;
+
+	private final List<byte[]> dictionaryValues = new ArrayList<>();
+
+	private int dictionaryBytes;
+
+	private int[] dictionaryIndices = new int[INITIAL_CAPACITY];
+
+	/**
+	 * the size of the dictionary-encoded values, if they were plain-encoded
+	 */
+	private long dictionaryEncodedPlainSize;
+
+	private int valueCount;
+
+	private final ByteArrayOutputStream plainValues = new ByteArrayOutputStream();
+
+	/**
+	 * the pending bits of plain-encoded booleans (that don't fill a byte yet)
+	 */
+	private int booleanBits;
+
+	private int booleanBitCount;
+
+	ParquetColumn(final String nameArg,
+	              final boolean repeatedArg,
+	              final boolean requiredArg,
+	              final FieldType type,
+	              final int maxDictionaryBytesArg) {
+
+		name = nameArg;
+		repeated = repeatedArg;
+		required = requiredArg;
+		physicalType = physicalType(type);
+		// booleans are always bit-packed
+		maxDictionaryBytes = physicalType == TYPE_BOOLEAN ? 0 : maxDictionaryBytesArg;
+
+		reset();
+	}
+
+	String getName() {
+
+		return name;
+	}
+
+	/**
+	 * @return the Parquet (physical) type of the column
+	 */
+	int getPhysicalType() {
+
+		return physicalType;
+	}
+
+	/**
+	 * @return true, if the values of the column are (UTF-8) strings
+	 */
+	boolean isString() {
+
+		return physicalType == TYPE_BYTE_ARRAY;
+	}
+
+	boolean isRepeated() {
+
+		return repeated;
+	}
+
+	/**
+	 * @return true, if the column is not nullable (required singlevalued fields)
+	 */
+	boolean isRequired() {
+
+		return required && !repeated;
+	}
+
+	/**
+	 * adds the values of the column of a record
+	 *
+	 * @param values the (plain-encoded) values (an empty list is a null value); a singlevalued column has at most one
+	 *               value
+	 */
+	void add(final List<byte[]> values) {
+
+		if (values.isEmpty()) {
+
+			addLevels(0, 0);
+
+			return;
+		}
+
+		for (int i = 0; i < values.size(); i++) {
+
+			addLevels(i == 0 ? 0 : 1, 1);
+			addValue(values.get(i));
+		}
+	}
+
+	/**
+	 * @return the estimated size of the buffered values (plain-encoded)
+	 */
+	long estimatedSize() {
+
+		return plainSize() + levelCount / 4;
+	}
+
+	int getLevelCount() {
+
+		return levelCount;
+	}
+
+	boolean isDictionaryEncoded() {
+
+		return dictionary != null && valueCount > 0;
+	}
+
+	int getDictionarySize() {
+
+		return dictionaryValues.size();
+	}
+
+	/**
+	 * @return the dictionary page content, i.e., the plain-encoded dictionary values
+	 */
+	byte[] dictionaryPage() {
+
+		final ByteArrayOutputStream page = new ByteArrayOutputStream(dictionaryBytes);
+
+		for (final byte[] value : dictionaryValues) {
+
+			writePlain(value, page);
+		}
+
+		// note: booleans are never dictionary-encoded
+
+		return page.toByteArray();
+	}
+
+	/**
+	 * @return the data page content (version 1), i.e., the repetition levels, the definition levels and the values
+	 */
+	byte[] dataPage() {
+
+		final ByteArrayOutputStream page = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE, estimatedSize() + 64));
+
+		if (repeated) {
+
+			writeLevels(repetitionLevels, page);
+		}
+
+		if (!isRequired()) {
+
+			writeLevels(definitionLevels, page);
+		}
+
+		if (isDictionaryEncoded()) {
+
+			final int bitWidth = RleBitPackedEncoder.bitWidth(dictionaryValues.size() - 1);
+			final byte[] indices = RleBitPackedEncoder.encode(dictionaryIndices, valueCount, bitWidth);
+
+			page.write(bitWidth);
+			page.write(indices, 0, indices.length);
+		} else {
+
+			final byte[] values = plainValues.toByteArray();
+
+			page.write(values, 0, values.length);
+
+			if (booleanBitCount > 0) {
+
+				page.write(booleanBits);
+			}
+		}
+
+		return page.toByteArray();
+	}
+
+	/**
+	 * clears the buffered values (after the row group has been written); dictionary encoding is tried again for the
+	 * next row group
+	 */
+	void reset() {
+
+		levelCount = 0;
+		valueCount = 0;
+		dictionary = maxDictionaryBytes > 0 ? new HashMap<>() : null;
+		dictionaryValues.clear();
+		dictionaryBytes = 0;
+		dictionaryEncodedPlainSize = 0;
+		plainValues.reset();
+		booleanBits = 0;
+		booleanBitCount = 0;
+	}
+
+	private void addLevels(final int repetitionLevel,
+	                       final int definitionLevel) {
+
+		if (levelCount == repetitionLevels.length) {
+
+			repetitionLevels = Arrays.copyOf(repetitionLevels, levelCount * 2);
+			definitionLevels = Arrays.copyOf(definitionLevels, levelCount * 2);
+		}
+
+		repetitionLevels[levelCount] = repetitionLevel;
+		definitionLevels[levelCount] = definitionLevel;
+		levelCount++;
+	}
+
+	private void addValue(final byte[] value) {
+
+		if (dictionary == null) {
+
+			writePlain(value, plainValues);
+
+			valueCount++;
+
+			return;
+		}
+
+		final ByteBuffer key = ByteBuffer.wrap(value);
+
+		Integer index = dictionary.get(key);
+
+		if (index == null) {
+
+			final int plainLength = plainLength(value);
+
+			if (dictionaryBytes + plainLength > maxDictionaryBytes) {
+
+				// no low-cardinality column (at least not in this row group)
+				fallBackToPlain();
+				addValue(value);
+
+				return;
+			}
+
+			index = dictionaryValues.size();
+
+			dictionary.put(key, index);
+			dictionaryValues.add(value);
+			dictionaryBytes += plainLength;
+		}
+
+		if (valueCount == dictionaryIndices.length) {
+
+			dictionaryIndices = Arrays.copyOf(dictionaryIndices, valueCount * 2);
+		}
+
+		dictionaryIndices[valueCount++] = index;
+		dictionaryEncodedPlainSize += plainLength(value);
+	}
+
+	private void fallBackToPlain() {
+
+		for (int i = 0; i < valueCount; i++) {
+
+			writePlain(dictionaryValues.get(dictionaryIndices[i]), plainValues);
+		}
+
+		dictionary = null;
+		dictionaryValues.clear();
+		dictionaryBytes = 0;
+		dictionaryEncodedPlainSize = 0;
+	}
+
+	private long plainSize() {
+
+		if (dictionary == null) {
+
+			return plainValues.size() + (booleanBitCount > 0 ? 1 : 0);
+		}
+
+		// note: the size is estimated per record, i.e., it is summed up while adding the values
+		return dictionaryEncodedPlainSize;
+	}
+
+	private void writeLevels(final int[] levels,
+	                         final ByteArrayOutputStream page) {
+
+		// levels are prefixed by their length (4 bytes, little-endian)
+		final byte[] encodedLevels = RleBitPackedEncoder.encode(levels, levelCount, 1);
+
+		writeIntLE(encodedLevels.length, page);
+		page.write(encodedLevels, 0, encodedLevels.length);
+	}
+
+	private void writePlain(final byte[] value,
+	                        final ByteArrayOutputStream out) {
+
+		switch (physicalType) {
+
+			case TYPE_BOOLEAN:
+
+				// bit-packed (LSB first)
+				booleanBits |= value[0] << booleanBitCount;
+
+				if (++booleanBitCount == Byte.SIZE) {
+
+					out.write(booleanBits);
+
+					booleanBits = 0;
+					booleanBitCount = 0;
+				}
+
+				break;
+			case TYPE_BYTE_ARRAY:
+
+				// byte arrays are prefixed by their length (4 bytes, little-endian)
+				writeIntLE(value.length, out);
+				out.write(value, 0, value.length);
+
+				break;
+			default:
+
+				out.write(value, 0, value.length);
+		}
+	}
+
+	private int plainLength(final byte[] value) {
+
+		return physicalType == TYPE_BYTE_ARRAY ? Integer.BYTES + value.length : value.length;
+	}
+
+	private static int physicalType(final FieldType type) {
+
+		switch (type) {
+
+			case INTEGER:
+
+				return TYPE_INT32;
+			case LONG:
+
+				return TYPE_INT64;
+			case DOUBLE:
+
+				return TYPE_DOUBLE;
+			case BOOLEAN:
+
+				return TYPE_BOOLEAN;
+			default:
+
+				// strings and (normalised) dates
+				return TYPE_BYTE_ARRAY;
+		}
+	}
+
+	static void writeIntLE(final int value,
+	                       final ByteArrayOutputStream out) {
+
+		out.write(value);
+		out.write(value >>> 8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+}
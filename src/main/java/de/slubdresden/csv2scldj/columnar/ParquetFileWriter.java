@@ -0,0 +1,536 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.columnar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+import de.slubdresden.csv2scldj.model.FieldType;
+
+/**
+ * Writes the records as a Parquet file (without any further dependency), i.e., the values are buffered column by column
+ * until a row group is full. Each column chunk consists of a dictionary page (as long as the dictionary of the column
+ * stays below the maximum dictionary size) and a data page. The fields of the schema are written as columns of their
+ * type (see {@link FieldType}; string and date fields as UTF-8 string columns), multivalued fields as repeated columns
+ * and required singlevalued fields as required columns. The output stream is written strictly sequentially (i.e. the
+ * footer is written on close).
+ *
+ * @author tgaengler
+ */
+public final class ParquetFileWriter implements ColumnValueSink, Closeable {
+
+	private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+	private static final String CREATED_BY = "csv2scldj";
+
+	private static final int REPETITION_REQUIRED = 0;
+	private static final int REPETITION_OPTIONAL = 1;
+	private static final int REPETITION_REPEATED = 2;
+
+	private static final int CONVERTED_TYPE_UTF8 = 0;
+
+	private static final int PAGE_TYPE_DATA = 0;
+	private static final int PAGE_TYPE_DICTIONARY = 2;
+
+	private final OutputStream outputStream;
+
+	private final ParquetOptions options;
+
+	private final ParquetColumn[] columns;
+
+	/**
+	 * the (plain-encoded) values of the current record (per column)
+	 */
+	private final List<List<byte[]>> recordValues;
+
+	private final List<byte[]> rowGroups = new ArrayList<>();
+
+	private long position;
+
+	private long rowGroupRows;
+
+	private long rows;
+
+	private boolean closed;
+
+	public ParquetFileWriter(final OutputStream outputStreamArg,
+	                         final ColumnPlan columnPlan,
+	                         final ParquetOptions optionsArg) throws IOException {
+
+		outputStream = outputStreamArg;
+		options = optionsArg;
+
+		final int size = columnPlan.size();
+
+		columns = new ParquetColumn[size];
+		recordValues = new ArrayList<>(size);
+
+		for (int column = 0; column < size; column++) {
+
+			columns[column] = new ParquetColumn(columnPlan.getFieldName(column), columnPlan.isMultivalued(column),
+					columnPlan.getRequiredBit(column) >= 0, columnPlan.getType(column), options.getMaxDictionaryBytes());
+			recordValues.add(new ArrayList<>());
+		}
+
+		write(MAGIC);
+	}
+
+	/**
+	 * starts a new record (i.e. drops the values of an unfinished record)
+	 */
+	@Override
+	public void startRecord() {
+
+		discardRecord();
+	}
+
+	/**
+	 * adds a value of the current record
+	 *
+	 * @param column the plan column (of a string or date field)
+	 * @param value  the value
+	 */
+	@Override
+	public void addValue(final int column,
+	                     final String value) {
+
+		checkType(column, ParquetColumn.TYPE_BYTE_ARRAY, "string");
+
+		recordValues.get(column).add(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * adds a value of the current record
+	 *
+	 * @param column the plan column (of an integer field)
+	 * @param value  the value
+	 */
+	@Override
+	public void addValue(final int column,
+	                     final int value) {
+
+		checkType(column, ParquetColumn.TYPE_INT32, "integer");
+
+		recordValues.get(column).add(littleEndian(value, Integer.BYTES));
+	}
+
+	/**
+	 * adds a value of the current record
+	 *
+	 * @param column the plan column (of a long field)
+	 * @param value  the value
+	 */
+	@Override
+	public void addValue(final int column,
+	                     final long value) {
+
+		checkType(column, ParquetColumn.TYPE_INT64, "long");
+
+		recordValues.get(column).add(littleEndian(value, Long.BYTES));
+	}
+
+	/**
+	 * adds a value of the current record
+	 *
+	 * @param column the plan column (of a double field)
+	 * @param value  the value
+	 */
+	@Override
+	public void addValue(final int column,
+	                     final double value) {
+
+		checkType(column, ParquetColumn.TYPE_DOUBLE, "double");
+
+		recordValues.get(column).add(littleEndian(Double.doubleToLongBits(value), Long.BYTES));
+	}
+
+	/**
+	 * adds a value of the current record
+	 *
+	 * @param column the plan column (of a boolean field)
+	 * @param value  the value
+	 */
+	@Override
+	public void addValue(final int column,
+	                     final boolean value) {
+
+		checkType(column, ParquetColumn.TYPE_BOOLEAN, "boolean");
+
+		recordValues.get(column).add(new byte[]{(byte) (value ? 1 : 0)});
+	}
+
+	/**
+	 * finishes the current record, i.e., adds its values to the current row group (the row group is written, if it
+	 * reached the row group size)
+	 *
+	 * @throws CSV2SCLDJException if a required column has no value or a singlevalued column has more than one value
+	 * @throws IOException
+	 */
+	@Override
+	public void endRecord() throws CSV2SCLDJException, IOException {
+
+		for (int column = 0; column < columns.length; column++) {
+
+			final int valueCount = recordValues.get(column).size();
+
+			if (valueCount == 0 && columns[column].isRequired()) {
+
+				throw new CSV2SCLDJException(String.format("record has no value for the required field '%s'", columns[column].getName()));
+			}
+
+			if (valueCount > 1 && !columns[column].isRepeated()) {
+
+				throw new CSV2SCLDJException(String.format("record has %d values for the singlevalued field '%s'", valueCount, columns[column].getName()));
+			}
+		}
+
+		long rowGroupSize = 0;
+
+		for (int column = 0; column < columns.length; column++) {
+
+			columns[column].add(recordValues.get(column));
+			rowGroupSize += columns[column].estimatedSize();
+		}
+
+		discardRecord();
+
+		rowGroupRows++;
+
+		if (rowGroupSize >= options.getRowGroupBytes()) {
+
+			writeRowGroup();
+		}
+	}
+
+	/**
+	 * drops the values of the current record
+	 */
+	@Override
+	public void discardRecord() {
+
+		for (final List<byte[]> values : recordValues) {
+
+			values.clear();
+		}
+	}
+
+	/**
+	 * @return the number of finished records
+	 */
+	public long getRows() {
+
+		return rows + rowGroupRows;
+	}
+
+	/**
+	 * writes the last row group and the footer and closes the output stream
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+
+			return;
+		}
+
+		closed = true;
+
+		try {
+
+			writeRowGroup();
+
+			final byte[] footer = fileMetaData();
+
+			write(footer);
+
+			final byte[] footerLength = new byte[Integer.BYTES];
+
+			for (int i = 0; i < footerLength.length; i++) {
+
+				footerLength[i] = (byte) (footer.length >>> (i * 8));
+			}
+
+			write(footerLength);
+			write(MAGIC);
+		} finally {
+
+			outputStream.close();
+		}
+	}
+
+	private void writeRowGroup() throws IOException {
+
+		if (rowGroupRows == 0) {
+
+			return;
+		}
+
+		final long rowGroupStart = position;
+		final List<byte[]> columnChunks = new ArrayList<>(columns.length);
+
+		long totalUncompressedSize = 0;
+
+		for (final ParquetColumn column : columns) {
+
+			final long chunkStart = position;
+
+			long dictionaryPageOffset = -1;
+			long uncompressedSize = 0;
+
+			final boolean dictionaryEncoded = column.isDictionaryEncoded();
+
+			if (dictionaryEncoded) {
+
+				dictionaryPageOffset = position;
+				uncompressedSize += writePage(PAGE_TYPE_DICTIONARY, column.dictionaryPage(), column.getDictionarySize(), 0);
+			}
+
+			final long dataPageOffset = position;
+
+			uncompressedSize += writePage(PAGE_TYPE_DATA, column.dataPage(), column.getLevelCount(),
+					dictionaryEncoded ? ParquetColumn.ENCODING_PLAIN_DICTIONARY : ParquetColumn.ENCODING_PLAIN);
+
+			totalUncompressedSize += uncompressedSize;
+
+			columnChunks.add(columnChunk(column, chunkStart, dictionaryPageOffset, dataPageOffset, uncompressedSize, position - chunkStart));
+
+			column.reset();
+		}
+
+		rowGroups.add(rowGroup(columnChunks, rowGroupStart, totalUncompressedSize, position - rowGroupStart));
+
+		rows += rowGroupRows;
+		rowGroupRows = 0;
+	}
+
+	/**
+	 * @return the uncompressed size of the page (incl. the page header)
+	 */
+	private long writePage(final int pageType,
+	                       final byte[] page,
+	                       final int valueCount,
+	                       final int encoding) throws IOException {
+
+		final Compression compression = options.getCompression();
+		final byte[] compressedPage = compression.compressBlock(page, page.length, options.getCompressionLevel());
+
+		final ThriftCompactWriter header = new ThriftCompactWriter();
+
+		header.writeStructBegin();
+		header.writeI32Field(1, pageType);
+		header.writeI32Field(2, page.length);
+		header.writeI32Field(3, compressedPage.length);
+
+		if (pageType == PAGE_TYPE_DATA) {
+
+			header.writeStructFieldBegin(5);
+			header.writeI32Field(1, valueCount);
+			header.writeI32Field(2, encoding);
+			header.writeI32Field(3, ParquetColumn.ENCODING_RLE);
+			header.writeI32Field(4, ParquetColumn.ENCODING_RLE);
+			header.writeStructEnd();
+		} else {
+
+			header.writeStructFieldBegin(7);
+			header.writeI32Field(1, valueCount);
+			header.writeI32Field(2, ParquetColumn.ENCODING_PLAIN_DICTIONARY);
+			header.writeStructEnd();
+		}
+
+		header.writeStructEnd();
+
+		final byte[] headerBytes = header.toByteArray();
+
+		write(headerBytes);
+		write(compressedPage);
+
+		return headerBytes.length + page.length;
+	}
+
+	private byte[] columnChunk(final ParquetColumn column,
+	                           final long chunkStart,
+	                           final long dictionaryPageOffset,
+	                           final long dataPageOffset,
+	                           final long uncompressedSize,
+	                           final long compressedSize) {
+
+		final ThriftCompactWriter columnChunk = new ThriftCompactWriter();
+
+		columnChunk.writeStructBegin();
+		columnChunk.writeI64Field(2, chunkStart);
+		columnChunk.writeStructFieldBegin(3);
+		columnChunk.writeI32Field(1, column.getPhysicalType());
+		columnChunk.writeListFieldBegin(2, ThriftCompactWriter.TYPE_I32, 2);
+		columnChunk.writeI32(dictionaryPageOffset >= 0 ? ParquetColumn.ENCODING_PLAIN_DICTIONARY : ParquetColumn.ENCODING_PLAIN);
+		columnChunk.writeI32(ParquetColumn.ENCODING_RLE);
+		columnChunk.writeListFieldBegin(3, ThriftCompactWriter.TYPE_BINARY, 1);
+		columnChunk.writeString(column.getName());
+		columnChunk.writeI32Field(4, codec(options.getCompression()));
+		columnChunk.writeI64Field(5, column.getLevelCount());
+		columnChunk.writeI64Field(6, uncompressedSize);
+		columnChunk.writeI64Field(7, compressedSize);
+		columnChunk.writeI64Field(9, dataPageOffset);
+
+		if (dictionaryPageOffset >= 0) {
+
+			columnChunk.writeI64Field(11, dictionaryPageOffset);
+		}
+
+		columnChunk.writeStructEnd();
+		columnChunk.writeStructEnd();
+
+		return columnChunk.toByteArray();
+	}
+
+	private byte[] rowGroup(final List<byte[]> columnChunks,
+	                        final long rowGroupStart,
+	                        final long uncompressedSize,
+	                        final long compressedSize) {
+
+		final ThriftCompactWriter rowGroup = new ThriftCompactWriter();
+
+		rowGroup.writeStructBegin();
+		rowGroup.writeListFieldBegin(1, ThriftCompactWriter.TYPE_STRUCT, columnChunks.size());
+
+		for (final byte[] columnChunk : columnChunks) {
+
+			rowGroup.writeEncoded(columnChunk);
+		}
+
+		rowGroup.writeI64Field(2, uncompressedSize);
+		rowGroup.writeI64Field(3, rowGroupRows);
+		rowGroup.writeI64Field(5, rowGroupStart);
+		rowGroup.writeI64Field(6, compressedSize);
+		rowGroup.writeStructEnd();
+
+		return rowGroup.toByteArray();
+	}
+
+	private byte[] fileMetaData() {
+
+		final ThriftCompactWriter fileMetaData = new ThriftCompactWriter();
+
+		fileMetaData.writeStructBegin();
+		fileMetaData.writeI32Field(1, 1);
+		fileMetaData.writeListFieldBegin(2, ThriftCompactWriter.TYPE_STRUCT, columns.length + 1);
+
+		// the root of the schema
+		fileMetaData.writeStructBegin();
+		fileMetaData.writeStringField(4, "schema");
+		fileMetaData.writeI32Field(5, columns.length);
+		fileMetaData.writeStructEnd();
+
+		for (final ParquetColumn column : columns) {
+
+			final int repetition;
+
+			if (column.isRepeated()) {
+
+				repetition = REPETITION_REPEATED;
+			} else if (column.isRequired()) {
+
+				repetition = REPETITION_REQUIRED;
+			} else {
+
+				repetition = REPETITION_OPTIONAL;
+			}
+
+			fileMetaData.writeStructBegin();
+			fileMetaData.writeI32Field(1, column.getPhysicalType());
+			fileMetaData.writeI32Field(3, repetition);
+			fileMetaData.writeStringField(4, column.getName());
+
+			if (column.isString()) {
+
+				fileMetaData.writeI32Field(6, CONVERTED_TYPE_UTF8);
+				// logical type STRING (an empty struct)
+				fileMetaData.writeStructFieldBegin(10);
+				fileMetaData.writeStructFieldBegin(1);
+				fileMetaData.writeStructEnd();
+				fileMetaData.writeStructEnd();
+			}
+
+			fileMetaData.writeStructEnd();
+		}
+
+		fileMetaData.writeI64Field(3, rows);
+		fileMetaData.writeListFieldBegin(4, ThriftCompactWriter.TYPE_STRUCT, rowGroups.size());
+
+		for (final byte[] rowGroup : rowGroups) {
+
+			fileMetaData.writeEncoded(rowGroup);
+		}
+
+		fileMetaData.writeStringField(6, CREATED_BY);
+		fileMetaData.writeStructEnd();
+
+		return fileMetaData.toByteArray();
+	}
+
+	private static int codec(final Compression compression) {
+
+		switch (compression) {
+
+			case GZIP:
+
+				return 2;
+			case ZSTD:
+
+				return 6;
+			default:
+
+				return 0;
+		}
+	}
+
+	private void checkType(final int column,
+	                       final int physicalType,
+	                       final String typeName) {
+
+		if (columns[column].getPhysicalType() != physicalType) {
+
+			throw new IllegalArgumentException(String.format("a %s value is not a valid value of the column '%s'", typeName, columns[column].getName()));
+		}
+	}
+
+	private static byte[] littleEndian(final long value,
+	                                   final int length) {
+
+		final byte[] bytes = new byte[length];
+
+		for (int i = 0; i < length; i++) {
+
+			bytes[i] = (byte) (value >>> (i * 8));
+		}
+
+		return bytes;
+	}
+
+	private void write(final byte[] bytes) throws IOException {
+
+		outputStream.write(bytes);
+		position += bytes.length;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.columnar;
+
+import de.slubdresden.csv2scldj.io.Compression;
+
+/**
+ * The options of the Parquet output, i.e., the size of the row groups, the maximum size of the dictionaries and the
+ * compression of the pages.
+ *
+ * @author tgaengler
+ */
+public final class ParquetOptions {
+
+	public static final long DEFAULT_ROW_GROUP_BYTES = 64L * 1024 * 1024;
+
+	public static final int DEFAULT_MAX_DICTIONARY_BYTES = 1024 * 1024;
+
+	public static final Compression DEFAULT_COMPRESSION = Compression.ZSTD;
+
+	private final long rowGroupBytes;
+
+	private final int maxDictionaryBytes;
+
+	private final Compression compression;
+
+	private final int compressionLevel;
+
+	private ParquetOptions(final long rowGroupBytesArg,
+	                       final int maxDictionaryBytesArg,
+	                       final Compression compressionArg,
+	                       final int compressionLevelArg) {
+
+		if (rowGroupBytesArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the row group size must be at least 1 byte, but was '%d'", rowGroupBytesArg));
+		}
+
+		if (maxDictionaryBytesArg < 0) {
+
+			throw new IllegalArgumentException(String.format("the maximum dictionary size must not be negative, but was '%d'", maxDictionaryBytesArg));
+		}
+
+		if (compressionArg != Compression.NONE) {
+
+			compressionArg.checkLevel(compressionLevelArg);
+		}
+
+		rowGroupBytes = rowGroupBytesArg;
+		maxDictionaryBytes = maxDictionaryBytesArg;
+		compression = compressionArg;
+		compressionLevel = compressionLevelArg;
+	}
+
+	public static ParquetOptions defaults() {
+
+		return of(DEFAULT_ROW_GROUP_BYTES, DEFAULT_MAX_DICTIONARY_BYTES, DEFAULT_COMPRESSION, DEFAULT_COMPRESSION.getDefaultLevel());
+	}
+
+	/**
+	 * @param rowGroupBytes      the (uncompressed) size of a row group, i.e., the records are buffered (column by column)
+	 *                           until they reach this size
+	 * @param maxDictionaryBytes the maximum size of the dictionary of a column chunk; columns with more distinct values
+	 *                           (i.e. no low-cardinality columns) are written plain (0 disables dictionary encoding)
+	 * @param compression        the compression of the pages
+	 * @param compressionLevel   the compression level
+	 * @return the Parquet options
+	 */
+	public static ParquetOptions of(final long rowGroupBytes,
+	                                final int maxDictionaryBytes,
+	                                final Compression compression,
+	                                final int compressionLevel) {
+
+		return new ParquetOptions(rowGroupBytes, maxDictionaryBytes, compression, compressionLevel);
+	}
+
+	public long getRowGroupBytes() {
+
+		return rowGroupBytes;
+	}
+
+	public int getMaxDictionaryBytes() {
+
+		return maxDictionaryBytes;
+	}
+
+	public Compression getCompression() {
+
+		return compression;
+	}
+
+	public int getCompressionLevel() {
+
+		return compressionLevel;
+	}
+}
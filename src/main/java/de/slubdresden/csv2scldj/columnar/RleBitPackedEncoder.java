@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.columnar;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes small non-negative integers (repetition and definition levels, dictionary indices) with the Parquet
+ * RLE/bit-packing hybrid encoding, i.e., runs of at least 8 equal values are run-length encoded and all other values
+ * are bit-packed in groups of 8.
+ *
+ * @author tgaengler
+ */
+final class RleBitPackedEncoder {
+
+	private static final int GROUP_SIZE = 8;
+
+	private RleBitPackedEncoder() {
+
+	}
+
+	/**
+	 * @param values   the buffer with the values
+	 * @param count    the number of values
+	 * @param bitWidth the number of bits of the largest value
+	 * @return the encoded values (without length prefix)
+	 */
+	static byte[] encode(final int[] values,
+	                     final int count,
+	                     final int bitWidth) {
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(count * bitWidth / 8 + 16);
+
+		// the values from literalStart to position are bit-packed
+		int literalStart = 0;
+		int position = 0;
+
+		while (position < count) {
+
+			int run = 1;
+
+			while (position + run < count && values[position + run] == values[position]) {
+
+				run++;
+			}
+
+			if (run >= GROUP_SIZE) {
+
+				// bit-packed groups are always complete (besides the last one), i.e., the run fills up the last group
+				final int fill = (GROUP_SIZE - (position - literalStart) % GROUP_SIZE) % GROUP_SIZE;
+
+				position += fill;
+				run -= fill;
+
+				if (run >= GROUP_SIZE) {
+
+					writeBitPacked(values, literalStart, position - literalStart, bitWidth, out);
+					writeRle(values[position], run, bitWidth, out);
+
+					position += run;
+					literalStart = position;
+
+					continue;
+				}
+			}
+
+			position += run;
+		}
+
+		writeBitPacked(values, literalStart, count - literalStart, bitWidth, out);
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param maxValue the largest value
+	 * @return the number of bits that are required for the given value
+	 */
+	static int bitWidth(final int maxValue) {
+
+		return Integer.SIZE - Integer.numberOfLeadingZeros(maxValue);
+	}
+
+	private static void writeRle(final int value,
+	                             final int run,
+	                             final int bitWidth,
+	                             final ByteArrayOutputStream out) {
+
+		writeVarint(run << 1, out);
+
+		for (int i = 0; i < (bitWidth + 7) / 8; i++) {
+
+			out.write(value >>> (i * 8));
+		}
+	}
+
+	/**
+	 * bit-packs the given values (LSB first); the last group is padded with zeros
+	 */
+	private static void writeBitPacked(final int[] values,
+	                                   final int start,
+	                                   final int length,
+	                                   final int bitWidth,
+	                                   final ByteArrayOutputStream out) {
+
+		if (length == 0) {
+
+			return;
+		}
+
+		final int groups = (length + GROUP_SIZE - 1) / GROUP_SIZE;
+
+		writeVarint(groups << 1 | 1, out);
+
+		long buffer = 0;
+		int bufferedBits = 0;
+
+		for (int i = 0; i < groups * GROUP_SIZE; i++) {
+
+			final int value = i < length ? values[start + i] : 0;
+
+			buffer |= (long) value << bufferedBits;
+			bufferedBits += bitWidth;
+
+			while (bufferedBits >= 8) {
+
+				out.write((int) buffer);
+
+				buffer >>>= 8;
+				bufferedBits -= 8;
+			}
+		}
+	}
+
+	private static void writeVarint(final int value,
+	                                final ByteArrayOutputStream out) {
+
+		int remaining = value;
+
+		while ((remaining & ~0x7F) != 0) {
+
+			out.write(remaining & 0x7F | 0x80);
+
+			remaining >>>= 7;
+		}
+
+		out.write(remaining);
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A minimal writer of the Thrift compact protocol, i.e., just enough for the Parquet metadata (structs of integers,
+ * strings and lists). The fields of a struct need to be written in ascending field ID order.
+ *
+ * @author tgaengler
+ */
+final class ThriftCompactWriter {
+
+	static final int TYPE_I32 = 5;
+	static final int TYPE_I64 = 6;
+	static final int TYPE_BINARY = 8;
+	static final int TYPE_LIST = 9;
+	static final int TYPE_STRUCT = 12;
+
+	private static final int MAX_DEPTH = 16;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	/**
+	 * the ID of the last field of each open struct (field IDs are written as deltas)
+	 */
+	private final int[] lastFieldIds = new int[MAX_DEPTH];
+
+	private int depth;
+
+	void writeStructBegin() {
+
+		lastFieldIds[++depth] = 0;
+	}
+
+	void writeStructEnd() {
+
+		// stop field
+		out.write(0);
+
+		depth--;
+	}
+
+	void writeI32Field(final int fieldId,
+	                   final int value) {
+
+		writeFieldHeader(fieldId, TYPE_I32);
+		writeI32(value);
+	}
+
+	void writeI64Field(final int fieldId,
+	                   final long value) {
+
+		writeFieldHeader(fieldId, TYPE_I64);
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	void writeStringField(final int fieldId,
+	                      final String value) {
+
+		writeFieldHeader(fieldId, TYPE_BINARY);
+		writeString(value);
+	}
+
+	void writeStructFieldBegin(final int fieldId) {
+
+		writeFieldHeader(fieldId, TYPE_STRUCT);
+		writeStructBegin();
+	}
+
+	void writeListFieldBegin(final int fieldId,
+	                         final int elementType,
+	                         final int size) {
+
+		writeFieldHeader(fieldId, TYPE_LIST);
+
+		if (size < 15) {
+
+			out.write(size << 4 | elementType);
+		} else {
+
+			out.write(0xF0 | elementType);
+			writeVarint(size);
+		}
+	}
+
+	/**
+	 * writes an i32 (e.g. an element of a list)
+	 */
+	void writeI32(final int value) {
+
+		writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * writes a string (e.g. an element of a list)
+	 */
+	void writeString(final String value) {
+
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		writeVarint(bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * writes an already encoded value (e.g. a struct element of a list)
+	 */
+	void writeEncoded(final byte[] value) {
+
+		out.write(value, 0, value.length);
+	}
+
+	byte[] toByteArray() {
+
+		return out.toByteArray();
+	}
+
+	private void writeFieldHeader(final int fieldId,
+	                              final int type) {
+
+		final int delta = fieldId - lastFieldIds[depth];
+
+		if (delta > 0 && delta <= 15) {
+
+			out.write(delta << 4 | type);
+		} else {
+
+			out.write(type);
+			writeI32(fieldId);
+		}
+
+		lastFieldIds[depth] = fieldId;
+	}
+
+	private void writeVarint(final long value) {
+
+		long remaining = value;
+
+		while ((remaining & ~0x7FL) != 0) {
+
+			out.write((int) (remaining & 0x7F) | 0x80);
+
+			remaining >>>= 7;
+		}
+
+		out.write((int) remaining);
+	}
+}
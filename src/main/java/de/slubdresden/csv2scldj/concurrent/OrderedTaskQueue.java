@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.concurrent;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * Executes tasks concurrently, but hands their results over to a consumer in submission order. At most
+ * {@code maxInFlight} tasks are pending at the same time, i.e., submitting blocks until the oldest result has been
+ * consumed.
+ *
+ * @param <T> the result type of the tasks
+ * @author tgaengler
+ */
+public final class OrderedTaskQueue<T> {
+
+	@FunctionalInterface
+	public interface ResultConsumer<T> {
+
+		void accept(final T result) throws IOException, CSV2SCLDJException;
+	}
+
+	private final ExecutorService executor;
+	private final int maxInFlight;
+	private final ResultConsumer<T> consumer;
+	private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+	public OrderedTaskQueue(final ExecutorService executorArg,
+	                        final int maxInFlightArg,
+	                        final ResultConsumer<T> consumerArg) {
+
+		executor = executorArg;
+		maxInFlight = Math.max(1, maxInFlightArg);
+		consumer = consumerArg;
+	}
+
+	public void submit(final Callable<T> task) throws IOException, CSV2SCLDJException {
+
+		while (pending.size() >= maxInFlight) {
+
+			consumeOldest();
+		}
+
+		pending.addLast(executor.submit(task));
+	}
+
+	/**
+	 * consumes all pending results (in submission order)
+	 *
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public void drain() throws IOException, CSV2SCLDJException {
+
+		while (!pending.isEmpty()) {
+
+			consumeOldest();
+		}
+	}
+
+	/**
+	 * cancels all pending tasks, e.g., after a failure
+	 */
+	public void cancel() {
+
+		pending.forEach(future -> future.cancel(true));
+		pending.clear();
+	}
+
+	private void consumeOldest() throws IOException, CSV2SCLDJException {
+
+		final Future<T> oldest = pending.removeFirst();
+
+		final T result;
+
+		try {
+
+			result = oldest.get();
+		} catch (final InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+			throw new CSV2SCLDJException("got interrupted while waiting for a conversion result", e);
+		} catch (final ExecutionException e) {
+
+			throw unwrap(e.getCause());
+		}
+
+		consumer.accept(result);
+	}
+
+	private static CSV2SCLDJException unwrap(final Throwable cause) throws IOException {
+
+		if (cause instanceof CSV2LDJError) {
+
+			throw (CSV2LDJError) cause;
+		}
+
+		if (cause instanceof IOException) {
+
+			throw (IOException) cause;
+		}
+
+		if (cause instanceof CSV2SCLDJException) {
+
+			return (CSV2SCLDJException) cause;
+		}
+
+		if (cause instanceof Error) {
+
+			throw (Error) cause;
+		}
+
+		if (cause instanceof RuntimeException) {
+
+			throw (RuntimeException) cause;
+		}
+
+		return new CSV2SCLDJException("something went wrong in a conversion worker", cause);
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.concurrent;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, so that a left-over worker pool never keeps the JVM alive.
+ *
+ * @author tgaengler
+ */
+public final class WorkerThreadFactory implements ThreadFactory {
+
+	private final String namePrefix;
+	private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+	public WorkerThreadFactory(final String namePrefixArg) {
+
+		namePrefix = namePrefixArg;
+	}
+
+	@Override
+	public Thread newThread(final Runnable runnable) {
+
+		final Thread thread = new Thread(runnable, namePrefix + "-" + threadCounter.incrementAndGet());
+		thread.setDaemon(true);
+
+		return thread;
+	}
+}
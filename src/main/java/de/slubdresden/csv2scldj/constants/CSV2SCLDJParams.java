@@ -24,7 +24,62 @@ public final class CSV2SCLDJParams {
 	public static final String SCHEMA_FILE_NAME = "-schema-file-name";
 	public static final String LDJ_OUTPUT_FILE_NAME = "-ldj-output-file-name";
 	public static final String CELL_VALUE_DELIMITER_PARAM = "-cell-value-delimiter";
+	public static final String THREADS_PARAM = "-threads";
+	public static final String BATCH_SIZE_PARAM = "-batch-size";
+	public static final String CSV_PARSER_PARAM = "-csv-parser";
+	public static final String SPLIT_INPUT_PARAM = "-split-input";
+	public static final String SPLIT_SIZE_PARAM = "-split-size";
+	public static final String CHECK_REQUIRED_FIELDS_ON_EMPTY_RECORDS_PARAM = "-check-required-fields-on-empty-records";
+	public static final String COMPRESSION_LEVEL_PARAM = "-compression-level";
+	public static final String COMPRESSION_BLOCK_SIZE_PARAM = "-compression-block-size";
+	public static final String COMPRESSION_THREADS_PARAM = "-compression-threads";
+	public static final String SHARD_RECORDS_PARAM = "-shard-records";
+	public static final String SHARD_BYTES_PARAM = "-shard-bytes";
+	public static final String SHARD_WRITERS_PARAM = "-shard-writers";
+	public static final String ON_ERROR_PARAM = "-on-error";
+	public static final String DEAD_LETTER_FILE_NAME = "-dead-letter-file-name";
+	public static final String ERROR_BUDGET_PARAM = "-error-budget";
+	public static final String CHECKPOINT_INTERVAL_PARAM = "-checkpoint-interval";
+	public static final String RESUME_PARAM = "-resume";
+	public static final String DELTA_STATE_FILE_NAME = "-delta-state-file-name";
+	public static final String DELTA_ID_FIELD_PARAM = "-delta-id-field";
+	public static final String DELTA_DELETED_FILE_NAME = "-delta-deleted-file-name";
+	public static final String CSV_INPUT_DIRECTORY = "-csv-input-directory";
+	public static final String CSV_INPUT_GLOB_PARAM = "-csv-input-glob";
+	public static final String LDJ_OUTPUT_DIRECTORY = "-ldj-output-directory";
+	public static final String LDJ_OUTPUT_FILE_EXTENSION_PARAM = "-ldj-output-file-extension";
+	public static final String BATCH_PARALLELISM_PARAM = "-batch-parallelism";
+	public static final String SERVER_PORT_PARAM = "-server-port";
+	public static final String SERVER_HOST_PARAM = "-server-host";
+	public static final String SERVER_SCHEMA_DIRECTORY = "-server-schema-directory";
+	public static final String SERVER_MAX_CONVERSIONS_PARAM = "-server-max-conversions";
+	public static final String SOLR_UPDATE_URL = "-solr-update-url";
+	public static final String SOLR_BATCH_RECORDS_PARAM = "-solr-batch-records";
+	public static final String SOLR_BATCH_BYTES_PARAM = "-solr-batch-bytes";
+	public static final String SOLR_CONCURRENCY_PARAM = "-solr-concurrency";
+	public static final String SOLR_RETRIES_PARAM = "-solr-retries";
+	public static final String SOLR_COMMIT_PARAM = "-solr-commit";
+	public static final String SOLR_COMMIT_WITHIN_PARAM = "-solr-commit-within";
+	public static final String BULK_ID_FIELD_PARAM = "-bulk-id-field";
+	public static final String BULK_INDEX_PARAM = "-bulk-index";
+	public static final String BULK_CHUNK_BYTES_PARAM = "-bulk-chunk-bytes";
+	public static final String BULK_URL = "-bulk-url";
+	public static final String BULK_CONCURRENCY_PARAM = "-bulk-concurrency";
+	public static final String BULK_RETRIES_PARAM = "-bulk-retries";
+	public static final String OUTPUT_FORMAT_PARAM = "-output-format";
+	public static final String PARQUET_ROW_GROUP_BYTES_PARAM = "-parquet-row-group-bytes";
+	public static final String PARQUET_DICTIONARY_MAX_BYTES_PARAM = "-parquet-dictionary-max-bytes";
+	public static final String PARQUET_COMPRESSION_PARAM = "-parquet-compression";
+	public static final String REVERSE_PARAM = "-reverse";
+	public static final String LDJ_INPUT_FILE_NAME = "-ldj-input-file-name";
+	public static final String CSV_OUTPUT_FILE_NAME = "-csv-output-file-name";
+	public static final String CSV_OUTPUT_COLUMNS_PARAM = "-csv-output-columns";
+	public static final String VALUE_CACHE_SIZE_PARAM = "-value-cache-size";
+	public static final String VALUE_CACHE_DETECTION_PARAM = "-value-cache-detection";
+	public static final String METRICS_LOG_INTERVAL_PARAM = "-metrics-log-interval";
 	public static final String HELP_PARAM = "-help";
 
 	public static final String DEFAULT_CELL_VALUE_DELIMITER_PARAM = "\u001E";
+	public static final String DEFAULT_LDJ_OUTPUT_FILE_EXTENSION_PARAM = ".ldj";
+	public static final String DEFAULT_SERVER_HOST_PARAM = "localhost";
 }
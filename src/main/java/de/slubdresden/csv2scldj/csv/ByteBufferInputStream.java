@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream on the remaining bytes of a byte buffer (e.g. a memory-mapped region of a file).
+ *
+ * @author tgaengler
+ */
+public final class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buffer;
+
+	public ByteBufferInputStream(final ByteBuffer bufferArg) {
+
+		buffer = bufferArg;
+	}
+
+	@Override
+	public int read() {
+
+		if (!buffer.hasRemaining()) {
+
+			return -1;
+		}
+
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] bytes,
+	                final int offset,
+	                final int length) {
+
+		if (length == 0) {
+
+			return 0;
+		}
+
+		final int remaining = buffer.remaining();
+
+		if (remaining == 0) {
+
+			return -1;
+		}
+
+		final int read = Math.min(remaining, length);
+
+		buffer.get(bytes, offset, read);
+
+		return read;
+	}
+
+	@Override
+	public long skip(final long n) {
+
+		final int skipped = (int) Math.max(0, Math.min(buffer.remaining(), n));
+
+		buffer.position(buffer.position() + skipped);
+
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+
+		return buffer.remaining();
+	}
+}
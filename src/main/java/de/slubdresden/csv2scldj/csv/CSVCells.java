@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+/**
+ * A view on the cells of a CSV record. The cell contents are slices of a (possibly shared and reused) char buffer, i.e.,
+ * the cells can be read without creating objects per cell.
+ *
+ * @author tgaengler
+ */
+public interface CSVCells {
+
+	/**
+	 * @return the number of cells of the current record
+	 */
+	int size();
+
+	/**
+	 * @return the buffer that contains the cell contents of the current record
+	 */
+	char[] buffer();
+
+	/**
+	 * @param cellIndex the cell index
+	 * @return the (inclusive) start offset of the cell content in {@link #buffer()}
+	 */
+	int cellStart(final int cellIndex);
+
+	/**
+	 * @param cellIndex the cell index
+	 * @return the (exclusive) end offset of the cell content in {@link #buffer()}
+	 */
+	int cellEnd(final int cellIndex);
+
+	/**
+	 * @return the number of the current record in the CSV input (the header is record 1)
+	 */
+	long recordNumber();
+
+	/**
+	 * creates a string from a cell content (i.e. use it only where allocation doesn't matter, e.g., for header or error
+	 * messages)
+	 *
+	 * @param cellIndex the cell index
+	 * @return the cell content
+	 */
+	default String cell(final int cellIndex) {
+
+		final int cellStart = cellStart(cellIndex);
+
+		return new String(buffer(), cellStart, cellEnd(cellIndex) - cellStart);
+	}
+
+	/**
+	 * @return a human-readable representation of the current record (e.g. for error messages)
+	 */
+	default String describe() {
+
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("record #").append(recordNumber()).append(" [");
+
+		for (int i = 0; i < size(); i++) {
+
+			if (i > 0) {
+
+				sb.append(", ");
+			}
+
+			sb.append(cell(i));
+		}
+
+		return sb.append("]").toString();
+	}
+}
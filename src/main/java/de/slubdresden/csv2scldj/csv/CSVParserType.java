@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * The CSV parsers that can be utilised for reading the CSV input.
+ *
+ * @author tgaengler
+ */
+public enum CSVParserType {
+
+	/**
+	 * the built-in streaming tokenizer (default)
+	 */
+	BUILTIN("builtin"),
+
+	/**
+	 * Apache Commons CSV (fallback)
+	 */
+	COMMONS_CSV("commons-csv");
+
+	private final String name;
+
+	CSVParserType(final String nameArg) {
+
+		name = nameArg;
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	public CSVRecordReader open(final Reader reader) throws IOException {
+
+		switch (this) {
+
+			case COMMONS_CSV:
+
+				return new CommonsCSVRecordReader(reader);
+			case BUILTIN:
+			default:
+
+				return new CSVTokenizer(reader);
+		}
+	}
+
+	public static CSVParserType fromName(final String name) throws CSV2SCLDJException {
+
+		for (final CSVParserType parserType : values()) {
+
+			if (parserType.name.equals(name)) {
+
+				return parserType;
+			}
+		}
+
+		throw new CSV2SCLDJException(String.format("unknown CSV parser '%s', please use either '%s' or '%s'", name, BUILTIN.name, COMMONS_CSV.name));
+	}
+}
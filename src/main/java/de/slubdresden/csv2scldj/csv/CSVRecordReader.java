@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads CSV records one after another. The cells of the current record are only valid until the next call of
+ * {@link #nextRecord()}.
+ *
+ * @author tgaengler
+ */
+public interface CSVRecordReader extends CSVCells, Closeable {
+
+	/**
+	 * moves to the next record
+	 *
+	 * @return true, if a next record is available
+	 * @throws IOException
+	 */
+	boolean nextRecord() throws IOException;
+}
@@ -0,0 +1,542 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A streaming CSV tokenizer that follows exactly the rules of the CSV format that is utilised for the CSV input (see
+ * {@link CommonsCSVRecordReader#CSV_FORMAT}), i.e.,
+ * <ul>
+ * <li>',' as cell delimiter</li>
+ * <li>'"' as quote character (a doubled quote character in a quoted cell is a literal quote character)</li>
+ * <li>'\' as escape character</li>
+ * <li>surrounding spaces of unquoted cells are ignored</li>
+ * <li>CR, LF and CRLF as record separator</li>
+ * </ul>
+ * The input is read into a reusable buffer and the (unescaped) cell contents are collected in a reusable record buffer,
+ * i.e., no objects are created per record or cell.
+ *
+ * @author tgaengler
+ */
+public final class CSVTokenizer implements CSVRecordReader {
+
+	public static final char DELIMITER = ',';
+	public static final char QUOTE_CHAR = '"';
+	public static final char ESCAPE_CHARACTER = '\\';
+
+	private static final char CR = '\r';
+	private static final char LF = '\n';
+	private static final int END_OF_STREAM = -1;
+	private static final int UNDEFINED = -2;
+
+	/**
+	 * the (disabled) comment marker of the CSV format, which counts as meta char when escaped
+	 */
+	private static final char DISABLED_COMMENT_MARKER = '\ufffe';
+
+	private static final int DEFAULT_INPUT_BUFFER_SIZE = 64 * 1024;
+
+	private enum TokenType {
+		TOKEN,
+		EORECORD,
+		EOF
+	}
+
+	private final Reader reader;
+
+	private final char[] input;
+	private int inputPosition;
+	private int inputLimit;
+
+	/**
+	 * the last read char (required for empty line and end of input detection)
+	 */
+	private int lastChar = UNDEFINED;
+
+	private char[] buffer = new char[1024];
+	private int bufferLength;
+
+	/**
+	 * the cell contents are stored one after another in the buffer, i.e., cell i ranges from cellBoundaries[i] to
+	 * cellBoundaries[i + 1]
+	 */
+	private int[] cellBoundaries = new int[65];
+	private int size;
+
+	/**
+	 * true, if the current EOF token carries content
+	 */
+	private boolean tokenReady;
+
+	private long recordNumber;
+
+	public CSVTokenizer(final Reader readerArg) {
+
+		this(readerArg, DEFAULT_INPUT_BUFFER_SIZE);
+	}
+
+	public CSVTokenizer(final Reader readerArg,
+	                    final int inputBufferSize) {
+
+		reader = readerArg;
+		input = new char[inputBufferSize];
+	}
+
+	@Override
+	public boolean nextRecord() throws IOException {
+
+		size = 0;
+		bufferLength = 0;
+		cellBoundaries[0] = 0;
+
+		TokenType tokenType;
+
+		do {
+
+			tokenType = nextToken();
+
+			switch (tokenType) {
+
+				case TOKEN:
+				case EORECORD:
+
+					addCell();
+
+					break;
+				case EOF:
+
+					if (tokenReady) {
+
+						addCell();
+					}
+
+					break;
+			}
+		} while (tokenType == TokenType.TOKEN);
+
+		if (size == 0) {
+
+			return false;
+		}
+
+		recordNumber++;
+
+		return true;
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public char[] buffer() {
+
+		return buffer;
+	}
+
+	@Override
+	public int cellStart(final int cellIndex) {
+
+		return cellBoundaries[cellIndex];
+	}
+
+	@Override
+	public int cellEnd(final int cellIndex) {
+
+		return cellBoundaries[cellIndex + 1];
+	}
+
+	@Override
+	public long recordNumber() {
+
+		return recordNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		reader.close();
+	}
+
+	private void addCell() {
+
+		size++;
+
+		if (cellBoundaries.length <= size) {
+
+			final int[] newCellBoundaries = new int[cellBoundaries.length * 2];
+			System.arraycopy(cellBoundaries, 0, newCellBoundaries, 0, cellBoundaries.length);
+			cellBoundaries = newCellBoundaries;
+		}
+
+		cellBoundaries[size] = bufferLength;
+	}
+
+	private TokenType nextToken() throws IOException {
+
+		tokenReady = false;
+
+		final int previousChar = lastChar;
+
+		int c = read();
+		boolean eol = readEndOfLine(c);
+
+		// did we reach EOF during the last iteration already?
+		if (previousChar == END_OF_STREAM || previousChar != DELIMITER && c == END_OF_STREAM) {
+
+			return TokenType.EOF;
+		}
+
+		// ignore white spaces at the beginning of a token
+		while (!eol && isWhitespace(c)) {
+
+			c = read();
+			eol = readEndOfLine(c);
+		}
+
+		if (c == DELIMITER) {
+
+			// empty token
+			return TokenType.TOKEN;
+		}
+
+		if (eol) {
+
+			// empty token at the end of the record
+			return TokenType.EORECORD;
+		}
+
+		if (c == QUOTE_CHAR) {
+
+			return parseEncapsulatedToken();
+		}
+
+		if (c == END_OF_STREAM) {
+
+			// empty token at the end of the input
+			tokenReady = true;
+
+			return TokenType.EOF;
+		}
+
+		return parseSimpleToken(c);
+	}
+
+	private TokenType parseSimpleToken(int c) throws IOException {
+
+		final int tokenStart = bufferLength;
+
+		final TokenType tokenType;
+
+		while (true) {
+
+			if (readEndOfLine(c)) {
+
+				tokenType = TokenType.EORECORD;
+
+				break;
+			} else if (c == END_OF_STREAM) {
+
+				tokenReady = true;
+				tokenType = TokenType.EOF;
+
+				break;
+			} else if (c == DELIMITER) {
+
+				tokenType = TokenType.TOKEN;
+
+				break;
+			} else if (c == ESCAPE_CHARACTER) {
+
+				appendEscaped(c);
+			} else {
+
+				append((char) c);
+				appendPlainChars(false);
+			}
+
+			c = read();
+		}
+
+		// trim trailing spaces
+		while (bufferLength > tokenStart && Character.isWhitespace(buffer[bufferLength - 1])) {
+
+			bufferLength--;
+		}
+
+		return tokenType;
+	}
+
+	private TokenType parseEncapsulatedToken() throws IOException {
+
+		while (true) {
+
+			final int c = read();
+
+			if (c == ESCAPE_CHARACTER) {
+
+				appendEscaped(c);
+			} else if (c == QUOTE_CHAR) {
+
+				if (lookAhead() == QUOTE_CHAR) {
+
+					// doubled quote character -> literal quote character
+					append((char) read());
+				} else {
+
+					// end of the encapsulated token: ignore white spaces until the next delimiter
+					return finishEncapsulatedToken();
+				}
+			} else if (c == END_OF_STREAM) {
+
+				throw new IOException(String.format("(record %d) EOF reached before encapsulated token finished", recordNumber + 1));
+			} else {
+
+				append((char) c);
+				appendPlainChars(true);
+			}
+		}
+	}
+
+	private TokenType finishEncapsulatedToken() throws IOException {
+
+		while (true) {
+
+			final int c = read();
+
+			if (c == DELIMITER) {
+
+				return TokenType.TOKEN;
+			} else if (c == END_OF_STREAM) {
+
+				tokenReady = true;
+
+				return TokenType.EOF;
+			} else if (readEndOfLine(c)) {
+
+				return TokenType.EORECORD;
+			} else if (!isWhitespace(c)) {
+
+				throw new IOException(String.format("(record %d) invalid char between encapsulated token and delimiter", recordNumber + 1));
+			}
+		}
+	}
+
+	/**
+	 * appends the char after an escape character (resolves \r, \n, \t, \b and \f; keeps the escape character, if the
+	 * escaped char is neither a special nor a meta char)
+	 */
+	private void appendEscaped(final int escapeChar) throws IOException {
+
+		final int c = read();
+
+		switch (c) {
+
+			case 'r':
+
+				append(CR);
+
+				break;
+			case 'n':
+
+				append(LF);
+
+				break;
+			case 't':
+
+				append('\t');
+
+				break;
+			case 'b':
+
+				append('\b');
+
+				break;
+			case 'f':
+
+				append('\f');
+
+				break;
+			case CR:
+			case LF:
+			case '\f':
+			case '\t':
+			case '\b':
+			case DELIMITER:
+			case QUOTE_CHAR:
+			case ESCAPE_CHARACTER:
+			case DISABLED_COMMENT_MARKER:
+
+				append((char) c);
+
+				break;
+			case END_OF_STREAM:
+
+				throw new IOException("EOF whilst processing escape sequence");
+			default:
+
+				append((char) escapeChar);
+				append((char) c);
+		}
+	}
+
+	/**
+	 * bulk copies the following chars of the input buffer that need no special treatment (fast path)
+	 *
+	 * @param encapsulated true, if the chars belong to an encapsulated token, i.e., delimiters and line breaks are
+	 *                     plain chars as well
+	 */
+	private void appendPlainChars(final boolean encapsulated) {
+
+		final int start = inputPosition;
+		int position = start;
+
+		if (encapsulated) {
+
+			while (position < inputLimit) {
+
+				final char c = input[position];
+
+				if (c == QUOTE_CHAR || c == ESCAPE_CHARACTER) {
+
+					break;
+				}
+
+				position++;
+			}
+		} else {
+
+			while (position < inputLimit) {
+
+				final char c = input[position];
+
+				if (c == DELIMITER || c == LF || c == CR || c == ESCAPE_CHARACTER) {
+
+					break;
+				}
+
+				position++;
+			}
+		}
+
+		final int length = position - start;
+
+		if (length == 0) {
+
+			return;
+		}
+
+		ensureBufferCapacity(length);
+
+		System.arraycopy(input, start, buffer, bufferLength, length);
+
+		bufferLength += length;
+		inputPosition = position;
+		lastChar = input[position - 1];
+	}
+
+	private void append(final char c) {
+
+		ensureBufferCapacity(1);
+
+		buffer[bufferLength++] = c;
+	}
+
+	private void ensureBufferCapacity(final int additionalLength) {
+
+		final int requiredLength = bufferLength + additionalLength;
+
+		if (requiredLength <= buffer.length) {
+
+			return;
+		}
+
+		final char[] newBuffer = new char[Math.max(buffer.length * 2, requiredLength)];
+		System.arraycopy(buffer, 0, newBuffer, 0, bufferLength);
+		buffer = newBuffer;
+	}
+
+	private boolean isWhitespace(final int c) {
+
+		return c != DELIMITER && Character.isWhitespace((char) c);
+	}
+
+	/**
+	 * returns true, if the given char is a line break; a CR that is followed by a LF swallows the LF
+	 */
+	private boolean readEndOfLine(final int c) throws IOException {
+
+		if (c == CR && lookAhead() == LF) {
+
+			read();
+
+			return true;
+		}
+
+		return c == LF || c == CR;
+	}
+
+	private int read() throws IOException {
+
+		if (inputPosition >= inputLimit && !fill()) {
+
+			lastChar = END_OF_STREAM;
+
+			return END_OF_STREAM;
+		}
+
+		lastChar = input[inputPosition++];
+
+		return lastChar;
+	}
+
+	private int lookAhead() throws IOException {
+
+		if (inputPosition >= inputLimit && !fill()) {
+
+			return END_OF_STREAM;
+		}
+
+		return input[inputPosition];
+	}
+
+	private boolean fill() throws IOException {
+
+		int read;
+
+		do {
+
+			read = reader.read(input, 0, input.length);
+		} while (read == 0);
+
+		if (read < 0) {
+
+			inputPosition = 0;
+			inputLimit = 0;
+
+			return false;
+		}
+
+		inputPosition = 0;
+		inputLimit = read;
+
+		return true;
+	}
+}
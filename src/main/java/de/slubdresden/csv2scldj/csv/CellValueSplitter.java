@@ -0,0 +1,241 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+/**
+ * Splits cell contents (i.e. slices of a char buffer) at a literal cell value delimiter, i.e., without regular
+ * expressions and without creating objects per value.
+ * <p>
+ * The delimiter is compiled once. Backslash escapes in the given delimiter are resolved when compiling it (e.g.
+ * '\/\(\)' becomes '/()', '\|' becomes '|' and '\t' becomes a tab; a backslash followed by 'x' or 'u' and hex digits
+ * becomes the respective char), so that delimiters that were escaped for the former regular expression based splitting keep
+ * working. Everything else is taken literally, i.e., '|' or '.' are plain delimiters as well.
+ *
+ * @author tgaengler
+ */
+public final class CellValueSplitter {
+
+	private static final char ESCAPE_CHARACTER = '\\';
+	private static final String QUOTE_START = "\\Q";
+	private static final String QUOTE_END = "\\E";
+
+	private final char[] delimiter;
+
+	private final char firstDelimiterChar;
+
+	private CellValueSplitter(final char[] delimiterArg) {
+
+		delimiter = delimiterArg;
+		firstDelimiterChar = delimiterArg[0];
+	}
+
+	/**
+	 * compiles the given cell value delimiter
+	 *
+	 * @param cellValueDelimiter the cell value delimiter (backslash escapes will be resolved)
+	 * @return the cell value splitter for the delimiter
+	 */
+	public static CellValueSplitter compile(final String cellValueDelimiter) {
+
+		if (cellValueDelimiter == null || cellValueDelimiter.isEmpty()) {
+
+			throw new IllegalArgumentException("the cell value delimiter must not be empty");
+		}
+
+		final String delimiter = unescape(cellValueDelimiter);
+
+		if (delimiter.isEmpty()) {
+
+			throw new IllegalArgumentException(String.format("the cell value delimiter '%s' must not be empty", cellValueDelimiter));
+		}
+
+		return new CellValueSplitter(delimiter.toCharArray());
+	}
+
+	/**
+	 * @return the (literal) delimiter
+	 */
+	public String getDelimiter() {
+
+		return new String(delimiter);
+	}
+
+	/**
+	 * @return the length of the (literal) delimiter
+	 */
+	public int length() {
+
+		return delimiter.length;
+	}
+
+	/**
+	 * returns the start offset of the next delimiter occurrence in the given range or -1, if there is none
+	 *
+	 * @param buffer the buffer
+	 * @param from   the (inclusive) start offset of the range
+	 * @param end    the (exclusive) end offset of the range
+	 * @return the start offset of the next delimiter occurrence or -1
+	 */
+	public int indexOf(final char[] buffer,
+	                   final int from,
+	                   final int end) {
+
+		final int lastStart = end - delimiter.length;
+
+		for (int i = from; i <= lastStart; i++) {
+
+			if (buffer[i] == firstDelimiterChar && matchesAt(buffer, i, 1)) {
+
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * returns true, if the given range contains more than one value, i.e., if there are non-empty contents after the
+	 * first delimiter occurrence (same as {@code String#split(String).length > 1})
+	 *
+	 * @param buffer the buffer
+	 * @param start  the (inclusive) start offset of the range
+	 * @param end    the (exclusive) end offset of the range
+	 * @return true, if the range contains more than one value
+	 */
+	public boolean containsMultipleValues(final char[] buffer,
+	                                      final int start,
+	                                      final int end) {
+
+		final int firstDelimiter = indexOf(buffer, start, end);
+
+		if (firstDelimiter < 0) {
+
+			return false;
+		}
+
+		int position = firstDelimiter + delimiter.length;
+
+		// trailing delimiters only produce (ignored) empty values
+		while (position + delimiter.length <= end && matchesAt(buffer, position, 0)) {
+
+			position += delimiter.length;
+		}
+
+		return position < end;
+	}
+
+	private boolean matchesAt(final char[] buffer,
+	                          final int position,
+	                          final int fromDelimiterIndex) {
+
+		for (int j = fromDelimiterIndex; j < delimiter.length; j++) {
+
+			if (buffer[position + j] != delimiter[j]) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static String unescape(final String cellValueDelimiter) {
+
+		if (cellValueDelimiter.startsWith(QUOTE_START) && cellValueDelimiter.endsWith(QUOTE_END) && cellValueDelimiter.length() >= 4) {
+
+			return cellValueDelimiter.substring(QUOTE_START.length(), cellValueDelimiter.length() - QUOTE_END.length());
+		}
+
+		final StringBuilder sb = new StringBuilder(cellValueDelimiter.length());
+
+		for (int i = 0; i < cellValueDelimiter.length(); i++) {
+
+			final char c = cellValueDelimiter.charAt(i);
+
+			if (c != ESCAPE_CHARACTER || i + 1 == cellValueDelimiter.length()) {
+
+				sb.append(c);
+
+				continue;
+			}
+
+			final char escapedChar = cellValueDelimiter.charAt(++i);
+
+			switch (escapedChar) {
+
+				case 't':
+
+					sb.append('\t');
+
+					break;
+				case 'n':
+
+					sb.append('\n');
+
+					break;
+				case 'r':
+
+					sb.append('\r');
+
+					break;
+				case 'f':
+
+					sb.append('\f');
+
+					break;
+				case 'u':
+
+					i = appendHexChar(cellValueDelimiter, i, 4, sb);
+
+					break;
+				case 'x':
+
+					i = appendHexChar(cellValueDelimiter, i, 2, sb);
+
+					break;
+				default:
+
+					sb.append(escapedChar);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private static int appendHexChar(final String cellValueDelimiter,
+	                                 final int escapedCharIndex,
+	                                 final int digits,
+	                                 final StringBuilder sb) {
+
+		final int hexStart = escapedCharIndex + 1;
+		final int hexEnd = hexStart + digits;
+
+		if (hexEnd > cellValueDelimiter.length()) {
+
+			throw new IllegalArgumentException(String.format("invalid hex escape in cell value delimiter '%s'", cellValueDelimiter));
+		}
+
+		try {
+
+			sb.append((char) Integer.parseInt(cellValueDelimiter.substring(hexStart, hexEnd), 16));
+		} catch (final NumberFormatException e) {
+
+			throw new IllegalArgumentException(String.format("invalid hex escape in cell value delimiter '%s'", cellValueDelimiter), e);
+		}
+
+		return hexEnd - 1;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Reads CSV records with help of Apache Commons CSV, i.e., this is the fallback of the built-in {@link CSVTokenizer}.
+ *
+ * @author tgaengler
+ */
+public final class CommonsCSVRecordReader implements CSVRecordReader {
+
+	public static final CSVFormat CSV_FORMAT = CSVFormat.newFormat(CSVTokenizer.DELIMITER)
+			.withQuote(CSVTokenizer.QUOTE_CHAR)
+			.withEscape(CSVTokenizer.ESCAPE_CHARACTER)
+			.withIgnoreSurroundingSpaces();
+
+	private final CSVParser csvParser;
+	private final Iterator<CSVRecord> iterator;
+
+	private char[] buffer = new char[1024];
+	private int[] cellBoundaries = new int[65];
+	private int size;
+	private long recordNumber;
+
+	public CommonsCSVRecordReader(final Reader reader) throws IOException {
+
+		csvParser = CSVParser.parse(reader, CSV_FORMAT);
+		iterator = csvParser.iterator();
+	}
+
+	@Override
+	public boolean nextRecord() {
+
+		if (!iterator.hasNext()) {
+
+			return false;
+		}
+
+		final CSVRecord csvRecord = iterator.next();
+
+		recordNumber = csvRecord.getRecordNumber();
+		size = csvRecord.size();
+
+		if (cellBoundaries.length < size + 1) {
+
+			cellBoundaries = new int[size + 1];
+		}
+
+		int length = 0;
+
+		for (int i = 0; i < size; i++) {
+
+			final String cell = csvRecord.get(i);
+			final int cellLength = cell.length();
+
+			if (buffer.length < length + cellLength) {
+
+				final char[] newBuffer = new char[Math.max(buffer.length * 2, length + cellLength)];
+				System.arraycopy(buffer, 0, newBuffer, 0, length);
+				buffer = newBuffer;
+			}
+
+			cell.getChars(0, cellLength, buffer, length);
+
+			cellBoundaries[i] = length;
+			length += cellLength;
+		}
+
+		cellBoundaries[size] = length;
+
+		return true;
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public char[] buffer() {
+
+		return buffer;
+	}
+
+	@Override
+	public int cellStart(final int cellIndex) {
+
+		return cellBoundaries[cellIndex];
+	}
+
+	@Override
+	public int cellEnd(final int cellIndex) {
+
+		return cellBoundaries[cellIndex + 1];
+	}
+
+	@Override
+	public long recordNumber() {
+
+		return recordNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		csvParser.close();
+	}
+}
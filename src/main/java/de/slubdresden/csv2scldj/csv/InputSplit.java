@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+/**
+ * A byte range of a CSV input file that starts at the beginning of a record and ends at the end of a record.
+ *
+ * @author tgaengler
+ */
+public final class InputSplit {
+
+	private final int index;
+
+	private final long start;
+
+	private final long end;
+
+	public InputSplit(final int indexArg,
+	                  final long startArg,
+	                  final long endArg) {
+
+		index = indexArg;
+		start = startArg;
+		end = endArg;
+	}
+
+	/**
+	 * @return the position of this split in the sequence of splits of the input file
+	 */
+	public int getIndex() {
+
+		return index;
+	}
+
+	/**
+	 * @return the (inclusive) start offset in bytes
+	 */
+	public long getStart() {
+
+		return start;
+	}
+
+	/**
+	 * @return the (exclusive) end offset in bytes
+	 */
+	public long getEnd() {
+
+		return end;
+	}
+
+	public long getLength() {
+
+		return end - start;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("input split #%d [%d, %d)", index, start, end);
+	}
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cuts a (UTF-8 encoded) CSV input file into byte ranges that start and end at record boundaries, so that the ranges
+ * can be parsed independently (e.g. by several worker threads). The file is accessed via memory-mapping.
+ * <p>
+ * To find real record ends, the splitter scans the file with a (byte-level) state machine that follows the quoting and
+ * escaping rules of the {@link CSVTokenizer}, i.e., line breaks in quoted cells (e.g. in titles) or escaped line breaks
+ * are not treated as record ends. Scanning for record ends is much cheaper than parsing, i.e., the scan is done
+ * sequentially while the splits are parsed in parallel.
+ *
+ * @author tgaengler
+ */
+public final class MappedInputSplitter implements Closeable {
+
+	private static final int LF = '\n';
+	private static final int CR = '\r';
+	private static final int DELIMITER = CSVTokenizer.DELIMITER;
+	private static final int QUOTE_CHAR = CSVTokenizer.QUOTE_CHAR;
+	private static final int ESCAPE_CHARACTER = CSVTokenizer.ESCAPE_CHARACTER;
+
+	private static final int CELL_START = 0;
+	private static final int SIMPLE = 1;
+	private static final int QUOTED = 2;
+	private static final int AFTER_QUOTE = 3;
+
+	private static final long SCAN_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	/**
+	 * the scan windows overlap a bit, so that look-aheads never cross a window boundary
+	 */
+	private static final long SCAN_WINDOW_OVERLAP = 8;
+
+	private final FileChannel channel;
+	private final long size;
+
+	private MappedByteBuffer scanWindow;
+	private long scanWindowStart;
+	private long scanWindowEnd;
+
+	private long position;
+	private int splitIndex;
+
+	public MappedInputSplitter(final Path csvInputFile) throws IOException {
+
+		channel = FileChannel.open(csvInputFile, StandardOpenOption.READ);
+		size = channel.size();
+	}
+
+	/**
+	 * @return the size of the input file in bytes
+	 */
+	public long size() {
+
+		return size;
+	}
+
+	/**
+	 * @return the start offset of the next split
+	 */
+	public long position() {
+
+		return position;
+	}
+
+	/**
+	 * continues cutting splits at the given offset, e.g., at the input offset of a checkpoint
+	 *
+	 * @param positionArg the offset, which must be a record boundary (e.g. the end of a split)
+	 */
+	public void seek(final long positionArg) {
+
+		if (positionArg < position || positionArg > size) {
+
+			throw new IllegalArgumentException(String.format("cannot seek to byte %d, it must be between %d and %d", positionArg, position, size));
+		}
+
+		position = positionArg;
+	}
+
+	/**
+	 * cuts the next split, i.e., the split ends at the first record end at or after the given target size
+	 *
+	 * @param targetSize the targeted size of the split in bytes (0 = cut after the first record)
+	 * @return the next split or null, if the end of the file has been reached
+	 * @throws IOException
+	 */
+	public InputSplit nextSplit(final long targetSize) throws IOException {
+
+		if (position >= size) {
+
+			return null;
+		}
+
+		final long splitStart = position;
+		final long splitEnd = scanToRecordEnd(splitStart, splitStart + targetSize);
+
+		position = splitEnd;
+
+		return new InputSplit(splitIndex++, splitStart, splitEnd);
+	}
+
+	/**
+	 * opens a reader on the given split
+	 *
+	 * @param split the split that should be read
+	 * @return a (UTF-8 decoding) reader on the memory-mapped split
+	 * @throws IOException
+	 */
+	public Reader openReader(final InputSplit split) throws IOException {
+
+		if (split.getLength() > Integer.MAX_VALUE) {
+
+			throw new IOException(String.format("%s is too large to be memory-mapped, please choose a smaller split size", split));
+		}
+
+		final MappedByteBuffer splitBuffer = channel.map(FileChannel.MapMode.READ_ONLY, split.getStart(), split.getLength());
+
+		return new InputStreamReader(new ByteBufferInputStream(splitBuffer), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		scanWindow = null;
+		channel.close();
+	}
+
+	private long scanToRecordEnd(final long start,
+	                             final long target) throws IOException {
+
+		long pos = start;
+		int state = CELL_START;
+
+		while (pos < size) {
+
+			final int b = byteAt(pos);
+
+			switch (state) {
+
+				case CELL_START:
+				case AFTER_QUOTE:
+
+					if (b == LF || b == CR) {
+
+						pos = skipLineBreak(pos, b);
+
+						if (pos >= target) {
+
+							return pos;
+						}
+
+						state = CELL_START;
+					} else if (b == DELIMITER) {
+
+						pos++;
+						state = CELL_START;
+					} else {
+
+						final int whitespaceLength = whitespaceLength(pos, b);
+
+						if (whitespaceLength > 0) {
+
+							pos += whitespaceLength;
+						} else if (state == AFTER_QUOTE) {
+
+							throw new IOException(String.format("(byte %d) invalid char between encapsulated token and delimiter", pos));
+						} else if (b == QUOTE_CHAR) {
+
+							pos++;
+							state = QUOTED;
+						} else if (b == ESCAPE_CHARACTER) {
+
+							pos += 2;
+							state = SIMPLE;
+						} else {
+
+							pos++;
+							state = SIMPLE;
+						}
+					}
+
+					break;
+				case SIMPLE:
+
+					if (b == LF || b == CR) {
+
+						pos = skipLineBreak(pos, b);
+
+						if (pos >= target) {
+
+							return pos;
+						}
+
+						state = CELL_START;
+					} else if (b == DELIMITER) {
+
+						pos++;
+						state = CELL_START;
+					} else if (b == ESCAPE_CHARACTER) {
+
+						pos += 2;
+					} else {
+
+						pos++;
+					}
+
+					break;
+				case QUOTED:
+				default:
+
+					if (b == QUOTE_CHAR) {
+
+						if (pos + 1 < size && byteAt(pos + 1) == QUOTE_CHAR) {
+
+							// doubled quote character
+							pos += 2;
+						} else {
+
+							pos++;
+							state = AFTER_QUOTE;
+						}
+					} else if (b == ESCAPE_CHARACTER) {
+
+						pos += 2;
+					} else {
+
+						pos++;
+					}
+			}
+		}
+
+		if (state == QUOTED) {
+
+			throw new IOException(String.format("(byte %d) EOF reached before encapsulated token finished", size));
+		}
+
+		return size;
+	}
+
+	private long skipLineBreak(final long pos,
+	                           final int b) throws IOException {
+
+		if (b == CR && pos + 1 < size && byteAt(pos + 1) == LF) {
+
+			return pos + 2;
+		}
+
+		return pos + 1;
+	}
+
+	/**
+	 * returns the length in bytes of the (UTF-8 encoded) white space char at the given position (same as
+	 * {@link CSVTokenizer}) or 0, if there is no white space char
+	 */
+	private int whitespaceLength(final long pos,
+	                             final int b) throws IOException {
+
+		if (b < 0x80) {
+
+			return b != DELIMITER && Character.isWhitespace((char) b) ? 1 : 0;
+		}
+
+		// all non-ASCII white space chars are encoded with 3 bytes
+		if ((b & 0xF0) != 0xE0 || pos + 2 >= size) {
+
+			return 0;
+		}
+
+		final int c = ((b & 0x0F) << 12) | ((byteAt(pos + 1) & 0x3F) << 6) | (byteAt(pos + 2) & 0x3F);
+
+		return Character.isWhitespace((char) c) ? 3 : 0;
+	}
+
+	private int byteAt(final long pos) throws IOException {
+
+		if (pos < scanWindowStart || pos >= scanWindowEnd) {
+
+			mapScanWindow(pos);
+		}
+
+		return scanWindow.get((int) (pos - scanWindowStart)) & 0xFF;
+	}
+
+	private void mapScanWindow(final long pos) throws IOException {
+
+		final long length = Math.min(SCAN_WINDOW_SIZE + SCAN_WINDOW_OVERLAP, size - pos);
+
+		scanWindow = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+		scanWindowStart = pos;
+		scanWindowEnd = pos + length;
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.csv;
+
+/**
+ * A batch of (copied) CSV records, e.g., for handing over records to a worker thread. The batch is a view on one of
+ * its records at a time (see {@link #select(int)}), i.e., it should only be read by one thread at a time.
+ *
+ * @author tgaengler
+ */
+public final class RecordBatch implements CSVCells {
+
+	private char[] buffer;
+	private int bufferLength;
+
+	/**
+	 * the cell boundaries of all records, i.e., cell j of record i ranges from cellBoundaries[firstCells[i] + j] to
+	 * cellBoundaries[firstCells[i] + j + 1]
+	 */
+	private int[] cellBoundaries;
+	private int cellCount;
+
+	private int[] firstCells;
+	private long[] recordNumbers;
+	private int recordCount;
+
+	private int selectedRecord;
+
+	public RecordBatch(final int capacityArg) {
+
+		final int capacity = Math.max(1, capacityArg);
+
+		buffer = new char[capacity * 256];
+		cellBoundaries = new int[capacity * 32 + 1];
+		firstCells = new int[capacity + 1];
+		recordNumbers = new long[capacity];
+	}
+
+	/**
+	 * copies the current record of the given cells to the end of this batch
+	 *
+	 * @param cells the record to add
+	 */
+	public void add(final CSVCells cells) {
+
+		final int size = cells.size();
+
+		ensureRecordCapacity();
+		ensureCellCapacity(size);
+
+		final char[] cellsBuffer = cells.buffer();
+
+		for (int i = 0; i < size; i++) {
+
+			final int cellStart = cells.cellStart(i);
+			final int cellLength = cells.cellEnd(i) - cellStart;
+
+			ensureBufferCapacity(cellLength);
+
+			System.arraycopy(cellsBuffer, cellStart, buffer, bufferLength, cellLength);
+
+			cellBoundaries[cellCount++] = bufferLength;
+			bufferLength += cellLength;
+		}
+
+		// the end of the last cell is the start of the cell boundaries of the next record
+		cellBoundaries[cellCount] = bufferLength;
+
+		recordNumbers[recordCount] = cells.recordNumber();
+		firstCells[++recordCount] = cellCount;
+	}
+
+	/**
+	 * @return the number of records of this batch
+	 */
+	public int recordCount() {
+
+		return recordCount;
+	}
+
+	/**
+	 * selects the record that should be viewed by this batch
+	 *
+	 * @param recordIndex the index of the record in this batch
+	 */
+	public void select(final int recordIndex) {
+
+		selectedRecord = recordIndex;
+	}
+
+	@Override
+	public int size() {
+
+		return firstCells[selectedRecord + 1] - firstCells[selectedRecord];
+	}
+
+	@Override
+	public char[] buffer() {
+
+		return buffer;
+	}
+
+	@Override
+	public int cellStart(final int cellIndex) {
+
+		return cellBoundaries[firstCells[selectedRecord] + cellIndex];
+	}
+
+	@Override
+	public int cellEnd(final int cellIndex) {
+
+		return cellBoundaries[firstCells[selectedRecord] + cellIndex + 1];
+	}
+
+	@Override
+	public long recordNumber() {
+
+		return recordNumbers[selectedRecord];
+	}
+
+	private void ensureRecordCapacity() {
+
+		if (recordCount < recordNumbers.length) {
+
+			return;
+		}
+
+		final int newCapacity = recordNumbers.length * 2;
+
+		final long[] newRecordNumbers = new long[newCapacity];
+		System.arraycopy(recordNumbers, 0, newRecordNumbers, 0, recordCount);
+		recordNumbers = newRecordNumbers;
+
+		final int[] newFirstCells = new int[newCapacity + 1];
+		System.arraycopy(firstCells, 0, newFirstCells, 0, recordCount + 1);
+		firstCells = newFirstCells;
+	}
+
+	private void ensureCellCapacity(final int size) {
+
+		final int requiredLength = cellCount + size + 1;
+
+		if (requiredLength <= cellBoundaries.length) {
+
+			return;
+		}
+
+		final int[] newCellBoundaries = new int[Math.max(cellBoundaries.length * 2, requiredLength)];
+		System.arraycopy(cellBoundaries, 0, newCellBoundaries, 0, cellCount + 1);
+		cellBoundaries = newCellBoundaries;
+	}
+
+	private void ensureBufferCapacity(final int additionalLength) {
+
+		final int requiredLength = bufferLength + additionalLength;
+
+		if (requiredLength <= buffer.length) {
+
+			return;
+		}
+
+		final char[] newBuffer = new char[Math.max(buffer.length * 2, requiredLength)];
+		System.arraycopy(buffer, 0, newBuffer, 0, bufferLength);
+		buffer = newBuffer;
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.delta;
+
+/**
+ * A fast, non-cryptographic 64-bit hash of char sequences (with the round and avalanche functions of xxHash64), which
+ * processes four chars per round. It is used for fingerprinting record IDs and record contents, i.e., for ~30 million
+ * records the probability of an ID collision is in the order of 10^-5.
+ *
+ * @author tgaengler
+ */
+final class DeltaHash {
+
+	private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME_3 = 0x165667B19E3779F9L;
+	private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+	static final long ID_SEED = 0x6964L;
+	static final long CONTENT_SEED = 0x636F6E74656E74L;
+
+	private DeltaHash() {
+
+	}
+
+	/**
+	 * @param buffer the buffer that contains the chars
+	 * @param start  the start offset of the chars
+	 * @param end    the end offset of the chars
+	 * @param seed   the seed (e.g. the hash of the preceding chars for hashing several cells)
+	 * @return the hash of the chars
+	 */
+	static long hash(final char[] buffer,
+	                 final int start,
+	                 final int end,
+	                 final long seed) {
+
+		long h = seed + PRIME_5 + (end - start);
+
+		int i = start;
+
+		for (; i + 4 <= end; i += 4) {
+
+			final long k = buffer[i]
+					| (long) buffer[i + 1] << 16
+					| (long) buffer[i + 2] << 32
+					| (long) buffer[i + 3] << 48;
+
+			h ^= round(k);
+			h = Long.rotateLeft(h, 27) * PRIME_1 + PRIME_4;
+		}
+
+		for (; i < end; i++) {
+
+			h ^= buffer[i] * PRIME_5;
+			h = Long.rotateLeft(h, 11) * PRIME_1;
+		}
+
+		return avalanche(h);
+	}
+
+	private static long round(final long k) {
+
+		return Long.rotateLeft(k * PRIME_2, 31) * PRIME_1;
+	}
+
+	private static long avalanche(final long hash) {
+
+		long h = hash;
+
+		h ^= h >>> 33;
+		h *= PRIME_2;
+		h ^= h >>> 29;
+		h *= PRIME_3;
+		h ^= h >>> 32;
+
+		return h;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.delta;
+
+import java.nio.charset.StandardCharsets;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.csv.CSVCells;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+
+/**
+ * The (thread-confined) delta state of the current record, i.e., the fingerprints of its ID and content and its entry
+ * in the delta state of the previous run.
+ *
+ * @author tgaengler
+ */
+public final class DeltaKey {
+
+	private final DeltaState deltaState;
+
+	private long idHash;
+	private long contentHash;
+	private byte[] id;
+	private long previousEntry;
+
+	/**
+	 * true, if the current record has been fingerprinted, but not committed or retained yet
+	 */
+	private boolean pending;
+
+	DeltaKey(final DeltaState deltaStateArg) {
+
+		deltaState = deltaStateArg;
+	}
+
+	/**
+	 * fingerprints the given record and looks it up in the delta state of the previous run
+	 *
+	 * @param csvInputRecord the record
+	 * @param columnPlan     the column plan (the content of its columns is fingerprinted)
+	 * @return true, if the record is unchanged since the previous run (records are always changed, if the conversion
+	 * fingerprint differs from the one of the previous run)
+	 */
+	public boolean compute(final CSVCells csvInputRecord,
+	                       final ColumnPlan columnPlan) {
+
+		final char[] buffer = csvInputRecord.buffer();
+		final int idColumn = deltaState.getIdColumn();
+		final int idStart = csvInputRecord.cellStart(idColumn);
+		final int idEnd = csvInputRecord.cellEnd(idColumn);
+
+		final String idValue = new String(buffer, idStart, idEnd - idStart);
+
+		if (idValue.trim().isEmpty()) {
+
+			throw CSV2LDJError.wrap(new CSV2SCLDJException(String.format("%s has no value in the delta ID field '%s'", csvInputRecord.describe(), deltaState.getIdField())));
+		}
+
+		long hash = DeltaHash.CONTENT_SEED;
+
+		for (int column = 0; column < columnPlan.size(); column++) {
+
+			final int columnIndex = columnPlan.getColumnIndex(column);
+
+			hash = DeltaHash.hash(buffer, csvInputRecord.cellStart(columnIndex), csvInputRecord.cellEnd(columnIndex), hash);
+		}
+
+		idHash = DeltaHash.hash(buffer, idStart, idEnd, DeltaHash.ID_SEED);
+		contentHash = hash;
+		id = idValue.getBytes(StandardCharsets.UTF_8);
+		previousEntry = deltaState.find(idHash);
+		pending = true;
+
+		return previousEntry >= 0 && !deltaState.isConversionChanged() && deltaState.getPreviousContentHash(previousEntry) == contentHash;
+	}
+
+	/**
+	 * adds the current record to the delta state of this run (i.e. it is not treated as deleted); records are committed
+	 * only after they have been converted successfully (or if they are unchanged; see {@link #retain()} for rejected
+	 * records)
+	 */
+	public void commit() {
+
+		pending = false;
+
+		if (previousEntry >= 0) {
+
+			deltaState.markSeen(previousEntry);
+		}
+
+		deltaState.add(idHash, contentHash, id);
+	}
+
+	/**
+	 * keeps the entry of the previous run of the current record, if the record has been rejected (after it has been
+	 * fingerprinted), i.e., its ID is not treated as deleted and its previous content fingerprint is carried over to
+	 * the delta state of this run (the record is written, as soon as it can be converted; if the conversion fingerprint
+	 * differs from the one of the previous run, the record is kept as changed)
+	 */
+	public void retain() {
+
+		if (!pending) {
+
+			return;
+		}
+
+		pending = false;
+
+		if (previousEntry < 0) {
+
+			return;
+		}
+
+		deltaState.markSeen(previousEntry);
+		deltaState.add(idHash, deltaState.isConversionChanged() ? ~contentHash : deltaState.getPreviousContentHash(previousEntry), id);
+	}
+}
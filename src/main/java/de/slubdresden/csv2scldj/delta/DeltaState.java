@@ -0,0 +1,535 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.vavr.collection.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.model.ColumnPlan;
+import de.slubdresden.csv2scldj.model.Field;
+
+/**
+ * The delta state of an incremental conversion, i.e., a compact on-disk map from record ID fingerprint to record
+ * content fingerprint of the previous run and the collector of the delta state of this run.
+ * <p>
+ * The delta state file consists of a header (magic number, version, number of entries, ID field, conversion
+ * fingerprint), the index (entries
+ * of ID fingerprint and content fingerprint, sorted by ID fingerprint; of an ID that occurs more than once in a run,
+ * only the last entry is kept) and the IDs (length-prefixed UTF-8, in index
+ * order; they are only read for listing the deleted IDs). The index of the previous run is memory-mapped and searched
+ * binarily, i.e., it costs no heap besides one bit per entry for marking the seen IDs.
+ * <p>
+ * The conversion fingerprint covers everything besides the cell contents that determines the output of a record, i.e.,
+ * the column plan (the fields of the schema, their definitions and their columns in the CSV input header) and the cell
+ * value delimiter. If it differs from the one of the previous run, all records are treated as changed.
+ * <p>
+ * The entries of this run are distributed to bucket files (by the high byte of their ID fingerprint), which are sorted
+ * one by one at the end, i.e., only a single bucket needs to fit into the heap.
+ *
+ * @author tgaengler
+ */
+public final class DeltaState implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DeltaState.class);
+
+	private static final long MAGIC = 0x4353564C444A4454L;
+	private static final int VERSION = 2;
+
+	/**
+	 * the offset of the number of entries in the header
+	 */
+	private static final long COUNT_OFFSET = Long.BYTES + Integer.BYTES;
+
+	private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+	private static final int BUCKETS = 256;
+	private static final int BUCKET_SHIFT = Long.SIZE - 8;
+
+	private final Path stateFile;
+	private final String idField;
+	private final Path deletedIdsFile;
+
+	private final FileChannel previousChannel;
+	private final MappedByteBuffer previousIndex;
+	private final long previousCount;
+	private final long previousConversionHash;
+	private final long previousIdsOffset;
+	private final AtomicLongArray seen;
+
+	private final Path bucketDirectory;
+	private final DataOutputStream[] buckets = new DataOutputStream[BUCKETS];
+	private final int[] bucketCounts = new int[BUCKETS];
+
+	private volatile int idColumn = -1;
+	private volatile long conversionHash;
+	private volatile boolean conversionChanged;
+
+	private DeltaState(final Path stateFileArg,
+	                   final String idFieldArg,
+	                   final Path deletedIdsFileArg) throws IOException, CSV2SCLDJException {
+
+		stateFile = stateFileArg.toAbsolutePath();
+		idField = idFieldArg;
+		deletedIdsFile = deletedIdsFileArg;
+
+		if (Files.exists(stateFile)) {
+
+			previousChannel = FileChannel.open(stateFile, StandardOpenOption.READ);
+
+			final DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(previousChannel)));
+
+			if (header.readLong() != MAGIC || header.readInt() != VERSION) {
+
+				previousChannel.close();
+
+				throw new CSV2SCLDJException(String.format("'%s' is not a delta state file (of this version)", stateFile));
+			}
+
+			previousCount = header.readLong();
+
+			final byte[] previousIdField = new byte[header.readInt()];
+
+			header.readFully(previousIdField);
+
+			if (!idField.equals(new String(previousIdField, StandardCharsets.UTF_8))) {
+
+				previousChannel.close();
+
+				throw new CSV2SCLDJException(String.format("the delta state file '%s' is keyed on the ID field '%s', but the ID field is '%s'", stateFile, new String(previousIdField, StandardCharsets.UTF_8), idField));
+			}
+
+			previousConversionHash = header.readLong();
+
+			final long indexOffset = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + previousIdField.length + Long.BYTES;
+			final long indexSize = previousCount * INDEX_ENTRY_SIZE;
+
+			if (indexSize > Integer.MAX_VALUE) {
+
+				previousChannel.close();
+
+				throw new CSV2SCLDJException(String.format("the index of the delta state file '%s' is too large to be memory-mapped (%d entries)", stateFile, previousCount));
+			}
+
+			previousIndex = previousChannel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexSize);
+			previousIdsOffset = indexOffset + indexSize;
+			seen = new AtomicLongArray((int) ((previousCount + Long.SIZE - 1) / Long.SIZE));
+
+			LOG.info("read delta state of the previous run with '{}' records from '{}'", previousCount, stateFile);
+		} else {
+
+			previousChannel = null;
+			previousIndex = null;
+			previousCount = 0;
+			previousConversionHash = 0;
+			previousIdsOffset = 0;
+			seen = new AtomicLongArray(0);
+
+			LOG.info("there is no delta state of a previous run at '{}', i.e., all records are new", stateFile);
+		}
+
+		bucketDirectory = Files.createTempDirectory(stateFile.getParent(), stateFile.getFileName() + ".");
+
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+
+			buckets[bucket] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(bucketFile(bucket)), 8192));
+		}
+	}
+
+	/**
+	 * @param stateFile      the delta state file (of the previous run, if it exists; it is replaced by the delta state
+	 *                       of this run at {@link #complete()})
+	 * @param idField        the name of the (singlevalued) field that identifies the records
+	 * @param deletedIdsFile the file for the IDs of the records of the previous run, which do not occur anymore
+	 * @return the delta state
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static DeltaState open(final Path stateFile,
+	                              final String idField,
+	                              final Path deletedIdsFile) throws IOException, CSV2SCLDJException {
+
+		return new DeltaState(stateFile, idField, deletedIdsFile);
+	}
+
+	/**
+	 * resolves the ID column of the CSV input and compares the conversion fingerprint with the one of the previous run
+	 *
+	 * @param csvInputHeaderMap  the CSV input header
+	 * @param fieldMap           the fields of the CSV input header
+	 * @param columnPlan         the column plan
+	 * @param cellValueDelimiter the cell value delimiter
+	 * @throws CSV2SCLDJException
+	 */
+	public void bind(final Map<String, Integer> csvInputHeaderMap,
+	                 final Map<String, Field> fieldMap,
+	                 final ColumnPlan columnPlan,
+	                 final String cellValueDelimiter) throws CSV2SCLDJException {
+
+		if (!csvInputHeaderMap.containsKey(idField)) {
+
+			throw new CSV2SCLDJException(String.format("the delta ID field '%s' is not contained in the CSV input header", idField));
+		}
+
+		if (Boolean.TRUE.equals(fieldMap.get(idField).get().isMultivalued())) {
+
+			throw new CSV2SCLDJException(String.format("the delta ID field '%s' must not be multivalued", idField));
+		}
+
+		idColumn = csvInputHeaderMap.get(idField).get();
+		conversionHash = conversionHash(columnPlan, cellValueDelimiter);
+		conversionChanged = previousChannel != null && previousConversionHash != conversionHash;
+
+		if (conversionChanged) {
+
+			LOG.info("the schema, the CSV input header or the cell value delimiter differ from the ones of the previous run, i.e., all records are treated as changed");
+		}
+	}
+
+	/**
+	 * @return a new (thread-confined) key for fingerprinting records
+	 */
+	public DeltaKey newKey() {
+
+		return new DeltaKey(this);
+	}
+
+	/**
+	 * writes the IDs of the deleted records and replaces the delta state file by the delta state of this run
+	 *
+	 * @return the number of deleted records
+	 * @throws IOException
+	 */
+	public long complete() throws IOException {
+
+		for (final DataOutputStream bucket : buckets) {
+
+			bucket.close();
+		}
+
+		final long deleted = writeDeletedIds();
+
+		writeState();
+
+		return deleted;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		for (final DataOutputStream bucket : buckets) {
+
+			bucket.close();
+		}
+
+		if (previousChannel != null) {
+
+			previousChannel.close();
+		}
+
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+
+			Files.deleteIfExists(bucketFile(bucket));
+		}
+
+		Files.deleteIfExists(bucketDirectory.resolve("ids"));
+		Files.deleteIfExists(bucketDirectory);
+	}
+
+	String getIdField() {
+
+		return idField;
+	}
+
+	int getIdColumn() {
+
+		return idColumn;
+	}
+
+	/**
+	 * @return true, if the conversion fingerprint differs from the one of the previous run, i.e., the content
+	 * fingerprints of the previous run cannot be compared
+	 */
+	boolean isConversionChanged() {
+
+		return conversionChanged;
+	}
+
+	/**
+	 * @param idHash the ID fingerprint
+	 * @return the entry of the ID in the delta state of the previous run or -1
+	 */
+	long find(final long idHash) {
+
+		long low = 0;
+		long high = previousCount - 1;
+
+		while (low <= high) {
+
+			final long middle = (low + high) >>> 1;
+			final int comparison = Long.compareUnsigned(previousIndex.getLong((int) (middle * INDEX_ENTRY_SIZE)), idHash);
+
+			if (comparison < 0) {
+
+				low = middle + 1;
+			} else if (comparison > 0) {
+
+				high = middle - 1;
+			} else {
+
+				return middle;
+			}
+		}
+
+		return -1;
+	}
+
+	long getPreviousContentHash(final long entry) {
+
+		return previousIndex.getLong((int) (entry * INDEX_ENTRY_SIZE + Long.BYTES));
+	}
+
+	void markSeen(final long entry) {
+
+		final int word = (int) (entry >>> 6);
+		final long bit = 1L << entry;
+
+		long current;
+
+		while (((current = seen.get(word)) & bit) == 0 && !seen.compareAndSet(word, current, current | bit)) {
+
+			// retry
+		}
+	}
+
+	void add(final long idHash,
+	         final long contentHash,
+	         final byte[] id) {
+
+		final int bucket = (int) (idHash >>> BUCKET_SHIFT);
+
+		synchronized (buckets[bucket]) {
+
+			try {
+
+				final DataOutputStream bucketOutput = buckets[bucket];
+
+				bucketOutput.writeLong(idHash);
+				bucketOutput.writeLong(contentHash);
+				bucketOutput.writeInt(id.length);
+				bucketOutput.write(id);
+
+				bucketCounts[bucket]++;
+			} catch (final IOException e) {
+
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private long writeDeletedIds() throws IOException {
+
+		long deleted = 0;
+
+		try (final OutputStream deletedIdsOutput = new BufferedOutputStream(Files.newOutputStream(deletedIdsFile))) {
+
+			if (previousChannel == null) {
+
+				return 0;
+			}
+
+			previousChannel.position(previousIdsOffset);
+
+			final DataInputStream ids = new DataInputStream(new BufferedInputStream(Channels.newInputStream(previousChannel)));
+
+			for (long entry = 0; entry < previousCount; entry++) {
+
+				final byte[] id = new byte[ids.readInt()];
+
+				ids.readFully(id);
+
+				if ((seen.get((int) (entry >>> 6)) & 1L << entry) == 0) {
+
+					deletedIdsOutput.write(id);
+					deletedIdsOutput.write('\n');
+
+					deleted++;
+				}
+			}
+		}
+
+		return deleted;
+	}
+
+	private void writeState() throws IOException {
+
+		final byte[] idFieldBytes = idField.getBytes(StandardCharsets.UTF_8);
+		final Path tempStateFile = bucketDirectory.resolve("state");
+		final Path idsFile = bucketDirectory.resolve("ids");
+
+		long count = 0;
+
+		try (final DataOutputStream index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempStateFile)));
+		     final DataOutputStream ids = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(idsFile)))) {
+
+			index.writeLong(MAGIC);
+			index.writeInt(VERSION);
+			// the number of entries is known after the duplicate IDs have been dropped
+			index.writeLong(0L);
+			index.writeInt(idFieldBytes.length);
+			index.write(idFieldBytes);
+			index.writeLong(conversionHash);
+
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+
+				count += writeBucket(bucket, index, ids);
+			}
+		}
+
+		try (final FileChannel stateChannel = FileChannel.open(tempStateFile, StandardOpenOption.WRITE);
+		     final FileChannel idsChannel = FileChannel.open(idsFile, StandardOpenOption.READ)) {
+
+			final ByteBuffer countBuffer = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+
+			stateChannel.write(countBuffer, COUNT_OFFSET);
+			stateChannel.position(stateChannel.size());
+
+			long transferred = 0;
+
+			while (transferred < idsChannel.size()) {
+
+				transferred += idsChannel.transferTo(transferred, idsChannel.size() - transferred, stateChannel);
+			}
+
+			stateChannel.force(false);
+		}
+
+		Files.move(tempStateFile, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		LOG.info("wrote delta state with '{}' records to '{}'", count, stateFile);
+	}
+
+	/**
+	 * sorts the entries of a bucket by ID fingerprint and writes them to the index and the IDs of the delta state; of the
+	 * entries of an ID that occurs more than once, only the last one is written (i.e. the entries of an ID are unique)
+	 *
+	 * @return the number of written entries
+	 */
+	private int writeBucket(final int bucket,
+	                         final DataOutputStream index,
+	                         final DataOutputStream ids) throws IOException {
+
+		final int count = bucketCounts[bucket];
+		final long[] idHashes = new long[count];
+		final long[] contentHashes = new long[count];
+		final byte[][] bucketIds = new byte[count][];
+
+		try (final DataInputStream bucketInput = new DataInputStream(new BufferedInputStream(Files.newInputStream(bucketFile(bucket))))) {
+
+			for (int i = 0; i < count; i++) {
+
+				idHashes[i] = bucketInput.readLong();
+				contentHashes[i] = bucketInput.readLong();
+				bucketIds[i] = new byte[bucketInput.readInt()];
+				bucketInput.readFully(bucketIds[i]);
+			}
+		}
+
+		final Integer[] order = new Integer[count];
+
+		for (int i = 0; i < count; i++) {
+
+			order[i] = i;
+		}
+
+		// the sort is stable, i.e., the entries of an ID stay in the order they were added
+		Arrays.sort(order, (a, b) -> Long.compareUnsigned(idHashes[a], idHashes[b]));
+
+		int written = 0;
+
+		for (int position = 0; position < count; position++) {
+
+			final int i = order[position];
+
+			if (position + 1 < count && idHashes[order[position + 1]] == idHashes[i]) {
+
+				LOG.warn("the ID '{}' occurs more than once, i.e., only its last record is kept in the delta state", new String(bucketIds[i], StandardCharsets.UTF_8));
+
+				continue;
+			}
+
+			index.writeLong(idHashes[i]);
+			index.writeLong(contentHashes[i]);
+			ids.writeInt(bucketIds[i].length);
+			ids.write(bucketIds[i]);
+
+			written++;
+		}
+
+		Files.delete(bucketFile(bucket));
+
+		return written;
+	}
+
+	/**
+	 * @return the fingerprint of the column plan (field names, field definitions and CSV input columns, in plan order)
+	 * and the cell value delimiter
+	 */
+	private static long conversionHash(final ColumnPlan columnPlan,
+	                                   final String cellValueDelimiter) {
+
+		final StringBuilder conversion = new StringBuilder(cellValueDelimiter)
+				.append('\u0000').append(columnPlan.getRecordSize());
+
+		for (int column = 0; column < columnPlan.size(); column++) {
+
+			conversion.append('\u0000').append(columnPlan.getFieldName(column))
+					.append('\u0000').append(columnPlan.getColumnIndex(column))
+					.append('\u0000').append(columnPlan.isMultivalued(column))
+					.append('\u0000').append(columnPlan.getType(column))
+					.append('\u0000').append(columnPlan.getRequiredBit(column) >= 0);
+		}
+
+		final char[] chars = conversion.toString().toCharArray();
+
+		return DeltaHash.hash(chars, 0, chars.length, DeltaHash.CONTENT_SEED);
+	}
+
+	private Path bucketFile(final int bucket) {
+
+		return bucketDirectory.resolve(String.format("bucket-%03d", bucket));
+	}
+}
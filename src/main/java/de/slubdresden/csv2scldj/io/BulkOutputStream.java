@@ -0,0 +1,232 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An output stream for the Elasticsearch/OpenSearch bulk format (i.e. action line plus document per record) that posts
+ * the records in chunks of a maximum size to a bulk endpoint (e.g. 'http://localhost:9200/_bulk'), i.e., the records
+ * are indexed, while the conversion is running. Chunks are always cut at record ends (i.e. after every second line);
+ * several chunks are posted at once (see {@link HttpBatchSender}). A chunk, whose response reports errors of single
+ * records, fails the output.
+ *
+ * @author tgaengler
+ */
+public final class BulkOutputStream extends OutputStream {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BulkOutputStream.class);
+
+	public static final long DEFAULT_CHUNK_BYTES = 10L * 1024 * 1024;
+
+	private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+	private static final int LINES_PER_RECORD = 2;
+	private static final int INITIAL_CHUNK_CAPACITY = 64 * 1024;
+	private static final int MAX_MESSAGE_LENGTH = 1000;
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final URL bulkURL;
+	private final long maxBytes;
+	private final HttpBatchSender sender;
+
+	private byte[] chunk = new byte[INITIAL_CHUNK_CAPACITY];
+	private int chunkLength;
+	private int recordLines;
+
+	/**
+	 * the length of the chunk at the end of its last complete record
+	 */
+	private int recordsLength;
+
+	private long chunks;
+	private boolean closed;
+
+	/**
+	 * @param bulkURLArg  the URL of the bulk endpoint
+	 * @param maxBytesArg the maximum number of bytes of a chunk; a chunk can exceed it by its last record
+	 * @param senderArg   the sender of the chunks (it is closed by this stream)
+	 */
+	public BulkOutputStream(final URL bulkURLArg,
+	                        final long maxBytesArg,
+	                        final HttpBatchSender senderArg) {
+
+		if (maxBytesArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the maximum number of bytes per chunk must be at least 1, but was '%d'", maxBytesArg));
+		}
+
+		bulkURL = bulkURLArg;
+		maxBytes = maxBytesArg;
+		sender = senderArg;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] bytes,
+	                  final int offset,
+	                  final int length) throws IOException {
+
+		final int end = offset + length;
+
+		int chunkStart = offset;
+
+		for (int position = offset; position < end; position++) {
+
+			if (bytes[position] != '\n' || ++recordLines < LINES_PER_RECORD) {
+
+				continue;
+			}
+
+			// a record ends here
+			append(bytes, chunkStart, position + 1 - chunkStart);
+
+			chunkStart = position + 1;
+			recordLines = 0;
+			recordsLength = chunkLength;
+
+			if (chunkLength >= maxBytes) {
+
+				submitChunk();
+			}
+		}
+
+		append(bytes, chunkStart, end - chunkStart);
+	}
+
+	/**
+	 * posts the last chunk and waits, until all chunks are posted
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+
+			return;
+		}
+
+		closed = true;
+
+		try {
+
+			if (chunkLength > recordsLength) {
+
+				// the bulk API requires a line break at the end of the last line
+				if (chunk[chunkLength - 1] != '\n') {
+
+					append(new byte[]{'\n'}, 0, 1);
+				}
+			}
+
+			if (chunkLength > 0) {
+
+				submitChunk();
+			}
+
+			sender.awaitCompletion();
+
+			LOG.info("posted '{}' chunks to bulk endpoint '{}'", chunks, bulkURL);
+		} finally {
+
+			sender.close();
+		}
+	}
+
+	private void append(final byte[] bytes,
+	                    final int offset,
+	                    final int length) {
+
+		if (length == 0) {
+
+			return;
+		}
+
+		if (chunkLength + length > chunk.length) {
+
+			chunk = Arrays.copyOf(chunk, Math.max(chunkLength + length, chunk.length * 2));
+		}
+
+		System.arraycopy(bytes, offset, chunk, chunkLength, length);
+
+		chunkLength += length;
+	}
+
+	private void submitChunk() throws IOException {
+
+		sender.send(bulkURL, NDJSON_CONTENT_TYPE, chunk, chunkLength, BulkOutputStream::checkResponse);
+
+		chunks++;
+
+		// the chunk is sent asynchronously, i.e., it cannot be reused (but its capacity fits to the next chunk)
+		chunk = new byte[chunk.length];
+		chunkLength = 0;
+		recordsLength = 0;
+	}
+
+	/**
+	 * the bulk API answers with status 200, even if single records failed; this is reported by the top-level field
+	 * 'errors' of the response
+	 */
+	private static void checkResponse(final String responseBody) throws IOException {
+
+		try (final JsonParser parser = FACTORY.createParser(responseBody)) {
+
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+
+				throw new IOException(String.format("the bulk response is not a JSON object: %s", abbreviate(responseBody)));
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+				final String fieldName = parser.getCurrentName();
+				final JsonToken value = parser.nextToken();
+
+				if ("errors".equals(fieldName)) {
+
+					if (value == JsonToken.VALUE_TRUE) {
+
+						throw new IOException(String.format("some records of a bulk request failed: %s", abbreviate(responseBody)));
+					}
+
+					return;
+				}
+
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static String abbreviate(final String message) {
+
+		return message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) + "..." : message;
+	}
+}
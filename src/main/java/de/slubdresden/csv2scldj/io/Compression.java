@@ -0,0 +1,278 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * The supported compression formats of CSV input and line-delimited JSON output files. Both formats allow to
+ * concatenate independently compressed blocks (gzip members or zstd frames), i.e., the output can be compressed in
+ * parallel (see {@link ParallelCompressingOutputStream}). zstd is provided by the (native) zstd-jni library, which is
+ * only loaded, when zstd is utilised.
+ *
+ * @author tgaengler
+ */
+public enum Compression {
+
+	NONE("", new byte[0], 0, 0, 0),
+
+	GZIP(".gz", new byte[]{(byte) 0x1F, (byte) 0x8B}, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION, 6),
+
+	ZSTD(".zst", new byte[]{(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD}, 1, 22, 3);
+
+	private static final int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
+	private static final int MAGIC_BYTES_LENGTH = 4;
+
+	private final String fileExtension;
+	private final byte[] magicBytes;
+	private final int minLevel;
+	private final int maxLevel;
+	private final int defaultLevel;
+
+	Compression(final String fileExtensionArg,
+	            final byte[] magicBytesArg,
+	            final int minLevelArg,
+	            final int maxLevelArg,
+	            final int defaultLevelArg) {
+
+		fileExtension = fileExtensionArg;
+		magicBytes = magicBytesArg;
+		minLevel = minLevelArg;
+		maxLevel = maxLevelArg;
+		defaultLevel = defaultLevelArg;
+	}
+
+	public String getFileExtension() {
+
+		return fileExtension;
+	}
+
+	public int getDefaultLevel() {
+
+		return defaultLevel;
+	}
+
+	/**
+	 * @param fileName a file name
+	 * @return the compression format that belongs to the extension of the given file name (e.g. '.gz')
+	 */
+	public static Compression fromFileName(final String fileName) {
+
+		for (final Compression compression : values()) {
+
+			if (compression != NONE && fileName.endsWith(compression.fileExtension)) {
+
+				return compression;
+			}
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * detects the compression format of the given file from its first bytes (magic bytes); falls back to the file
+	 * extension, if the file is too short
+	 *
+	 * @param file a file
+	 * @return the compression format of the file
+	 * @throws IOException
+	 */
+	public static Compression detect(final Path file) throws IOException {
+
+		try (final InputStream inputStream = new BufferedInputStream(Files.newInputStream(file), MAGIC_BYTES_LENGTH)) {
+
+			final Compression compression = detect(inputStream);
+
+			if (compression == NONE && Files.size(file) < MAGIC_BYTES_LENGTH) {
+
+				return fromFileName(file.getFileName().toString());
+			}
+
+			return compression;
+		}
+	}
+
+	/**
+	 * detects the compression format of the given stream from its first bytes (magic bytes), i.e., the stream is reset
+	 * afterwards
+	 *
+	 * @param inputStream a stream that supports mark and reset
+	 * @return the compression format of the stream
+	 * @throws IOException
+	 */
+	public static Compression detect(final InputStream inputStream) throws IOException {
+
+		final byte[] header = new byte[MAGIC_BYTES_LENGTH];
+
+		int headerLength = 0;
+
+		inputStream.mark(MAGIC_BYTES_LENGTH);
+
+		for (int read; headerLength < header.length && (read = inputStream.read(header, headerLength, header.length - headerLength)) >= 0; ) {
+
+			headerLength += read;
+		}
+
+		inputStream.reset();
+
+		for (final Compression compression : values()) {
+
+			if (compression != NONE && compression.matches(header, headerLength)) {
+
+				return compression;
+			}
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * @param inputStream a stream with data in this compression format
+	 * @return a stream with the decompressed data
+	 * @throws IOException
+	 */
+	public InputStream decompress(final InputStream inputStream) throws IOException {
+
+		switch (this) {
+
+			case GZIP:
+
+				// note: reads concatenated gzip members as well
+				return new BufferedInputStream(new GZIPInputStream(inputStream, DECOMPRESSION_BUFFER_SIZE), DECOMPRESSION_BUFFER_SIZE);
+			case ZSTD:
+
+				return new BufferedInputStream(new ZstdInputStream(inputStream), DECOMPRESSION_BUFFER_SIZE);
+			default:
+
+				return inputStream;
+		}
+	}
+
+	/**
+	 * @param outputStream the stream for the compressed data
+	 * @param level        the compression level
+	 * @return a stream that compresses (sequentially) the written data into this compression format
+	 * @throws IOException
+	 */
+	public OutputStream compress(final OutputStream outputStream,
+	                             final int level) throws IOException {
+
+		switch (this) {
+
+			case GZIP:
+
+				return new LevelGZIPOutputStream(outputStream, level);
+			case ZSTD:
+
+				return new ZstdOutputStream(outputStream, level);
+			default:
+
+				return outputStream;
+		}
+	}
+
+	/**
+	 * compresses the given block into a self-contained gzip member or zstd frame
+	 *
+	 * @param block  the buffer with the block
+	 * @param length the length of the block
+	 * @param level  the compression level
+	 * @return the compressed block
+	 * @throws IOException
+	 */
+	public byte[] compressBlock(final byte[] block,
+	                            final int length,
+	                            final int level) throws IOException {
+
+		switch (this) {
+
+			case GZIP:
+
+				final ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream(length / 2 + 64);
+
+				try (final LevelGZIPOutputStream gzipOutputStream = new LevelGZIPOutputStream(compressedBlock, level)) {
+
+					gzipOutputStream.write(block, 0, length);
+				}
+
+				return compressedBlock.toByteArray();
+			case ZSTD:
+
+				final byte[] input = length == block.length ? block : Arrays.copyOf(block, length);
+
+				return Zstd.compress(input, level);
+			default:
+
+				return Arrays.copyOf(block, length);
+		}
+	}
+
+	/**
+	 * @param level a compression level
+	 * @throws IllegalArgumentException if the level is out of the range of this compression format
+	 */
+	public void checkLevel(final int level) {
+
+		if (level < minLevel || level > maxLevel) {
+
+			throw new IllegalArgumentException(String.format("the compression level of '%s' must be between %d and %d, but was '%d'", name().toLowerCase(), minLevel, maxLevel, level));
+		}
+	}
+
+	private boolean matches(final byte[] header,
+	                        final int headerLength) {
+
+		if (headerLength < magicBytes.length) {
+
+			return false;
+		}
+
+		for (int i = 0; i < magicBytes.length; i++) {
+
+			if (header[i] != magicBytes[i]) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+
+		private LevelGZIPOutputStream(final OutputStream outputStream,
+		                              final int level) throws IOException {
+
+			super(outputStream);
+
+			def.setLevel(level);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+
+/**
+ * An input stream that counts the read bytes as input bytes of a conversion, i.e., the input byte position (e.g. of a
+ * compressed file) that the progress is based on.
+ *
+ * @author tgaengler
+ */
+public final class CountingInputStream extends FilterInputStream {
+
+	private final ConversionMetrics metrics;
+
+	public CountingInputStream(final InputStream inputStream,
+	                           final ConversionMetrics metricsArg) {
+
+		super(inputStream);
+
+		metrics = metricsArg;
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		final int b = in.read();
+
+		if (b >= 0) {
+
+			metrics.addBytesIn(1);
+		}
+
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] bytes,
+	                final int offset,
+	                final int length) throws IOException {
+
+		final int read = in.read(bytes, offset, length);
+
+		if (read > 0) {
+
+			metrics.addBytesIn(read);
+		}
+
+		return read;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+
+		final long skipped = in.skip(n);
+
+		metrics.addBytesIn(skipped);
+
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+
+		// the counted bytes cannot be reset
+		return false;
+	}
+}
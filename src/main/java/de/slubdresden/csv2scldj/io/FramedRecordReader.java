@@ -0,0 +1,145 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.slubdresden.csv2scldj.OutputFormat;
+
+/**
+ * Reads the records of a binary output format (see {@link OutputFormat#isFramed()}), i.e., a sequence of frames (length
+ * (4 bytes, big-endian) plus a self-contained document of records). The records can be read as trees (see
+ * {@link #nextRecord()}) or streamed via the parser of the current frame (see {@link #nextFrame()}).
+ *
+ * @author tgaengler
+ */
+public final class FramedRecordReader implements Closeable {
+
+	private final DataInputStream inputStream;
+
+	private final ObjectMapper mapper;
+
+	private JsonParser frameParser;
+
+	/**
+	 * @param inputStreamArg the input stream of the frames (it is closed by this reader)
+	 * @param outputFormat   the (binary) format of the records
+	 */
+	public FramedRecordReader(final InputStream inputStreamArg,
+	                          final OutputFormat outputFormat) {
+
+		if (!outputFormat.isFramed()) {
+
+			throw new IllegalArgumentException(String.format("the output format '%s' is not framed", outputFormat.getName()));
+		}
+
+		inputStream = new DataInputStream(new BufferedInputStream(inputStreamArg));
+		mapper = new ObjectMapper(outputFormat.newFactory());
+	}
+
+	/**
+	 * reads the next frame
+	 *
+	 * @return a parser for the records of the next frame (i.e. a sequence of root-level objects) or null, if there are
+	 * no more frames
+	 * @throws IOException
+	 */
+	public JsonParser nextFrame() throws IOException {
+
+		closeFrame();
+
+		final int frameLength;
+
+		try {
+
+			frameLength = inputStream.readInt();
+		} catch (final EOFException e) {
+
+			return null;
+		}
+
+		if (frameLength < 0) {
+
+			throw new IOException(String.format("invalid frame length '%d'", frameLength));
+		}
+
+		final byte[] frame = new byte[frameLength];
+
+		inputStream.readFully(frame);
+
+		frameParser = mapper.getFactory().createParser(frame);
+
+		return frameParser;
+	}
+
+	/**
+	 * @return the next record or null, if there are no more records
+	 * @throws IOException
+	 */
+	public JsonNode nextRecord() throws IOException {
+
+		while (true) {
+
+			if (frameParser != null) {
+
+				final JsonToken token = frameParser.nextToken();
+
+				if (token != null) {
+
+					if (token != JsonToken.START_OBJECT) {
+
+						throw new IOException(String.format("expected a record object, but found '%s'", token));
+					}
+
+					return mapper.readTree(frameParser);
+				}
+			}
+
+			if (nextFrame() == null) {
+
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		closeFrame();
+
+		inputStream.close();
+	}
+
+	private void closeFrame() throws IOException {
+
+		if (frameParser != null) {
+
+			frameParser.close();
+
+			frameParser = null;
+		}
+	}
+}
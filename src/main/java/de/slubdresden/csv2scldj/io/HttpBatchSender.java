@@ -0,0 +1,345 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+
+/**
+ * Posts request bodies (e.g. batches of records) to HTTP endpoints by several sender threads at once. The number of
+ * requests in flight is bounded, i.e., {@link #send(URL, String, byte[], int)} blocks, when all senders are busy. Failed
+ * requests (i.e. I/O errors and the statuses 429 and 5xx) are retried with exponential backoff; once a request failed
+ * finally, all further calls fail.
+ *
+ * @author tgaengler
+ */
+public final class HttpBatchSender implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HttpBatchSender.class);
+
+	public static final int DEFAULT_CONCURRENCY = 4;
+	public static final int DEFAULT_MAX_RETRIES = 5;
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 500L;
+
+	private static final long MAX_BACKOFF_MILLIS = 30000L;
+	private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+	private static final int READ_TIMEOUT_MILLIS = 300000;
+	private static final int MAX_MESSAGE_LENGTH = 1000;
+	private static final int TOO_MANY_REQUESTS = 429;
+
+	/**
+	 * checks the response of a successful (2xx) request, e.g., for errors of single records
+	 */
+	@FunctionalInterface
+	public interface ResponseChecker {
+
+		void check(final String responseBody) throws IOException;
+	}
+
+	private final int concurrency;
+	private final int maxRetries;
+	private final long initialBackoffMillis;
+
+	private final ExecutorService executor;
+	private final Semaphore requestsInFlight;
+	private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+	/**
+	 * @param threadNamePrefix        the name prefix of the sender threads
+	 * @param concurrencyArg          the maximum number of requests in flight
+	 * @param maxRetriesArg           the maximum number of retries of a request
+	 * @param initialBackoffMillisArg the backoff before the first retry; it is doubled for each further retry
+	 */
+	public HttpBatchSender(final String threadNamePrefix,
+	                       final int concurrencyArg,
+	                       final int maxRetriesArg,
+	                       final long initialBackoffMillisArg) {
+
+		if (concurrencyArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the number of requests in flight must be at least 1, but was '%d'", concurrencyArg));
+		}
+
+		if (maxRetriesArg < 0) {
+
+			throw new IllegalArgumentException(String.format("the number of retries must not be negative, but was '%d'", maxRetriesArg));
+		}
+
+		concurrency = concurrencyArg;
+		maxRetries = maxRetriesArg;
+		initialBackoffMillis = initialBackoffMillisArg;
+		executor = Executors.newFixedThreadPool(concurrencyArg, new WorkerThreadFactory(threadNamePrefix));
+		requestsInFlight = new Semaphore(concurrencyArg);
+	}
+
+	/**
+	 * posts the given body asynchronously; blocks, while the maximum number of requests is in flight
+	 *
+	 * @param url         the URL
+	 * @param contentType the content type of the body
+	 * @param body        the body (it must not be modified afterwards)
+	 * @param length      the length of the body
+	 * @throws IOException if a previous request failed
+	 */
+	public void send(final URL url,
+	                 final String contentType,
+	                 final byte[] body,
+	                 final int length) throws IOException {
+
+		send(url, contentType, body, length, responseBody -> {
+		});
+	}
+
+	/**
+	 * posts the given body asynchronously; blocks, while the maximum number of requests is in flight
+	 *
+	 * @param url             the URL
+	 * @param contentType     the content type of the body
+	 * @param body            the body (it must not be modified afterwards)
+	 * @param length          the length of the body
+	 * @param responseChecker checks the response body of a successful request (its errors are not retried)
+	 * @throws IOException if a previous request failed
+	 */
+	public void send(final URL url,
+	                 final String contentType,
+	                 final byte[] body,
+	                 final int length,
+	                 final ResponseChecker responseChecker) throws IOException {
+
+		checkFailure();
+
+		try {
+
+			requestsInFlight.acquire();
+		} catch (final InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("got interrupted while waiting for a sender");
+		}
+
+		executor.execute(() -> {
+
+			try {
+
+				if (failure.get() == null) {
+
+					responseChecker.check(post(url, contentType, body, length));
+				}
+			} catch (final IOException e) {
+
+				failure.compareAndSet(null, e);
+			} catch (final RuntimeException e) {
+
+				failure.compareAndSet(null, new IOException(e));
+			} finally {
+
+				requestsInFlight.release();
+			}
+		});
+	}
+
+	/**
+	 * waits, until all requests are complete
+	 *
+	 * @throws IOException if a request failed
+	 */
+	public void awaitCompletion() throws IOException {
+
+		try {
+
+			requestsInFlight.acquire(concurrency);
+		} catch (final InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("got interrupted while waiting for the senders");
+		}
+
+		requestsInFlight.release(concurrency);
+
+		checkFailure();
+	}
+
+	@Override
+	public void close() {
+
+		executor.shutdownNow();
+	}
+
+	private void checkFailure() throws IOException {
+
+		final IOException cause = failure.get();
+
+		if (cause != null) {
+
+			throw new IOException("something went wrong at sending a request", cause);
+		}
+	}
+
+	/**
+	 * posts the given body (incl. retries)
+	 *
+	 * @return the response body
+	 */
+	private String post(final URL url,
+	                    final String contentType,
+	                    final byte[] body,
+	                    final int length) throws IOException {
+
+		long backoffMillis = initialBackoffMillis;
+
+		for (int attempt = 0; ; attempt++) {
+
+			final Response response;
+
+			try {
+
+				response = exchange(url, contentType, body, length);
+			} catch (final IOException e) {
+
+				if (attempt >= maxRetries) {
+
+					throw e;
+				}
+
+				LOG.warn("POST of '{}' bytes to '{}' failed (attempt {} of {}); will retry in '{}' ms", length, url, attempt + 1, maxRetries + 1, backoffMillis, e);
+
+				backoffMillis = backoff(backoffMillis);
+
+				continue;
+			}
+
+			if (response.status < HttpURLConnection.HTTP_MULT_CHOICE) {
+
+				return response.body;
+			}
+
+			final boolean retryable = response.status == TOO_MANY_REQUESTS || response.status >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+
+			if (!retryable || attempt >= maxRetries) {
+
+				throw new IOException(String.format("POST of '%d' bytes to '%s' failed with status '%d': %s", length, url, response.status, abbreviate(response.body)));
+			}
+
+			LOG.warn("POST of '{}' bytes to '{}' failed with status '{}' (attempt {} of {}); will retry in '{}' ms", length, url, response.status, attempt + 1, maxRetries + 1, backoffMillis);
+
+			backoffMillis = backoff(backoffMillis);
+		}
+	}
+
+	private static Response exchange(final URL url,
+	                                 final String contentType,
+	                                 final byte[] body,
+	                                 final int length) throws IOException {
+
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", contentType);
+		connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+		connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(length);
+
+		try (final OutputStream outputStream = connection.getOutputStream()) {
+
+			outputStream.write(body, 0, length);
+		}
+
+		final int status = connection.getResponseCode();
+
+		return new Response(status, readResponse(status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream()));
+	}
+
+	/**
+	 * sleeps for the given backoff (with jitter, so that concurrent senders do not retry in lockstep)
+	 *
+	 * @return the next backoff
+	 */
+	private static long backoff(final long backoffMillis) throws InterruptedIOException {
+
+		try {
+
+			Thread.sleep(backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1));
+		} catch (final InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("got interrupted while backing off");
+		}
+
+		return Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+	}
+
+	private static String readResponse(final InputStream inputStream) throws IOException {
+
+		if (inputStream == null) {
+
+			return "";
+		}
+
+		final ByteArrayOutputStream response = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+
+		try (final InputStream in = inputStream) {
+
+			int read;
+
+			while ((read = in.read(buffer)) != -1) {
+
+				response.write(buffer, 0, read);
+			}
+		}
+
+		return new String(response.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String abbreviate(final String message) {
+
+		return message.length() <= MAX_MESSAGE_LENGTH ? message : message.substring(0, MAX_MESSAGE_LENGTH) + "...";
+	}
+
+	private static final class Response {
+
+		private final int status;
+		private final String body;
+
+		private Response(final int statusArg,
+		                 final String bodyArg) {
+
+			status = statusArg;
+			body = bodyArg;
+		}
+	}
+}
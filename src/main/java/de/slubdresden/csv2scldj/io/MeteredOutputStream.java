@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.metrics.Stage;
+
+/**
+ * An output stream that counts the written bytes and tracks the latency of each write (see {@link Stage#WRITE}). It is
+ * intended to be wrapped by a buffered stream, i.e., a write is a block of output.
+ *
+ * @author tgaengler
+ */
+public final class MeteredOutputStream extends FilterOutputStream {
+
+	private final ConversionMetrics metrics;
+
+	public MeteredOutputStream(final OutputStream outputStream,
+	                           final ConversionMetrics metricsArg) {
+
+		super(outputStream);
+
+		metrics = metricsArg;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		out.write(b);
+
+		metrics.addBytesOut(1);
+	}
+
+	@Override
+	public void write(final byte[] bytes,
+	                  final int offset,
+	                  final int length) throws IOException {
+
+		final long start = System.nanoTime();
+
+		out.write(bytes, offset, length);
+
+		metrics.recordLatency(Stage.WRITE, System.nanoTime() - start);
+		metrics.addBytesOut(length);
+	}
+}
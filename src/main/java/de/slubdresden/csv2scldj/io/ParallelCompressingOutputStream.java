@@ -0,0 +1,208 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.concurrent.OrderedTaskQueue;
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+
+/**
+ * An output stream that cuts the written data into blocks of a fixed size, compresses them independently by several
+ * threads (in the style of pigz) and writes the compressed blocks in order to the underlying output stream. The
+ * result is a valid multi-member gzip file or multi-frame zstd file.
+ *
+ * @author tgaengler
+ */
+public final class ParallelCompressingOutputStream extends OutputStream {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+
+	private final OutputStream outputStream;
+	private final Compression compression;
+	private final int level;
+	private final int blockSize;
+
+	private final ExecutorService executor;
+	private final OrderedTaskQueue<byte[]> blockQueue;
+
+	/**
+	 * the block buffers that can be reused
+	 */
+	private final Queue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+
+	private byte[] block;
+	private int blockLength;
+	private boolean closed;
+
+	/**
+	 * @param outputStreamArg the output stream for the compressed data
+	 * @param compressionArg  the compression format
+	 * @param levelArg        the compression level
+	 * @param blockSizeArg    the (uncompressed) block size in bytes
+	 * @param threadsArg      the number of compressing threads
+	 */
+	public ParallelCompressingOutputStream(final OutputStream outputStreamArg,
+	                                       final Compression compressionArg,
+	                                       final int levelArg,
+	                                       final int blockSizeArg,
+	                                       final int threadsArg) {
+
+		if (compressionArg == Compression.NONE) {
+
+			throw new IllegalArgumentException("a compression format is required for compressing output");
+		}
+
+		compressionArg.checkLevel(levelArg);
+
+		if (blockSizeArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the compression block size must be at least 1, but was '%d'", blockSizeArg));
+		}
+
+		if (threadsArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the number of compression threads must be at least 1, but was '%d'", threadsArg));
+		}
+
+		outputStream = outputStreamArg;
+		compression = compressionArg;
+		level = levelArg;
+		blockSize = blockSizeArg;
+
+		executor = Executors.newFixedThreadPool(threadsArg, new WorkerThreadFactory("csv2scldj-compression-worker"));
+		blockQueue = new OrderedTaskQueue<>(executor, threadsArg * BLOCKS_IN_FLIGHT_PER_THREAD, outputStream::write);
+
+		block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		if (blockLength == blockSize) {
+
+			submitBlock();
+		}
+
+		block[blockLength++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] bytes,
+	                  final int offset,
+	                  final int length) throws IOException {
+
+		int position = offset;
+		int remaining = length;
+
+		while (remaining > 0) {
+
+			if (blockLength == blockSize) {
+
+				submitBlock();
+			}
+
+			final int chunkLength = Math.min(remaining, blockSize - blockLength);
+
+			System.arraycopy(bytes, position, block, blockLength, chunkLength);
+
+			blockLength += chunkLength;
+			position += chunkLength;
+			remaining -= chunkLength;
+		}
+	}
+
+	/**
+	 * compresses the current (incomplete) block and writes all pending blocks, i.e., flushing often results in small
+	 * blocks with a worse compression ratio
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void flush() throws IOException {
+
+		if (blockLength > 0) {
+
+			submitBlock();
+		}
+
+		try {
+
+			blockQueue.drain();
+		} catch (final CSV2SCLDJException e) {
+
+			throw new IOException("something went wrong at compressing output", e);
+		}
+
+		outputStream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+
+			return;
+		}
+
+		closed = true;
+
+		try {
+
+			flush();
+		} finally {
+
+			blockQueue.cancel();
+			executor.shutdownNow();
+
+			outputStream.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+
+		final byte[] currentBlock = block;
+		final int currentBlockLength = blockLength;
+
+		try {
+
+			blockQueue.submit(() -> {
+
+				final byte[] compressedBlock = compression.compressBlock(currentBlock, currentBlockLength, level);
+
+				freeBlocks.offer(currentBlock);
+
+				return compressedBlock;
+			});
+		} catch (final CSV2SCLDJException e) {
+
+			throw new IOException("something went wrong at compressing output", e);
+		}
+
+		final byte[] freeBlock = freeBlocks.poll();
+
+		block = freeBlock != null ? freeBlock : new byte[blockSize];
+		blockLength = 0;
+	}
+}
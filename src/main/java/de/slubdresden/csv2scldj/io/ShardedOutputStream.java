@@ -0,0 +1,460 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+
+/**
+ * An output stream for line-delimited JSON that rolls over to a new shard file (e.g. 'out-00042.ldj') after a maximum
+ * number of records or bytes. Shards are always cut at record ends (i.e. line breaks; a record of the bulk format
+ * consists of two lines). The shards are written by several writer threads at once, i.e., one shard is written, while
+ * the next one is filled already.
+ * <p>
+ * A shard is written to a '.part' file first that is renamed, when the shard is complete. Then, the shard is also
+ * appended to the manifest (e.g. 'out.manifest.ldj'), which contains a line with file name and record count for each
+ * complete shard. This way, downstream loading can start, while the conversion is still running.
+ *
+ * @author tgaengler
+ */
+public final class ShardedOutputStream extends OutputStream {
+
+	public static final int DEFAULT_WRITER_THREADS = 2;
+
+	public static final String MANIFEST_FILE_EXTENSION = ".manifest.ldj";
+
+	private static final String PART_FILE_EXTENSION = ".part";
+
+	private static final int BLOCK_SIZE = 256 * 1024;
+
+	private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final Path directory;
+	private final String shardBaseName;
+	private final String shardFileExtension;
+	private final Compression compression;
+	private final int compressionLevel;
+	private final long maxRecords;
+	private final long maxBytes;
+	private final int linesPerRecord;
+
+	private final ExecutorService executor;
+	private final Semaphore blocksInFlight;
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final List<CompletableFuture<Void>> shardCompletions = new ArrayList<>();
+
+	private final JsonGenerator manifest;
+
+	private Shard shard;
+	private int shardCounter;
+
+	/**
+	 * the number of lines of the current record that have been written already
+	 */
+	private int recordLines;
+
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength;
+
+	private boolean closed;
+
+	/**
+	 * @param outputFile          the output file name (e.g. 'out.ldj' or 'out.ldj.gz'), from which the shard file names
+	 *                            (e.g. 'out-00042.ldj') and the manifest file name (e.g. 'out.manifest.ldj') are derived
+	 * @param compressionLevelArg the compression level, if the output file name has the extension of a compression
+	 *                            format
+	 * @param maxRecordsArg       the maximum number of records of a shard (0 means unlimited)
+	 * @param maxBytesArg         the maximum number of (uncompressed) bytes of a shard (0 means unlimited); a shard can
+	 *                            exceed it by its last record
+	 * @param writerThreads       the number of threads that write shards
+	 * @throws IOException
+	 */
+	public ShardedOutputStream(final Path outputFile,
+	                           final int compressionLevelArg,
+	                           final long maxRecordsArg,
+	                           final long maxBytesArg,
+	                           final int writerThreads) throws IOException {
+
+		this(outputFile, compressionLevelArg, maxRecordsArg, maxBytesArg, writerThreads, 1);
+	}
+
+	/**
+	 * @param outputFile          the output file name (e.g. 'out.ldj' or 'out.ldj.gz'), from which the shard file names
+	 *                            (e.g. 'out-00042.ldj') and the manifest file name (e.g. 'out.manifest.ldj') are derived
+	 * @param compressionLevelArg the compression level, if the output file name has the extension of a compression
+	 *                            format
+	 * @param maxRecordsArg       the maximum number of records of a shard (0 means unlimited)
+	 * @param maxBytesArg         the maximum number of (uncompressed) bytes of a shard (0 means unlimited); a shard can
+	 *                            exceed it by its last record
+	 * @param writerThreads       the number of threads that write shards
+	 * @param linesPerRecordArg   the number of lines of a record (e.g. 2 for the bulk format, i.e., action line plus
+	 *                            document), i.e., shards are only cut after this number of lines
+	 * @throws IOException
+	 */
+	public ShardedOutputStream(final Path outputFile,
+	                           final int compressionLevelArg,
+	                           final long maxRecordsArg,
+	                           final long maxBytesArg,
+	                           final int writerThreads,
+	                           final int linesPerRecordArg) throws IOException {
+
+		if (maxRecordsArg < 0 || maxBytesArg < 0 || maxRecordsArg == 0 && maxBytesArg == 0) {
+
+			throw new IllegalArgumentException(String.format("a maximum number of records or bytes per shard is required, but was '%d' records and '%d' bytes", maxRecordsArg, maxBytesArg));
+		}
+
+		if (writerThreads < 1) {
+
+			throw new IllegalArgumentException(String.format("the number of shard writer threads must be at least 1, but was '%d'", writerThreads));
+		}
+
+		if (linesPerRecordArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the number of lines per record must be at least 1, but was '%d'", linesPerRecordArg));
+		}
+
+		final Path absoluteOutputFile = outputFile.toAbsolutePath();
+		final String outputFileName = absoluteOutputFile.getFileName().toString();
+
+		compression = Compression.fromFileName(outputFileName);
+
+		if (compression != Compression.NONE) {
+
+			compression.checkLevel(compressionLevelArg);
+		}
+
+		final String uncompressedOutputFileName = outputFileName.substring(0, outputFileName.length() - compression.getFileExtension().length());
+		final int extensionStart = uncompressedOutputFileName.lastIndexOf('.');
+
+		if (extensionStart > 0) {
+
+			shardBaseName = uncompressedOutputFileName.substring(0, extensionStart);
+			shardFileExtension = uncompressedOutputFileName.substring(extensionStart) + compression.getFileExtension();
+		} else {
+
+			shardBaseName = uncompressedOutputFileName;
+			shardFileExtension = compression.getFileExtension();
+		}
+
+		directory = absoluteOutputFile.getParent();
+		compressionLevel = compressionLevelArg;
+		maxRecords = maxRecordsArg;
+		maxBytes = maxBytesArg;
+		linesPerRecord = linesPerRecordArg;
+
+		manifest = FACTORY.createGenerator(Files.newOutputStream(directory.resolve(shardBaseName + MANIFEST_FILE_EXTENSION)), JsonEncoding.UTF8);
+		manifest.setRootValueSeparator(null);
+
+		executor = Executors.newFixedThreadPool(writerThreads, new WorkerThreadFactory("csv2scldj-shard-writer"));
+		blocksInFlight = new Semaphore(writerThreads * BLOCKS_IN_FLIGHT_PER_THREAD);
+	}
+
+	/**
+	 * @param shardBaseName      the base name of the shard files (e.g. 'out')
+	 * @param shardFileExtension the file extension of the shard files (e.g. '.ldj')
+	 * @param index              the index of the shard
+	 * @return the file name of the shard (e.g. 'out-00042.ldj')
+	 */
+	public static String shardFileName(final String shardBaseName,
+	                                   final String shardFileExtension,
+	                                   final int index) {
+
+		return String.format("%s-%05d%s", shardBaseName, index, shardFileExtension);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] bytes,
+	                  final int offset,
+	                  final int length) throws IOException {
+
+		final int end = offset + length;
+
+		int chunkStart = offset;
+
+		for (int position = offset; position < end; position++) {
+
+			if (bytes[position] != '\n' || ++recordLines < linesPerRecord) {
+
+				continue;
+			}
+
+			// a record ends here
+			append(bytes, chunkStart, position + 1 - chunkStart);
+
+			chunkStart = position + 1;
+			recordLines = 0;
+
+			shard.records++;
+			shard.recordBytes = shard.bytes;
+
+			if (maxRecords > 0 && shard.records >= maxRecords || maxBytes > 0 && shard.bytes >= maxBytes) {
+
+				finishShard();
+			}
+		}
+
+		append(bytes, chunkStart, end - chunkStart);
+	}
+
+	@Override
+	public void flush() throws IOException {
+
+		checkFailure();
+	}
+
+	/**
+	 * completes the last shard and waits, until all shards are written
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+
+			return;
+		}
+
+		closed = true;
+
+		try {
+
+			if (shard != null) {
+
+				if (shard.bytes > shard.recordBytes) {
+
+					// the last record doesn't end with a line break
+					shard.records++;
+				}
+
+				finishShard();
+			}
+
+			try {
+
+				CompletableFuture.allOf(shardCompletions.toArray(new CompletableFuture[0])).join();
+			} catch (final CompletionException e) {
+
+				// see checkFailure
+			}
+
+			checkFailure();
+		} finally {
+
+			executor.shutdownNow();
+
+			manifest.close();
+		}
+	}
+
+	private void append(final byte[] bytes,
+	                    final int offset,
+	                    final int length) throws IOException {
+
+		if (length == 0) {
+
+			return;
+		}
+
+		if (shard == null) {
+
+			shard = new Shard(shardCounter++);
+		}
+
+		int position = offset;
+		int remaining = length;
+
+		while (remaining > 0) {
+
+			if (blockLength == block.length) {
+
+				submitBlock();
+			}
+
+			final int chunkLength = Math.min(remaining, block.length - blockLength);
+
+			System.arraycopy(bytes, position, block, blockLength, chunkLength);
+
+			blockLength += chunkLength;
+			position += chunkLength;
+			remaining -= chunkLength;
+		}
+
+		shard.bytes += length;
+	}
+
+	private void submitBlock() throws IOException {
+
+		checkFailure();
+
+		try {
+
+			blocksInFlight.acquire();
+		} catch (final InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("got interrupted while waiting for a shard writer");
+		}
+
+		final Shard currentShard = shard;
+		final byte[] currentBlock = block;
+		final int currentBlockLength = blockLength;
+
+		// the blocks of a shard are written one after another, the blocks of different shards concurrently
+		currentShard.writing = currentShard.writing.thenRunAsync(() -> {
+
+			try {
+
+				currentShard.outputStream().write(currentBlock, 0, currentBlockLength);
+			} catch (final IOException e) {
+
+				throw fail(e);
+			} finally {
+
+				blocksInFlight.release();
+			}
+		}, executor);
+
+		block = new byte[BLOCK_SIZE];
+		blockLength = 0;
+	}
+
+	private void finishShard() throws IOException {
+
+		if (blockLength > 0) {
+
+			submitBlock();
+		}
+
+		final Shard currentShard = shard;
+
+		shardCompletions.add(currentShard.writing.thenRunAsync(() -> {
+
+			try {
+
+				currentShard.complete();
+			} catch (final IOException e) {
+
+				throw fail(e);
+			}
+		}, executor));
+
+		shard = null;
+	}
+
+	private UncheckedIOException fail(final IOException e) {
+
+		failure.compareAndSet(null, e);
+
+		return new UncheckedIOException(e);
+	}
+
+	private void checkFailure() throws IOException {
+
+		final Throwable cause = failure.get();
+
+		if (cause != null) {
+
+			throw new IOException("something went wrong at writing a shard", cause);
+		}
+	}
+
+	private void appendToManifest(final Shard completeShard) throws IOException {
+
+		synchronized (manifest) {
+
+			manifest.writeStartObject();
+			manifest.writeNumberField("index", completeShard.index);
+			manifest.writeStringField("shard", completeShard.fileName);
+			manifest.writeNumberField("records", completeShard.records);
+			manifest.writeNumberField("bytes", completeShard.bytes);
+			manifest.writeEndObject();
+			manifest.writeRaw('\n');
+			manifest.flush();
+		}
+	}
+
+	private final class Shard {
+
+		private final int index;
+		private final String fileName;
+
+		// note: records and bytes are only modified by the producing thread (before the shard is completed)
+		private long records;
+		private long bytes;
+
+		/**
+		 * the number of bytes at the end of the last complete record
+		 */
+		private long recordBytes;
+
+		private CompletableFuture<Void> writing = CompletableFuture.completedFuture(null);
+
+		private OutputStream outputStream;
+
+		private Shard(final int indexArg) {
+
+			index = indexArg;
+			fileName = shardFileName(shardBaseName, shardFileExtension, index);
+		}
+
+		private OutputStream outputStream() throws IOException {
+
+			if (outputStream == null) {
+
+				outputStream = compression.compress(Files.newOutputStream(directory.resolve(fileName + PART_FILE_EXTENSION)), compressionLevel);
+			}
+
+			return outputStream;
+		}
+
+		private void complete() throws IOException {
+
+			outputStream().close();
+
+			Files.move(directory.resolve(fileName + PART_FILE_EXTENSION), directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+
+			appendToManifest(this);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * The commit policies of the Solr output.
+ *
+ * @author tgaengler
+ */
+public enum SolrCommitPolicy {
+
+	/**
+	 * no explicit commit (default), i.e., the documents become visible according to the auto commit settings of the Solr
+	 * core (or the commit within interval)
+	 */
+	NONE("none"),
+
+	/**
+	 * one explicit commit after all documents have been posted
+	 */
+	END("end");
+
+	private final String name;
+
+	SolrCommitPolicy(final String nameArg) {
+
+		name = nameArg;
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	public static SolrCommitPolicy fromName(final String name) throws CSV2SCLDJException {
+
+		for (final SolrCommitPolicy commitPolicy : values()) {
+
+			if (commitPolicy.name.equals(name)) {
+
+				return commitPolicy;
+			}
+		}
+
+		throw new CSV2SCLDJException(String.format("unknown Solr commit policy '%s', please use either '%s' or '%s'", name, NONE.name, END.name));
+	}
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An output stream for line-delimited JSON that posts the records (i.e. lines) as JSON arrays of documents to a Solr
+ * update endpoint (e.g. 'http://localhost:8983/solr/finc/update'), i.e., the records are indexed, while the conversion
+ * is running. The records are batched by number of records and bytes; several batches are posted at once (see
+ * {@link HttpBatchSender}).
+ *
+ * @author tgaengler
+ */
+public final class SolrUpdateOutputStream extends OutputStream {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SolrUpdateOutputStream.class);
+
+	public static final int DEFAULT_BATCH_RECORDS = 1000;
+	public static final long DEFAULT_BATCH_BYTES = 4L * 1024 * 1024;
+
+	private static final String JSON_CONTENT_TYPE = "application/json";
+	private static final byte[] COMMIT_BODY = "{\"commit\":{}}".getBytes(StandardCharsets.UTF_8);
+	private static final int INITIAL_BATCH_CAPACITY = 64 * 1024;
+
+	private final URL updateURL;
+	private final URL batchURL;
+	private final long maxRecords;
+	private final long maxBytes;
+	private final SolrCommitPolicy commitPolicy;
+	private final HttpBatchSender sender;
+
+	private byte[] batch = new byte[INITIAL_BATCH_CAPACITY];
+	private int batchLength;
+	private long batchRecords;
+
+	/**
+	 * true, if the current record has been started (i.e. its first byte has been appended)
+	 */
+	private boolean inRecord;
+
+	private long batches;
+	private boolean closed;
+
+	/**
+	 * @param updateURLArg       the URL of the Solr update endpoint
+	 * @param maxRecordsArg      the maximum number of records of a batch
+	 * @param maxBytesArg        the maximum number of bytes of a batch; a batch can exceed it by its last record
+	 * @param commitPolicyArg    the commit policy
+	 * @param commitWithinMillis the maximum time (in milliseconds) until the posted documents are committed by Solr (0
+	 *                           means no commit within)
+	 * @param senderArg          the sender of the batches (it is closed by this stream)
+	 * @throws MalformedURLException
+	 */
+	public SolrUpdateOutputStream(final URL updateURLArg,
+	                              final long maxRecordsArg,
+	                              final long maxBytesArg,
+	                              final SolrCommitPolicy commitPolicyArg,
+	                              final long commitWithinMillis,
+	                              final HttpBatchSender senderArg) throws MalformedURLException {
+
+		if (maxRecordsArg < 1 || maxBytesArg < 1) {
+
+			throw new IllegalArgumentException(String.format("the maximum number of records and bytes per batch must be at least 1, but was '%d' records and '%d' bytes", maxRecordsArg, maxBytesArg));
+		}
+
+		updateURL = updateURLArg;
+		batchURL = commitWithinMillis > 0 ? withQueryParam(updateURLArg, "commitWithin=" + commitWithinMillis) : updateURLArg;
+		maxRecords = maxRecordsArg;
+		maxBytes = maxBytesArg;
+		commitPolicy = commitPolicyArg;
+		sender = senderArg;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] bytes,
+	                  final int offset,
+	                  final int length) throws IOException {
+
+		final int end = offset + length;
+
+		int chunkStart = offset;
+
+		for (int position = offset; position < end; position++) {
+
+			if (bytes[position] != '\n') {
+
+				continue;
+			}
+
+			// a record ends here
+			append(bytes, chunkStart, position - chunkStart);
+
+			chunkStart = position + 1;
+
+			finishRecord();
+		}
+
+		append(bytes, chunkStart, end - chunkStart);
+	}
+
+	/**
+	 * posts the last batch, waits, until all batches are posted, and commits (according to the commit policy)
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+
+			return;
+		}
+
+		closed = true;
+
+		try {
+
+			// the last record doesn't end with a line break
+			finishRecord();
+
+			if (batchRecords > 0) {
+
+				submitBatch();
+			}
+
+			sender.awaitCompletion();
+
+			if (commitPolicy == SolrCommitPolicy.END) {
+
+				LOG.info("commit Solr update endpoint '{}'", updateURL);
+
+				sender.send(updateURL, JSON_CONTENT_TYPE, COMMIT_BODY, COMMIT_BODY.length);
+				sender.awaitCompletion();
+			}
+
+			LOG.info("posted '{}' batches to Solr update endpoint '{}'", batches, updateURL);
+		} finally {
+
+			sender.close();
+		}
+	}
+
+	private void append(final byte[] bytes,
+	                    final int offset,
+	                    final int length) {
+
+		if (length == 0) {
+
+			return;
+		}
+
+		if (!inRecord) {
+
+			inRecord = true;
+
+			// the documents are posted as a JSON array
+			appendByte(batchRecords == 0 ? (byte) '[' : (byte) ',');
+		}
+
+		ensureCapacity(batchLength + length);
+
+		System.arraycopy(bytes, offset, batch, batchLength, length);
+
+		batchLength += length;
+	}
+
+	private void finishRecord() throws IOException {
+
+		if (!inRecord) {
+
+			// empty line
+			return;
+		}
+
+		inRecord = false;
+
+		if (batch[batchLength - 1] == '\r') {
+
+			batchLength--;
+		}
+
+		batchRecords++;
+
+		if (batchRecords >= maxRecords || batchLength >= maxBytes) {
+
+			submitBatch();
+		}
+	}
+
+	private void submitBatch() throws IOException {
+
+		appendByte((byte) ']');
+
+		sender.send(batchURL, JSON_CONTENT_TYPE, batch, batchLength);
+
+		batches++;
+
+		// the batch is sent asynchronously, i.e., it cannot be reused (but its capacity fits to the next batch)
+		batch = new byte[batch.length];
+		batchLength = 0;
+		batchRecords = 0;
+	}
+
+	private void appendByte(final byte b) {
+
+		ensureCapacity(batchLength + 1);
+
+		batch[batchLength++] = b;
+	}
+
+	private void ensureCapacity(final int capacity) {
+
+		if (capacity > batch.length) {
+
+			batch = Arrays.copyOf(batch, Math.max(capacity, batch.length * 2));
+		}
+	}
+
+	private static URL withQueryParam(final URL url,
+	                                  final String queryParam) throws MalformedURLException {
+
+		final String urlString = url.toString();
+
+		return new URL(urlString + (url.getQuery() == null ? "?" : "&") + queryParam);
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An output stream that decodes the written (UTF-8 encoded) bytes and hands the chars over to a writer, i.e., it allows
+ * to write the (byte-based) converter output to a (char-based) writer.
+ *
+ * @author tgaengler
+ */
+public final class WriterOutputStream extends OutputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Writer writer;
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CharBuffer output = CharBuffer.allocate(BUFFER_SIZE);
+
+	public WriterOutputStream(final Writer writerArg) {
+
+		writer = writerArg;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] bytes,
+	                  final int offset,
+	                  final int length) throws IOException {
+
+		int position = offset;
+		int remaining = length;
+
+		while (remaining > 0) {
+
+			final int chunkLength = Math.min(remaining, input.remaining());
+
+			input.put(bytes, position, chunkLength);
+
+			position += chunkLength;
+			remaining -= chunkLength;
+
+			decode(false);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		decode(true);
+		decoder.flush(output);
+		flushOutput();
+
+		writer.close();
+	}
+
+	private void decode(final boolean endOfInput) throws IOException {
+
+		input.flip();
+
+		while (true) {
+
+			final CoderResult result = decoder.decode(input, output, endOfInput);
+
+			if (result.isOverflow()) {
+
+				flushOutput();
+
+				continue;
+			}
+
+			break;
+		}
+
+		// keep incomplete multi-byte sequences for the next write
+		input.compact();
+
+		flushOutput();
+	}
+
+	private void flushOutput() throws IOException {
+
+		if (output.position() == 0) {
+
+			return;
+		}
+
+		writer.write(output.array(), 0, output.position());
+		output.clear();
+	}
+}
@@ -0,0 +1,450 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The metrics of a conversion, i.e., record and byte counts, per-field counts and per-stage latencies. All counters
+ * are striped (see {@link LongAdder}), i.e., they can be updated cheaply by several worker threads. The metrics can be
+ * exposed as JMX MBean (see {@link #register(String)}) and logged periodically (see {@link MetricsReporter}).
+ *
+ * @author tgaengler
+ */
+public final class ConversionMetrics implements ConversionMetricsMXBean {
+
+	public static final String OBJECT_NAME_PATTERN = "de.slubdresden.csv2scldj:type=ConversionMetrics,name=%s";
+
+	/**
+	 * the parse and convert latencies are sampled, i.e., only every n-th record is timed (the write latencies are
+	 * tracked per written block)
+	 */
+	public static final int LATENCY_SAMPLE_INTERVAL = 64;
+
+	private final LongAdder recordsIn = new LongAdder();
+	private final LongAdder recordsOut = new LongAdder();
+	private final LongAdder recordsRejected = new LongAdder();
+	private final LongAdder recordsUnchanged = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder splits = new LongAdder();
+
+	private final AtomicLong inputSize = new AtomicLong(-1L);
+
+	/**
+	 * the (wall-clock) time in milliseconds at which the first record has been converted or -1
+	 */
+	private final AtomicLong firstRecordMillis = new AtomicLong(-1L);
+
+	private final LatencyHistogram[] stageLatencies = new LatencyHistogram[Stage.values().length];
+
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * the field names, write counts and blank counts (indexed by plan column); they are set, when the CSV input header is
+	 * known
+	 */
+	private volatile FieldCounts fieldCounts = new FieldCounts(new String[0]);
+
+	public ConversionMetrics() {
+
+		for (final Stage stage : Stage.values()) {
+
+			stageLatencies[stage.ordinal()] = new LatencyHistogram();
+		}
+	}
+
+	public void addRecordsIn(final long records) {
+
+		recordsIn.add(records);
+	}
+
+	public void addRecordsOut(final long records) {
+
+		recordsOut.add(records);
+	}
+
+	public void addRecordRejected() {
+
+		recordsRejected.increment();
+	}
+
+	public void addRecordsUnchanged(final long records) {
+
+		recordsUnchanged.add(records);
+	}
+
+	public void addBytesIn(final long bytes) {
+
+		bytesIn.add(bytes);
+	}
+
+	public void addBytesOut(final long bytes) {
+
+		bytesOut.add(bytes);
+	}
+
+	public void addSplit() {
+
+		splits.increment();
+	}
+
+	/**
+	 * @param inputSizeArg the size of the CSV input in bytes
+	 */
+	public void setInputSize(final long inputSizeArg) {
+
+		inputSize.set(inputSizeArg);
+	}
+
+	/**
+	 * marks that a record has been converted; only the first call counts (see {@link #getTimeToFirstRecordMillis()})
+	 */
+	public void markFirstRecord() {
+
+		if (firstRecordMillis.get() < 0) {
+
+			firstRecordMillis.compareAndSet(-1L, System.currentTimeMillis());
+		}
+	}
+
+	public void recordLatency(final Stage stage,
+	                          final long nanos) {
+
+		stageLatencies[stage.ordinal()].record(nanos);
+	}
+
+	/**
+	 * @param fieldNames the field names (indexed by plan column)
+	 */
+	public void registerFields(final String[] fieldNames) {
+
+		fieldCounts = new FieldCounts(fieldNames);
+	}
+
+	/**
+	 * adds (thread-local collected) per-field counts
+	 *
+	 * @param writeCounts the write counts (indexed by plan column)
+	 * @param blankCounts the blank counts (indexed by plan column)
+	 */
+	public void addFieldCounts(final long[] writeCounts,
+	                           final long[] blankCounts) {
+
+		final FieldCounts currentFieldCounts = fieldCounts;
+		final int size = Math.min(currentFieldCounts.fieldNames.length, writeCounts.length);
+
+		for (int column = 0; column < size; column++) {
+
+			if (writeCounts[column] != 0) {
+
+				currentFieldCounts.writeCounts[column].add(writeCounts[column]);
+			}
+
+			if (blankCounts[column] != 0) {
+
+				currentFieldCounts.blankCounts[column].add(blankCounts[column]);
+			}
+		}
+	}
+
+	/**
+	 * adds (thread-local collected) per-field type error counts
+	 *
+	 * @param typeErrorCounts the type error counts (indexed by plan column)
+	 */
+	public void addFieldTypeErrors(final long[] typeErrorCounts) {
+
+		final FieldCounts currentFieldCounts = fieldCounts;
+		final int size = Math.min(currentFieldCounts.fieldNames.length, typeErrorCounts.length);
+
+		for (int column = 0; column < size; column++) {
+
+			if (typeErrorCounts[column] != 0) {
+
+				currentFieldCounts.typeErrorCounts[column].add(typeErrorCounts[column]);
+			}
+		}
+	}
+
+	/**
+	 * adds (thread-local collected) per-field value cache counts
+	 *
+	 * @param hits   the cache hits (indexed by plan column)
+	 * @param misses the cache misses (indexed by plan column)
+	 */
+	public void addFieldValueCacheCounts(final long[] hits,
+	                                     final long[] misses) {
+
+		final FieldCounts currentFieldCounts = fieldCounts;
+		final int size = Math.min(currentFieldCounts.fieldNames.length, hits.length);
+
+		for (int column = 0; column < size; column++) {
+
+			if (hits[column] != 0) {
+
+				currentFieldCounts.valueCacheHits[column].add(hits[column]);
+			}
+
+			if (misses[column] != 0) {
+
+				currentFieldCounts.valueCacheMisses[column].add(misses[column]);
+			}
+		}
+	}
+
+	public LatencySnapshot getStageLatency(final Stage stage) {
+
+		return stageLatencies[stage.ordinal()].snapshot();
+	}
+
+	/**
+	 * registers these metrics as MBean at the platform MBean server
+	 *
+	 * @param name the name of the conversion (part of the object name)
+	 * @return the object name of the MBean
+	 * @throws JMException
+	 */
+	public ObjectName register(final String name) throws JMException {
+
+		final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName objectName = new ObjectName(String.format(OBJECT_NAME_PATTERN, ObjectName.quote(name)));
+
+		if (mBeanServer.isRegistered(objectName)) {
+
+			mBeanServer.unregisterMBean(objectName);
+		}
+
+		mBeanServer.registerMBean(this, objectName);
+
+		return objectName;
+	}
+
+	/**
+	 * @param objectName the object name of the MBean (see {@link #register(String)})
+	 * @throws JMException
+	 */
+	public static void unregister(final ObjectName objectName) throws JMException {
+
+		final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+		if (mBeanServer.isRegistered(objectName)) {
+
+			mBeanServer.unregisterMBean(objectName);
+		}
+	}
+
+	@Override
+	public long getRecordsIn() {
+
+		return recordsIn.sum();
+	}
+
+	@Override
+	public long getRecordsOut() {
+
+		return recordsOut.sum();
+	}
+
+	@Override
+	public long getRecordsRejected() {
+
+		return recordsRejected.sum();
+	}
+
+	@Override
+	public long getRecordsUnchanged() {
+
+		return recordsUnchanged.sum();
+	}
+
+	@Override
+	public long getBytesIn() {
+
+		return bytesIn.sum();
+	}
+
+	@Override
+	public long getBytesOut() {
+
+		return bytesOut.sum();
+	}
+
+	@Override
+	public long getSplits() {
+
+		return splits.sum();
+	}
+
+	@Override
+	public long getInputSize() {
+
+		return inputSize.get();
+	}
+
+	@Override
+	public double getProgress() {
+
+		final long size = inputSize.get();
+
+		if (size <= 0) {
+
+			return -1.0;
+		}
+
+		return Math.min(1.0, (double) bytesIn.sum() / size);
+	}
+
+	@Override
+	public long getElapsedSeconds() {
+
+		return TimeUnit.NANOSECONDS.toSeconds(elapsedNanos());
+	}
+
+	@Override
+	public long getTimeToFirstRecordMillis() {
+
+		final long millis = firstRecordMillis.get();
+
+		if (millis < 0) {
+
+			return -1L;
+		}
+
+		return millis - ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+
+	@Override
+	public double getRecordsPerSecond() {
+
+		final long elapsedNanos = elapsedNanos();
+
+		return elapsedNanos == 0 ? 0.0 : recordsIn.sum() * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public long getEstimatedSecondsRemaining() {
+
+		final double progress = getProgress();
+
+		if (progress <= 0.0) {
+
+			return -1L;
+		}
+
+		final double elapsedSeconds = elapsedNanos() / 1e9;
+
+		return Math.round(elapsedSeconds / progress - elapsedSeconds);
+	}
+
+	@Override
+	public Map<String, Long> getFieldWriteCounts() {
+
+		return fieldCounts.toMap(fieldCounts.writeCounts);
+	}
+
+	@Override
+	public Map<String, Long> getFieldBlankCounts() {
+
+		return fieldCounts.toMap(fieldCounts.blankCounts);
+	}
+
+	@Override
+	public Map<String, Long> getFieldTypeErrorCounts() {
+
+		return fieldCounts.toMap(fieldCounts.typeErrorCounts);
+	}
+
+	@Override
+	public Map<String, Long> getFieldValueCacheHits() {
+
+		return fieldCounts.toMap(fieldCounts.valueCacheHits);
+	}
+
+	@Override
+	public Map<String, Long> getFieldValueCacheMisses() {
+
+		return fieldCounts.toMap(fieldCounts.valueCacheMisses);
+	}
+
+	@Override
+	public Map<String, LatencySnapshot> getStageLatencies() {
+
+		final Map<String, LatencySnapshot> latencies = new LinkedHashMap<>();
+
+		for (final Stage stage : Stage.values()) {
+
+			latencies.put(stage.name().toLowerCase(), getStageLatency(stage));
+		}
+
+		return latencies;
+	}
+
+	private long elapsedNanos() {
+
+		return System.nanoTime() - startNanos;
+	}
+
+	private static final class FieldCounts {
+
+		private final String[] fieldNames;
+		private final LongAdder[] writeCounts;
+		private final LongAdder[] blankCounts;
+		private final LongAdder[] typeErrorCounts;
+		private final LongAdder[] valueCacheHits;
+		private final LongAdder[] valueCacheMisses;
+
+		private FieldCounts(final String[] fieldNamesArg) {
+
+			fieldNames = fieldNamesArg;
+			writeCounts = new LongAdder[fieldNames.length];
+			blankCounts = new LongAdder[fieldNames.length];
+			typeErrorCounts = new LongAdder[fieldNames.length];
+			valueCacheHits = new LongAdder[fieldNames.length];
+			valueCacheMisses = new LongAdder[fieldNames.length];
+
+			for (int column = 0; column < fieldNames.length; column++) {
+
+				writeCounts[column] = new LongAdder();
+				blankCounts[column] = new LongAdder();
+				typeErrorCounts[column] = new LongAdder();
+				valueCacheHits[column] = new LongAdder();
+				valueCacheMisses[column] = new LongAdder();
+			}
+		}
+
+		private Map<String, Long> toMap(final LongAdder[] fieldCounts) {
+
+			final Map<String, Long> counts = new LinkedHashMap<>();
+
+			for (int column = 0; column < fieldNames.length; column++) {
+
+				counts.put(fieldNames[column], fieldCounts[column].sum());
+			}
+
+			return counts;
+		}
+	}
+}
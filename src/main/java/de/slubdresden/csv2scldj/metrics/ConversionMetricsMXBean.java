@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the metrics of a (running) conversion.
+ *
+ * @author tgaengler
+ */
+public interface ConversionMetricsMXBean {
+
+	long getRecordsIn();
+
+	long getRecordsOut();
+
+	/**
+	 * @return the number of records that could not be converted and have been skipped (see -on-error)
+	 */
+	long getRecordsRejected();
+
+	/**
+	 * @return the number of records that have not been written, since they are unchanged compared to the previous run
+	 * (see -delta-state-file-name)
+	 */
+	long getRecordsUnchanged();
+
+	long getBytesIn();
+
+	long getBytesOut();
+
+	long getSplits();
+
+	/**
+	 * @return the size of the CSV input in bytes or -1, if it is unknown (e.g. stdin)
+	 */
+	long getInputSize();
+
+	/**
+	 * @return the processed share of the CSV input (between 0 and 1, based on the input byte position) or -1, if the
+	 * input size is unknown
+	 */
+	double getProgress();
+
+	long getElapsedSeconds();
+
+	/**
+	 * @return the time in milliseconds from the start of the JVM until the first record has been converted or -1, if no
+	 * record has been converted yet
+	 */
+	long getTimeToFirstRecordMillis();
+
+	double getRecordsPerSecond();
+
+	/**
+	 * @return the estimated remaining time in seconds (based on the input byte position) or -1, if it cannot be
+	 * estimated
+	 */
+	long getEstimatedSecondsRemaining();
+
+	/**
+	 * @return the number of records per field, in which the field has been written
+	 */
+	Map<String, Long> getFieldWriteCounts();
+
+	/**
+	 * @return the number of records per field, in which the field has been blank (i.e. not written)
+	 */
+	Map<String, Long> getFieldBlankCounts();
+
+	/**
+	 * @return the number of values per field, which couldn't be converted to the type of the field (see
+	 * {@link de.slubdresden.csv2scldj.model.FieldType})
+	 */
+	Map<String, Long> getFieldTypeErrorCounts();
+
+	/**
+	 * @return the number of values per field, which have been written from the cache of pre-encoded values
+	 */
+	Map<String, Long> getFieldValueCacheHits();
+
+	/**
+	 * @return the number of values per field, which have been looked up in the cache of pre-encoded values, but were
+	 * not cached
+	 */
+	Map<String, Long> getFieldValueCacheMisses();
+
+	/**
+	 * @return the latencies per stage (see {@link Stage})
+	 */
+	Map<String, LatencySnapshot> getStageLatencies();
+}
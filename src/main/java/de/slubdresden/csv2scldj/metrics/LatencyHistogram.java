@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent latency histogram with power of two buckets (in nanoseconds), i.e., recording a latency is just a
+ * (striped) counter increment. Percentiles are reported as the upper bound of the bucket that contains them, i.e.,
+ * they are accurate up to a factor of two.
+ *
+ * @author tgaengler
+ */
+public final class LatencyHistogram {
+
+	private static final int BUCKETS = Long.SIZE;
+
+	/**
+	 * bucket i counts the latencies in [2^i, 2^(i + 1)) (bucket 0 incl. 0)
+	 */
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	public LatencyHistogram() {
+
+		for (int i = 0; i < BUCKETS; i++) {
+
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param nanos a latency in nanoseconds
+	 */
+	public void record(final long nanos) {
+
+		final long latency = Math.max(0L, nanos);
+
+		buckets[bucket(latency)].increment();
+		count.increment();
+		sum.add(latency);
+		max.accumulate(latency);
+	}
+
+	/**
+	 * @return a (not necessarily consistent) snapshot of this histogram
+	 */
+	public LatencySnapshot snapshot() {
+
+		final long[] bucketCounts = new long[BUCKETS];
+
+		long total = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+
+			bucketCounts[i] = buckets[i].sum();
+			total += bucketCounts[i];
+		}
+
+		final long maxNanos = max.get();
+
+		return new LatencySnapshot(total,
+				total == 0 ? 0L : sum.sum() / total,
+				percentile(bucketCounts, total, 0.5, maxNanos),
+				percentile(bucketCounts, total, 0.9, maxNanos),
+				percentile(bucketCounts, total, 0.99, maxNanos),
+				maxNanos);
+	}
+
+	private static int bucket(final long latency) {
+
+		return latency == 0 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(latency);
+	}
+
+	private static long percentile(final long[] bucketCounts,
+	                               final long total,
+	                               final double quantile,
+	                               final long maxNanos) {
+
+		if (total == 0) {
+
+			return 0L;
+		}
+
+		final long rank = (long) Math.ceil(quantile * total);
+
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+
+			seen += bucketCounts[i];
+
+			if (seen >= rank) {
+
+				// the upper bound of the bucket, but not more than the maximum
+				return i >= BUCKETS - 2 ? maxNanos : Math.min(maxNanos, (1L << (i + 1)) - 1);
+			}
+		}
+
+		return maxNanos;
+	}
+}
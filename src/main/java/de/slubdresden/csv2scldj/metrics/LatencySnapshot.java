@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.metrics;
+
+/**
+ * A snapshot of a latency histogram (all latencies in nanoseconds); it is exposed as composite data via JMX.
+ *
+ * @author tgaengler
+ */
+public final class LatencySnapshot {
+
+	private final long count;
+	private final long meanNanos;
+	private final long p50Nanos;
+	private final long p90Nanos;
+	private final long p99Nanos;
+	private final long maxNanos;
+
+	public LatencySnapshot(final long countArg,
+	                       final long meanNanosArg,
+	                       final long p50NanosArg,
+	                       final long p90NanosArg,
+	                       final long p99NanosArg,
+	                       final long maxNanosArg) {
+
+		count = countArg;
+		meanNanos = meanNanosArg;
+		p50Nanos = p50NanosArg;
+		p90Nanos = p90NanosArg;
+		p99Nanos = p99NanosArg;
+		maxNanos = maxNanosArg;
+	}
+
+	public long getCount() {
+
+		return count;
+	}
+
+	public long getMeanNanos() {
+
+		return meanNanos;
+	}
+
+	public long getP50Nanos() {
+
+		return p50Nanos;
+	}
+
+	public long getP90Nanos() {
+
+		return p90Nanos;
+	}
+
+	public long getP99Nanos() {
+
+		return p99Nanos;
+	}
+
+	public long getMaxNanos() {
+
+		return maxNanos;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("count = '%d', mean = '%.1f' us, p50 = '%.1f' us, p90 = '%.1f' us, p99 = '%.1f' us, max = '%.1f' us",
+				count, meanNanos / 1000.0, p50Nanos / 1000.0, p90Nanos / 1000.0, p99Nanos / 1000.0, maxNanos / 1000.0);
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.metrics;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+
+/**
+ * Logs the progress of a (running) conversion periodically, i.e., record counts, throughput and (if the input size is
+ * known) the processed share of the input and the estimated remaining time.
+ *
+ * @author tgaengler
+ */
+public final class MetricsReporter implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MetricsReporter.class);
+
+	private static final double MEGABYTE = 1024.0 * 1024.0;
+
+	private final ConversionMetrics metrics;
+
+	private final ScheduledExecutorService scheduler;
+
+	private long lastRecordsIn;
+	private long lastBytesIn;
+	private long lastNanos = System.nanoTime();
+
+	private MetricsReporter(final ConversionMetrics metricsArg,
+	                        final long intervalSeconds) {
+
+		metrics = metricsArg;
+		scheduler = Executors.newSingleThreadScheduledExecutor(new WorkerThreadFactory("csv2scldj-metrics-reporter"));
+
+		scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * starts logging the given metrics periodically
+	 *
+	 * @param metrics         the metrics
+	 * @param intervalSeconds the logging interval in seconds
+	 * @return the reporter (that needs to be closed at the end of the conversion)
+	 */
+	public static MetricsReporter start(final ConversionMetrics metrics,
+	                                    final long intervalSeconds) {
+
+		if (intervalSeconds < 1) {
+
+			throw new IllegalArgumentException(String.format("the metrics log interval must be at least 1 second, but was '%d'", intervalSeconds));
+		}
+
+		return new MetricsReporter(metrics, intervalSeconds);
+	}
+
+	@Override
+	public void close() {
+
+		scheduler.shutdownNow();
+	}
+
+	private void report() {
+
+		final long nanos = System.nanoTime();
+		final long recordsIn = metrics.getRecordsIn();
+		final long bytesIn = metrics.getBytesIn();
+		final double intervalSeconds = (nanos - lastNanos) / 1e9;
+
+		final double recordsPerSecond = (recordsIn - lastRecordsIn) / intervalSeconds;
+		final double megabytesPerSecond = (bytesIn - lastBytesIn) / MEGABYTE / intervalSeconds;
+
+		lastNanos = nanos;
+		lastRecordsIn = recordsIn;
+		lastBytesIn = bytesIn;
+
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append(String.format("read '%d' records, wrote '%d' records (%.0f records/s, %.1f MB/s input)", recordsIn, metrics.getRecordsOut(), recordsPerSecond, megabytesPerSecond));
+
+		final long recordsRejected = metrics.getRecordsRejected();
+
+		if (recordsRejected > 0) {
+
+			sb.append(String.format(", rejected '%d' records", recordsRejected));
+		}
+
+		final double progress = metrics.getProgress();
+
+		if (progress >= 0.0) {
+
+			final long remainingSeconds = metrics.getEstimatedSecondsRemaining();
+
+			sb.append(String.format(", %.1f%% of input", progress * 100.0));
+
+			if (remainingSeconds >= 0) {
+
+				sb.append(String.format(", ETA %d:%02d:%02d", remainingSeconds / 3600, remainingSeconds / 60 % 60, remainingSeconds % 60));
+			}
+		}
+
+		LOG.info(sb.toString());
+
+		for (final Stage stage : Stage.values()) {
+
+			LOG.debug("{} latency: {}", stage.name().toLowerCase(), metrics.getStageLatency(stage));
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.metrics;
+
+/**
+ * The stages of a conversion whose latencies are tracked.
+ *
+ * @author tgaengler
+ */
+public enum Stage {
+
+	/**
+	 * reading and tokenizing a CSV record
+	 */
+	PARSE,
+
+	/**
+	 * converting a (tokenized) record into line-delimited JSON
+	 */
+	CONVERT,
+
+	/**
+	 * writing a block of line-delimited JSON to the output
+	 */
+	WRITE
+}
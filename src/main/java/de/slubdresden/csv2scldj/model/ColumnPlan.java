@@ -0,0 +1,358 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import io.vavr.Tuple2;
+import io.vavr.collection.Map;
+import io.vavr.collection.Set;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * The CSV input header and the schema compiled into flat arrays (indexed by plan column in CSV column order), i.e., the
+ * per-record conversion doesn't need to look up anything in maps.
+ *
+ * @author tgaengler
+ */
+public final class ColumnPlan {
+
+	private final int[] columnIndices;
+
+	private final String[] fieldNames;
+
+	/**
+	 * the field names as pre-encoded JSON keys
+	 */
+	private final SerializedString[] keys;
+
+	private final boolean[] multivalued;
+
+	private final FieldType[] types;
+
+	private final boolean[] lowCardinality;
+
+	/**
+	 * the index of the field in the required fields of the schema or -1, if the field is not required
+	 */
+	private final int[] requiredBits;
+
+	private final Optional<Set<String>> requiredFields;
+
+	/**
+	 * the required fields of the schema (indexed by required bit)
+	 */
+	private final String[] requiredFieldNames;
+
+	/**
+	 * a bitset with a bit for each required field of the schema (see {@link #newRequiredFieldSet()})
+	 */
+	private final long[] requiredMask;
+
+	/**
+	 * the number of cells a record needs to have at least
+	 */
+	private final int recordSize;
+
+	/**
+	 * the nesting of the fields or null, if the fields are written flat
+	 */
+	private final FieldTree fieldTree;
+
+	private ColumnPlan(final int[] columnIndicesArg,
+	                   final String[] fieldNamesArg,
+	                   final boolean[] multivaluedArg,
+	                   final FieldType[] typesArg,
+	                   final boolean[] lowCardinalityArg,
+	                   final int[] requiredBitsArg,
+	                   final String[] requiredFieldNamesArg,
+	                   final FieldTree fieldTreeArg) {
+
+		columnIndices = columnIndicesArg;
+		fieldNames = fieldNamesArg;
+		multivalued = multivaluedArg;
+		types = typesArg;
+		lowCardinality = lowCardinalityArg;
+		requiredBits = requiredBitsArg;
+		requiredFieldNames = requiredFieldNamesArg;
+		fieldTree = fieldTreeArg;
+
+		if (requiredFieldNames.length == 0) {
+
+			requiredFields = Optional.empty();
+		} else {
+
+			requiredFields = Optional.of(io.vavr.collection.LinkedHashSet.of(requiredFieldNames));
+		}
+
+		requiredMask = new long[wordIndex(requiredFieldNames.length + Long.SIZE - 1)];
+
+		for (int requiredBit = 0; requiredBit < requiredFieldNames.length; requiredBit++) {
+
+			setBit(requiredMask, requiredBit);
+		}
+
+		keys = new SerializedString[fieldNames.length];
+
+		int maxColumnIndex = -1;
+
+		for (int i = 0; i < fieldNames.length; i++) {
+
+			keys[i] = new SerializedString(fieldNames[i]);
+			maxColumnIndex = Math.max(maxColumnIndex, columnIndices[i]);
+		}
+
+		recordSize = maxColumnIndex + 1;
+	}
+
+	/**
+	 * compiles the column plan
+	 *
+	 * @param csvInputHeaderMap the CSV input header (field name to column index)
+	 * @param fieldMap          the fields of the CSV input header
+	 * @param schema            the schema
+	 * @return the column plan
+	 * @throws CSV2SCLDJException if the (path-style) field names cannot be grouped into nested objects
+	 */
+	public static ColumnPlan compile(final Map<String, Integer> csvInputHeaderMap,
+	                                 final Map<String, Field> fieldMap,
+	                                 final Map<String, Field> schema) throws CSV2SCLDJException {
+
+		final String[] requiredFieldNames = schema
+				.filter(fieldTuple -> fieldTuple._2.isRequired())
+				.keySet()
+				.toJavaArray(String.class);
+		final java.util.List<String> requiredFieldNameList = Arrays.asList(requiredFieldNames);
+
+		@SuppressWarnings("unchecked")
+		final Tuple2<String, Integer>[] columns = csvInputHeaderMap.toJavaArray((Class<Tuple2<String, Integer>>) (Class<?>) Tuple2.class);
+
+		Arrays.sort(columns, Comparator.comparing(Tuple2::_2));
+
+		final int size = columns.length;
+
+		final int[] columnIndices = new int[size];
+		final String[] fieldNames = new String[size];
+		final boolean[] multivalued = new boolean[size];
+		final FieldType[] types = new FieldType[size];
+		final boolean[] lowCardinality = new boolean[size];
+		final int[] requiredBits = new int[size];
+
+		for (int i = 0; i < size; i++) {
+
+			final String fieldName = columns[i]._1;
+
+			columnIndices[i] = columns[i]._2;
+			fieldNames[i] = fieldName;
+			final Field field = fieldMap.get(fieldName).get();
+
+			multivalued[i] = field.isMultivalued();
+			types[i] = field.getType();
+			lowCardinality[i] = field.isLowCardinality();
+			requiredBits[i] = requiredFieldNameList.indexOf(fieldName);
+		}
+
+		final FieldTree fieldTree = FieldTree.compile(fieldNames, multivalued, schema);
+
+		return new ColumnPlan(columnIndices, fieldNames, multivalued, types, lowCardinality, requiredBits, requiredFieldNames, fieldTree);
+	}
+
+	/**
+	 * @return the number of plan columns
+	 */
+	public int size() {
+
+		return fieldNames.length;
+	}
+
+	/**
+	 * @param fieldName the field name
+	 * @return the plan column of the given field or -1, if the field is not contained in the CSV input header
+	 */
+	public int indexOf(final String fieldName) {
+
+		for (int column = 0; column < fieldNames.length; column++) {
+
+			if (fieldNames[column].equals(fieldName)) {
+
+				return column;
+			}
+		}
+
+		return -1;
+	}
+
+	public int getColumnIndex(final int column) {
+
+		return columnIndices[column];
+	}
+
+	public String getFieldName(final int column) {
+
+		return fieldNames[column];
+	}
+
+	public SerializedString getKey(final int column) {
+
+		return keys[column];
+	}
+
+	public boolean isMultivalued(final int column) {
+
+		return multivalued[column];
+	}
+
+	public FieldType getType(final int column) {
+
+		return types[column];
+	}
+
+	/**
+	 * @param column the plan column
+	 * @return true, if the schema marks the field of the given plan column as field with only a few distinct values
+	 */
+	public boolean isLowCardinality(final int column) {
+
+		return lowCardinality[column];
+	}
+
+	/**
+	 * @return true, if at least one plan column isn't a string field
+	 */
+	public boolean hasTypedFields() {
+
+		for (final FieldType type : types) {
+
+			if (type != FieldType.STRING) {
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public int getRequiredBit(final int column) {
+
+		return requiredBits[column];
+	}
+
+	public Optional<Set<String>> getRequiredFields() {
+
+		return requiredFields;
+	}
+
+	public boolean hasRequiredFields() {
+
+		return requiredFieldNames.length > 0;
+	}
+
+	/**
+	 * @return a new (empty) bitset for tracking the written required fields of a record (see
+	 * {@link #markRequiredField(long[], int)}); it can be reused for the next record after clearing it
+	 */
+	public long[] newRequiredFieldSet() {
+
+		return new long[requiredMask.length];
+	}
+
+	/**
+	 * marks the field of the given plan column as written in the given bitset, if the field is required
+	 *
+	 * @param writtenRequiredFields the bitset of the written required fields
+	 * @param column                the plan column
+	 */
+	public void markRequiredField(final long[] writtenRequiredFields,
+	                              final int column) {
+
+		final int requiredBit = requiredBits[column];
+
+		if (requiredBit >= 0) {
+
+			setBit(writtenRequiredFields, requiredBit);
+		}
+	}
+
+	/**
+	 * @param writtenRequiredFields the bitset of the written required fields
+	 * @return true, if all required fields are contained in the given bitset
+	 */
+	public boolean containsAllRequiredFields(final long[] writtenRequiredFields) {
+
+		for (int word = 0; word < requiredMask.length; word++) {
+
+			if ((writtenRequiredFields[word] & requiredMask[word]) != requiredMask[word]) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param writtenRequiredFields the bitset of the written required fields
+	 * @return the required fields that are not contained in the given bitset
+	 */
+	public Set<String> getMissingRequiredFields(final long[] writtenRequiredFields) {
+
+		Set<String> missingRequiredFields = io.vavr.collection.LinkedHashSet.empty();
+
+		for (int requiredBit = 0; requiredBit < requiredFieldNames.length; requiredBit++) {
+
+			if ((writtenRequiredFields[wordIndex(requiredBit)] & (1L << requiredBit)) == 0) {
+
+				missingRequiredFields = missingRequiredFields.add(requiredFieldNames[requiredBit]);
+			}
+		}
+
+		return missingRequiredFields;
+	}
+
+	/**
+	 * @return the nesting of the fields or null, if the fields are written flat (i.e. no field name is a path)
+	 */
+	public FieldTree getFieldTree() {
+
+		return fieldTree;
+	}
+
+	public int getRecordSize() {
+
+		return recordSize;
+	}
+
+	public String[] getFieldNames() {
+
+		return fieldNames.clone();
+	}
+
+	private static int wordIndex(final int bit) {
+
+		return bit >>> 6;
+	}
+
+	private static void setBit(final long[] bitset,
+	                           final int bit) {
+
+		// note: the shift distance of longs is taken modulo 64
+		bitset[wordIndex(bit)] |= 1L << bit;
+	}
+}
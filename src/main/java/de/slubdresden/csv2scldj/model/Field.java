@@ -23,11 +23,17 @@ public class Field {
 
 	private final boolean required;
 
+	private final FieldType type;
+
+	private final boolean lowCardinality;
+
 	public Field(final String fieldNameArg) {
 
 		fieldName = fieldNameArg;
 		multivalued = false;
 		required = false;
+		type = FieldType.STRING;
+		lowCardinality = false;
 	}
 
 	public Field(final String fieldNameArg,
@@ -36,6 +42,8 @@ public class Field {
 		fieldName = fieldNameArg;
 		multivalued = multivaluedArg != null && multivaluedArg;
 		required = false;
+		type = FieldType.STRING;
+		lowCardinality = false;
 	}
 
 	public Field(final String fieldNameArg,
@@ -45,6 +53,33 @@ public class Field {
 		fieldName = fieldNameArg;
 		multivalued = multivaluedArg != null && multivaluedArg;
 		required = requiredArg != null && requiredArg;
+		type = FieldType.STRING;
+		lowCardinality = false;
+	}
+
+	public Field(final String fieldNameArg,
+	             final Boolean multivaluedArg,
+	             final Boolean requiredArg,
+	             final FieldType typeArg) {
+
+		fieldName = fieldNameArg;
+		multivalued = multivaluedArg != null && multivaluedArg;
+		required = requiredArg != null && requiredArg;
+		type = typeArg != null ? typeArg : FieldType.STRING;
+		lowCardinality = false;
+	}
+
+	public Field(final String fieldNameArg,
+	             final Boolean multivaluedArg,
+	             final Boolean requiredArg,
+	             final FieldType typeArg,
+	             final Boolean lowCardinalityArg) {
+
+		fieldName = fieldNameArg;
+		multivalued = multivaluedArg != null && multivaluedArg;
+		required = requiredArg != null && requiredArg;
+		type = typeArg != null ? typeArg : FieldType.STRING;
+		lowCardinality = lowCardinalityArg != null && lowCardinalityArg;
 	}
 
 	public String getFieldName() {
@@ -61,4 +96,21 @@ public class Field {
 
 		return required;
 	}
+
+	/**
+	 * @return the type of the values of the field
+	 */
+	public FieldType getType() {
+
+		return type;
+	}
+
+	/**
+	 * @return true, if the field has only a few distinct values, i.e., the (pre-encoded) values of the field should be
+	 * cached
+	 */
+	public Boolean isLowCardinality() {
+
+		return lowCardinality;
+	}
 }
@@ -0,0 +1,274 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import io.vavr.collection.Map;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * The nesting of the fields of a column plan, i.e., path-style field names (e.g. 'author.name' and 'author.role') are
+ * grouped into nested objects (e.g. 'author'). A group that is defined as multivalued field in the schema (e.g.
+ * 'author,true') is an array of objects, i.e., the values of its fields are split by the cell value delimiter and the
+ * n-th values of all fields form the n-th object. The tree is compiled once from the CSV input header (in CSV column
+ * order of the first field of each group), i.e., the records can be written straight through a JSON generator.
+ *
+ * @author tgaengler
+ */
+public final class FieldTree {
+
+	public static final char PATH_SEPARATOR = '.';
+
+	private final Node[] roots;
+
+	private FieldTree(final Node[] rootsArg) {
+
+		roots = rootsArg;
+	}
+
+	/**
+	 * compiles the field tree of the given fields
+	 *
+	 * @param fieldNames  the field names (indexed by plan column)
+	 * @param multivalued the multivalued flags (indexed by plan column)
+	 * @param schema      the schema (with the definitions of the groups)
+	 * @return the field tree or null, if the fields are not nested (i.e. they are written flat)
+	 * @throws CSV2SCLDJException if the field names cannot be grouped
+	 */
+	static FieldTree compile(final String[] fieldNames,
+	                         final boolean[] multivalued,
+	                         final Map<String, Field> schema) throws CSV2SCLDJException {
+
+		boolean nested = false;
+
+		for (final String fieldName : fieldNames) {
+
+			nested |= fieldName.indexOf(PATH_SEPARATOR) >= 0;
+		}
+
+		if (!nested) {
+
+			return null;
+		}
+
+		final NodeBuilder root = new NodeBuilder(null, null);
+
+		for (int column = 0; column < fieldNames.length; column++) {
+
+			final String fieldName = fieldNames[column];
+			final String[] segments = fieldName.split("\\" + PATH_SEPARATOR, -1);
+
+			NodeBuilder parent = root;
+
+			for (int i = 0; i < segments.length; i++) {
+
+				if (segments[i].isEmpty()) {
+
+					throw new CSV2SCLDJException(String.format("the field name '%s' contains an empty path segment", fieldName));
+				}
+
+				if (parent.column >= 0) {
+
+					throw conflict(parent.path);
+				}
+
+				final String path = parent.path == null ? segments[i] : parent.path + PATH_SEPARATOR + segments[i];
+				NodeBuilder node = parent.children.get(segments[i]);
+
+				if (node == null) {
+
+					node = new NodeBuilder(path, segments[i]);
+					parent.children.put(segments[i], node);
+				}
+
+				if (i == segments.length - 1) {
+
+					if (!node.children.isEmpty()) {
+
+						throw conflict(path);
+					}
+
+					node.column = column;
+				}
+
+				parent = node;
+			}
+		}
+
+		return new FieldTree(root.build(multivalued, schema).children);
+	}
+
+	private static CSV2SCLDJException conflict(final String path) {
+
+		return new CSV2SCLDJException(String.format("the field '%s' cannot be written as value and as object of nested fields", path));
+	}
+
+	/**
+	 * @return the top-level fields and groups (in output order)
+	 */
+	public Node[] getRoots() {
+
+		return roots;
+	}
+
+	/**
+	 * a field (leaf) or a group of nested fields
+	 */
+	public static final class Node {
+
+		private final String path;
+
+		private final SerializedString key;
+
+		private final int column;
+
+		private final boolean array;
+
+		private final Node[] children;
+
+		private final int[] leafColumns;
+
+		private Node(final String pathArg,
+		             final String name,
+		             final int columnArg,
+		             final boolean arrayArg,
+		             final Node[] childrenArg,
+		             final int[] leafColumnsArg) {
+
+			path = pathArg;
+			key = name == null ? null : new SerializedString(name);
+			column = columnArg;
+			array = arrayArg;
+			children = childrenArg;
+			leafColumns = leafColumnsArg;
+		}
+
+		/**
+		 * @return the full (dotted) path of the node
+		 */
+		public String getPath() {
+
+			return path;
+		}
+
+		/**
+		 * @return the last path segment as pre-encoded JSON key
+		 */
+		public SerializedString getKey() {
+
+			return key;
+		}
+
+		/**
+		 * @return true, if the node is a field (i.e. a column of the CSV input)
+		 */
+		public boolean isLeaf() {
+
+			return column >= 0;
+		}
+
+		/**
+		 * @return the plan column of a field or -1, if the node is a group
+		 */
+		public int getColumn() {
+
+			return column;
+		}
+
+		/**
+		 * @return true, if the node is a group that is written as array of objects (its children are fields)
+		 */
+		public boolean isArray() {
+
+			return array;
+		}
+
+		public Node[] getChildren() {
+
+			return children;
+		}
+
+		/**
+		 * @return the plan columns of all fields of the group (incl. the fields of nested groups)
+		 */
+		public int[] getLeafColumns() {
+
+			return leafColumns;
+		}
+	}
+
+	private static final class NodeBuilder {
+
+		private final String path;
+
+		private final String name;
+
+		private final LinkedHashMap<String, NodeBuilder> children = new LinkedHashMap<>();
+
+		private int column = -1;
+
+		private NodeBuilder(final String pathArg,
+		                    final String nameArg) {
+
+			path = pathArg;
+			name = nameArg;
+		}
+
+		private Node build(final boolean[] multivalued,
+		                   final Map<String, Field> schema) throws CSV2SCLDJException {
+
+			if (column >= 0) {
+
+				return new Node(path, name, column, false, new Node[0], new int[]{column});
+			}
+
+			final boolean array = path != null && schema.get(path).map(Field::isMultivalued).getOrElse(false);
+			final Node[] childNodes = new Node[children.size()];
+			final List<Integer> leafColumns = new ArrayList<>();
+
+			int i = 0;
+
+			for (final NodeBuilder child : children.values()) {
+
+				final Node childNode = child.build(multivalued, schema);
+
+				if (array && !childNode.isLeaf()) {
+
+					throw new CSV2SCLDJException(String.format("the array of objects '%s' cannot contain the nested object '%s'", path, childNode.path));
+				}
+
+				if (array && multivalued[childNode.column]) {
+
+					throw new CSV2SCLDJException(String.format("the array of objects '%s' cannot contain the multivalued field '%s' (its values are already split into the objects)", path, childNode.path));
+				}
+
+				for (final int leafColumn : childNode.leafColumns) {
+
+					leafColumns.add(leafColumn);
+				}
+
+				childNodes[i++] = childNode;
+			}
+
+			return new Node(path, name, -1, array, childNodes, leafColumns.stream().mapToInt(Integer::intValue).toArray());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.model;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+
+/**
+ * The types of the fields of a schema, i.e., the values of typed fields are parsed and written as native JSON numbers
+ * or booleans (dates are written as normalised ISO-8601 strings).
+ *
+ * @author tgaengler
+ */
+public enum FieldType {
+
+	/**
+	 * the values are written as they are (default)
+	 */
+	STRING("string"),
+
+	/**
+	 * 32-bit integers
+	 */
+	INTEGER("integer"),
+
+	/**
+	 * 64-bit integers
+	 */
+	LONG("long"),
+
+	/**
+	 * (finite) double-precision floating-point numbers
+	 */
+	DOUBLE("double"),
+
+	/**
+	 * 'true' or 'false' (case-insensitive)
+	 */
+	BOOLEAN("boolean"),
+
+	/**
+	 * dates (UTC), i.e., 'yyyy', 'yyyy-MM', 'yyyy-MM-dd' or 'yyyy-MM-ddTHH:mm[:ss[.S+]][Z]', which are written as
+	 * 'yyyy-MM-ddTHH:mm:ss[.S+]Z' (e.g. for Solr date fields)
+	 */
+	DATE("date");
+
+	private final String name;
+
+	FieldType(final String nameArg) {
+
+		name = nameArg;
+	}
+
+	public String getName() {
+
+		return name;
+	}
+
+	public static FieldType fromName(final String name) throws CSV2SCLDJException {
+
+		for (final FieldType fieldType : values()) {
+
+			if (fieldType.name.equals(name)) {
+
+				return fieldType;
+			}
+		}
+
+		throw new CSV2SCLDJException(String.format("unknown field type '%s', please use either '%s', '%s', '%s', '%s', '%s' or '%s'", name, STRING.name, INTEGER.name, LONG.name, DOUBLE.name, BOOLEAN.name, DATE.name));
+	}
+}
@@ -0,0 +1,515 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.vavr.collection.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJConverter;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.concurrent.WorkerThreadFactory;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.io.CountingInputStream;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.Field;
+
+/**
+ * A long-running HTTP server that converts CSV request bodies into schema conform line-delimited JSON response bodies,
+ * i.e., one (warm) JVM can serve many conversions. The following endpoints are available:
+ * <ul>
+ * <li>POST {@value #CONVERT_PATH} - converts the (plain, gzip or zstd compressed) CSV request body; the query parameters
+ * are {@value #SCHEMA_QUERY_PARAM} (the name of the schema file in the schema directory),
+ * {@value #CELL_VALUE_DELIMITER_QUERY_PARAM}, {@value #ON_ERROR_QUERY_PARAM} ('fail' or 'skip') and
+ * {@value #ERROR_BUDGET_QUERY_PARAM}</li>
+ * <li>GET {@value #HEALTH_PATH} - returns the status and the counters of the server as JSON</li>
+ * </ul>
+ * Schemas are cached (see {@link SchemaCache}). The number of concurrent conversions is capped; further conversion
+ * requests are rejected with status 503. The response is buffered until it exceeds {@value #RESPONSE_BUFFER_SIZE}
+ * bytes, i.e., the conversion errors of small CSV inputs (and header errors of all CSV inputs) are reported with status
+ * 422; a conversion that fails after the response has been committed aborts the (chunked) response.
+ *
+ * @author tgaengler
+ */
+public final class ConversionServer implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConversionServer.class);
+
+	public static final String CONVERT_PATH = "/convert";
+	public static final String HEALTH_PATH = "/health";
+	public static final String SCHEMA_QUERY_PARAM = "schema";
+	public static final String CELL_VALUE_DELIMITER_QUERY_PARAM = "cell-value-delimiter";
+	public static final String ON_ERROR_QUERY_PARAM = "on-error";
+	public static final String ERROR_BUDGET_QUERY_PARAM = "error-budget";
+
+	private static final String LDJ_CONTENT_TYPE = "application/x-ndjson";
+	private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+	private static final String JSON_CONTENT_TYPE = "application/json";
+	private static final String CONTENT_TYPE_HEADER = "Content-Type";
+	private static final String RETRY_AFTER_HEADER = "Retry-After";
+	private static final String RETRY_AFTER_SECONDS = "1";
+
+	private static final int RESPONSE_BUFFER_SIZE = 1024 * 1024;
+	/**
+	 * the number of request threads in addition to the conversion threads, i.e., for rejecting conversion requests and
+	 * answering health requests, while all conversions slots are taken
+	 */
+	private static final int SPARE_THREADS = 2;
+	private static final int STOP_DELAY_SECONDS = 5;
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Path schemaDirectory;
+	private final Optional<Path> defaultSchemaFile;
+	private final String defaultCellValueDelimiter;
+	private final ConversionOptions options;
+	private final int maxConversions;
+	private final Semaphore conversionPermits;
+	private final SchemaCache schemaCache = new SchemaCache();
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	private final LongAdder conversions = new LongAdder();
+	private final LongAdder failedConversions = new LongAdder();
+	private final LongAdder rejectedRequests = new LongAdder();
+	private final LongAdder recordsOut = new LongAdder();
+
+	private ConversionServer(final HttpServer serverArg,
+	                         final Path schemaDirectoryArg,
+	                         final Optional<Path> defaultSchemaFileArg,
+	                         final String defaultCellValueDelimiterArg,
+	                         final ConversionOptions optionsArg,
+	                         final int maxConversionsArg) {
+
+		server = serverArg;
+		schemaDirectory = schemaDirectoryArg.toAbsolutePath().normalize();
+		defaultSchemaFile = defaultSchemaFileArg;
+		defaultCellValueDelimiter = defaultCellValueDelimiterArg;
+		options = optionsArg;
+		maxConversions = maxConversionsArg;
+		conversionPermits = new Semaphore(maxConversionsArg);
+		executor = Executors.newFixedThreadPool(maxConversionsArg + SPARE_THREADS, new WorkerThreadFactory("csv2scldj-server-worker"));
+
+		server.setExecutor(executor);
+		server.createContext(CONVERT_PATH, this::handleConversion);
+		server.createContext(HEALTH_PATH, this::handleHealth);
+	}
+
+	/**
+	 * starts a conversion server
+	 *
+	 * @param address                   the address to listen on (port 0 means an ephemeral port)
+	 * @param schemaDirectory           the directory of the schema files that can be named by the requests
+	 * @param defaultSchemaFile         the schema file for requests that do not name a schema file
+	 * @param defaultCellValueDelimiter the cell value delimiter for requests that do not set one
+	 * @param options                   the conversion options of all conversions
+	 * @param maxConversions            the maximum number of concurrent conversions
+	 * @return the started conversion server
+	 * @throws IOException
+	 */
+	public static ConversionServer start(final InetSocketAddress address,
+	                                     final Path schemaDirectory,
+	                                     final Optional<Path> defaultSchemaFile,
+	                                     final String defaultCellValueDelimiter,
+	                                     final ConversionOptions options,
+	                                     final int maxConversions) throws IOException {
+
+		if (maxConversions < 1) {
+
+			throw new IllegalArgumentException("the maximum number of concurrent conversions must be at least 1");
+		}
+
+		final ConversionServer conversionServer = new ConversionServer(HttpServer.create(address, 0), schemaDirectory, defaultSchemaFile,
+				defaultCellValueDelimiter, options, maxConversions);
+
+		conversionServer.server.start();
+
+		LOG.info("conversion server listens on '{}' (schema directory = '{}', max. concurrent conversions = '{}')",
+				conversionServer.server.getAddress(), conversionServer.schemaDirectory, maxConversions);
+
+		return conversionServer;
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * blocks until the server is stopped
+	 *
+	 * @throws InterruptedException
+	 */
+	public void awaitTermination() throws InterruptedException {
+
+		stopped.await();
+	}
+
+	/**
+	 * stops the server; running conversions get a few seconds to complete
+	 */
+	@Override
+	public void close() {
+
+		if (stopped.getCount() == 0) {
+
+			return;
+		}
+
+		LOG.info("stop conversion server");
+
+		server.stop(STOP_DELAY_SECONDS);
+		executor.shutdownNow();
+
+		stopped.countDown();
+	}
+
+	private void handleConversion(final HttpExchange exchange) throws IOException {
+
+		if (!"POST".equals(exchange.getRequestMethod())) {
+
+			sendText(exchange, 405, "please POST the CSV input to " + CONVERT_PATH);
+
+			return;
+		}
+
+		if (!conversionPermits.tryAcquire()) {
+
+			rejectedRequests.increment();
+
+			exchange.getResponseHeaders().set(RETRY_AFTER_HEADER, RETRY_AFTER_SECONDS);
+
+			sendText(exchange, 503, String.format("all '%d' conversion slots are taken, please retry later", maxConversions));
+
+			return;
+		}
+
+		try {
+
+			convert(exchange);
+		} finally {
+
+			conversionPermits.release();
+		}
+	}
+
+	private void convert(final HttpExchange exchange) throws IOException {
+
+		final java.util.Map<String, String> queryParams = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		final Map<String, Field> schema;
+		final ConversionOptions requestOptions;
+
+		try {
+
+			schema = schemaCache.get(resolveSchemaFile(queryParams.get(SCHEMA_QUERY_PARAM)));
+			requestOptions = requestOptions(queryParams);
+		} catch (final NoSuchFileException e) {
+
+			sendText(exchange, 404, String.format("schema file '%s' does not exist", e.getFile()));
+
+			return;
+		} catch (final CSV2SCLDJException | CSV2LDJError e) {
+
+			sendText(exchange, 400, errorMessage(e));
+
+			return;
+		}
+
+		final String cellValueDelimiter = queryParams.getOrDefault(CELL_VALUE_DELIMITER_QUERY_PARAM, defaultCellValueDelimiter);
+		final ConversionMetrics metrics = requestOptions.getMetrics().get();
+		final ResponseOutputStream responseOutputStream = new ResponseOutputStream(exchange);
+
+		try {
+
+			final InputStream inputStream = new BufferedInputStream(new CountingInputStream(exchange.getRequestBody(), metrics));
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(Compression.detect(inputStream).decompress(inputStream), StandardCharsets.UTF_8));
+
+			CSV2SCLDJConverter.convert(reader, schema, responseOutputStream, cellValueDelimiter, requestOptions);
+
+			responseOutputStream.close();
+
+			conversions.increment();
+			recordsOut.add(metrics.getRecordsOut());
+		} catch (final IOException | CSV2SCLDJException | RuntimeException e) {
+
+			failedConversions.increment();
+
+			LOG.error("something went wrong at converting the CSV input of a request", e);
+
+			if (responseOutputStream.isCommitted()) {
+
+				// the (chunked) response is not terminated properly, i.e., the client recognises the failure
+				throw new IOException("the conversion failed after the response has been committed", e);
+			}
+
+			sendText(exchange, 422, errorMessage(e));
+		}
+	}
+
+	private void handleHealth(final HttpExchange exchange) throws IOException {
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		try (final JsonGenerator jg = FACTORY.createGenerator(body)) {
+
+			jg.writeStartObject();
+			jg.writeStringField("status", "UP");
+			jg.writeNumberField("active_conversions", maxConversions - conversionPermits.availablePermits());
+			jg.writeNumberField("max_conversions", maxConversions);
+			jg.writeNumberField("conversions", conversions.sum());
+			jg.writeNumberField("failed_conversions", failedConversions.sum());
+			jg.writeNumberField("rejected_requests", rejectedRequests.sum());
+			jg.writeNumberField("records_out", recordsOut.sum());
+			jg.writeNumberField("cached_schemas", schemaCache.size());
+			jg.writeEndObject();
+		}
+
+		send(exchange, 200, JSON_CONTENT_TYPE, body.toByteArray());
+	}
+
+	/**
+	 * @return the schema file of the request, which must be located in the schema directory, or the default schema file
+	 */
+	private Path resolveSchemaFile(final String schemaFileName) throws CSV2SCLDJException {
+
+		if (schemaFileName == null || schemaFileName.trim().isEmpty()) {
+
+			return defaultSchemaFile.orElseThrow(() -> new CSV2SCLDJException(String.format("please name a schema file via the query parameter '%s'", SCHEMA_QUERY_PARAM)));
+		}
+
+		final Path schemaFile = schemaDirectory.resolve(schemaFileName.trim()).normalize();
+
+		if (!schemaFile.startsWith(schemaDirectory)) {
+
+			throw new CSV2SCLDJException(String.format("schema file '%s' is not located in the schema directory", schemaFileName));
+		}
+
+		return schemaFile;
+	}
+
+	private ConversionOptions requestOptions(final java.util.Map<String, String> queryParams) throws CSV2SCLDJException {
+
+		final ConversionOptions.Builder builder = options.toBuilder()
+				.metrics(new ConversionMetrics());
+
+		final String onError = queryParams.get(ON_ERROR_QUERY_PARAM);
+
+		if (onError != null) {
+
+			final ErrorPolicy errorPolicy = ErrorPolicy.fromName(onError.trim());
+
+			if (errorPolicy == ErrorPolicy.DEADLETTER) {
+
+				throw new CSV2SCLDJException(String.format("the error policy '%s' is not available for server conversions", ErrorPolicy.DEADLETTER.getName()));
+			}
+
+			builder.errorPolicy(errorPolicy);
+		}
+
+		final String errorBudget = queryParams.get(ERROR_BUDGET_QUERY_PARAM);
+
+		if (errorBudget != null) {
+
+			try {
+
+				builder.errorBudget(Long.parseLong(errorBudget.trim()));
+			} catch (final NumberFormatException e) {
+
+				throw new CSV2SCLDJException(String.format("value '%s' of query parameter '%s' is not a valid number", errorBudget, ERROR_BUDGET_QUERY_PARAM), e);
+			}
+		}
+
+		return builder.build();
+	}
+
+	private static java.util.Map<String, String> parseQuery(final String rawQuery) throws UnsupportedEncodingException {
+
+		final java.util.Map<String, String> queryParams = new HashMap<>();
+
+		if (rawQuery == null || rawQuery.isEmpty()) {
+
+			return queryParams;
+		}
+
+		for (final String queryParam : rawQuery.split("&")) {
+
+			final int equalsIndex = queryParam.indexOf('=');
+
+			if (equalsIndex > 0) {
+
+				queryParams.put(URLDecoder.decode(queryParam.substring(0, equalsIndex), StandardCharsets.UTF_8.name()),
+						URLDecoder.decode(queryParam.substring(equalsIndex + 1), StandardCharsets.UTF_8.name()));
+			}
+		}
+
+		return queryParams;
+	}
+
+	private static String errorMessage(final Exception e) {
+
+		final Throwable cause = e instanceof CSV2LDJError && e.getCause() != null ? e.getCause() : e;
+
+		return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+	}
+
+	private static void sendText(final HttpExchange exchange,
+	                             final int status,
+	                             final String text) throws IOException {
+
+		send(exchange, status, TEXT_CONTENT_TYPE, (text + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void send(final HttpExchange exchange,
+	                         final int status,
+	                         final String contentType,
+	                         final byte[] body) throws IOException {
+
+		exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, contentType);
+		exchange.sendResponseHeaders(status, body.length);
+
+		try (final OutputStream responseBody = exchange.getResponseBody()) {
+
+			responseBody.write(body);
+		}
+	}
+
+	/**
+	 * Buffers the LDJ output until it exceeds {@link #RESPONSE_BUFFER_SIZE} bytes (then the response is committed and
+	 * streamed, i.e., chunked) or until it is closed (then the response is sent with its length).
+	 */
+	private static final class ResponseOutputStream extends OutputStream {
+
+		private final HttpExchange exchange;
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		/**
+		 * the response body; null, until the response is committed
+		 */
+		private OutputStream body;
+		private boolean closed;
+
+		private ResponseOutputStream(final HttpExchange exchangeArg) {
+
+			exchange = exchangeArg;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] bytes,
+		                  final int offset,
+		                  final int length) throws IOException {
+
+			if (body == null) {
+
+				if (buffer.size() + length <= RESPONSE_BUFFER_SIZE) {
+
+					buffer.write(bytes, offset, length);
+
+					return;
+				}
+
+				commit(0);
+			}
+
+			body.write(bytes, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+
+			if (body != null) {
+
+				body.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			if (closed) {
+
+				return;
+			}
+
+			closed = true;
+
+			if (body == null) {
+
+				commit(buffer.size() == 0 ? -1 : buffer.size());
+			}
+
+			body.close();
+		}
+
+		private boolean isCommitted() {
+
+			return body != null;
+		}
+
+		/**
+		 * @param length the response length; 0 means chunked, -1 means no response body
+		 */
+		private void commit(final long length) throws IOException {
+
+			exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, LDJ_CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, length);
+
+			body = exchange.getResponseBody();
+
+			buffer.writeTo(body);
+			buffer.reset();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.vavr.collection.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.utils.SchemaUtils;
+
+/**
+ * Caches the schemas of the conversion server, i.e., a schema file is only read again, when its modification time or
+ * size changed.
+ *
+ * @author tgaengler
+ */
+public final class SchemaCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SchemaCache.class);
+
+	private final ConcurrentMap<Path, CachedSchema> schemas = new ConcurrentHashMap<>();
+
+	/**
+	 * @param schemaFile the schema file
+	 * @return the schema of the given schema file (read again, if the file changed since it was cached)
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public Map<String, Field> get(final Path schemaFile) throws IOException, CSV2SCLDJException {
+
+		final Path key = schemaFile.toAbsolutePath().normalize();
+		final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		final CachedSchema cachedSchema = schemas.get(key);
+
+		if (cachedSchema != null && cachedSchema.isUpToDate(attributes)) {
+
+			return cachedSchema.schema;
+		}
+
+		LOG.info("{} schema file '{}'", cachedSchema == null ? "read" : "reload", key);
+
+		// concurrent readers of a changed schema file might read it twice, which is harmless
+		final CachedSchema newCachedSchema = new CachedSchema(SchemaUtils.readSchema(key.toString()), attributes.lastModifiedTime(), attributes.size());
+
+		schemas.put(key, newCachedSchema);
+
+		return newCachedSchema.schema;
+	}
+
+	/**
+	 * @return the number of cached schemas
+	 */
+	public int size() {
+
+		return schemas.size();
+	}
+
+	private static final class CachedSchema {
+
+		private final Map<String, Field> schema;
+		private final FileTime lastModified;
+		private final long size;
+
+		private CachedSchema(final Map<String, Field> schemaArg,
+		                     final FileTime lastModifiedArg,
+		                     final long sizeArg) {
+
+			schema = schemaArg;
+			lastModified = lastModifiedArg;
+			size = sizeArg;
+		}
+
+		private boolean isUpToDate(final BasicFileAttributes attributes) {
+
+			return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+		}
+	}
+}
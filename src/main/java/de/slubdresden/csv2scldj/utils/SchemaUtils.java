@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import de.slubdresden.csv2scldj.CSV2LDJError;
 import de.slubdresden.csv2scldj.CSV2SCLDJException;
 import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldType;
 
 public final class SchemaUtils {
 
@@ -40,6 +41,7 @@ public final class SchemaUtils {
 	private static final String FALSE = "false";
 	private static final String MULTIVALUED = "multivalued";
 	private static final String REQUIRED = "required";
+	private static final String LOW_CARDINALITY = "low-cardinality";
 
 	public static Map<String, Field> readSchema(final String schemaFileName) throws CSV2SCLDJException {
 
@@ -89,7 +91,31 @@ public final class SchemaUtils {
 						required = false;
 					}
 
-					final Field field = new Field(fieldName, multivalued, required);
+					final FieldType type;
+
+					if (fieldCSVRecordSize >= 4 && !fieldCSVRecord.get(3).trim().isEmpty()) {
+
+						type = parseType(schemaFileName, fieldName, fieldCSVRecord.get(3).trim());
+					} else {
+
+						// return default (string), if type is not set
+
+						type = FieldType.STRING;
+					}
+
+					final boolean lowCardinality;
+
+					if (fieldCSVRecordSize >= 5) {
+
+						lowCardinality = parseBooleanValue(schemaFileName, fieldName, LOW_CARDINALITY, fieldCSVRecord.get(4));
+					} else {
+
+						// return default (false), if low-cardinality is not set
+
+						lowCardinality = false;
+					}
+
+					final Field field = new Field(fieldName, multivalued, required, type, lowCardinality);
 
 					schema.put(fieldName, field);
 
@@ -118,7 +144,21 @@ public final class SchemaUtils {
 
 		LOG.info(String.format("successfully parsed schema from schema file at '%s'", schemaFileName));
 
-		return io.vavr.collection.HashMap.ofAll(schema);
+		// keep the order of the schema file (e.g. for the column order of the reverse conversion)
+		return io.vavr.collection.LinkedHashMap.ofAll(schema);
+	}
+
+	private static FieldType parseType(final String schemaFileName,
+	                                   final String fieldName,
+	                                   final String csvValue) throws CSV2SCLDJException {
+
+		try {
+
+			return FieldType.fromName(csvValue);
+		} catch (final CSV2SCLDJException e) {
+
+			throw new CSV2SCLDJException(String.format("%s for field '%s' in the schema file at '%s'", e.getMessage(), fieldName, schemaFileName));
+		}
 	}
 
 	private static boolean parseBooleanValue(final String schemaFileName,
@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.BatchConverter;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that a batch conversion converts each CSV input file like a single conversion and that a failing file does not
+ * affect the other files.
+ */
+public class BatchConverterTest {
+
+	private static final String TEST_RESOURCES_ROOT_PATH = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+			+ File.separator + "resources";
+
+	private Path inputDirectory;
+	private Path outputDirectory;
+
+	@Before
+	public void setUp() throws IOException {
+
+		inputDirectory = Files.createTempDirectory("csv2scldj-batch-input");
+		outputDirectory = Files.createTempDirectory("csv2scldj-batch-output");
+
+		final byte[] validInput = Files.readAllBytes(Paths.get(TEST_RESOURCES_ROOT_PATH, "input_sample.csv"));
+
+		Files.write(inputDirectory.resolve("a.csv"), validInput);
+		// record_id is missing in some records, i.e., this file cannot be converted
+		Files.copy(Paths.get(TEST_RESOURCES_ROOT_PATH, "input_sample_2.csv"), inputDirectory.resolve("b.csv"));
+
+		try (final OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(inputDirectory.resolve("c.csv.gz")))) {
+
+			outputStream.write(validInput);
+		}
+
+		Files.write(inputDirectory.resolve("ignored.txt"), validInput);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		for (final Path directory : Arrays.asList(inputDirectory, outputDirectory)) {
+
+			for (final Path file : BatchConverter.listInputFiles(directory, "*")) {
+
+				Files.delete(file);
+			}
+
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	public void testBatchConversion() throws IOException, CSV2SCLDJException {
+
+		checkBatchConversion(ConversionOptions.builder().build());
+	}
+
+	@Test
+	public void testBatchConversionWithSplitInput() throws IOException, CSV2SCLDJException {
+
+		checkBatchConversion(ConversionOptions.builder().threads(2).splitInput(true).splitSize(1024).build());
+	}
+
+	@Test(expected = CSV2SCLDJException.class)
+	public void testSameBaseNames() throws IOException, CSV2SCLDJException {
+
+		// 'a.csv' and 'a.csv.gz' would be converted into the same LDJ output file
+		Files.copy(inputDirectory.resolve("c.csv.gz"), inputDirectory.resolve("a.csv.gz"));
+
+		BatchConverter.checkBaseNames(BatchConverter.listInputFiles(inputDirectory, BatchConverter.DEFAULT_INPUT_GLOB));
+	}
+
+	private void checkBatchConversion(final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final List<Path> csvInputFiles = BatchConverter.listInputFiles(inputDirectory, BatchConverter.DEFAULT_INPUT_GLOB);
+
+		Assert.assertEquals(Arrays.asList(inputDirectory.resolve("a.csv"), inputDirectory.resolve("b.csv"), inputDirectory.resolve("c.csv.gz")), csvInputFiles);
+
+		BatchConverter.checkBaseNames(csvInputFiles);
+
+		final List<BatchConverter.FileResult> results = BatchConverter.convert(csvInputFiles, schema, TestUtil.CELL_VALUE_DELIMITER, options, 2,
+				csvInputFile -> Files.newOutputStream(outputDirectory.resolve(BatchConverter.baseName(csvInputFile) + ".ldj")));
+
+		Assert.assertEquals(3, results.size());
+		Assert.assertTrue(results.get(0).isSuccessful());
+		Assert.assertFalse(results.get(1).isSuccessful());
+		Assert.assertTrue(results.get(2).isSuccessful());
+		Assert.assertEquals(10, results.get(0).getMetrics().getRecordsOut());
+		Assert.assertEquals(10, results.get(2).getMetrics().getRecordsOut());
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(inputDirectory.resolve("a.csv"), schema, expected, TestUtil.CELL_VALUE_DELIMITER, ConversionOptions.builder().build());
+
+		Assert.assertArrayEquals(expected.toByteArray(), Files.readAllBytes(outputDirectory.resolve("a.ldj")));
+		Assert.assertArrayEquals(expected.toByteArray(), Files.readAllBytes(outputDirectory.resolve("c.ldj")));
+
+		BatchConverter.logSummary(results);
+	}
+}
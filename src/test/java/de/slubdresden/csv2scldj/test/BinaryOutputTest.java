@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.OutputFormat;
+import de.slubdresden.csv2scldj.io.FramedRecordReader;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the records of the binary output formats (CBOR and Smile) round-trip via the framed record reader, i.e.,
+ * they are the same as the records of the line-delimited JSON output.
+ */
+public class BinaryOutputTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Test
+	public void testSmile() throws IOException, CSV2SCLDJException {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final byte[] smile = TestUtil.convert(csv, schema, ConversionOptions.builder().outputFormat(OutputFormat.SMILE).build());
+
+		Assert.assertEquals(readLDJ(TestUtil.convert(csv, schema, ConversionOptions.defaults())), readFrames(smile, OutputFormat.SMILE));
+
+		// shared field names (and values) make the records considerably smaller
+		Assert.assertTrue(smile.length < TestUtil.convert(csv, schema, ConversionOptions.defaults()).length / 2);
+	}
+
+	@Test
+	public void testCBORInParallel() throws IOException, CSV2SCLDJException {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ConversionOptions options = ConversionOptions.builder()
+				.outputFormat(OutputFormat.CBOR)
+				.threads(2)
+				.batchSize(3)
+				.build();
+
+		Assert.assertEquals(readLDJ(TestUtil.convert(csv, schema, ConversionOptions.defaults())), readFrames(TestUtil.convert(csv, schema, options), OutputFormat.CBOR));
+	}
+
+	@Test
+	public void testSkippedRecords() throws IOException, CSV2SCLDJException {
+
+		// the third record has no record ID (which is required)
+		final String csv = TestUtil.getResourceAsString("input_sample.csv").replaceFirst("\"sid~10001\"", "\"\"");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ConversionOptions ldjOptions = ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.SKIP)
+				.build();
+		final ConversionOptions smileOptions = ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.SKIP)
+				.outputFormat(OutputFormat.SMILE)
+				.build();
+
+		final List<JsonNode> expected = readLDJ(TestUtil.convert(csv, schema, ldjOptions));
+
+		Assert.assertEquals(9, expected.size());
+		Assert.assertEquals(expected, readFrames(TestUtil.convert(csv, schema, smileOptions), OutputFormat.SMILE));
+	}
+
+	private static List<JsonNode> readLDJ(final byte[] ldj) throws IOException {
+
+		final List<JsonNode> records = new ArrayList<>();
+
+		for (final String line : new String(ldj, StandardCharsets.UTF_8).split("\\r?\\n")) {
+
+			records.add(MAPPER.readTree(line));
+		}
+
+		return records;
+	}
+
+	private static List<JsonNode> readFrames(final byte[] frames,
+	                                         final OutputFormat outputFormat) throws IOException {
+
+		final List<JsonNode> records = new ArrayList<>();
+
+		try (final FramedRecordReader reader = new FramedRecordReader(new ByteArrayInputStream(frames), outputFormat)) {
+
+			JsonNode record;
+
+			while ((record = reader.nextRecord()) != null) {
+
+				records.add(record);
+			}
+		}
+
+		return records;
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.bulk.BulkActions;
+import de.slubdresden.csv2scldj.io.BulkOutputStream;
+import de.slubdresden.csv2scldj.io.HttpBatchSender;
+import de.slubdresden.csv2scldj.io.ShardedOutputStream;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the bulk format precedes each record with an action line and that bulk chunks (shards or posted chunks)
+ * are never cut between action line and document.
+ */
+public class BulkOutputTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+	private volatile boolean bulkErrors;
+
+	private HttpServer server;
+	private URL bulkURL;
+
+	@Before
+	public void setUp() throws IOException {
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/_bulk", this::handleBulk);
+		server.start();
+
+		bulkURL = new URL("http://localhost:" + server.getAddress().getPort() + "/_bulk");
+	}
+
+	@After
+	public void tearDown() {
+
+		server.stop(0);
+	}
+
+	@Test
+	public void testActionLines() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final String[] documents = lines(TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, ConversionOptions.defaults()));
+		final String[] lines = lines(TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, bulkOptions(BulkActions.of("record_id", Optional.of("finc")))));
+
+		Assert.assertEquals(2 * documents.length, lines.length);
+
+		for (int i = 0; i < documents.length; i++) {
+
+			final JsonNode action = MAPPER.readTree(lines[2 * i]);
+
+			Assert.assertEquals("finc", action.get("index").get("_index").asText());
+			Assert.assertEquals(MAPPER.readTree(documents[i]).get("record_id").asText(), action.get("index").get("_id").asText());
+			Assert.assertEquals(documents[i], lines[2 * i + 1]);
+		}
+	}
+
+	@Test
+	public void testUnknownIdField() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+
+		try {
+
+			TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, bulkOptions(BulkActions.of("unknown", Optional.empty())));
+
+			Assert.fail("the bulk ID field is not contained in the CSV input header");
+		} catch (final CSV2SCLDJException e) {
+
+			Assert.assertTrue(e.getMessage().contains("unknown"));
+		}
+	}
+
+	@Test
+	public void testShards() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ConversionOptions options = bulkOptions(BulkActions.of("record_id", Optional.empty()));
+		final byte[] expected = TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, options);
+		final Path outputFile = temporaryFolder.getRoot().toPath().resolve("out.ldj");
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, new ShardedOutputStream(outputFile, 0, 0, 500, 2, 2), options);
+
+		final List<Path> shards;
+
+		try (final Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath())) {
+
+			shards = files.filter(file -> file.getFileName().toString().matches("out-\\d+\\.ldj")).sorted().collect(Collectors.toList());
+		}
+
+		Assert.assertTrue(shards.size() > 1);
+
+		final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+		for (final Path shard : shards) {
+
+			final byte[] shardContent = Files.readAllBytes(shard);
+
+			Assert.assertEquals(0, lines(shardContent).length % 2);
+
+			actual.write(shardContent);
+		}
+
+		Assert.assertArrayEquals(expected, actual.toByteArray());
+	}
+
+	@Test
+	public void testChunks() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ConversionOptions options = bulkOptions(BulkActions.of("record_id", Optional.empty()));
+		final String[] expected = lines(TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, options));
+		final HttpBatchSender sender = new HttpBatchSender("csv2scldj-test-sender", 2, 0, 10L);
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, new BulkOutputStream(bulkURL, 1, sender), options);
+
+		// one record per chunk
+		Assert.assertEquals(expected.length / 2, requests.size());
+
+		final List<String> actual = new ArrayList<>();
+
+		for (final String request : requests) {
+
+			Assert.assertTrue(request.endsWith("\n"));
+
+			final String[] chunkLines = lines(request.getBytes(StandardCharsets.UTF_8));
+
+			Assert.assertEquals(2, chunkLines.length);
+
+			actual.add(chunkLines[0] + "\n" + chunkLines[1]);
+		}
+
+		final List<String> expectedRecords = new ArrayList<>();
+
+		for (int i = 0; i < expected.length; i += 2) {
+
+			expectedRecords.add(expected[i] + "\n" + expected[i + 1]);
+		}
+
+		// chunks may arrive out of order
+		Collections.sort(expectedRecords);
+		Collections.sort(actual);
+
+		Assert.assertEquals(expectedRecords, actual);
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailedRecords() throws IOException, CSV2SCLDJException {
+
+		bulkErrors = true;
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final HttpBatchSender sender = new HttpBatchSender("csv2scldj-test-sender", 2, 0, 10L);
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, new BulkOutputStream(bulkURL, BulkOutputStream.DEFAULT_CHUNK_BYTES, sender), bulkOptions(BulkActions.of("record_id", Optional.empty())));
+	}
+
+	private static ConversionOptions bulkOptions(final BulkActions bulkActions) {
+
+		return ConversionOptions.builder()
+				.bulkActions(bulkActions)
+				.build();
+	}
+
+	private static String[] lines(final byte[] content) {
+
+		return new String(content, StandardCharsets.UTF_8).split("\\r?\\n");
+	}
+
+	private void handleBulk(final HttpExchange exchange) throws IOException {
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		try (final InputStream inputStream = exchange.getRequestBody()) {
+
+			final byte[] buffer = new byte[8192];
+
+			int read;
+
+			while ((read = inputStream.read(buffer)) != -1) {
+
+				body.write(buffer, 0, read);
+			}
+		}
+
+		requests.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+
+		final byte[] response = ("{\"took\":1,\"errors\":" + bulkErrors + ",\"items\":[]}").getBytes(StandardCharsets.UTF_8);
+
+		exchange.sendResponseHeaders(200, response.length);
+
+		try (final OutputStream outputStream = exchange.getResponseBody()) {
+
+			outputStream.write(response);
+		}
+	}
+}
@@ -26,8 +26,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import org.json.JSONException;
 import org.junit.Assert;
 import org.junit.Test;
@@ -35,10 +37,13 @@ import org.skyscreamer.jsonassert.JSONAssert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.slubdresden.csv2scldj.CSV2LDJError;
 import de.slubdresden.csv2scldj.CSV2SCLDJException;
 import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
 import de.slubdresden.csv2scldj.constants.CSV2SCLDJParams;
 import de.slubdresden.csv2scldj.constants.Constants;
+import de.slubdresden.csv2scldj.csv.CSVParserType;
 import de.slubdresden.csv2scldj.model.Field;
 import de.slubdresden.csv2scldj.util.TestUtil;
 import de.slubdresden.csv2scldj.utils.SchemaUtils;
@@ -120,6 +125,144 @@ public class CSV2SCLDJExecuterTest {
 		LOG.info("end CSV 2 schema conform line-delimited JSON test 2");
 	}
 
+	@Test
+	public void testCSV2SCLDJConverterInParallel() throws IOException, CSV2SCLDJException, JSONException {
+
+		LOG.info("start CSV 2 schema conform line-delimited JSON parallel test");
+
+		final Reader reader = TestUtil.getResourceAsReader("input_sample.csv");
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(3)
+				.batchSize(2)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(reader, schema, writer, cellValueDelimiter, options);
+
+		final String actualSCJResultString = outputStream.toString(Constants.UTF_8_ENCODING);
+		final String expectedSCLDJJResultString = TestUtil.getResourceAsString("output_sample.ldj");
+
+		compareSCLDJResult(expectedSCLDJJResultString, actualSCJResultString);
+
+		LOG.info("end CSV 2 schema conform line-delimited JSON parallel test");
+	}
+
+	@Test
+	public void testCSV2SCLDJConverterWithCommonsCSV() throws IOException, CSV2SCLDJException, JSONException {
+
+		final Reader reader = TestUtil.getResourceAsReader("input_sample.csv");
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+		final ConversionOptions options = ConversionOptions.builder()
+				.csvParserType(CSVParserType.COMMONS_CSV)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(reader, schema, writer, cellValueDelimiter, options);
+
+		final String actualSCJResultString = outputStream.toString(Constants.UTF_8_ENCODING);
+		final String expectedSCLDJJResultString = TestUtil.getResourceAsString("output_sample.ldj");
+
+		compareSCLDJResult(expectedSCLDJJResultString, actualSCJResultString);
+	}
+
+	@Test(expected = CSV2LDJError.class)
+	public void testCSV2SCLDJConverterInParallelWithMissingRequiredField() throws IOException, CSV2SCLDJException {
+
+		final Reader reader = TestUtil.getResourceAsReader("input_sample_2.csv");
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(2)
+				.batchSize(3)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(reader, schema, writer, cellValueDelimiter, options);
+	}
+
+	@Test
+	public void testCSV2SCLDJConverterWithSplitInput() throws IOException, CSV2SCLDJException, JSONException {
+
+		final String inputFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "input_sample.csv";
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(3)
+				.splitInput(true)
+				.splitSize(1000)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(Paths.get(inputFilePath), schema, writer, cellValueDelimiter, options);
+
+		final String actualSCJResultString = outputStream.toString(Constants.UTF_8_ENCODING);
+		final String expectedSCLDJJResultString = TestUtil.getResourceAsString("output_sample.ldj");
+
+		compareSCLDJResult(expectedSCLDJJResultString, actualSCJResultString);
+	}
+
+	@Test(expected = CSV2LDJError.class)
+	public void testCSV2SCLDJConverterWithSplitInputAndMissingRequiredField() throws IOException, CSV2SCLDJException {
+
+		final String inputFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "input_sample_2.csv";
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(2)
+				.splitInput(true)
+				.splitSize(500)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(Paths.get(inputFilePath), schema, writer, cellValueDelimiter, options);
+	}
+
+	@Test
+	public void testCSV2SCLDJConverterWithEmptyRecord() throws IOException, CSV2SCLDJException, JSONException {
+
+		final Reader reader = new StringReader(readHeaderLine("input_sample.csv") + "\n" + emptyRecordLine("input_sample.csv") + "\n");
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(reader, schema, writer, cellValueDelimiter, ConversionOptions.defaults());
+
+		final String actualSCJResultString = outputStream.toString(Constants.UTF_8_ENCODING);
+
+		compareSCLDJResult("{}", actualSCJResultString);
+	}
+
+	@Test(expected = CSV2LDJError.class)
+	public void testCSV2SCLDJConverterWithEmptyRecordAndRequiredFieldsCheck() throws IOException, CSV2SCLDJException {
+
+		final Reader reader = new StringReader(readHeaderLine("input_sample.csv") + "\n" + emptyRecordLine("input_sample.csv") + "\n");
+		final String schemaFilePath = TEST_RESOURCES_ROOT_PATH + File.separator + "finc_solr_schema.csv";
+		final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFilePath);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		final String cellValueDelimiter = "\\/\\(\\)";
+		final ConversionOptions options = ConversionOptions.builder()
+				.checkRequiredFieldsOnEmptyRecords(true)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(reader, schema, writer, cellValueDelimiter, options);
+	}
+
 	@Test
 	public void testCSV2SCLDJConverterFromCommandline() throws IOException, JSONException {
 
@@ -190,6 +333,24 @@ public class CSV2SCLDJExecuterTest {
 		}
 	}
 
+	private static String readHeaderLine(final String resourceName) throws IOException {
+
+		try (final BufferedReader reader = new BufferedReader(TestUtil.getResourceAsReader(resourceName))) {
+
+			return reader.readLine();
+		}
+	}
+
+	/**
+	 * @return a record that has as many (empty) cells as the header of the given CSV resource
+	 */
+	private static String emptyRecordLine(final String resourceName) throws IOException {
+
+		final int columns = readHeaderLine(resourceName).split(",").length;
+
+		return String.join("", java.util.Collections.nCopies(columns - 1, ","));
+	}
+
 	private static BufferedReader readContent(final String content) throws UnsupportedEncodingException {
 
 		final ByteArrayInputStream inputStream = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8.name()));
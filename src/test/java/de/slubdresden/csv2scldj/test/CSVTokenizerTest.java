@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.csv.CSVRecordReader;
+import de.slubdresden.csv2scldj.csv.CSVTokenizer;
+import de.slubdresden.csv2scldj.csv.CommonsCSVRecordReader;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the built-in tokenizer produces exactly the same records as Apache Commons CSV.
+ */
+public class CSVTokenizerTest {
+
+	@Test
+	public void testSampleInput() throws IOException {
+
+		compare(TestUtil.getResourceAsString("input_sample.csv"));
+		compare(TestUtil.getResourceAsString("input_sample_2.csv"));
+	}
+
+	@Test
+	public void testQuotingAndEscaping() throws IOException {
+
+		compare("a,\"b,c\",\"d\"\"e\"\n");
+		compare("\"multi\nline\r\ntitle\",x\r\ny,z");
+		compare("a\\,b,c\\\"d,\"e\\\"f\",g\\nh,\"i\\tj\",k\\xl");
+		compare("\"a\"  ,  b  ,\"c\" \n");
+		compare("\\\\,\"\\\\\"");
+	}
+
+	@Test
+	public void testEmptyCellsAndLines() throws IOException {
+
+		compare("a,,b,\n,,\n");
+		compare("a,b\n\nc,d\n");
+		compare("a,b\r\n\r\nc,d");
+		compare("a,");
+		compare("");
+		compare("\n");
+		compare("   \n a , b ");
+	}
+
+	@Test
+	public void testSmallInputBuffer() throws IOException {
+
+		final String input = TestUtil.getResourceAsString("input_sample.csv");
+
+		Assert.assertEquals(read(new CommonsCSVRecordReader(new StringReader(input))), read(new CSVTokenizer(new StringReader(input), 7)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnfinishedEncapsulatedToken() throws IOException {
+
+		read(new CSVTokenizer(new StringReader("a,\"b")));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidCharAfterEncapsulatedToken() throws IOException {
+
+		read(new CSVTokenizer(new StringReader("\"a\"b,c")));
+	}
+
+	private static void compare(final String input) throws IOException {
+
+		final Reader expectedReader = new StringReader(input);
+		final Reader actualReader = new StringReader(input);
+
+		Assert.assertEquals(read(new CommonsCSVRecordReader(expectedReader)), read(new CSVTokenizer(actualReader)));
+	}
+
+	private static List<String> read(final CSVRecordReader recordReader) throws IOException {
+
+		final List<String> records = new ArrayList<>();
+
+		while (recordReader.nextRecord()) {
+
+			records.add(recordReader.describe());
+		}
+
+		recordReader.close();
+
+		return records;
+	}
+}
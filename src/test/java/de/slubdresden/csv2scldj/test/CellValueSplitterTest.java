@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.csv.CellValueSplitter;
+
+public class CellValueSplitterTest {
+
+	private static final String[] CELLS = new String[]{
+			"a",
+			"a|b|c",
+			"|a||b|",
+			"||",
+			"a/()b/()/()",
+			"/()a",
+			"a.b",
+			"a\u001Eb\u001E",
+			""
+	};
+
+	@Test
+	public void testLiteralDelimiters() {
+
+		for (final String delimiter : new String[]{"|", ".", "/()", "\u001E", "ab"}) {
+
+			final CellValueSplitter splitter = CellValueSplitter.compile(delimiter);
+
+			Assert.assertEquals(delimiter, splitter.getDelimiter());
+
+			for (final String cell : CELLS) {
+
+				compare(splitter, Pattern.quote(delimiter), cell);
+			}
+		}
+	}
+
+	@Test
+	public void testEscapedDelimiters() {
+
+		Assert.assertEquals("/()", CellValueSplitter.compile("\\/\\(\\)").getDelimiter());
+		Assert.assertEquals("|", CellValueSplitter.compile("\\|").getDelimiter());
+		Assert.assertEquals("\\", CellValueSplitter.compile("\\\\").getDelimiter());
+		Assert.assertEquals("\t", CellValueSplitter.compile("\\t").getDelimiter());
+		Assert.assertEquals("\u001E", CellValueSplitter.compile("\\u001E").getDelimiter());
+		Assert.assertEquals("\u001E", CellValueSplitter.compile("\\x1E").getDelimiter());
+		Assert.assertEquals("a\\b", CellValueSplitter.compile("\\Qa\\b\\E").getDelimiter());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyDelimiter() {
+
+		CellValueSplitter.compile("");
+	}
+
+	/**
+	 * compares the splitter with String#split (which has been utilised before)
+	 */
+	private static void compare(final CellValueSplitter splitter,
+	                            final String regex,
+	                            final String cell) {
+
+		final char[] buffer = ("#" + cell + "#").toCharArray();
+		final int cellStart = 1;
+		final int cellEnd = buffer.length - 1;
+
+		final String[] expectedValues = cell.split(regex);
+
+		Assert.assertEquals(cell, expectedValues.length > 1, splitter.containsMultipleValues(buffer, cellStart, cellEnd));
+
+		final List<String> actualValues = new ArrayList<>();
+
+		int valueStart = cellStart;
+
+		while (true) {
+
+			final int delimiterStart = splitter.indexOf(buffer, valueStart, cellEnd);
+			final int valueEnd = delimiterStart < 0 ? cellEnd : delimiterStart;
+
+			actualValues.add(new String(buffer, valueStart, valueEnd - valueStart));
+
+			if (delimiterStart < 0) {
+
+				break;
+			}
+
+			valueStart = delimiterStart + splitter.length();
+		}
+
+		// String#split removes trailing empty values
+		while (!actualValues.isEmpty() && actualValues.get(actualValues.size() - 1).isEmpty()) {
+
+			actualValues.remove(actualValues.size() - 1);
+		}
+
+		if (actualValues.isEmpty() && cell.isEmpty()) {
+
+			actualValues.add("");
+		}
+
+		Assert.assertArrayEquals(cell, expectedValues, actualValues.toArray(new String[0]));
+	}
+}
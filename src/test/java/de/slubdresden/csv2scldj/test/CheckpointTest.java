@@ -0,0 +1,248 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.checkpoint.Checkpoint;
+import de.slubdresden.csv2scldj.checkpoint.Checkpointer;
+import de.slubdresden.csv2scldj.csv.MappedInputSplitter;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that a conversion, which died after a checkpoint (i.e. with a partially written record at the end of the
+ * output), results in the complete output after resuming it.
+ */
+public class CheckpointTest {
+
+	private static final String TEST_RESOURCES_ROOT_PATH = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+			+ File.separator + "resources";
+
+	private Path directory;
+	private Path inputFile;
+	private Path outputFile;
+	private Path deadLetterFile;
+
+	@Before
+	public void setUp() throws IOException {
+
+		directory = Files.createTempDirectory("csv2scldj-checkpoint");
+		inputFile = directory.resolve("input.csv");
+		outputFile = directory.resolve("output.ldj");
+		deadLetterFile = directory.resolve("output.ldj.rejected.csv");
+
+		Files.copy(Paths.get(TEST_RESOURCES_ROOT_PATH, "input_sample.csv"), inputFile);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		for (final Path file : new Path[]{inputFile, outputFile, deadLetterFile, Checkpointer.checkpointFile(outputFile)}) {
+
+			Files.deleteIfExists(file);
+		}
+
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testResume() throws IOException, CSV2SCLDJException {
+
+		convert(false);
+
+		Assert.assertFalse(Files.exists(Checkpointer.checkpointFile(outputFile)));
+
+		final byte[] expectedOutput = Files.readAllBytes(outputFile);
+		final List<String> expectedLines = Arrays.asList(new String(expectedOutput, StandardCharsets.UTF_8).split("\n"));
+
+		// the conversion died after a checkpoint behind the 4th record, i.e., a part of the 5th record has been written
+		final int records = 4;
+		final long inputOffset = inputOffset(records);
+
+		final byte[] committedOutput = (String.join("\n", expectedLines.subList(0, records)) + "\n").getBytes(StandardCharsets.UTF_8);
+		final byte[] partialRecord = expectedLines.get(records).substring(0, 20).getBytes(StandardCharsets.UTF_8);
+
+		Files.write(outputFile, committedOutput);
+		Files.write(outputFile, partialRecord, StandardOpenOption.APPEND);
+
+		new Checkpoint(inputFile.toAbsolutePath().toString(), Files.size(inputFile), Files.getLastModifiedTime(inputFile).toMillis(),
+				inputOffset, records, committedOutput.length, 0, -1).write(Checkpointer.checkpointFile(outputFile));
+
+		convert(true);
+
+		Assert.assertArrayEquals(expectedOutput, Files.readAllBytes(outputFile));
+		Assert.assertFalse(Files.exists(Checkpointer.checkpointFile(outputFile)));
+	}
+
+	@Test
+	public void testResumeWithDeadLetters() throws IOException, CSV2SCLDJException {
+
+		writeInvalidRecordsInput();
+
+		convertWithDeadLetters(false, Long.MAX_VALUE);
+
+		final byte[] expectedOutput = Files.readAllBytes(outputFile);
+		final List<String> deadLetterLines = Arrays.asList(new String(Files.readAllBytes(deadLetterFile), StandardCharsets.UTF_8).split(System.lineSeparator()));
+
+		Assert.assertEquals(3, deadLetterLines.size());
+
+		// the conversion died after a checkpoint in front of the last record (with too few cells), i.e., the header and
+		// the first rejected record belong to the checkpoint, while a part of the second one has been written
+		final int records = recordCount() - 1;
+		final byte[] committedDeadLetters = (String.join(System.lineSeparator(), deadLetterLines.subList(0, 2)) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+
+		Files.write(deadLetterFile, committedDeadLetters);
+		Files.write(deadLetterFile, deadLetterLines.get(2).substring(0, 10).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		new Checkpoint(inputFile.toAbsolutePath().toString(), Files.size(inputFile), Files.getLastModifiedTime(inputFile).toMillis(),
+				inputOffset(records), records, expectedOutput.length, 1, committedDeadLetters.length).write(Checkpointer.checkpointFile(outputFile));
+
+		convertWithDeadLetters(true, Long.MAX_VALUE);
+
+		final List<String> resumedDeadLetterLines = Arrays.asList(new String(Files.readAllBytes(deadLetterFile), StandardCharsets.UTF_8).split(System.lineSeparator()));
+
+		Assert.assertArrayEquals(expectedOutput, Files.readAllBytes(outputFile));
+		Assert.assertEquals(deadLetterLines.subList(0, 2), resumedDeadLetterLines.subList(0, 2));
+		// the record number is relative to the input split, which starts at the checkpoint now
+		Assert.assertEquals(3, resumedDeadLetterLines.size());
+		Assert.assertTrue(resumedDeadLetterLines.get(2).startsWith("sid~too-few,145,\"input split #"));
+	}
+
+	@Test(expected = CSV2LDJError.class)
+	public void testResumeWithExceededErrorBudget() throws IOException, CSV2SCLDJException {
+
+		writeInvalidRecordsInput();
+
+		convertWithDeadLetters(false, Long.MAX_VALUE);
+
+		// the record in front of the checkpoint has been rejected, i.e., rejecting the last record exceeds the error budget
+		final int records = recordCount() - 1;
+
+		new Checkpoint(inputFile.toAbsolutePath().toString(), Files.size(inputFile), Files.getLastModifiedTime(inputFile).toMillis(),
+				inputOffset(records), records, Files.size(outputFile), 1, -1).write(Checkpointer.checkpointFile(outputFile));
+
+		convertWithDeadLetters(true, 1);
+	}
+
+	@Test(expected = CSV2SCLDJException.class)
+	public void testResumeWithModifiedInput() throws IOException, CSV2SCLDJException {
+
+		Files.write(outputFile, new byte[0]);
+
+		new Checkpoint(inputFile.toAbsolutePath().toString(), Files.size(inputFile), Files.getLastModifiedTime(inputFile).toMillis(),
+				0, 0, 0, 0, -1).write(Checkpointer.checkpointFile(outputFile));
+
+		Files.setLastModifiedTime(inputFile, FileTime.fromMillis(Files.getLastModifiedTime(inputFile).toMillis() - 60000));
+
+		convert(true);
+	}
+
+	private void convert(final boolean resume) throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final Checkpointer checkpointer = Checkpointer.create(inputFile, outputFile, 0, resume);
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(2)
+				.splitInput(true)
+				.splitSize(300)
+				.checkpointer(checkpointer)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(inputFile, schema, checkpointer.openOutput(), TestUtil.CELL_VALUE_DELIMITER, options);
+	}
+
+	private void convertWithDeadLetters(final boolean resume,
+	                                    final long errorBudget) throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final Checkpointer checkpointer = Checkpointer.create(inputFile, outputFile, 0, resume);
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(2)
+				.splitInput(true)
+				.splitSize(300)
+				.checkpointer(checkpointer)
+				.errorPolicy(ErrorPolicy.DEADLETTER)
+				.deadLetterOutput(checkpointer.openDeadLetterOutput(deadLetterFile))
+				.errorBudget(errorBudget)
+				.build();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(inputFile, schema, checkpointer.openOutput(), TestUtil.CELL_VALUE_DELIMITER, options);
+	}
+
+	/**
+	 * input_sample_2.csv contains a record without the required field 'record_id'; a record with too few cells is added
+	 */
+	private void writeInvalidRecordsInput() throws IOException {
+
+		final String input = new String(Files.readAllBytes(Paths.get(TEST_RESOURCES_ROOT_PATH, "input_sample_2.csv")), StandardCharsets.UTF_8) + "\"sid~too-few\",145\n";
+
+		Files.write(inputFile, input.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return the number of records (without header) of the CSV input
+	 */
+	private int recordCount() throws IOException {
+
+		int records = -1;
+
+		try (final MappedInputSplitter splitter = new MappedInputSplitter(inputFile)) {
+
+			while (splitter.nextSplit(0) != null) {
+
+				records++;
+			}
+		}
+
+		return records;
+	}
+
+	/**
+	 * @return the offset of the CSV input behind the given number of records (without header)
+	 */
+	private long inputOffset(final int records) throws IOException {
+
+		try (final MappedInputSplitter splitter = new MappedInputSplitter(inputFile)) {
+
+			for (int i = 0; i <= records; i++) {
+
+				splitter.nextSplit(0);
+			}
+
+			return splitter.position();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.io.ParallelCompressingOutputStream;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the independently compressed blocks of the parallel compression result in valid gzip and zstd data,
+ * which is detected and decompressed as input again.
+ */
+public class CompressionTest {
+
+	@Test
+	public void testGZIPRoundTrip() throws IOException {
+
+		roundTrip(Compression.GZIP, Compression.GZIP.getDefaultLevel());
+		roundTrip(Compression.GZIP, 1);
+	}
+
+	@Test
+	public void testZSTDRoundTrip() throws IOException {
+
+		roundTrip(Compression.ZSTD, Compression.ZSTD.getDefaultLevel());
+	}
+
+	@Test
+	public void testDetectionFromFileName() {
+
+		Assert.assertEquals(Compression.GZIP, Compression.fromFileName("output.ldj.gz"));
+		Assert.assertEquals(Compression.ZSTD, Compression.fromFileName("output.ldj.zst"));
+		Assert.assertEquals(Compression.NONE, Compression.fromFileName("output.ldj"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLevel() {
+
+		new ParallelCompressingOutputStream(new ByteArrayOutputStream(), Compression.GZIP, 10, 1024, 1);
+	}
+
+	private static void roundTrip(final Compression compression,
+	                              final int level) throws IOException {
+
+		final byte[] input = TestUtil.getResourceAsString("input_sample.csv").getBytes(StandardCharsets.UTF_8);
+
+		// small blocks, i.e., many compressed blocks
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+		try (final OutputStream outputStream = new ParallelCompressingOutputStream(compressed, compression, level, 97, 3)) {
+
+			outputStream.write(input, 0, 10);
+			outputStream.write(input[10]);
+			outputStream.write(input, 11, input.length - 11);
+		}
+
+		final InputStream compressedInput = new ByteArrayInputStream(compressed.toByteArray());
+
+		Assert.assertEquals(compression, Compression.detect(compressedInput));
+		Assert.assertArrayEquals(input, ByteStreams.toByteArray(compression.decompress(compressedInput)));
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.metrics.LatencyHistogram;
+import de.slubdresden.csv2scldj.metrics.LatencySnapshot;
+import de.slubdresden.csv2scldj.metrics.Stage;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the conversion metrics match the produced output, regardless of the number of worker threads.
+ */
+public class ConversionMetricsTest {
+
+	@Test
+	public void testSequentialConversionMetrics() throws IOException, CSV2SCLDJException {
+
+		checkConversionMetrics(1);
+	}
+
+	@Test
+	public void testParallelConversionMetrics() throws IOException, CSV2SCLDJException {
+
+		checkConversionMetrics(3);
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		for (long nanos = 1; nanos <= 1000; nanos++) {
+
+			histogram.record(nanos * 1000);
+		}
+
+		final LatencySnapshot snapshot = histogram.snapshot();
+
+		Assert.assertEquals(1000, snapshot.getCount());
+		Assert.assertEquals(1000000, snapshot.getMaxNanos());
+		Assert.assertTrue(snapshot.getP50Nanos() <= snapshot.getP90Nanos());
+		Assert.assertTrue(snapshot.getP90Nanos() <= snapshot.getP99Nanos());
+		// power-of-two buckets, i.e., a percentile is at most twice the exact value
+		Assert.assertTrue(snapshot.getP50Nanos() >= 500000 && snapshot.getP50Nanos() <= 1000000);
+	}
+
+	private static void checkConversionMetrics(final int threads) throws IOException, CSV2SCLDJException {
+
+		final Reader reader = TestUtil.getResourceAsReader("input_sample.csv");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(threads)
+				.batchSize(4)
+				.metrics(metrics)
+				.build();
+
+		Assert.assertEquals(-1L, metrics.getTimeToFirstRecordMillis());
+
+		TestUtil.convert(reader, schema, outputStream, options);
+
+		final byte[] output = outputStream.toByteArray();
+		final long lines = new String(output, StandardCharsets.UTF_8).split("\n").length;
+
+		Assert.assertEquals(lines, metrics.getRecordsIn());
+		Assert.assertEquals(lines, metrics.getRecordsOut());
+		Assert.assertEquals(output.length, metrics.getBytesOut());
+		// the latencies are sampled, i.e., only the first of every n records (of every batch at converting in parallel) is timed
+		final long sampledRecords = (lines + ConversionMetrics.LATENCY_SAMPLE_INTERVAL - 1) / ConversionMetrics.LATENCY_SAMPLE_INTERVAL;
+		final long sampledBatches = threads > 1 ? (lines + 3) / 4 : sampledRecords;
+
+		Assert.assertEquals(sampledRecords, metrics.getStageLatency(Stage.PARSE).getCount());
+		Assert.assertEquals(sampledBatches, metrics.getStageLatency(Stage.CONVERT).getCount());
+		Assert.assertTrue(metrics.getTimeToFirstRecordMillis() >= 0);
+
+		final Map<String, Long> fieldWriteCounts = metrics.getFieldWriteCounts();
+
+		Assert.assertFalse(fieldWriteCounts.isEmpty());
+		Assert.assertEquals(Long.valueOf(lines), fieldWriteCounts.get("recordtype"));
+	}
+}
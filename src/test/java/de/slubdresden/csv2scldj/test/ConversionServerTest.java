@@ -0,0 +1,168 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.server.ConversionServer;
+import de.slubdresden.csv2scldj.server.SchemaCache;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the conversion server converts like a single conversion, reports conversion errors and reloads changed
+ * schema files.
+ */
+public class ConversionServerTest {
+
+	private static final String TEST_RESOURCES_ROOT_PATH = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+			+ File.separator + "resources";
+
+	private ConversionServer server;
+
+	@Before
+	public void setUp() throws IOException {
+
+		server = ConversionServer.start(new InetSocketAddress("localhost", 0), Paths.get(TEST_RESOURCES_ROOT_PATH), Optional.empty(),
+				TestUtil.CELL_VALUE_DELIMITER, ConversionOptions.builder().build(), 2);
+	}
+
+	@After
+	public void tearDown() {
+
+		server.close();
+	}
+
+	@Test
+	public void testConversion() throws IOException, CSV2SCLDJException {
+
+		final Path csvInputFile = Paths.get(TEST_RESOURCES_ROOT_PATH, "input_sample.csv");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(csvInputFile, schema, expected, TestUtil.CELL_VALUE_DELIMITER, ConversionOptions.builder().build());
+
+		for (int i = 0; i < 2; i++) {
+
+			final HttpURLConnection connection = post("schema=" + TestUtil.FINC_SOLR_SCHEMA, Files.readAllBytes(csvInputFile));
+
+			Assert.assertEquals(200, connection.getResponseCode());
+			Assert.assertArrayEquals(expected.toByteArray(), readAll(connection.getInputStream()));
+		}
+
+		final JsonNode health = new ObjectMapper().readTree(new URL("http://localhost:" + server.getPort() + ConversionServer.HEALTH_PATH));
+
+		Assert.assertEquals("UP", health.get("status").asText());
+		Assert.assertEquals(2, health.get("conversions").asLong());
+		Assert.assertEquals(20, health.get("records_out").asLong());
+		Assert.assertEquals(1, health.get("cached_schemas").asLong());
+	}
+
+	@Test
+	public void testConversionErrors() throws IOException {
+
+		final byte[] invalidCSVInput = Files.readAllBytes(Paths.get(TEST_RESOURCES_ROOT_PATH, "input_sample_2.csv"));
+
+		Assert.assertEquals(422, post("schema=" + TestUtil.FINC_SOLR_SCHEMA, invalidCSVInput).getResponseCode());
+		Assert.assertEquals(200, post("schema=" + TestUtil.FINC_SOLR_SCHEMA + "&on-error=skip", invalidCSVInput).getResponseCode());
+		Assert.assertEquals(400, post("", invalidCSVInput).getResponseCode());
+		Assert.assertEquals(400, post("schema=" + URLEncoder.encode("../" + TestUtil.FINC_SOLR_SCHEMA, "UTF-8"), invalidCSVInput).getResponseCode());
+		Assert.assertEquals(404, post("schema=missing.csv", invalidCSVInput).getResponseCode());
+	}
+
+	@Test
+	public void testSchemaReload() throws IOException, CSV2SCLDJException {
+
+		final Path schemaFile = Files.createTempFile("csv2scldj-schema", ".csv");
+
+		try {
+
+			Files.write(schemaFile, "a,false,false\n".getBytes(StandardCharsets.UTF_8));
+
+			final SchemaCache schemaCache = new SchemaCache();
+
+			Assert.assertEquals(1, schemaCache.get(schemaFile).size());
+			Assert.assertSame(schemaCache.get(schemaFile), schemaCache.get(schemaFile));
+
+			Files.write(schemaFile, "a,false,false\nb,true,false\n".getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(schemaFile, FileTime.fromMillis(Files.getLastModifiedTime(schemaFile).toMillis() + 1000));
+
+			Assert.assertEquals(2, schemaCache.get(schemaFile).size());
+			Assert.assertEquals(1, schemaCache.size());
+		} finally {
+
+			Files.delete(schemaFile);
+		}
+	}
+
+	private HttpURLConnection post(final String query,
+	                               final byte[] body) throws IOException {
+
+		final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + ConversionServer.CONVERT_PATH + "?" + query).openConnection();
+
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+
+		try (final OutputStream outputStream = connection.getOutputStream()) {
+
+			outputStream.write(body);
+		}
+
+		return connection;
+	}
+
+	private static byte[] readAll(final InputStream inputStream) throws IOException {
+
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+
+		try (final InputStream in = inputStream) {
+
+			int read;
+
+			while ((read = in.read(buffer)) != -1) {
+
+				outputStream.write(buffer, 0, read);
+			}
+		}
+
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.delta.DeltaState;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that an incremental conversion writes only new and changed records and lists the deleted IDs, regardless of
+ * the number of worker threads.
+ */
+public class DeltaConversionTest {
+
+	private static final String TEST_RESOURCES_ROOT_PATH = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+			+ File.separator + "resources";
+	private static final String ID_FIELD = "record_id";
+
+	private Path directory;
+	private Path stateFile;
+	private Path deletedIdsFile;
+
+	@Before
+	public void setUp() throws IOException {
+
+		directory = Files.createTempDirectory("csv2scldj-delta");
+		stateFile = directory.resolve("delta.state");
+		deletedIdsFile = directory.resolve("output.ldj.deleted");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+
+		Files.deleteIfExists(stateFile);
+		Files.deleteIfExists(deletedIdsFile);
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testDelta() throws IOException, CSV2SCLDJException {
+
+		checkDelta(1);
+	}
+
+	@Test
+	public void testDeltaInParallel() throws IOException, CSV2SCLDJException {
+
+		checkDelta(3);
+	}
+
+	@Test
+	public void testDeltaWithChangedConversion() throws IOException, CSV2SCLDJException {
+
+		final String input = TestUtil.getResourceAsString("input_sample.csv");
+
+		Assert.assertEquals(10, convert(input, 1, new ConversionMetrics()).size());
+
+		// another cell value delimiter changes the output of the records, although their cells are unchanged
+		final ConversionMetrics secondMetrics = new ConversionMetrics();
+
+		Assert.assertEquals(10, convert(input, 1, secondMetrics, "##").size());
+		Assert.assertEquals(0, secondMetrics.getRecordsUnchanged());
+
+		final ConversionMetrics thirdMetrics = new ConversionMetrics();
+
+		Assert.assertTrue(convert(input, 1, thirdMetrics, "##").isEmpty());
+		Assert.assertEquals(10, thirdMetrics.getRecordsUnchanged());
+	}
+
+	@Test
+	public void testDeltaWithDuplicateIds() throws IOException, CSV2SCLDJException {
+
+		final List<String> lines = new ArrayList<>(Arrays.asList(TestUtil.getResourceAsString("input_sample.csv").split("\n")));
+
+		// 'sid~1' occurs twice, i.e., only its last record is kept in the delta state
+		lines.add(lines.get(1).replace(",\"marc\",", ",\"marcxml\","));
+
+		final String input = String.join("\n", lines) + "\n";
+
+		Assert.assertEquals(11, convert(input, 1, new ConversionMetrics()).size());
+
+		final ConversionMetrics secondMetrics = new ConversionMetrics();
+		final List<String> secondOutput = convert(input, 1, secondMetrics);
+
+		Assert.assertEquals(1, secondOutput.size());
+		Assert.assertTrue(secondOutput.get(0).contains("\"sid~1\"") && secondOutput.get(0).contains("\"marc\""));
+		Assert.assertEquals(10, secondMetrics.getRecordsUnchanged());
+		Assert.assertEquals(0, Files.size(deletedIdsFile));
+	}
+
+	@Test
+	public void testDeltaWithRejectedRecord() throws IOException, CSV2SCLDJException {
+
+		final List<String> lines = Arrays.asList(TestUtil.getResourceAsString("input_sample.csv").split("\n"));
+		final String input = String.join("\n", lines) + "\n";
+
+		Assert.assertEquals(10, convert(input, 1, new ConversionMetrics()).size());
+
+		// second run: 'sid~10001' is rejected (multiple values in a singlevalued field), but it is not deleted
+		final List<String> secondLines = new ArrayList<>(lines);
+
+		secondLines.set(3, lines.get(3).replace(",\"marc\",", ",\"marc/()xml\","));
+
+		final ConversionMetrics secondMetrics = new ConversionMetrics();
+
+		Assert.assertTrue(convert(String.join("\n", secondLines) + "\n", 1, secondMetrics, TestUtil.CELL_VALUE_DELIMITER, ErrorPolicy.SKIP).isEmpty());
+		Assert.assertEquals(1, secondMetrics.getRecordsRejected());
+		Assert.assertEquals(9, secondMetrics.getRecordsUnchanged());
+		Assert.assertEquals(0, Files.size(deletedIdsFile));
+
+		// third run: the record is valid again and unchanged compared with its last written version
+		final ConversionMetrics thirdMetrics = new ConversionMetrics();
+
+		Assert.assertTrue(convert(input, 1, thirdMetrics).isEmpty());
+		Assert.assertEquals(10, thirdMetrics.getRecordsUnchanged());
+		Assert.assertEquals(0, Files.size(deletedIdsFile));
+	}
+
+	private void checkDelta(final int threads) throws IOException, CSV2SCLDJException {
+
+		final List<String> lines = Arrays.asList(TestUtil.getResourceAsString("input_sample.csv").split("\n"));
+
+		// first run: all records are new
+		final ConversionMetrics firstMetrics = new ConversionMetrics();
+		final List<String> firstOutput = convert(String.join("\n", lines) + "\n", threads, firstMetrics);
+
+		Assert.assertEquals(10, firstOutput.size());
+		Assert.assertEquals(0, firstMetrics.getRecordsUnchanged());
+		Assert.assertTrue(Files.exists(stateFile));
+		Assert.assertEquals(0, Files.size(deletedIdsFile));
+
+		// second run: 'sid~10001' changed, 'sid~10002' deleted, 'sid~new' added
+		final List<String> secondLines = new ArrayList<>(lines);
+
+		secondLines.set(3, lines.get(3).replace(",\"marc\",", ",\"marcxml\","));
+		secondLines.remove(4);
+		secondLines.add(lines.get(1).replace("\"sid~1\"", "\"sid~new\""));
+
+		final ConversionMetrics secondMetrics = new ConversionMetrics();
+		final List<String> secondOutput = convert(String.join("\n", secondLines) + "\n", threads, secondMetrics);
+
+		Assert.assertEquals(2, secondOutput.size());
+		Assert.assertTrue(secondOutput.get(0).contains("\"sid~10001\"") && secondOutput.get(0).contains("\"marcxml\""));
+		Assert.assertTrue(secondOutput.get(1).contains("\"sid~new\""));
+		Assert.assertEquals(8, secondMetrics.getRecordsUnchanged());
+		Assert.assertEquals(Collections.singletonList("sid~10002"), Files.readAllLines(deletedIdsFile, StandardCharsets.UTF_8));
+
+		// third run with the same input: nothing has changed
+		final ConversionMetrics thirdMetrics = new ConversionMetrics();
+
+		Assert.assertTrue(convert(String.join("\n", secondLines) + "\n", threads, thirdMetrics).isEmpty());
+		Assert.assertEquals(10, thirdMetrics.getRecordsUnchanged());
+		Assert.assertEquals(0, Files.size(deletedIdsFile));
+	}
+
+	private List<String> convert(final String input,
+	                             final int threads,
+	                             final ConversionMetrics metrics) throws IOException, CSV2SCLDJException {
+
+		return convert(input, threads, metrics, TestUtil.CELL_VALUE_DELIMITER);
+	}
+
+	private List<String> convert(final String input,
+	                             final int threads,
+	                             final ConversionMetrics metrics,
+	                             final String cellValueDelimiter) throws IOException, CSV2SCLDJException {
+
+		return convert(input, threads, metrics, cellValueDelimiter, ConversionOptions.DEFAULT_ERROR_POLICY);
+	}
+
+	private List<String> convert(final String input,
+	                             final int threads,
+	                             final ConversionMetrics metrics,
+	                             final String cellValueDelimiter,
+	                             final ErrorPolicy errorPolicy) throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		try (final DeltaState deltaState = DeltaState.open(stateFile, ID_FIELD, deletedIdsFile)) {
+
+			final ConversionOptions options = ConversionOptions.builder()
+					.threads(threads)
+					.batchSize(2)
+					.deltaState(deltaState)
+					.errorPolicy(errorPolicy)
+					.metrics(metrics)
+					.build();
+
+			CSV2SCLDJExecuter.convertCSV2SCLDJ(new StringReader(input), schema, outputStream, cellValueDelimiter, options);
+		}
+
+		final String output = outputStream.toString(StandardCharsets.UTF_8.name());
+
+		return output.isEmpty() ? Collections.emptyList() : Arrays.asList(output.split("\n"));
+	}
+}
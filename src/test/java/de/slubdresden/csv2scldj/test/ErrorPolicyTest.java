@@ -0,0 +1,194 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.csv.CSVTokenizer;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that invalid records (missing required field, too few cells) are skipped or written to the dead-letter CSV,
+ * while the valid records are converted as usual, regardless of the conversion mode.
+ */
+public class ErrorPolicyTest {
+
+	/**
+	 * input_sample_2.csv contains a record without the required field 'record_id'; a record with too few cells is added
+	 */
+	private static final String TOO_FEW_CELLS_RECORD = "\"sid~too-few\",145\n";
+
+	@Test
+	public void testSkip() throws IOException, CSV2SCLDJException {
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String output = TestUtil.convertToString(invalidRecordsInput(), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.SKIP)
+				.metrics(metrics)
+				.build());
+
+		checkOutput(output, metrics);
+	}
+
+	@Test
+	public void testDeadLetterInParallel() throws IOException, CSV2SCLDJException {
+
+		final ByteArrayOutputStream deadLetterOutput = new ByteArrayOutputStream();
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String sequentialOutput = TestUtil.convertToString(invalidRecordsInput(), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.SKIP)
+				.build());
+		final String output = TestUtil.convertToString(invalidRecordsInput(), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ConversionOptions.builder()
+				.threads(2)
+				.batchSize(3)
+				.errorPolicy(ErrorPolicy.DEADLETTER)
+				.deadLetterOutput(deadLetterOutput)
+				.metrics(metrics)
+				.build());
+
+		checkOutput(output, metrics);
+		Assert.assertEquals(sequentialOutput, output);
+
+		final String[] deadLetters = deadLetterOutput.toString(StandardCharsets.UTF_8.name()).split("\n");
+
+		Assert.assertEquals(3, deadLetters.length);
+		Assert.assertTrue(deadLetters[0].startsWith("record_id,source_id,"));
+		Assert.assertTrue(deadLetters[0].endsWith(",csv2scldj_record,csv2scldj_reason"));
+		Assert.assertTrue(deadLetters[1].startsWith(",145,marc,") && deadLetters[1].contains("record_id"));
+		Assert.assertTrue(deadLetters[2].startsWith("sid~too-few,145,#12,") && deadLetters[2].contains("cells"));
+	}
+
+	@Test
+	public void testDeadLetterReadBack() throws IOException, CSV2SCLDJException {
+
+		// cells with an escape character, surrounding white spaces and a quote character
+		final String header = TestUtil.getResourceAsString("input_sample_2.csv").split("\n")[0];
+		final String input = header + "\n\"a\\\\b\",\" x \",\"c\"\"d\"\n";
+		final ByteArrayOutputStream deadLetterOutput = new ByteArrayOutputStream();
+
+		TestUtil.convert(new StringReader(input), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), new ByteArrayOutputStream(), ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.DEADLETTER)
+				.deadLetterOutput(deadLetterOutput)
+				.build());
+
+		final CSVTokenizer deadLetterReader = new CSVTokenizer(new StringReader(deadLetterOutput.toString(StandardCharsets.UTF_8.name())));
+
+		Assert.assertTrue(deadLetterReader.nextRecord());
+		Assert.assertEquals("record_id", deadLetterReader.cell(0));
+		Assert.assertTrue(deadLetterReader.nextRecord());
+		Assert.assertEquals(5, deadLetterReader.size());
+		Assert.assertEquals("a\\b", deadLetterReader.cell(0));
+		Assert.assertEquals(" x ", deadLetterReader.cell(1));
+		Assert.assertEquals("c\"d", deadLetterReader.cell(2));
+		Assert.assertTrue(deadLetterReader.cell(4).contains("cells"));
+		Assert.assertFalse(deadLetterReader.nextRecord());
+
+		deadLetterReader.close();
+	}
+
+	@Test
+	public void testDeadLetterWithSplitInput() throws IOException, CSV2SCLDJException {
+
+		final Path inputFile = Files.createTempFile("csv2scldj-invalid-records", ".csv");
+
+		try {
+
+			Files.write(inputFile, invalidRecordsInput().getBytes(StandardCharsets.UTF_8));
+
+			final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+			final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			final ByteArrayOutputStream deadLetterOutput = new ByteArrayOutputStream();
+			final ConversionMetrics metrics = new ConversionMetrics();
+			final ConversionOptions options = ConversionOptions.builder()
+					.threads(2)
+					.splitInput(true)
+					.splitSize(500)
+					.errorPolicy(ErrorPolicy.DEADLETTER)
+					.deadLetterOutput(deadLetterOutput)
+					.metrics(metrics)
+					.build();
+
+			CSV2SCLDJExecuter.convertCSV2SCLDJ(inputFile, schema, outputStream, TestUtil.CELL_VALUE_DELIMITER, options);
+
+			checkOutput(outputStream.toString(StandardCharsets.UTF_8.name()), metrics);
+			Assert.assertEquals(3, deadLetterOutput.toString(StandardCharsets.UTF_8.name()).split("\n").length);
+		} finally {
+
+			Files.delete(inputFile);
+		}
+	}
+
+	@Test(expected = CSV2LDJError.class)
+	public void testErrorBudgetExceeded() throws IOException, CSV2SCLDJException {
+
+		TestUtil.convertToString(invalidRecordsInput(), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.SKIP)
+				.errorBudget(1)
+				.build());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDeadLetterWithoutOutput() {
+
+		ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.DEADLETTER)
+				.build();
+	}
+
+	private static void checkOutput(final String output,
+	                                final ConversionMetrics metrics) throws IOException {
+
+		final List<String> lines = Arrays.asList(output.split("\n"));
+		final ObjectMapper mapper = new ObjectMapper();
+
+		Assert.assertEquals(9, lines.size());
+
+		for (final String line : lines) {
+
+			Assert.assertTrue(mapper.readTree(line).has("record_id"));
+		}
+
+		Assert.assertEquals(11, metrics.getRecordsIn());
+		Assert.assertEquals(9, metrics.getRecordsOut());
+		Assert.assertEquals(2, metrics.getRecordsRejected());
+		// the field counts of the rejected records are rolled back
+		Assert.assertEquals(Long.valueOf(9), metrics.getFieldWriteCounts().get("source_id"));
+	}
+
+	private static String invalidRecordsInput() throws IOException {
+
+		return TestUtil.getResourceAsString("input_sample_2.csv") + TOO_FEW_CELLS_RECORD;
+	}
+
+}
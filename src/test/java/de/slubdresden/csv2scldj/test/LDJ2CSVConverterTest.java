@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.LDJ2CSVConverter;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that line-delimited JSON round-trips (byte for byte) via the reverse conversion into CSV and the conversion
+ * back into line-delimited JSON.
+ */
+public class LDJ2CSVConverterTest {
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	@Test
+	public void testRoundTrip() throws IOException, CSV2SCLDJException {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+		final List<String> columns = Arrays.asList(csv.substring(0, csv.indexOf('\n')).replace("\"", "").trim().split(","));
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final String ldj = TestUtil.convertToString(csv, schema, ConversionOptions.defaults());
+
+		Assert.assertEquals(ldj, TestUtil.convertToString(reverse(ldj, columns, ConversionOptions.defaults()), schema, ConversionOptions.defaults()));
+	}
+
+	@Test
+	public void testQuotingAndEscaping() throws IOException, CSV2SCLDJException {
+
+		final String ldj = "{\"record_id\":\"a \\\"quoted\\\", \\\\escaped\\nvalue \",\"title\":\" \\\\n\\r\\t\",\"url\":[\"x,y\",\"\\\"z\\\"\"]}" + LINE_SEPARATOR
+				+ "{\"record_id\":\"b\"}" + LINE_SEPARATOR;
+		final String csv = reverse(ldj, Arrays.asList("record_id", "title", "url"), ConversionOptions.defaults());
+
+		Assert.assertTrue(csv.startsWith("record_id,title,url" + LINE_SEPARATOR));
+		Assert.assertEquals(ldj, TestUtil.convertToString(csv, TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ConversionOptions.defaults()));
+	}
+
+	@Test
+	public void testParallelConversion() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final String ldj = TestUtil.convertToString(TestUtil.getResourceAsString("input_sample.csv"), schema, ConversionOptions.defaults());
+		final ConversionOptions options = ConversionOptions.builder()
+				.threads(2)
+				.batchSize(3)
+				.build();
+
+		// all schema fields in schema order
+		final String csv = reverse(ldj, null, ConversionOptions.defaults());
+
+		Assert.assertEquals(csv, reverse(ldj, null, options));
+		Assert.assertEquals(csv, reverse(TestUtil.convertToString(csv, schema, ConversionOptions.defaults()), null, options));
+	}
+
+	@Test(expected = CSV2SCLDJException.class)
+	public void testArrayInSinglevaluedField() throws IOException, CSV2SCLDJException {
+
+		reverse("{\"record_id\":[\"a\",\"b\"]}" + LINE_SEPARATOR, null, ConversionOptions.defaults());
+	}
+
+	@Test(expected = CSV2SCLDJException.class)
+	public void testUnknownField() throws IOException, CSV2SCLDJException {
+
+		reverse("{\"record_id\":\"a\",\"title\":\"b\"}" + LINE_SEPARATOR, Arrays.asList("record_id"), ConversionOptions.defaults());
+	}
+
+	private static String reverse(final String ldj,
+	                              final List<String> columns,
+	                              final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final StringWriter writer = new StringWriter();
+
+		if (columns == null) {
+
+			LDJ2CSVConverter.convert(new StringReader(ldj), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), writer, TestUtil.CELL_VALUE_DELIMITER, options);
+		} else {
+
+			LDJ2CSVConverter.convert(new StringReader(ldj), TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), columns, writer, TestUtil.CELL_VALUE_DELIMITER, options);
+		}
+
+		return writer.toString();
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.slubdresden.csv2scldj.csv.CSVRecordReader;
+import de.slubdresden.csv2scldj.csv.CSVTokenizer;
+import de.slubdresden.csv2scldj.csv.InputSplit;
+import de.slubdresden.csv2scldj.csv.MappedInputSplitter;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the input splits start and end at record boundaries, i.e., that parsing all splits independently results
+ * in the same records as parsing the whole input at once.
+ */
+public class MappedInputSplitterTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testSampleInput() throws IOException {
+
+		final String input = TestUtil.getResourceAsString("input_sample.csv");
+
+		for (final long splitSize : new long[]{0, 1, 100, 1000, Long.MAX_VALUE / 2}) {
+
+			compare(input, splitSize);
+		}
+	}
+
+	@Test
+	public void testLineBreaksInQuotedAndEscapedCells() throws IOException {
+
+		final String input = "id,title\r\n"
+				+ "1,\"multi\nline\r\ntitle\"\r\n"
+				+ "2,\"quoted \"\" quote\n\",x\n"
+				+ "3,escaped\\\nline break\n"
+				+ "4,\"escaped \\\" quote\n\"\n"
+				+ "5,  \"leading spaces\n\"  \n"
+				+ "\n"
+				+ "6, \"non-ASCII leading space\n\",größe\n"
+				+ "7,no line break at the end";
+
+		for (long splitSize = 0; splitSize < 20; splitSize++) {
+
+			compare(input, splitSize);
+		}
+	}
+
+	private void compare(final String input,
+	                     final long splitSize) throws IOException {
+
+		final File csvInputFile = temporaryFolder.newFile();
+		Files.write(csvInputFile.toPath(), input.getBytes(StandardCharsets.UTF_8));
+
+		final List<String> expectedRecords = read(new CSVTokenizer(new StringReader(input)));
+		final List<String> actualRecords = new ArrayList<>();
+
+		try (final MappedInputSplitter splitter = new MappedInputSplitter(csvInputFile.toPath())) {
+
+			InputSplit split;
+
+			while ((split = splitter.nextSplit(splitSize)) != null) {
+
+				Assert.assertTrue(split.getLength() > 0);
+
+				actualRecords.addAll(read(new CSVTokenizer(splitter.openReader(split))));
+			}
+
+			Assert.assertEquals(splitter.size(), splitter.position());
+		}
+
+		Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+
+		for (int i = 0; i < expectedRecords.size(); i++) {
+
+			// record numbers are relative to the splits
+			Assert.assertEquals(cells(expectedRecords.get(i)), cells(actualRecords.get(i)));
+		}
+	}
+
+	private static String cells(final String describedRecord) {
+
+		return describedRecord.substring(describedRecord.indexOf('['));
+	}
+
+	private static List<String> read(final CSVRecordReader recordReader) throws IOException {
+
+		final List<String> records = new ArrayList<>();
+
+		while (recordReader.nextRecord()) {
+
+			records.add(recordReader.describe());
+		}
+
+		recordReader.close();
+
+		return records;
+	}
+}
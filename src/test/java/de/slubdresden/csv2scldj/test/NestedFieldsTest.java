@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.LDJ2CSVConverter;
+import de.slubdresden.csv2scldj.OutputFormat;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldType;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that path-style field names are written as nested objects and arrays of objects (and converted back into the
+ * same CSV).
+ */
+public class NestedFieldsTest {
+
+	private static final String HEADER = "id,title.main,author.name,author.role,tags,subject.topic,title.sub,subject.geo.name,author.order,subject.geo.code";
+
+	private static final String CSV = HEADER + "\n"
+			+ "1,Main,A/()B,x/()y,t1/()t2,s1/()s2,Sub,Dresden,1/()2,42\n"
+			+ "2,Only main,A/()/()C,/()z,,,, , ,\n"
+			+ "3,,,,,,,,,\n";
+
+	private static final String LDJ = "{\"id\":\"1\",\"title\":{\"main\":\"Main\",\"sub\":\"Sub\"},\"author\":[{\"name\":\"A\",\"role\":\"x\",\"order\":1},{\"name\":\"B\",\"role\":\"y\",\"order\":2}],\"tags\":[\"t1\",\"t2\"],\"subject\":{\"topic\":[\"s1\",\"s2\"],\"geo\":{\"name\":\"Dresden\",\"code\":42}}}\n"
+			+ "{\"id\":\"2\",\"title\":{\"main\":\"Only main\"},\"author\":[{\"name\":\"A\"},{\"role\":\"z\"},{\"name\":\"C\"}]}\n"
+			+ "{\"id\":\"3\"}\n";
+
+	private static final io.vavr.collection.Map<String, Field> SCHEMA = io.vavr.collection.LinkedHashMap.of(
+			"id", new Field("id", false, true),
+			"title.main", new Field("title.main", false, false),
+			"title.sub", new Field("title.sub", false, false),
+			"author", new Field("author", true, false),
+			"author.name", new Field("author.name", false, false),
+			"author.role", new Field("author.role", false, false),
+			"author.order", new Field("author.order", false, false, FieldType.INTEGER),
+			"subject.topic", new Field("subject.topic", true, false),
+			"subject.geo.name", new Field("subject.geo.name", false, false),
+			"subject.geo.code", new Field("subject.geo.code", false, false, FieldType.INTEGER))
+			.put("tags", new Field("tags", true, false));
+
+	@Test
+	public void testNestedOutput() throws IOException, CSV2SCLDJException {
+
+		Assert.assertEquals(LDJ, TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.defaults()));
+		// the chunked and the parallel conversion write the same output
+		Assert.assertEquals(LDJ, TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder().errorPolicy(ErrorPolicy.SKIP).build()));
+		Assert.assertEquals(LDJ, TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder().threads(2).batchSize(1).build()));
+	}
+
+	@Test
+	public void testSkippedNestedRecord() throws IOException, CSV2SCLDJException {
+
+		// the invalid value is detected inside of the array of objects and inside of the nested object
+		final String csv = CSV + "4,,A/()B,,,,,,1/()x,\n"
+				+ "5,,,,,,,Dresden,,x\n"
+				+ "6,,,,,,,Leipzig,,\n";
+
+		Assert.assertEquals(LDJ + "{\"id\":\"6\",\"subject\":{\"geo\":{\"name\":\"Leipzig\"}}}\n", TestUtil.convertToString(csv, SCHEMA, ConversionOptions.builder().errorPolicy(ErrorPolicy.SKIP).build()));
+	}
+
+	@Test
+	public void testReverseConversion() throws IOException, CSV2SCLDJException {
+
+		final StringWriter csv = new StringWriter();
+
+		LDJ2CSVConverter.convert(new StringReader(LDJ), SCHEMA, Arrays.asList(HEADER.split(",")), csv, TestUtil.CELL_VALUE_DELIMITER, ConversionOptions.defaults());
+
+		Assert.assertEquals(LDJ, TestUtil.convertToString(csv.toString(), SCHEMA, ConversionOptions.defaults()));
+
+		// the group definition is no column
+		final StringWriter schemaOrderCSV = new StringWriter();
+
+		LDJ2CSVConverter.convert(new StringReader(LDJ), SCHEMA, schemaOrderCSV, TestUtil.CELL_VALUE_DELIMITER, ConversionOptions.defaults());
+
+		Assert.assertTrue(schemaOrderCSV.toString().startsWith("id,title.main,title.sub,author.name,author.role,author.order,subject.topic,subject.geo.name,subject.geo.code,tags"));
+	}
+
+	@Test
+	public void testInvalidNesting() throws IOException {
+
+		checkInvalidNesting("id,title,title.main\n1,a,b\n", "the field 'title' cannot be written as value and as object of nested fields");
+		checkInvalidNesting("id,title.main,title\n1,a,b\n", "the field 'title' cannot be written as value and as object of nested fields");
+		checkInvalidNesting("id,author.name,author.geo.name\n1,a,b\n", "the array of objects 'author' cannot contain the nested object 'author.geo'");
+		checkInvalidNesting("id,author.tags\n1,a\n", "the array of objects 'author' cannot contain the multivalued field 'author.tags' (its values are already split into the objects)");
+		checkInvalidNesting("id,title..main\n1,a\n", "the field name 'title..main' contains an empty path segment");
+
+		try {
+
+			TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder().outputFormat(OutputFormat.PARQUET).build());
+
+			Assert.fail("the Parquet output should reject nested fields");
+		} catch (final CSV2SCLDJException e) {
+
+			Assert.assertTrue(e.getMessage().contains("supports only flat schemata"));
+		}
+	}
+
+	private static void checkInvalidNesting(final String csv,
+	                                        final String expectedMessage) throws IOException {
+
+		final io.vavr.collection.Map<String, Field> schema = SCHEMA
+				.put("title", new Field("title", false, false))
+				.put("author.geo.name", new Field("author.geo.name", false, false))
+				.put("author.tags", new Field("author.tags", true, false))
+				.put("title..main", new Field("title..main", false, false));
+
+		try {
+
+			TestUtil.convertToString(csv, schema, ConversionOptions.defaults());
+
+			Assert.fail(String.format("the conversion should fail with '%s'", expectedMessage));
+		} catch (final CSV2SCLDJException e) {
+
+			Assert.assertEquals(expectedMessage, e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,376 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.OutputFormat;
+import de.slubdresden.csv2scldj.columnar.ParquetOptions;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldType;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks the layout of the Parquet output, i.e., the magic bytes, the footer and the (plain-encoded) values of the
+ * converted records, and reads the Parquet output back (via parquet-hadoop) to compare its records with the
+ * line-delimited JSON output.
+ */
+public class ParquetOutputTest {
+
+	private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * uncompressed and without dictionaries, i.e., the values are contained as they are (prefixed by their length)
+	 */
+	private static final ParquetOptions PLAIN = ParquetOptions.of(ParquetOptions.DEFAULT_ROW_GROUP_BYTES, 0, Compression.NONE, 0);
+
+	/**
+	 * uncompressed with dictionaries
+	 */
+	private static final ParquetOptions DICTIONARY = ParquetOptions.of(ParquetOptions.DEFAULT_ROW_GROUP_BYTES, ParquetOptions.DEFAULT_MAX_DICTIONARY_BYTES, Compression.NONE, 0);
+
+	private static final String TYPED_CSV = "id,count,size,price,available,published,scores\n"
+			+ "a, 42 ,-9223372036854775808,1.5,TRUE,2012-02-29,1e3/()-0.25/()+7\n"
+			+ "b,-2147483648,9223372036854775807,.5,false,2012-02-29T13:45:30.123Z,12345678901234567890\n"
+			+ "c,,,00.10,,1999-12,\n";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testParquetFile() throws IOException, CSV2SCLDJException {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final byte[] parquet = TestUtil.convert(csv, schema, ConversionOptions.builder().outputFormat(OutputFormat.PARQUET).build());
+		final int length = parquet.length;
+
+		Assert.assertEquals(0, indexOf(parquet, MAGIC, 0));
+		Assert.assertEquals(length - MAGIC.length, indexOf(parquet, MAGIC, length - MAGIC.length));
+
+		final int footerLength = (parquet[length - 8] & 0xFF) | (parquet[length - 7] & 0xFF) << 8 | (parquet[length - 6] & 0xFF) << 16 | (parquet[length - 5] & 0xFF) << 24;
+		final int footerStart = length - 8 - footerLength;
+
+		Assert.assertTrue(footerStart > MAGIC.length);
+		Assert.assertTrue(indexOf(parquet, "csv2scldj".getBytes(StandardCharsets.UTF_8), footerStart) > 0);
+		Assert.assertTrue(indexOf(parquet, "record_id".getBytes(StandardCharsets.UTF_8), footerStart) > 0);
+
+		// dictionary encoding and compression make the output smaller than the line-delimited JSON (even for a few records)
+		Assert.assertTrue(length < TestUtil.convert(csv, schema, ConversionOptions.defaults()).length);
+	}
+
+	@Test
+	public void testSkippedRecords() throws IOException, CSV2SCLDJException {
+
+		// the third record has no record ID (which is required)
+		final String csv = TestUtil.getResourceAsString("input_sample.csv").replaceFirst("\"sid~10001\"", "\"\"");
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final ConversionOptions options = ConversionOptions.builder()
+				.outputFormat(OutputFormat.PARQUET)
+				.parquetOptions(PLAIN)
+				.errorPolicy(ErrorPolicy.SKIP)
+				.build();
+
+		final byte[] parquet = TestUtil.convert(csv, schema, options);
+
+		Assert.assertTrue(indexOf(parquet, plain("sid~10000"), 0) > 0);
+		Assert.assertTrue(indexOf(parquet, plain("sid~10002"), 0) > 0);
+		// the values of the skipped record are discarded
+		Assert.assertEquals(-1, indexOf(parquet, plain("28A.3 Normalverteilung, zentraler Grenzwertsatz, Skizze einer Herleitung"), 0));
+
+		try {
+
+			TestUtil.convert(csv, schema, options.toBuilder().errorPolicy(ErrorPolicy.FAIL).build());
+
+			Assert.fail("a record without required value should abort the conversion");
+		} catch (final CSV2LDJError e) {
+
+			Assert.assertTrue(e.getCause().getMessage().contains("record_id"));
+		}
+	}
+
+	@Test
+	public void testDictionaryEncodedRecords() throws Exception {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+		final List<ColumnChunkMetaData> columnChunks = assertSameRecords(csv, TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), DICTIONARY, CompressionCodecName.UNCOMPRESSED);
+
+		Assert.assertTrue(columnChunks.stream().anyMatch(columnChunk -> columnChunk.getEncodings().contains(Encoding.PLAIN_DICTIONARY)));
+	}
+
+	@Test
+	public void testPlainEncodedRecords() throws Exception {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+		final List<ColumnChunkMetaData> columnChunks = assertSameRecords(csv, TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), PLAIN, CompressionCodecName.UNCOMPRESSED);
+
+		Assert.assertTrue(columnChunks.stream().noneMatch(columnChunk -> columnChunk.getEncodings().contains(Encoding.PLAIN_DICTIONARY)));
+	}
+
+	@Test
+	public void testRepeatedAndOptionalColumns() throws Exception {
+
+		// the second record has no value for the (optional) title and only one value for the (repeated) authors
+		final String csv = "record_id,title,author\n"
+				+ "sid~1,Title 1,Author 1/()/() Author 2 /()Author 3\n"
+				+ "sid~2,,Author 4\n"
+				+ "sid~3,Title 3,\n";
+		final io.vavr.collection.Map<String, Field> schema = io.vavr.collection.LinkedHashMap.of(
+				"record_id", new Field("record_id", false, true, FieldType.STRING),
+				"title", new Field("title", false, false, FieldType.STRING),
+				"author", new Field("author", true, false, FieldType.STRING));
+
+		assertSameRecords(csv, schema, PLAIN, CompressionCodecName.UNCOMPRESSED);
+		assertSameRecords(csv, schema, DICTIONARY, CompressionCodecName.UNCOMPRESSED);
+	}
+
+	@Test
+	public void testTypedRecords() throws Exception {
+
+		final io.vavr.collection.Map<String, Field> schema = io.vavr.collection.LinkedHashMap.of(
+				"id", new Field("id", false, true, FieldType.STRING),
+				"count", new Field("count", false, false, FieldType.INTEGER),
+				"size", new Field("size", false, false, FieldType.LONG),
+				"price", new Field("price", false, false, FieldType.DOUBLE),
+				"available", new Field("available", false, false, FieldType.BOOLEAN),
+				"published", new Field("published", false, false, FieldType.DATE),
+				"scores", new Field("scores", true, false, FieldType.DOUBLE));
+
+		assertSameRecords(TYPED_CSV, schema, PLAIN, CompressionCodecName.UNCOMPRESSED);
+		assertSameRecords(TYPED_CSV, schema, DICTIONARY, CompressionCodecName.UNCOMPRESSED);
+
+		assertSameRecords(TestUtil.getResourceAsString("input_sample.csv"), TestUtil.readSchema("finc_solr_schema_typed.csv"), DICTIONARY, CompressionCodecName.UNCOMPRESSED);
+	}
+
+	@Test
+	public void testCompressedRecords() throws Exception {
+
+		final String csv = TestUtil.getResourceAsString("input_sample.csv");
+
+		assertSameRecords(csv, TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ParquetOptions.of(ParquetOptions.DEFAULT_ROW_GROUP_BYTES, ParquetOptions.DEFAULT_MAX_DICTIONARY_BYTES, Compression.GZIP, Compression.GZIP.getDefaultLevel()), CompressionCodecName.GZIP);
+		assertSameRecords(csv, TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ParquetOptions.defaults(), CompressionCodecName.ZSTD);
+		// a row group per record
+		assertSameRecords(csv, TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA), ParquetOptions.of(1, ParquetOptions.DEFAULT_MAX_DICTIONARY_BYTES, Compression.ZSTD, Compression.ZSTD.getDefaultLevel()), CompressionCodecName.ZSTD);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParallelConversion() {
+
+		ConversionOptions.builder()
+				.outputFormat(OutputFormat.PARQUET)
+				.threads(2)
+				.build();
+	}
+
+	/**
+	 * converts the given CSV into Parquet and line-delimited JSON and compares the records that are read back from the
+	 * Parquet output with the line-delimited JSON records
+	 *
+	 * @return the column chunks of the Parquet output
+	 */
+	private List<ColumnChunkMetaData> assertSameRecords(final String csv,
+	                                                    final io.vavr.collection.Map<String, Field> schema,
+	                                                    final ParquetOptions parquetOptions,
+	                                                    final CompressionCodecName expectedCodec) throws IOException, CSV2SCLDJException, JSONException {
+
+		final String ldj = new String(TestUtil.convert(csv, schema, ConversionOptions.defaults()), StandardCharsets.UTF_8);
+		final byte[] parquet = TestUtil.convert(csv, schema, ConversionOptions.builder()
+				.outputFormat(OutputFormat.PARQUET)
+				.parquetOptions(parquetOptions)
+				.build());
+
+		final Path parquetFile = temporaryFolder.newFile().toPath();
+
+		Files.write(parquetFile, parquet);
+
+		final List<String> expectedRecords = new ArrayList<>();
+
+		for (final String line : ldj.split("\n")) {
+
+			expectedRecords.add(line);
+		}
+
+		final List<String> actualRecords = new ArrayList<>();
+		final List<ColumnChunkMetaData> columnChunks = new ArrayList<>();
+
+		try (final ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(new org.apache.hadoop.fs.Path(parquetFile.toUri()), new Configuration()))) {
+
+			final MessageType parquetSchema = reader.getFooter().getFileMetaData().getSchema();
+
+			for (final BlockMetaData rowGroup : reader.getFooter().getBlocks()) {
+
+				for (final ColumnChunkMetaData columnChunk : rowGroup.getColumns()) {
+
+					Assert.assertEquals(expectedCodec, columnChunk.getCodec());
+
+					columnChunks.add(columnChunk);
+				}
+			}
+
+			PageReadStore rowGroup;
+
+			while ((rowGroup = reader.readNextRowGroup()) != null) {
+
+				final RecordReader<Group> recordReader = new ColumnIOFactory().getColumnIO(parquetSchema).getRecordReader(rowGroup, new GroupRecordConverter(parquetSchema));
+
+				for (long row = 0; row < rowGroup.getRowCount(); row++) {
+
+					actualRecords.add(toJSON(recordReader.read(), parquetSchema).toString());
+				}
+			}
+		}
+
+		Assert.assertEquals(expectedRecords.size(), actualRecords.size());
+
+		for (int i = 0; i < expectedRecords.size(); i++) {
+
+			JSONAssert.assertEquals(expectedRecords.get(i), actualRecords.get(i), true);
+		}
+
+		return columnChunks;
+	}
+
+	/**
+	 * @return the given Parquet record as JSON object (repeated columns as arrays, columns without any value are omitted)
+	 */
+	private static JSONObject toJSON(final Group record,
+	                                 final MessageType parquetSchema) throws JSONException {
+
+		final JSONObject object = new JSONObject();
+
+		for (int field = 0; field < parquetSchema.getFieldCount(); field++) {
+
+			final Type type = parquetSchema.getType(field);
+			final int valueCount = record.getFieldRepetitionCount(field);
+
+			if (valueCount == 0) {
+
+				continue;
+			}
+
+			if (type.isRepetition(Type.Repetition.REPEATED)) {
+
+				final JSONArray values = new JSONArray();
+
+				for (int index = 0; index < valueCount; index++) {
+
+					values.put(value(record, type, field, index));
+				}
+
+				object.put(type.getName(), values);
+			} else {
+
+				object.put(type.getName(), value(record, type, field, 0));
+			}
+		}
+
+		return object;
+	}
+
+	private static Object value(final Group record,
+	                            final Type type,
+	                            final int field,
+	                            final int index) {
+
+		switch (type.asPrimitiveType().getPrimitiveTypeName()) {
+
+			case INT32:
+
+				return record.getInteger(field, index);
+			case INT64:
+
+				return record.getLong(field, index);
+			case DOUBLE:
+
+				return record.getDouble(field, index);
+			case BOOLEAN:
+
+				return record.getBoolean(field, index);
+			default:
+
+				return record.getString(field, index);
+		}
+	}
+
+	/**
+	 * @return the given value plain-encoded, i.e., prefixed by its length (4 bytes, little-endian)
+	 */
+	private static byte[] plain(final String value) {
+
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		final byte[] plain = new byte[bytes.length + 4];
+
+		plain[0] = (byte) bytes.length;
+		plain[1] = (byte) (bytes.length >>> 8);
+		System.arraycopy(bytes, 0, plain, 4, bytes.length);
+
+		return plain;
+	}
+
+	private static int indexOf(final byte[] bytes,
+	                           final byte[] pattern,
+	                           final int fromIndex) {
+
+		outer:
+		for (int i = fromIndex; i <= bytes.length - pattern.length; i++) {
+
+			for (int j = 0; j < pattern.length; j++) {
+
+				if (bytes[i + j] != pattern[j]) {
+
+					continue outer;
+				}
+			}
+
+			return i;
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.io.Compression;
+import de.slubdresden.csv2scldj.io.ShardedOutputStream;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that sharded output is cut at record ends and that the shards (in manifest order) contain the same
+ * line-delimited JSON as the unsharded output.
+ */
+public class ShardedOutputStreamTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testShardsByRecordCount() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final byte[] expected = TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, ConversionOptions.defaults());
+		final Path outputFile = temporaryFolder.getRoot().toPath().resolve("out.ldj");
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, new ShardedOutputStream(outputFile, 0, 3, 0, 2), ConversionOptions.defaults());
+
+		final List<JsonNode> manifest = readManifest("out");
+		final int records = new String(expected, StandardCharsets.UTF_8).split("\n").length;
+
+		Assert.assertEquals((records + 2) / 3, manifest.size());
+		Assert.assertArrayEquals(expected, readShards(manifest, Compression.NONE));
+		Assert.assertEquals("out-00000.ldj", manifest.get(0).get("shard").asText());
+
+		for (int i = 0; i < manifest.size(); i++) {
+
+			Assert.assertEquals(Math.min(3, records - i * 3), manifest.get(i).get("records").asInt());
+		}
+	}
+
+	@Test
+	public void testCompressedShardsBySize() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final byte[] expected = TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, ConversionOptions.defaults());
+		final Path outputFile = temporaryFolder.getRoot().toPath().resolve("out.ldj.gz");
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, new ShardedOutputStream(outputFile, Compression.GZIP.getDefaultLevel(), 0, 1000, 3), ConversionOptions.defaults());
+
+		final List<JsonNode> manifest = readManifest("out");
+
+		Assert.assertTrue(manifest.size() > 1);
+		Assert.assertTrue(manifest.get(0).get("shard").asText().endsWith(".ldj.gz"));
+		Assert.assertArrayEquals(expected, readShards(manifest, Compression.GZIP));
+	}
+
+	private List<JsonNode> readManifest(final String shardBaseName) throws IOException {
+
+		final File manifestFile = new File(temporaryFolder.getRoot(), shardBaseName + ShardedOutputStream.MANIFEST_FILE_EXTENSION);
+		final List<JsonNode> manifest = new java.util.ArrayList<>();
+
+		for (final String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+
+			manifest.add(MAPPER.readTree(line));
+		}
+
+		// shards are added to the manifest, when they are complete, i.e., not necessarily in order
+		manifest.sort(java.util.Comparator.comparingInt(shard -> shard.get("index").asInt()));
+
+		return manifest;
+	}
+
+	private byte[] readShards(final List<JsonNode> manifest,
+	                          final Compression compression) throws IOException {
+
+		final ByteArrayOutputStream shards = new ByteArrayOutputStream();
+
+		for (final JsonNode shard : manifest) {
+
+			try (final InputStream inputStream = compression.decompress(Files.newInputStream(temporaryFolder.getRoot().toPath().resolve(shard.get("shard").asText())))) {
+
+				final byte[] shardContent = ByteStreams.toByteArray(inputStream);
+
+				Assert.assertEquals(shard.get("bytes").asLong(), shardContent.length);
+
+				shards.write(shardContent);
+			}
+		}
+
+		return shards.toByteArray();
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.io.HttpBatchSender;
+import de.slubdresden.csv2scldj.io.SolrCommitPolicy;
+import de.slubdresden.csv2scldj.io.SolrUpdateOutputStream;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the Solr output posts all records in batches (incl. retries of failed requests) to a stub Solr update
+ * endpoint.
+ */
+public class SolrUpdateOutputStreamTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private HttpServer server;
+	private URL updateURL;
+
+	@Before
+	public void setUp() throws IOException {
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/solr/finc/update", this::handleUpdate);
+		server.start();
+
+		updateURL = new URL("http://localhost:" + server.getAddress().getPort() + "/solr/finc/update");
+	}
+
+	@After
+	public void tearDown() {
+
+		server.stop(0);
+	}
+
+	@Test
+	public void testBatches() throws IOException, CSV2SCLDJException {
+
+		final List<JsonNode> documents = convert(4, 0, SolrCommitPolicy.END);
+
+		// 10 records in batches of 4 records plus the commit
+		Assert.assertEquals(4, requests.size());
+		Assert.assertEquals(10, documents.size());
+		Assert.assertTrue(requests.get(0).contains("commitWithin=1000"));
+		Assert.assertEquals("{\"commit\":{}}", requests.get(3).split("\n", 2)[1]);
+	}
+
+	@Test
+	public void testRetries() throws IOException, CSV2SCLDJException {
+
+		final List<JsonNode> documents = convert(1000, 2, SolrCommitPolicy.NONE);
+
+		// 2 failed requests plus the successful one
+		Assert.assertEquals(3, requests.size());
+		Assert.assertEquals(10, documents.size());
+	}
+
+	private List<JsonNode> convert(final int batchRecords,
+	                               final int failuresArg,
+	                               final SolrCommitPolicy commitPolicy) throws IOException, CSV2SCLDJException {
+
+		failures.set(failuresArg);
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema(TestUtil.FINC_SOLR_SCHEMA);
+		final HttpBatchSender sender = new HttpBatchSender("csv2scldj-test-sender", 2, 3, 10L);
+		final OutputStream outputStream = new SolrUpdateOutputStream(updateURL, batchRecords, SolrUpdateOutputStream.DEFAULT_BATCH_BYTES, commitPolicy, 1000L, sender);
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, outputStream, ConversionOptions.builder().build());
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+		TestUtil.convert(TestUtil.getResourceAsReader("input_sample.csv"), schema, expected, ConversionOptions.builder().build());
+
+		final List<JsonNode> documents = new ArrayList<>();
+
+		synchronized (requests) {
+
+			for (final String request : requests) {
+
+				final JsonNode body = MAPPER.readTree(request.split("\n", 2)[1]);
+
+				if (body.isArray() && !request.startsWith("FAILED")) {
+
+					body.forEach(documents::add);
+				}
+			}
+		}
+
+		// batches may arrive out of order
+		final List<String> expectedDocuments = new ArrayList<>();
+
+		for (final String line : new String(expected.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+
+			expectedDocuments.add(MAPPER.readTree(line).toString());
+		}
+
+		final List<String> actualDocuments = new ArrayList<>();
+
+		documents.forEach(document -> actualDocuments.add(document.toString()));
+
+		Collections.sort(expectedDocuments);
+		Collections.sort(actualDocuments);
+
+		Assert.assertEquals(expectedDocuments, actualDocuments);
+
+		return documents;
+	}
+
+	private void handleUpdate(final HttpExchange exchange) throws IOException {
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		try (final InputStream inputStream = exchange.getRequestBody()) {
+
+			final byte[] buffer = new byte[8192];
+
+			int read;
+
+			while ((read = inputStream.read(buffer)) != -1) {
+
+				body.write(buffer, 0, read);
+			}
+		}
+
+		final boolean fail = failures.getAndDecrement() > 0;
+
+		requests.add((fail ? "FAILED " : "") + exchange.getRequestURI() + "\n" + new String(body.toByteArray(), StandardCharsets.UTF_8));
+
+		final byte[] response = "{\"responseHeader\":{\"status\":0}}".getBytes(StandardCharsets.UTF_8);
+
+		exchange.sendResponseHeaders(fail ? 503 : 200, response.length);
+
+		try (final OutputStream outputStream = exchange.getResponseBody()) {
+
+			outputStream.write(response);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2LDJError;
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.ErrorPolicy;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldType;
+import de.slubdresden.csv2scldj.util.TestUtil;
+
+/**
+ * Checks that the values of typed fields are written as native JSON values (and that invalid values are rejected per
+ * field).
+ */
+public class TypedFieldsTest {
+
+	private static final String HEADER = "id,count,size,price,available,published,scores\n";
+
+	private static final io.vavr.collection.Map<String, Field> SCHEMA = io.vavr.collection.LinkedHashMap.of(
+			"id", new Field("id", false, true, FieldType.STRING),
+			"count", new Field("count", false, false, FieldType.INTEGER),
+			"size", new Field("size", false, false, FieldType.LONG),
+			"price", new Field("price", false, false, FieldType.DOUBLE),
+			"available", new Field("available", false, false, FieldType.BOOLEAN),
+			"published", new Field("published", false, false, FieldType.DATE),
+			"scores", new Field("scores", true, false, FieldType.DOUBLE));
+
+	@Test
+	public void testTypedSchema() throws IOException, CSV2SCLDJException {
+
+		final io.vavr.collection.Map<String, Field> schema = TestUtil.readSchema("finc_solr_schema_typed.csv");
+
+		Assert.assertEquals(FieldType.INTEGER, schema.get("source_id").get().getType());
+		Assert.assertEquals(FieldType.DATE, schema.get("publishDateSort").get().getType());
+		Assert.assertEquals(FieldType.STRING, schema.get("title").get().getType());
+
+		final String ldj = TestUtil.convertToString(TestUtil.getResourceAsString("input_sample.csv"), schema, ConversionOptions.defaults());
+
+		Assert.assertTrue(ldj.startsWith("{\"record_id\":\"sid~1\",\"source_id\":145,"));
+		Assert.assertTrue(ldj.contains("\"publishDate\":[\"2009-01-01T00:00:00Z\"],\"publishDateSort\":\"2009-01-01T00:00:00Z\""));
+	}
+
+	@Test
+	public void testNativeValues() throws IOException, CSV2SCLDJException {
+
+		final String ldj = TestUtil.convertToString(HEADER
+				+ "a, 42 ,-9223372036854775808,1.5,TRUE,2012-02-29,1e3/()-0.25/()+7\n"
+				+ "b,-2147483648,9223372036854775807,.5,false,2012-02-29T13:45:30.123Z,12345678901234567890\n"
+				+ "c,,,00.10,,1999-12,\n", SCHEMA, ConversionOptions.defaults());
+
+		Assert.assertEquals("{\"id\":\"a\",\"count\":42,\"size\":-9223372036854775808,\"price\":1.5,\"available\":true,\"published\":\"2012-02-29T00:00:00Z\",\"scores\":[1e3,-0.25,7.0]}\n"
+				+ "{\"id\":\"b\",\"count\":-2147483648,\"size\":9223372036854775807,\"price\":0.5,\"available\":false,\"published\":\"2012-02-29T13:45:30.123Z\",\"scores\":[12345678901234567890]}\n"
+				+ "{\"id\":\"c\",\"price\":0.1,\"published\":\"1999-12-01T00:00:00Z\"}\n", ldj);
+	}
+
+	@Test
+	public void testInvalidValues() throws IOException, CSV2SCLDJException {
+
+		final String csv = HEADER
+				+ "a,2147483648,,,,,\n"
+				+ "b,,1x,,,,\n"
+				+ "c,,,1e999,,,\n"
+				+ "d,,,,yes,,\n"
+				+ "e,,,,,2013-02-29,\n"
+				+ "f,,,,,2013-02-28T24:00,\n"
+				+ "g,,,,,,1/()NaN\n"
+				+ "h,1,1,1,true,2013,1\n";
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String ldj = TestUtil.convertToString(csv, SCHEMA, ConversionOptions.builder()
+				.errorPolicy(ErrorPolicy.SKIP)
+				.metrics(metrics)
+				.build());
+
+		Assert.assertEquals("{\"id\":\"h\",\"count\":1,\"size\":1,\"price\":1,\"available\":true,\"published\":\"2013-01-01T00:00:00Z\",\"scores\":[1]}\n", ldj);
+		Assert.assertEquals(7, metrics.getRecordsRejected());
+		Assert.assertEquals(Long.valueOf(1), metrics.getFieldTypeErrorCounts().get("count"));
+		Assert.assertEquals(Long.valueOf(1), metrics.getFieldTypeErrorCounts().get("size"));
+		Assert.assertEquals(Long.valueOf(1), metrics.getFieldTypeErrorCounts().get("price"));
+		Assert.assertEquals(Long.valueOf(1), metrics.getFieldTypeErrorCounts().get("available"));
+		Assert.assertEquals(Long.valueOf(2), metrics.getFieldTypeErrorCounts().get("published"));
+		Assert.assertEquals(Long.valueOf(1), metrics.getFieldTypeErrorCounts().get("scores"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getFieldTypeErrorCounts().get("id"));
+
+		try {
+
+			TestUtil.convertToString(csv, SCHEMA, ConversionOptions.defaults());
+
+			Assert.fail("an invalid integer should abort the conversion");
+		} catch (final CSV2LDJError e) {
+
+			Assert.assertTrue(e.getCause().getCause().getMessage().contains("field 'count' contains the value '2147483648', which is not a valid integer"));
+		}
+	}
+
+	@Test(expected = CSV2SCLDJException.class)
+	public void testUnknownType() throws CSV2SCLDJException {
+
+		FieldType.fromName("decimal");
+	}
+
+}
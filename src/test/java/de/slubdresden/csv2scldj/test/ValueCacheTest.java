@@ -0,0 +1,183 @@
+/**
+ * Copyright © 2017 SLUB Dresden (<code@dswarm.org>)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.slubdresden.csv2scldj.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.metrics.ConversionMetrics;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.model.FieldType;
+import de.slubdresden.csv2scldj.util.TestUtil;
+import de.slubdresden.csv2scldj.utils.SchemaUtils;
+
+/**
+ * Checks that cached values are written exactly like uncached values and that the cache hits and misses are counted
+ * per field (incl. the automatic detection of the fields whose cache pays off).
+ */
+public class ValueCacheTest {
+
+	private static final String PUBLISHER = "Verlag f\u00fcr Geschichte";
+	private static final String COLLECTION = "\u0421\u0431\u043e\u0440\u043d\u0438\u043a";
+
+	private static final String CSV = "id,publisher,collection,note\n"
+			+ "1," + PUBLISHER + "," + COLLECTION + "/()Reihe A,\"say \"\"hi\"\"\"\n"
+			+ "2," + PUBLISHER + ",Reihe A,\"say \"\"hi\"\"\"\n"
+			+ "3,Springer," + COLLECTION + "/()Reihe B,\" x \"\n"
+			+ "4," + PUBLISHER + ",Reihe A/()Reihe B,\" x \"\n";
+
+	private static final io.vavr.collection.Map<String, Field> SCHEMA = io.vavr.collection.LinkedHashMap.of(
+			"id", new Field("id", false, true),
+			"publisher", new Field("publisher", false, false, FieldType.STRING, true),
+			"collection", new Field("collection", true, false, FieldType.STRING, true),
+			"note", new Field("note", false, false, FieldType.STRING, true));
+
+	@Test
+	public void testCachedValues() throws IOException, CSV2SCLDJException {
+
+		final String uncached = TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder().valueCacheSize(0).build());
+
+		Assert.assertTrue(uncached.startsWith("{\"id\":\"1\",\"publisher\":\"" + PUBLISHER + "\",\"collection\":[\"" + COLLECTION + "\",\"Reihe A\"],\"note\":\"say \\\"hi\\\"\"}\n"));
+		Assert.assertTrue(uncached.contains("\"note\":\" x \"}"));
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String cached = TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder()
+				.valueCacheDetection(false)
+				.metrics(metrics)
+				.build());
+
+		Assert.assertEquals(uncached, cached);
+		Assert.assertEquals(Long.valueOf(2), metrics.getFieldValueCacheHits().get("publisher"));
+		Assert.assertEquals(Long.valueOf(2), metrics.getFieldValueCacheMisses().get("publisher"));
+		Assert.assertEquals(Long.valueOf(4), metrics.getFieldValueCacheHits().get("collection"));
+		Assert.assertEquals(Long.valueOf(3), metrics.getFieldValueCacheMisses().get("collection"));
+		Assert.assertEquals(Long.valueOf(2), metrics.getFieldValueCacheHits().get("note"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getFieldValueCacheHits().get("id"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getFieldValueCacheMisses().get("id"));
+	}
+
+	@Test
+	public void testEviction() throws IOException, CSV2SCLDJException {
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String cached = TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder()
+				.valueCacheSize(1)
+				.metrics(metrics)
+				.build());
+
+		Assert.assertEquals(TestUtil.convertToString(CSV, SCHEMA, ConversionOptions.builder().valueCacheSize(0).build()), cached);
+		// Verlag (miss), Verlag (hit), Springer (miss, evicts Verlag), Verlag (miss)
+		Assert.assertEquals(Long.valueOf(1), metrics.getFieldValueCacheHits().get("publisher"));
+		Assert.assertEquals(Long.valueOf(3), metrics.getFieldValueCacheMisses().get("publisher"));
+	}
+
+	@Test
+	public void testDetection() throws IOException, CSV2SCLDJException {
+
+		final StringBuilder csv = new StringBuilder("id,city,code\n");
+
+		for (int i = 0; i < 2000; i++) {
+
+			csv.append(i).append(',').append(i % 2 == 0 ? "M\u00fcnchen" : "K\u00f6ln").append(",DE-").append(i % 2).append('\n');
+		}
+
+		final io.vavr.collection.Map<String, Field> schema = io.vavr.collection.LinkedHashMap.of(
+				"id", new Field("id", false, true),
+				"city", new Field("city", false, false),
+				"code", new Field("code", false, false));
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String cached = TestUtil.convertToString(csv.toString(), schema, ConversionOptions.builder().metrics(metrics).build());
+
+		Assert.assertEquals(TestUtil.convertToString(csv.toString(), schema, ConversionOptions.builder().valueCacheSize(0).build()), cached);
+
+		// repetitive non-ASCII values are cached
+		Assert.assertEquals(Long.valueOf(1998), metrics.getFieldValueCacheHits().get("city"));
+		Assert.assertEquals(Long.valueOf(2), metrics.getFieldValueCacheMisses().get("city"));
+
+		// short ASCII values and unique values are not worth caching, i.e., the cache is dropped after the probation
+		Assert.assertEquals(Long.valueOf(0), metrics.getFieldValueCacheHits().get("code"));
+		Assert.assertEquals(Long.valueOf(1024), metrics.getFieldValueCacheMisses().get("code"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getFieldValueCacheHits().get("id"));
+		Assert.assertEquals(Long.valueOf(1024), metrics.getFieldValueCacheMisses().get("id"));
+	}
+
+	@Test
+	public void testProbationEndsWithinCell() throws IOException, CSV2SCLDJException {
+
+		// the probation of the multivalued field ends within the cell, i.e., its remaining values are written uncached
+		final StringBuilder csv = new StringBuilder("id,codes\n1,");
+
+		for (int i = 0; i < 2000; i++) {
+
+			csv.append(i > 0 ? "/()" : "").append("DE-").append(i % 2);
+		}
+
+		csv.append('\n');
+
+		final io.vavr.collection.Map<String, Field> schema = io.vavr.collection.LinkedHashMap.of(
+				"id", new Field("id", false, true),
+				"codes", new Field("codes", true, false));
+
+		final ConversionMetrics metrics = new ConversionMetrics();
+		final String cached = TestUtil.convertToString(csv.toString(), schema, ConversionOptions.builder().metrics(metrics).build());
+
+		Assert.assertEquals(TestUtil.convertToString(csv.toString(), schema, ConversionOptions.builder().valueCacheSize(0).build()), cached);
+		Assert.assertEquals(Long.valueOf(0), metrics.getFieldValueCacheHits().get("codes"));
+		Assert.assertEquals(Long.valueOf(1024), metrics.getFieldValueCacheMisses().get("codes"));
+	}
+
+	@Test
+	public void testLowCardinalitySchema() throws IOException, CSV2SCLDJException {
+
+		final Path schemaFile = Files.createTempFile("csv2scldj-schema", ".csv");
+
+		try {
+
+			Files.write(schemaFile, "id,false,true\npublisher,false,false,,true\nyear,false,false,integer,false\n".getBytes(StandardCharsets.UTF_8));
+
+			final io.vavr.collection.Map<String, Field> schema = SchemaUtils.readSchema(schemaFile.toString());
+
+			Assert.assertFalse(schema.get("id").get().isLowCardinality());
+			Assert.assertTrue(schema.get("publisher").get().isLowCardinality());
+			Assert.assertEquals(FieldType.STRING, schema.get("publisher").get().getType());
+			Assert.assertFalse(schema.get("year").get().isLowCardinality());
+
+			Files.write(schemaFile, "publisher,false,false,,yes\n".getBytes(StandardCharsets.UTF_8));
+
+			try {
+
+				SchemaUtils.readSchema(schemaFile.toString());
+
+				Assert.fail("an invalid low-cardinality value should be rejected");
+			} catch (final CSV2SCLDJException e) {
+
+				// expected
+			}
+		} finally {
+
+			Files.deleteIfExists(schemaFile);
+		}
+	}
+
+}
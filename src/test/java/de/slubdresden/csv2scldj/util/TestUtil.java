@@ -15,19 +15,39 @@
  */
 package de.slubdresden.csv2scldj.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 
 import com.google.common.io.ByteSource;
 import com.google.common.io.Resources;
+import io.vavr.collection.Map;
+
+import de.slubdresden.csv2scldj.CSV2SCLDJException;
+import de.slubdresden.csv2scldj.CSV2SCLDJExecuter;
+import de.slubdresden.csv2scldj.ConversionOptions;
+import de.slubdresden.csv2scldj.model.Field;
+import de.slubdresden.csv2scldj.utils.SchemaUtils;
 
 import static com.google.common.base.Charsets.UTF_8;
 
 public class TestUtil {
 
+	/**
+	 * the cell value delimiter of the test resources (i.e. '/()')
+	 */
+	public static final String CELL_VALUE_DELIMITER = "\\/\\(\\)";
+
+	/**
+	 * the schema of the test resources
+	 */
+	public static final String FINC_SOLR_SCHEMA = "finc_solr_schema.csv";
+
 	/**
 	 * Retrieves a resource by the give path and converts its content to a string.
 	 *
@@ -48,4 +68,89 @@ public class TestUtil {
 
 		return new InputStreamReader(byteSource.openBufferedStream(), StandardCharsets.UTF_8);
 	}
+
+	/**
+	 * Reads a schema from a resource.
+	 *
+	 * @param resource a resource path
+	 * @return the schema
+	 * @throws CSV2SCLDJException
+	 */
+	public static Map<String, Field> readSchema(final String resource) throws CSV2SCLDJException {
+
+		return SchemaUtils.readSchema(Resources.getResource(resource).getPath());
+	}
+
+	/**
+	 * Converts the given CSV into the given output stream (with the cell value delimiter of the test resources).
+	 *
+	 * @param csv          the CSV input
+	 * @param schema       the schema
+	 * @param outputStream the output stream
+	 * @param options      the conversion options
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static void convert(final Reader csv,
+	                           final Map<String, Field> schema,
+	                           final OutputStream outputStream,
+	                           final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		CSV2SCLDJExecuter.convertCSV2SCLDJ(csv, schema, outputStream, CELL_VALUE_DELIMITER, options);
+	}
+
+	/**
+	 * Converts the given CSV (with the cell value delimiter of the test resources).
+	 *
+	 * @param csv     the CSV input
+	 * @param schema  the schema
+	 * @param options the conversion options
+	 * @return the output
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static byte[] convert(final Reader csv,
+	                             final Map<String, Field> schema,
+	                             final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		convert(csv, schema, outputStream, options);
+
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Converts the given CSV (with the cell value delimiter of the test resources).
+	 *
+	 * @param csv     the CSV input
+	 * @param schema  the schema
+	 * @param options the conversion options
+	 * @return the output
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static byte[] convert(final String csv,
+	                             final Map<String, Field> schema,
+	                             final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		return convert(new StringReader(csv), schema, options);
+	}
+
+	/**
+	 * Converts the given CSV (with the cell value delimiter of the test resources) into line-delimited JSON.
+	 *
+	 * @param csv     the CSV input
+	 * @param schema  the schema
+	 * @param options the conversion options
+	 * @return the line-delimited JSON output
+	 * @throws IOException
+	 * @throws CSV2SCLDJException
+	 */
+	public static String convertToString(final String csv,
+	                                     final Map<String, Field> schema,
+	                                     final ConversionOptions options) throws IOException, CSV2SCLDJException {
+
+		return new String(convert(csv, schema, options), StandardCharsets.UTF_8);
+	}
 }